@@ -0,0 +1,70 @@
+package com.symptomchecker.bench;
+
+import com.symptomchecker.model.SymptomResult;
+import com.symptomchecker.service.SymptomCheckerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-profile throughput of {@code checkSymptomsBatch} against a loop of single queries over
+ * the same profiles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchScoringBenchmark {
+    private static final int PROFILES = 1024;
+
+    @Param({"100", "10000"})
+    private int conditionCount;
+
+    @Param({"15", "64"})
+    private int vocabulary;
+
+    private SymptomCheckerService service;
+    private List<List<String>> profiles;
+
+    @Setup
+    public void setUp() {
+        SyntheticCatalogGenerator generator = new SyntheticCatalogGenerator(42, vocabulary);
+        service = new SymptomCheckerService(generator.catalog(conditionCount, 5));
+        profiles = new ArrayList<>(PROFILES);
+        Random sizes = new Random(7);
+        for (int p = 0; p < PROFILES; p++) {
+            profiles.add(generator.selection(3 + sizes.nextInt(3)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROFILES)
+    public void singleQueryLoop(Blackhole blackhole) {
+        for (List<String> profile : profiles) {
+            blackhole.consume(service.checkSymptoms(profile));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROFILES)
+    public List<List<SymptomResult>> batch() {
+        return service.checkSymptomsBatch(profiles);
+    }
+}
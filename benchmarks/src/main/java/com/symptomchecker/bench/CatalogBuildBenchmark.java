@@ -0,0 +1,77 @@
+package com.symptomchecker.bench;
+
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.repository.CatalogSnapshotFile;
+import com.symptomchecker.service.SymptomCheckerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog load and build costs that do not need MySQL: compiling the in-memory index, and
+ * writing and reading the binary startup snapshot that stands in for the database load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CatalogBuildBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int conditionCount;
+
+    @Param({"5", "10"})
+    private int symptomsPerCondition;
+
+    private List<Condition> conditions;
+    private CatalogSnapshotFile snapshot;
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        SyntheticCatalogGenerator generator =
+            new SyntheticCatalogGenerator(42, SyntheticCatalogGenerator.vocabularyFor(conditionCount));
+        conditions = generator.catalog(conditionCount, symptomsPerCondition);
+        directory = Files.createTempDirectory("catalog-bench");
+        snapshot = new CatalogSnapshotFile(directory.resolve("catalog.snapshot"));
+        snapshot.write(conditions);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot.getPath());
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public SymptomCheckerService buildIndex() {
+        return new SymptomCheckerService(conditions);
+    }
+
+    @Benchmark
+    public void writeSnapshot() throws IOException {
+        snapshot.write(conditions);
+    }
+
+    @Benchmark
+    public SymptomCheckerService loadSnapshotAndBuild() throws IOException {
+        return new SymptomCheckerService(snapshot.read());
+    }
+}
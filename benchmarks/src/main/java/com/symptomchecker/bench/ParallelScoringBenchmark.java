@@ -0,0 +1,55 @@
+package com.symptomchecker.bench;
+
+import com.symptomchecker.model.SymptomResult;
+import com.symptomchecker.service.SymptomCheckerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-query latency with and without fork/join sharding of the catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelScoringBenchmark {
+
+    @Param({"1000000"})
+    private int conditionCount;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private SymptomCheckerService service;
+    private List<String> selection;
+
+    @Setup
+    public void setUp() {
+        SyntheticCatalogGenerator generator = new SyntheticCatalogGenerator(42, 50);
+        service = new SymptomCheckerService(generator.catalog(conditionCount, 6));
+        if (parallel) {
+            service.enableParallelScoring(ForkJoinPool.commonPool(), 100_000);
+        }
+        selection = generator.selection(5);
+    }
+
+    @Benchmark
+    public List<SymptomResult> checkSymptoms() {
+        return service.checkSymptoms(selection);
+    }
+}
@@ -0,0 +1,65 @@
+package com.symptomchecker.bench;
+
+import com.symptomchecker.model.SymptomResult;
+import com.symptomchecker.service.QueryResultBuffer;
+import com.symptomchecker.service.SymptomCheckerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the list-returning query path with the buffered one. Run with {@code -prof gc}
+ * and compare {@code gc.alloc.rate.norm}: the buffered path should report close to zero
+ * bytes per operation once warmed up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryAllocationBenchmark {
+
+    @Param({"10000"})
+    private int conditionCount;
+
+    @Param({"5"})
+    private int symptomsPerCondition;
+
+    @Param({"5"})
+    private int selectionSize;
+
+    private SymptomCheckerService service;
+    private QueryResultBuffer buffer;
+    private List<String> selection;
+
+    @Setup
+    public void setUp() {
+        SyntheticCatalogGenerator generator =
+            new SyntheticCatalogGenerator(42, SyntheticCatalogGenerator.vocabularyFor(conditionCount));
+        service = new SymptomCheckerService(generator.catalog(conditionCount, symptomsPerCondition));
+        buffer = new QueryResultBuffer();
+        selection = generator.selection(selectionSize);
+    }
+
+    @Benchmark
+    public List<SymptomResult> listResults() {
+        return service.checkSymptoms(selection, 3, 3);
+    }
+
+    @Benchmark
+    public int bufferedResults() {
+        return service.checkSymptoms(selection, 3, 3, buffer);
+    }
+}
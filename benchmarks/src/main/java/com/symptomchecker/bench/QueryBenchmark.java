@@ -0,0 +1,60 @@
+package com.symptomchecker.bench;
+
+import com.symptomchecker.model.SymptomResult;
+import com.symptomchecker.service.SymptomCheckerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and throughput of {@code checkSymptoms} over synthetic catalogs. Queries cycle
+ * through a fixed set of seeded selections so branch prediction cannot learn a single input.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+    private static final int SELECTIONS = 1024;
+
+    @Param({"6", "10000", "1000000"})
+    private int conditionCount;
+
+    @Param({"5"})
+    private int symptomsPerCondition;
+
+    @Param({"3", "6"})
+    private int selectionSize;
+
+    private SymptomCheckerService service;
+    private List<List<String>> selections;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SyntheticCatalogGenerator generator =
+            new SyntheticCatalogGenerator(42, SyntheticCatalogGenerator.vocabularyFor(conditionCount));
+        service = new SymptomCheckerService(generator.catalog(conditionCount, symptomsPerCondition));
+        selections = generator.selections(SELECTIONS, selectionSize);
+    }
+
+    @Benchmark
+    public List<SymptomResult> checkSymptoms() {
+        List<String> selection = selections.get(next);
+        next = (next + 1) & (SELECTIONS - 1);
+        return service.checkSymptoms(selection);
+    }
+}
@@ -0,0 +1,245 @@
+package com.symptomchecker.bench;
+
+import com.symptomchecker.cluster.ScatterGatherCoordinator;
+import com.symptomchecker.metrics.LatencyHistogram;
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.repository.CatalogSnapshotFile;
+import com.symptomchecker.service.SymptomCheckerService;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator that replays symptom selections at a fixed rate and reports latency
+ * percentiles, throughput and GC activity.
+ *
+ * <p>
+ * Request {@code i} is scheduled at {@code start + i / rate}, and its latency is measured from
+ * that intended time rather than from when a worker got around to sending it. A stall in the
+ * target therefore shows up in every request queued behind it, instead of only in the one
+ * request that hit it; this is the usual correction for coordinated omission. Plain service time
+ * is reported alongside for comparison.
+ * </p>
+ *
+ * <p>
+ * Usage, from the {@code benchmarks} directory after {@code mvn package}:
+ * </p>
+ * <pre>
+ * java -cp target/benchmarks.jar com.symptomchecker.bench.ReplayHarness [options]
+ *
+ *   --log FILE               replay selections from a recorded log (default: synthetic)
+ *   --url URL                send to a running server (default: in-process service)
+ *   --shards HOST:PORT,...   send to shard workers through a scatter-gather coordinator
+ *   --snapshot FILE          in-process catalog from a snapshot (default: synthetic catalog)
+ *   --conditions N           synthetic catalog size (default 100000)
+ *   --symptoms-per-condition N (default 5)
+ *   --selection-size N       synthetic selection size (default 3)
+ *   --rate N                 target requests per second (default 1000)
+ *   --duration SECONDS       measured run time (default 30)
+ *   --warmup SECONDS         unmeasured lead-in at the same rate (default 5)
+ *   --threads N              concurrent senders (default 16)
+ *   --timeout MILLIS         HTTP request or shard timeout (default 5000)
+ *   --seed N                 seed for synthetic catalogs and selections (default 42)
+ *   --save-baseline FILE     write this run's settings and results
+ *   --baseline FILE          diff this run against a saved one
+ *   --max-regression PERCENT exit with status 2 if throughput or p99 latency regress further
+ * </pre>
+ */
+public final class ReplayHarness {
+    private static final int SYNTHETIC_SELECTIONS = 65_536;
+    private static final long START_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final ReplayTarget target;
+    private final ReplayWorkload workload;
+    private final double rate;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final int threads;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLong nextRequest = new AtomicLong();
+    private final AtomicLong lastCompletion = new AtomicLong();
+
+    ReplayHarness(ReplayTarget target, ReplayWorkload workload, double rate, long warmupNanos, long durationNanos,
+                  int threads) {
+        this.target = target;
+        this.workload = workload;
+        this.rate = rate;
+        this.warmupNanos = warmupNanos;
+        this.durationNanos = durationNanos;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        int conditions = Integer.parseInt(options.getOrDefault("conditions", "100000"));
+        int symptomsPerCondition = Integer.parseInt(options.getOrDefault("symptoms-per-condition", "5"));
+        int selectionSize = Integer.parseInt(options.getOrDefault("selection-size", "3"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "1000"));
+        long warmupSeconds = Long.parseLong(options.getOrDefault("warmup", "5"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration", "30"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+        Duration timeout = Duration.ofMillis(Long.parseLong(options.getOrDefault("timeout", "5000")));
+        if (rate <= 0 || durationSeconds <= 0 || warmupSeconds < 0 || threads <= 0) {
+            throw new IllegalArgumentException("rate, duration and threads must be positive and warmup non-negative.");
+        }
+
+        SyntheticCatalogGenerator generator =
+            new SyntheticCatalogGenerator(seed, SyntheticCatalogGenerator.vocabularyFor(conditions));
+        List<Condition> catalog = null;
+        if (!options.containsKey("url") && !options.containsKey("shards")) {
+            // Build the catalog before drawing selections so both come from the same seeded sequence
+            catalog = options.containsKey("snapshot")
+                ? new CatalogSnapshotFile(Paths.get(options.get("snapshot"))).read()
+                : generator.catalog(conditions, symptomsPerCondition);
+        }
+        ReplayWorkload workload = options.containsKey("log")
+            ? ReplayWorkload.fromLog(Paths.get(options.get("log")))
+            : ReplayWorkload.synthetic(generator, SYNTHETIC_SELECTIONS, selectionSize);
+
+        ReplayReport report = new ReplayReport();
+        report.config("workload", workload.source());
+        report.config("seed", seed);
+        if (catalog != null) {
+            report.config("catalog", options.getOrDefault("snapshot",
+                "synthetic " + conditions + "x" + symptomsPerCondition));
+        }
+        if (!options.containsKey("log")) {
+            report.config("selection_size", selectionSize);
+        }
+        report.config("rate", rate);
+        report.config("warmup_seconds", warmupSeconds);
+        report.config("duration_seconds", durationSeconds);
+        report.config("threads", threads);
+
+        ReplayTarget selected;
+        if (catalog != null) {
+            selected = ReplayTarget.inProcess(new SymptomCheckerService(catalog));
+        } else if (options.containsKey("shards")) {
+            selected = ReplayTarget.cluster(new ScatterGatherCoordinator(
+                ScatterGatherCoordinator.parseShards(options.get("shards")), timeout.toMillis(), threads, false));
+        } else {
+            selected = ReplayTarget.http(options.get("url"), timeout);
+        }
+        try (ReplayTarget target = selected) {
+            report.config("target", target.describe());
+            new ReplayHarness(target, workload, rate, TimeUnit.SECONDS.toNanos(warmupSeconds),
+                TimeUnit.SECONDS.toNanos(durationSeconds), threads).run(report);
+        }
+
+        report.print(System.out);
+        if (options.containsKey("save-baseline")) {
+            report.save(Paths.get(options.get("save-baseline")));
+        }
+        if (options.containsKey("baseline")) {
+            double maxRegression = Double.parseDouble(options.getOrDefault("max-regression", "-1"));
+            List<String> regressions = report.compare(Paths.get(options.get("baseline")), System.out, maxRegression);
+            if (!regressions.isEmpty()) {
+                System.err.println("Regressed beyond " + maxRegression + "%: " + regressions);
+                System.exit(2);
+            }
+        }
+    }
+
+    /**
+     * Replay the workload on the configured schedule and record the measured part into the
+     * report.
+     */
+    void run(ReplayReport report) throws InterruptedException {
+        long start = System.nanoTime() + START_DELAY_NANOS;
+        long measureFrom = start + warmupNanos;
+        long totalRequests = (long) Math.ceil((warmupNanos + durationNanos) / 1e9 * rate);
+
+        Thread[] senders = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            senders[t] = new Thread(() -> send(start, measureFrom, totalRequests), "replay-sender-" + t);
+            senders[t].setDaemon(true);
+            senders[t].start();
+        }
+
+        LockSupport.parkNanos(measureFrom - System.nanoTime());
+        long[] gcBefore = gcTotals();
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        long[] gcAfter = gcTotals();
+
+        long measuredNanos = Math.max(1L, lastCompletion.get() - measureFrom);
+        report.result("requests", latency.getCount());
+        report.result("errors", errors.sum());
+        report.result("throughput.per_second", latency.getCount() * 1e9 / measuredNanos);
+        report.result("latency.p50_micros", micros(latency.getPercentile(0.50)));
+        report.result("latency.p90_micros", micros(latency.getPercentile(0.90)));
+        report.result("latency.p99_micros", micros(latency.getPercentile(0.99)));
+        report.result("latency.p999_micros", micros(latency.getPercentile(0.999)));
+        report.result("latency.max_micros", micros(latency.getMax()));
+        report.result("service_time.p50_micros", micros(serviceTime.getPercentile(0.50)));
+        report.result("service_time.p99_micros", micros(serviceTime.getPercentile(0.99)));
+        report.result("gc.collections", gcAfter[0] - gcBefore[0]);
+        report.result("gc.time_millis", gcAfter[1] - gcBefore[1]);
+        report.result("heap.used_mb", ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20);
+    }
+
+    private void send(long start, long measureFrom, long totalRequests) {
+        long request;
+        while ((request = nextRequest.getAndIncrement()) < totalRequests) {
+            long intended = start + (long) (request * 1e9 / rate);
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            long sent = System.nanoTime();
+            boolean ok = target.check(workload.selection(request));
+            long done = System.nanoTime();
+            if (intended < measureFrom) {
+                continue;
+            }
+            latency.record(done - intended);
+            serviceTime.record(done - sent);
+            if (!ok) {
+                errors.increment();
+            }
+            lastCompletion.accumulateAndGet(done, Math::max);
+        }
+    }
+
+    /**
+     * @return total collections and collection time in milliseconds across all collectors
+     */
+    private static long[] gcTotals() {
+        long[] totals = new long[2];
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals[0] += Math.max(0L, collector.getCollectionCount());
+            totals[1] += Math.max(0L, collector.getCollectionTime());
+        }
+        return totals;
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
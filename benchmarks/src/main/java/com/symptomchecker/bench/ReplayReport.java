@@ -0,0 +1,122 @@
+package com.symptomchecker.bench;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Results of one replay run, with the settings that produced it, saved as a properties file so a
+ * later run can be diffed against it.
+ */
+final class ReplayReport {
+    /**
+     * Metrics compared against a baseline, with whether a larger value is better.
+     */
+    private static final Map<String, Boolean> COMPARED = new LinkedHashMap<>();
+
+    static {
+        COMPARED.put("throughput.per_second", true);
+        COMPARED.put("latency.p50_micros", false);
+        COMPARED.put("latency.p90_micros", false);
+        COMPARED.put("latency.p99_micros", false);
+        COMPARED.put("latency.p999_micros", false);
+        COMPARED.put("latency.max_micros", false);
+        COMPARED.put("service_time.p50_micros", false);
+        COMPARED.put("service_time.p99_micros", false);
+        COMPARED.put("errors", false);
+        COMPARED.put("gc.collections", false);
+        COMPARED.put("gc.time_millis", false);
+    }
+
+    /**
+     * Metrics that can fail a run through {@code --max-regression}.
+     */
+    private static final List<String> GATED = List.of("throughput.per_second", "latency.p99_micros");
+
+    private final Map<String, String> config = new LinkedHashMap<>();
+    private final Map<String, Number> results = new LinkedHashMap<>();
+
+    void config(String key, Object value) {
+        config.put(key, String.valueOf(value));
+    }
+
+    void result(String key, Number value) {
+        results.put(key, value);
+    }
+
+    void print(PrintStream out) {
+        out.println("Settings");
+        config.forEach((key, value) -> out.printf("  %-26s %s%n", key, value));
+        out.println("Results");
+        results.forEach((key, value) -> out.printf("  %-26s %s%n", key, format(value)));
+    }
+
+    void save(Path file) throws IOException {
+        Properties properties = new Properties();
+        config.forEach((key, value) -> properties.setProperty("config." + key, value));
+        results.forEach((key, value) -> properties.setProperty("result." + key, String.valueOf(value)));
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Symptom checker replay baseline");
+        }
+    }
+
+    /**
+     * Print this run next to a saved baseline.
+     *
+     * @param maxRegressionPercent largest tolerated slowdown of throughput or p99 latency, or a
+     *                             negative value to only report
+     * @return names of the gated metrics that regressed by more than the tolerance
+     */
+    List<String> compare(Path baselineFile, PrintStream out, double maxRegressionPercent) throws IOException {
+        Properties baseline = new Properties();
+        try (Reader reader = Files.newBufferedReader(baselineFile, StandardCharsets.UTF_8)) {
+            baseline.load(reader);
+        }
+
+        for (Map.Entry<String, String> entry : config.entrySet()) {
+            String saved = baseline.getProperty("config." + entry.getKey());
+            if (saved != null && !saved.equals(entry.getValue())) {
+                out.printf("Warning: %s was %s in the baseline, %s now; results may not be comparable.%n",
+                    entry.getKey(), saved, entry.getValue());
+            }
+        }
+
+        List<String> regressions = new ArrayList<>();
+        out.println("Against baseline " + baselineFile);
+        out.printf("  %-26s %14s %14s %9s%n", "metric", "baseline", "current", "change");
+        for (Map.Entry<String, Boolean> entry : COMPARED.entrySet()) {
+            String saved = baseline.getProperty("result." + entry.getKey());
+            Number current = results.get(entry.getKey());
+            if (saved == null || current == null) {
+                continue;
+            }
+            double before = Double.parseDouble(saved);
+            double after = current.doubleValue();
+            String change = before == 0 ? (after == 0 ? "0.0%" : "new") : String.format("%+.1f%%", (after - before) * 100 / before);
+            out.printf("  %-26s %14s %14s %9s%n", entry.getKey(), format(before), format(after), change);
+
+            // Regression is measured as the change in the bad direction
+            double worse = before == 0 ? 0 : (entry.getValue() ? before - after : after - before) * 100 / before;
+            if (maxRegressionPercent >= 0 && GATED.contains(entry.getKey()) && worse > maxRegressionPercent) {
+                regressions.add(entry.getKey());
+            }
+        }
+        return regressions;
+    }
+
+    private static String format(Number value) {
+        if ((value instanceof Double || value instanceof Float) && value.doubleValue() != Math.rint(value.doubleValue())) {
+            return String.format("%.1f", value.doubleValue());
+        }
+        return String.valueOf(value);
+    }
+}
@@ -0,0 +1,109 @@
+package com.symptomchecker.bench;
+
+import com.symptomchecker.cluster.ScatterGatherCoordinator;
+import com.symptomchecker.service.SymptomCheckerService;
+import com.symptomchecker.util.Json;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the replay harness sends each selection: a {@link SymptomCheckerService} in the same
+ * JVM, a running server's {@code POST /api/check} endpoint, or a set of shard workers through
+ * a {@link ScatterGatherCoordinator}.
+ */
+interface ReplayTarget extends AutoCloseable {
+
+    /**
+     * Check one selection, blocking until the result is available.
+     *
+     * @return {@code true} if the check succeeded
+     */
+    boolean check(List<String> selection);
+
+    String describe();
+
+    @Override
+    default void close() {
+    }
+
+    static ReplayTarget inProcess(SymptomCheckerService service) {
+        return new ReplayTarget() {
+            @Override
+            public boolean check(List<String> selection) {
+                return service.checkSymptoms(selection) != null;
+            }
+
+            @Override
+            public String describe() {
+                return "in-process (" + service.getConditions().size() + " conditions)";
+            }
+        };
+    }
+
+    /**
+     * Partial results count as errors, since they may be missing conditions.
+     */
+    static ReplayTarget cluster(ScatterGatherCoordinator coordinator) {
+        return new ReplayTarget() {
+            @Override
+            public boolean check(List<String> selection) {
+                try {
+                    return !coordinator.check(selection, 3, 3).isPartial();
+                } catch (IllegalStateException ex) {
+                    return false;
+                }
+            }
+
+            @Override
+            public String describe() {
+                return "cluster (" + coordinator.getShardCount() + " shards)";
+            }
+
+            @Override
+            public void close() {
+                coordinator.close();
+            }
+        };
+    }
+
+    /**
+     * @param baseUrl server root, such as {@code http://localhost:8080}
+     */
+    static ReplayTarget http(String baseUrl, Duration timeout) {
+        URI endpoint = URI.create(baseUrl.replaceAll("/+$", "") + "/api/check");
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(timeout)
+            .build();
+        return new ReplayTarget() {
+            @Override
+            public boolean check(List<String> selection) {
+                HttpRequest request = HttpRequest.newBuilder(endpoint)
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(Json.write(Map.of("symptoms", selection))))
+                    .build();
+                try {
+                    return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                } catch (IOException ex) {
+                    return false;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+
+            @Override
+            public String describe() {
+                return endpoint.toString();
+            }
+        };
+    }
+}
@@ -0,0 +1,105 @@
+package com.symptomchecker.bench;
+
+import com.symptomchecker.util.Json;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordered list of symptom selections for the replay harness, read from a recorded log or drawn
+ * from {@link SyntheticCatalogGenerator}. Request {@code i} of a run sends selection
+ * {@code i % size()}, so a run is fully determined by the workload and the request count.
+ */
+final class ReplayWorkload {
+    private final String source;
+    private final List<List<String>> selections;
+
+    private ReplayWorkload(String source, List<List<String>> selections) {
+        this.source = source;
+        this.selections = selections;
+    }
+
+    /**
+     * Read a recorded log with one selection per line. A line is either a JSON request body as
+     * accepted by {@code POST /api/check}, a JSON array of symptoms, or a comma-separated list of
+     * symptoms. Blank lines and lines starting with {@code #} are skipped.
+     *
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line cannot be parsed or the log is empty
+     */
+    static ReplayWorkload fromLog(Path log) throws IOException {
+        List<List<String>> selections = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    selections.add(parseLine(line));
+                } catch (IllegalArgumentException ex) {
+                    throw new IllegalArgumentException(log + ":" + lineNumber + ": " + ex.getMessage(), ex);
+                }
+            }
+        }
+        if (selections.isEmpty()) {
+            throw new IllegalArgumentException("Replay log " + log + " has no selections.");
+        }
+        return new ReplayWorkload(log.toString(), selections);
+    }
+
+    /**
+     * Draw {@code count} seeded selections of {@code selectionSize} symptoms.
+     */
+    static ReplayWorkload synthetic(SyntheticCatalogGenerator generator, int count, int selectionSize) {
+        return new ReplayWorkload("synthetic", generator.selections(count, selectionSize));
+    }
+
+    private static List<String> parseLine(String line) {
+        if (!line.startsWith("{") && !line.startsWith("[")) {
+            List<String> symptoms = new ArrayList<>();
+            for (String symptom : line.split(",")) {
+                if (!symptom.trim().isEmpty()) {
+                    symptoms.add(symptom.trim());
+                }
+            }
+            return symptoms;
+        }
+        Object parsed = Json.parse(line);
+        if (parsed instanceof Map) {
+            parsed = ((Map<?, ?>) parsed).get("symptoms");
+        }
+        if (!(parsed instanceof List)) {
+            throw new IllegalArgumentException("expected a symptoms array");
+        }
+        List<String> symptoms = new ArrayList<>();
+        for (Object symptom : (List<?>) parsed) {
+            if (!(symptom instanceof String)) {
+                throw new IllegalArgumentException("symptoms must be strings");
+            }
+            symptoms.add((String) symptom);
+        }
+        return symptoms;
+    }
+
+    String source() {
+        return source;
+    }
+
+    int size() {
+        return selections.size();
+    }
+
+    List<String> selection(long request) {
+        return selections.get((int) (request % selections.size()));
+    }
+}
@@ -0,0 +1,107 @@
+package com.symptomchecker.bench;
+
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.service.SymptomCheckerService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Seeded generator of synthetic condition catalogs and symptom selections.
+ *
+ * <p>
+ * Catalogs start with the six built-in conditions and are extended with synthetic ones up to
+ * the requested size. Symptoms are drawn from a vocabulary made of the 15 core symptoms
+ * followed by synthetic names, with Zipf-distributed popularity so a few symptoms appear in
+ * many conditions and most appear in few, as in real catalogs. The same seed always yields
+ * the same catalog and selections.
+ * </p>
+ */
+public final class SyntheticCatalogGenerator {
+    private static final double ZIPF_EXPONENT = 1.0;
+
+    private final Random random;
+    private final String[] vocabulary;
+    private final double[] cumulativeWeights;
+
+    /**
+     * @param seed random seed
+     * @param vocabularySize number of distinct symptoms; at least the 15 core symptoms are used
+     */
+    public SyntheticCatalogGenerator(long seed, int vocabularySize) {
+        this.random = new Random(seed);
+        List<String> core = SymptomCheckerService.defaultSymptoms();
+        this.vocabulary = new String[Math.max(core.size(), vocabularySize)];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = i < core.size() ? core.get(i) : "Symptom " + i;
+        }
+        this.cumulativeWeights = new double[vocabulary.length];
+        double total = 0;
+        for (int rank = 0; rank < vocabulary.length; rank++) {
+            total += 1.0 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            cumulativeWeights[rank] = total;
+        }
+    }
+
+    /**
+     * Default vocabulary size for a catalog: the core symptoms for tiny catalogs, growing with
+     * the square root of the catalog size for larger ones.
+     */
+    public static int vocabularyFor(int conditionCount) {
+        return Math.max(15, (int) Math.sqrt(conditionCount) * 4);
+    }
+
+    public int vocabularySize() {
+        return vocabulary.length;
+    }
+
+    /**
+     * Generate a catalog of {@code conditionCount} conditions: the built-in ones first, then
+     * synthetic conditions listing {@code symptomsPerCondition} distinct symptoms each.
+     */
+    public List<Condition> catalog(int conditionCount, int symptomsPerCondition) {
+        List<Condition> conditions = new ArrayList<>(conditionCount);
+        List<Condition> builtIn = SymptomCheckerService.defaultConditions();
+        for (int i = 0; i < Math.min(conditionCount, builtIn.size()); i++) {
+            conditions.add(builtIn.get(i));
+        }
+        for (int i = conditions.size(); i < conditionCount; i++) {
+            conditions.add(new Condition(i + 1, "Condition " + i, selection(symptomsPerCondition),
+                "Advice for condition " + i));
+        }
+        return conditions;
+    }
+
+    /**
+     * Draw {@code size} distinct symptoms, more popular symptoms being more likely.
+     */
+    public List<String> selection(int size) {
+        int target = Math.min(size, vocabulary.length);
+        Set<String> selected = new LinkedHashSet<>();
+        while (selected.size() < target) {
+            selected.add(vocabulary[nextRank()]);
+        }
+        return new ArrayList<>(selected);
+    }
+
+    /**
+     * Draw {@code count} selections of {@code size} symptoms each.
+     */
+    public List<List<String>> selections(int count, int size) {
+        List<List<String>> selections = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            selections.add(selection(size));
+        }
+        return selections;
+    }
+
+    private int nextRank() {
+        double point = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        int rank = Arrays.binarySearch(cumulativeWeights, point);
+        return rank >= 0 ? rank : Math.min(-rank - 1, cumulativeWeights.length - 1);
+    }
+}
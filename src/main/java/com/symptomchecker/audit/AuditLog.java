@@ -0,0 +1,444 @@
+package com.symptomchecker.audit;
+
+import com.symptomchecker.config.AuditConfig;
+import com.symptomchecker.model.SymptomResult;
+import com.symptomchecker.service.QueryResultBuffer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records every symptom check to append-only segment files without putting file I/O on the
+ * checking thread.
+ *
+ * <p>
+ * A check copies a compact record (time, symptom IDs, returned condition IDs) into a
+ * preallocated ring of fixed-size slots: one compare-and-set claims a slot and a release store
+ * publishes it, so checking threads never take a lock. A single writer thread drains published
+ * slots in order, in batches, into memory-mapped {@link AuditSegmentWriter segments}. When the
+ * writer falls a whole ring behind, the {@link BackpressurePolicy} decides whether checks wait
+ * or their records are dropped.
+ * </p>
+ *
+ * <p>
+ * Symptom names are mapped to IDs through a dictionary owned by the log; each segment defines
+ * the IDs it uses, and {@link AuditLogReader} turns them back into names. Selections come from
+ * clients, so the dictionary has a fixed heap budget; once it is spent, names it has not seen are
+ * recorded as unrecorded. Condition IDs are the catalog ids of the returned conditions.
+ * </p>
+ *
+ * <p>
+ * A record that fails to write is counted and skipped, and the writer moves on to a new
+ * segment. Should the writer thread still die, checks stop waiting for it and their records are
+ * dropped.
+ * </p>
+ */
+public final class AuditLog implements AutoCloseable {
+
+    /**
+     * What a check does when the ring has no free slot.
+     */
+    public enum BackpressurePolicy {
+        /**
+         * Wait until the writer frees a slot, so no check goes unrecorded. A check on an
+         * interrupted thread does not wait; its record is dropped.
+         */
+        BLOCK,
+        /** Skip the record and count it, so checks never wait on the audit log. */
+        DROP
+    }
+
+    static final int SYMPTOMS_TRUNCATED = 1;
+    static final int RESULTS_TRUNCATED = 2;
+
+    /** Heap a dictionary entry takes besides the characters of its name, roughly. */
+    private static final int DICTIONARY_ENTRY_BYTES = 96;
+    /** Longer symptom names are recorded as unrecorded rather than bloating every segment. */
+    private static final int MAX_SYMPTOM_CHARS = 1024;
+
+    private static final int HEADER_INTS = 5;
+    private static final int WRITE_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    /** Set on {@link #claimed} by {@link #close()}, so no slot can be claimed after it. */
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private final BackpressurePolicy policy;
+    private final int maxSymptoms;
+    private final int maxResults;
+    private final int stride;
+    private final int mask;
+    private final int[] slots;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+
+    private final ConcurrentHashMap<String, Integer> symptomIds = new ConcurrentHashMap<>();
+    private final Object dictionaryLock = new Object();
+    private final long dictionaryBytes;
+    private volatile String[] symptomNames = new String[64];
+    private volatile boolean dictionaryFull;
+    private int dictionarySize;
+    private long dictionaryUsed;
+
+    private final AuditSegmentWriter segments;
+    private final long forceIntervalNanos;
+    private final Thread writer;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private volatile long written;
+    private volatile long writeFailures;
+
+    /**
+     * Open the log and start its writer thread.
+     *
+     * @param directory where segments are written
+     * @param ringSize slots in the ring; rounded up to a power of two
+     * @param policy what checks do when the ring is full
+     * @param segmentBytes size of each segment file
+     * @param maxSymptoms symptoms kept per record
+     * @param maxResults condition IDs kept per record
+     * @param dictionaryBytes heap the symptom name dictionary may use
+     * @param forceIntervalMillis how often written records are forced to disk
+     */
+    public AuditLog(Path directory, int ringSize, BackpressurePolicy policy, long segmentBytes, int maxSymptoms,
+                    int maxResults, long dictionaryBytes, long forceIntervalMillis) throws IOException {
+        this(new AuditSegmentWriter(directory, segmentBytes), ringSize, policy, maxSymptoms, maxResults,
+            dictionaryBytes, forceIntervalMillis);
+    }
+
+    AuditLog(AuditSegmentWriter segments, int ringSize, BackpressurePolicy policy, int maxSymptoms, int maxResults,
+             long dictionaryBytes, long forceIntervalMillis) {
+        if (ringSize < 1 || ringSize > 1 << 24) {
+            throw new IllegalArgumentException("Ring size must be between 1 and " + (1 << 24) + ": " + ringSize);
+        }
+        if (maxSymptoms < 1 || maxSymptoms > 0xFFFF || maxResults < 1 || maxResults > 0xFFFF) {
+            throw new IllegalArgumentException("Symptoms and results per record must be between 1 and 65535.");
+        }
+        if (dictionaryBytes < 0) {
+            throw new IllegalArgumentException("Dictionary bytes must not be negative: " + dictionaryBytes);
+        }
+        long largestRecord = AuditSegmentWriter.maxQueryBytes(maxSymptoms, maxResults, MAX_SYMPTOM_CHARS);
+        if (segments.getSegmentBytes() < AuditSegmentWriter.HEADER_BYTES + largestRecord + 4) {
+            throw new IllegalArgumentException("Segments of " + segments.getSegmentBytes()
+                + " bytes cannot hold a record of up to " + largestRecord + " bytes.");
+        }
+        int capacity = Integer.highestOneBit(ringSize - 1) << 1;
+        if (ringSize == 1) {
+            capacity = 1;
+        }
+        this.policy = policy;
+        this.maxSymptoms = maxSymptoms;
+        this.maxResults = maxResults;
+        this.stride = HEADER_INTS + maxSymptoms + maxResults;
+        this.mask = capacity - 1;
+        this.slots = new int[Math.multiplyExact(capacity, stride)];
+        this.published = new AtomicLongArray(capacity);
+        this.dictionaryBytes = dictionaryBytes;
+        this.segments = segments;
+        this.forceIntervalNanos = TimeUnit.MILLISECONDS.toNanos(forceIntervalMillis);
+        this.writer = new Thread(this::drain, "audit-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return a log configured by {@link AuditConfig}, or {@code null} when no audit directory
+     * is set
+     */
+    public static AuditLog fromConfig() throws IOException {
+        if (AuditConfig.AUDIT_DIR.isBlank()) {
+            return null;
+        }
+        return new AuditLog(
+            Paths.get(AuditConfig.AUDIT_DIR),
+            AuditConfig.AUDIT_RING_SIZE,
+            BackpressurePolicy.valueOf(AuditConfig.AUDIT_POLICY.trim().toUpperCase(Locale.ROOT)),
+            AuditConfig.AUDIT_SEGMENT_BYTES,
+            AuditConfig.AUDIT_MAX_SYMPTOMS,
+            AuditConfig.AUDIT_MAX_RESULTS,
+            AuditConfig.AUDIT_DICTIONARY_BYTES,
+            AuditConfig.AUDIT_FORCE_INTERVAL_MS);
+    }
+
+    /**
+     * Record a check and the results it returned.
+     *
+     * @return {@code false} when the record was dropped
+     */
+    public boolean record(List<String> selectedSymptoms, List<SymptomResult> results) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return false;
+        }
+        int base = (int) (sequence & mask) * stride;
+        int flags = putSymptoms(base, selectedSymptoms);
+        int resultCount = Math.min(results.size(), maxResults);
+        int resultBase = base + HEADER_INTS + maxSymptoms;
+        for (int i = 0; i < resultCount; i++) {
+            slots[resultBase + i] = results.get(i).getConditionId();
+        }
+        return publish(sequence, base, flags, resultCount, results.size());
+    }
+
+    /**
+     * Record a check and the results it ranked into a buffer.
+     *
+     * @return {@code false} when the record was dropped
+     */
+    public boolean record(List<String> selectedSymptoms, QueryResultBuffer results) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return false;
+        }
+        int base = (int) (sequence & mask) * stride;
+        int flags = putSymptoms(base, selectedSymptoms);
+        int resultCount = Math.min(results.size(), maxResults);
+        int resultBase = base + HEADER_INTS + maxSymptoms;
+        for (int i = 0; i < resultCount; i++) {
+            slots[resultBase + i] = results.conditionId(i);
+        }
+        return publish(sequence, base, flags, resultCount, results.size());
+    }
+
+    /**
+     * @return the next sequence, which the caller now owns, or {@code -1} when the record is
+     * dropped
+     */
+    private long claim() {
+        boolean waited = false;
+        while (true) {
+            long sequence = claimed.get();
+            if ((sequence & CLOSED) != 0) {
+                dropped.increment();
+                return -1;
+            }
+            if (sequence - consumed > mask) {
+                // A dead writer never frees a slot, so waiting for one would hang the check, and
+                // parking returns at once on an interrupted thread, so waiting would spin
+                if (policy == BackpressurePolicy.DROP || !writer.isAlive() || Thread.currentThread().isInterrupted()) {
+                    dropped.increment();
+                    return -1;
+                }
+                if (!waited) {
+                    blocked.increment();
+                    waited = true;
+                }
+                LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+            } else if (claimed.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    private int putSymptoms(int base, List<String> selectedSymptoms) {
+        int selected = selectedSymptoms == null ? 0 : selectedSymptoms.size();
+        int symptomCount = Math.min(selected, maxSymptoms);
+        for (int i = 0; i < symptomCount; i++) {
+            slots[base + HEADER_INTS + i] = symptomId(selectedSymptoms.get(i));
+        }
+        slots[base + 2] = symptomCount;
+        return selected > symptomCount ? SYMPTOMS_TRUNCATED : 0;
+    }
+
+    private boolean publish(long sequence, int base, int flags, int resultCount, int totalResults) {
+        long now = System.currentTimeMillis();
+        slots[base] = (int) (now >>> 32);
+        slots[base + 1] = (int) now;
+        slots[base + 3] = resultCount;
+        slots[base + 4] = flags | (totalResults > resultCount ? RESULTS_TRUNCATED : 0);
+        published.setRelease((int) (sequence & mask), sequence + 1);
+        recorded.increment();
+        return true;
+    }
+
+    private int symptomId(String symptom) {
+        if (symptom == null) {
+            return AuditSegmentWriter.UNRECORDED_SYMPTOM;
+        }
+        Integer id = symptomIds.get(symptom);
+        if (id != null) {
+            return id;
+        }
+        if (dictionaryFull || symptom.length() > MAX_SYMPTOM_CHARS) {
+            return AuditSegmentWriter.UNRECORDED_SYMPTOM;
+        }
+        synchronized (dictionaryLock) {
+            id = symptomIds.get(symptom);
+            if (id != null) {
+                return id;
+            }
+            long entryBytes = DICTIONARY_ENTRY_BYTES + 2L * symptom.length();
+            if (dictionaryUsed + entryBytes > dictionaryBytes) {
+                // From now on unseen names are turned away without taking the lock
+                dictionaryFull = true;
+                return AuditSegmentWriter.UNRECORDED_SYMPTOM;
+            }
+            String[] names = symptomNames;
+            if (dictionarySize == names.length) {
+                names = Arrays.copyOf(names, names.length * 2);
+            }
+            names[dictionarySize] = symptom;
+            // The name is stored before the ID becomes visible to other threads
+            symptomNames = names;
+            symptomIds.put(symptom, dictionarySize);
+            dictionaryUsed += entryBytes;
+            return dictionarySize++;
+        }
+    }
+
+    /**
+     * Writer thread: drain published slots in order and append them to the current segment.
+     * Nothing a segment throws, errors included, is allowed to end the thread, since checks
+     * under {@link BackpressurePolicy#BLOCK} wait for it.
+     */
+    private void drain() {
+        long next = 0;
+        long lastForce = System.nanoTime();
+        while (true) {
+            int drained = 0;
+            while (drained < WRITE_BATCH && published.getAcquire((int) (next & mask)) == next + 1) {
+                write((int) (next & mask) * stride);
+                next++;
+                drained++;
+            }
+            if (drained > 0) {
+                // Frees the drained slots for producers
+                consumed = next;
+                written += drained;
+            }
+            long now = System.nanoTime();
+            if (now - lastForce >= forceIntervalNanos) {
+                lastForce = now;
+                try {
+                    segments.force();
+                } catch (Throwable ex) {
+                    abandonSegment("Failed to force audit segment to disk; starting a new segment.", ex);
+                }
+            }
+            if (drained == 0) {
+                // Once closed, no slot is claimed beyond the sealed count, so none is missed
+                if (claimed.get() == (next | CLOSED)) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        try {
+            segments.close();
+        } catch (Throwable ex) {
+            System.err.println("Failed to close audit segment.");
+            System.err.println(ex.getMessage());
+        }
+    }
+
+    private void write(int base) {
+        long epochMillis = ((long) slots[base] << 32) | (slots[base + 1] & 0xFFFFFFFFL);
+        try {
+            segments.appendQuery(epochMillis, slots[base + 4], slots, base + HEADER_INTS, slots[base + 2],
+                base + HEADER_INTS + maxSymptoms, slots[base + 3], symptomNames);
+        } catch (Throwable ex) {
+            abandonSegment("Failed to write audit record; starting a new segment.", ex);
+        }
+    }
+
+    private void abandonSegment(String message, Throwable cause) {
+        writeFailures++;
+        System.err.println(message);
+        System.err.println(cause.getMessage());
+        segments.abandonSegment();
+    }
+
+    /**
+     * Stop accepting records, write the ones already accepted and close the current segment.
+     */
+    @Override
+    public void close() {
+        // Sealing the claim count takes the same compare-and-set as a claim, so every record
+        // accepted before it is one the writer waits for
+        long sequence;
+        do {
+            sequence = claimed.get();
+        } while ((sequence & CLOSED) == 0 && !claimed.compareAndSet(sequence, sequence | CLOSED));
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public BackpressurePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return records accepted into the ring
+     */
+    public long getRecordedCount() {
+        return recorded.sum();
+    }
+
+    /**
+     * @return records skipped because the ring was full under {@link BackpressurePolicy#DROP} or
+     * on an interrupted thread, because the writer thread had died, or because the log was closed
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return checks that had to wait for a free slot under {@link BackpressurePolicy#BLOCK}
+     */
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+
+    /**
+     * @return records taken off the ring by the writer, including any that failed to write
+     */
+    public long getWrittenCount() {
+        return written;
+    }
+
+    /**
+     * @return records that failed to write, and failures forcing a segment to disk
+     */
+    public long getWriteFailureCount() {
+        return writeFailures;
+    }
+
+    /**
+     * @return records accepted but not yet taken off the ring
+     */
+    public long getPendingCount() {
+        return Math.max(0, (claimed.get() & ~CLOSED) - consumed);
+    }
+
+    public long getSegmentsCreated() {
+        return segments.getSegmentsCreated();
+    }
+
+    int getDictionarySize() {
+        synchronized (dictionaryLock) {
+            return dictionarySize;
+        }
+    }
+}
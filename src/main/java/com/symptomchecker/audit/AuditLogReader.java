@@ -0,0 +1,147 @@
+package com.symptomchecker.audit;
+
+import com.symptomchecker.util.Json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads the records an {@link AuditLog} wrote, oldest segment first.
+ *
+ * <p>
+ * Segments can be read while the log is still appending to them; reading stops at the last
+ * complete record. Record types this reader does not know are skipped.
+ * </p>
+ *
+ * <p>
+ * Usage, printing one JSON object per check:
+ * </p>
+ * <pre>
+ * java -cp target/classes com.symptomchecker.audit.AuditLogReader DIRECTORY [--from ISO-8601] [--to ISO-8601]
+ * </pre>
+ */
+public final class AuditLogReader {
+    private final Path directory;
+
+    public AuditLogReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Pass every record in the directory to the consumer, in the order they were written.
+     *
+     * @throws IllegalStateException if a file is not an audit segment
+     */
+    public void read(Consumer<AuditRecord> consumer) throws IOException {
+        for (Path segment : AuditSegmentWriter.segments(directory)) {
+            readSegment(segment, consumer);
+        }
+    }
+
+    /**
+     * Pass every record of one segment to the consumer.
+     *
+     * @throws IllegalStateException if the file is not an audit segment
+     */
+    public static void readSegment(Path segment, Consumer<AuditRecord> consumer) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.remaining() < AuditSegmentWriter.HEADER_BYTES || buffer.getInt() != AuditSegmentWriter.MAGIC) {
+            throw new IllegalStateException(segment + " is not an audit segment");
+        }
+        int version = buffer.getInt();
+        if (version != AuditSegmentWriter.VERSION) {
+            throw new IllegalStateException(segment + " has unsupported audit segment version " + version);
+        }
+        buffer.position(AuditSegmentWriter.HEADER_BYTES);
+
+        Map<Integer, String> symptomNames = new HashMap<>();
+        while (buffer.remaining() >= 4) {
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+            int end = buffer.position() + length;
+            byte type = buffer.get();
+            if (type == AuditSegmentWriter.DEFINE) {
+                int id = buffer.getInt();
+                byte[] name = new byte[buffer.getInt()];
+                buffer.get(name);
+                symptomNames.put(id, new String(name, StandardCharsets.UTF_8));
+            } else if (type == AuditSegmentWriter.QUERY) {
+                long epochMillis = buffer.getLong();
+                int flags = buffer.get();
+                int symptomCount = Short.toUnsignedInt(buffer.getShort());
+                int resultCount = Short.toUnsignedInt(buffer.getShort());
+                List<String> symptoms = new ArrayList<>(symptomCount);
+                for (int i = 0; i < symptomCount; i++) {
+                    symptoms.add(symptomNames.get(buffer.getInt()));
+                }
+                List<Integer> conditionIds = new ArrayList<>(resultCount);
+                for (int i = 0; i < resultCount; i++) {
+                    conditionIds.add(buffer.getInt());
+                }
+                consumer.accept(new AuditRecord(epochMillis, symptoms, conditionIds, flags));
+            }
+            buffer.position(end);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: AuditLogReader DIRECTORY [--from ISO-8601] [--to ISO-8601]");
+        }
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        for (int i = 1; i < args.length; i++) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+            }
+            if (args[i].equals("--from")) {
+                from = Instant.parse(args[++i]).toEpochMilli();
+            } else if (args[i].equals("--to")) {
+                to = Instant.parse(args[++i]).toEpochMilli();
+            } else {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        long fromMillis = from;
+        long toMillis = to;
+        StringBuilder line = new StringBuilder();
+        new AuditLogReader(Paths.get(args[0])).read(record -> {
+            if (record.getEpochMillis() < fromMillis || record.getEpochMillis() >= toMillis) {
+                return;
+            }
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("time", Instant.ofEpochMilli(record.getEpochMillis()).toString());
+            json.put("symptoms", record.getSymptoms());
+            json.put("conditionIds", record.getConditionIds());
+            if (record.isSymptomsTruncated()) {
+                json.put("symptomsTruncated", true);
+            }
+            if (record.isResultsTruncated()) {
+                json.put("resultsTruncated", true);
+            }
+            line.setLength(0);
+            Json.write(json, line);
+            System.out.println(line);
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package com.symptomchecker.audit;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One symptom check as read back from the audit log.
+ */
+public final class AuditRecord {
+    private final long epochMillis;
+    private final List<String> symptoms;
+    private final List<Integer> conditionIds;
+    private final int flags;
+
+    AuditRecord(long epochMillis, List<String> symptoms, List<Integer> conditionIds, int flags) {
+        this.epochMillis = epochMillis;
+        this.symptoms = Collections.unmodifiableList(symptoms);
+        this.conditionIds = Collections.unmodifiableList(conditionIds);
+        this.flags = flags;
+    }
+
+    /**
+     * @return when the check ran, in epoch milliseconds
+     */
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    /**
+     * @return the selection as it was checked; {@code null} marks a symptom the log did not
+     * record, because it was too long or the log's dictionary was full
+     */
+    public List<String> getSymptoms() {
+        return symptoms;
+    }
+
+    /**
+     * @return catalog ids of the returned conditions, best first
+     */
+    public List<Integer> getConditionIds() {
+        return conditionIds;
+    }
+
+    /**
+     * @return {@code true} when the selection was longer than the log keeps per record
+     */
+    public boolean isSymptomsTruncated() {
+        return (flags & AuditLog.SYMPTOMS_TRUNCATED) != 0;
+    }
+
+    /**
+     * @return {@code true} when more conditions were returned than the log keeps per record
+     */
+    public boolean isResultsTruncated() {
+        return (flags & AuditLog.RESULTS_TRUNCATED) != 0;
+    }
+}
@@ -0,0 +1,269 @@
+package com.symptomchecker.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Appends audit records to memory-mapped segment files of a fixed size, starting a new segment
+ * when the current one is full.
+ *
+ * <p>
+ * A segment starts with a {@value #HEADER_BYTES}-byte header (magic, version, segment number,
+ * creation time in epoch milliseconds) followed by length-prefixed records. A record's length is
+ * written after its body, so a reader that finds a zero length has reached the end of what was
+ * written, even in a segment that is still being appended to. Every segment defines the symptom
+ * IDs its queries use before their first use, so each can be read on its own.
+ * </p>
+ *
+ * <p>
+ * Records, all big-endian:
+ * </p>
+ * <pre>
+ * DEFINE  int length | byte 1 | int symptomId | int byteLength | UTF-8 name
+ * QUERY   int length | byte 2 | long epochMillis | byte flags | short symptomCount | short resultCount
+ *                    | int symptomId * symptomCount | int conditionId * resultCount
+ * </pre>
+ *
+ * <p>
+ * Only the log's writer thread uses an instance. A segment number whose file already exists,
+ * for example one another process created, is skipped rather than appended to.
+ * </p>
+ */
+class AuditSegmentWriter implements Closeable {
+    static final int MAGIC = 0x53434131; // "SCA1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+
+    static final byte DEFINE = 1;
+    static final byte QUERY = 2;
+
+    /** Symptom ID recorded for a symptom the log's dictionary had no room for. */
+    static final int UNRECORDED_SYMPTOM = -1;
+
+    static final int DEFINE_FIXED_BYTES = 4 + 1 + 4 + 4;
+    static final int QUERY_FIXED_BYTES = 4 + 1 + 8 + 1 + 2 + 2;
+
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final BitSet defined = new BitSet();
+    private long nextSegmentNumber;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private boolean dirty;
+    private volatile long segmentsCreated;
+
+    /**
+     * @param directory where segments are kept; created if missing
+     * @param segmentBytes size of each segment file
+     */
+    AuditSegmentWriter(Path directory, long segmentBytes) throws IOException {
+        if (segmentBytes <= HEADER_BYTES || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must be between " + HEADER_BYTES + " bytes and 2 GiB: "
+                + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        // Never append to segments a previous process wrote
+        long last = 0;
+        for (Path segment : segments(directory)) {
+            last = Math.max(last, segmentNumber(segment));
+        }
+        this.nextSegmentNumber = last + 1;
+    }
+
+    /**
+     * @return segment files in the directory, oldest first
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                if (segmentNumber(file) > 0) {
+                    segments.add(file);
+                }
+            }
+        }
+        segments.sort((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)));
+        return segments;
+    }
+
+    /**
+     * @return the segment's number, or {@code -1} when the name is not a segment name
+     */
+    static long segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return bytes the largest query record with the given limits can take, with definitions
+     */
+    static long maxQueryBytes(int maxSymptoms, int maxResults, int maxSymptomChars) {
+        long defines = (long) maxSymptoms * (DEFINE_FIXED_BYTES + 3L * maxSymptomChars);
+        return defines + QUERY_FIXED_BYTES + 4L * maxSymptoms + 4L * maxResults;
+    }
+
+    /**
+     * Append one query, defining any of its symptoms the current segment has not seen.
+     *
+     * @param data ring slot storage holding the symptom and condition IDs
+     * @param symptomOffset position of the first symptom ID in {@code data}
+     * @param resultOffset position of the first condition ID in {@code data}
+     * @param symptomNames the log's dictionary, indexed by symptom ID
+     */
+    void appendQuery(long epochMillis, int flags, int[] data, int symptomOffset, int symptomCount,
+                     int resultOffset, int resultCount, String[] symptomNames) throws IOException {
+        int needed = QUERY_FIXED_BYTES + 4 * (symptomCount + resultCount);
+        if (buffer == null || !fits(needed + undefinedBytes(data, symptomOffset, symptomCount, symptomNames))) {
+            roll();
+        }
+        for (int i = 0; i < symptomCount; i++) {
+            int id = data[symptomOffset + i];
+            if (id != UNRECORDED_SYMPTOM && !defined.get(id)) {
+                byte[] name = symptomNames[id].getBytes(StandardCharsets.UTF_8);
+                int start = beginRecord();
+                buffer.put(DEFINE).putInt(id).putInt(name.length).put(name);
+                endRecord(start);
+                defined.set(id);
+            }
+        }
+        int start = beginRecord();
+        buffer.put(QUERY).putLong(epochMillis).put((byte) flags)
+            .putShort((short) symptomCount).putShort((short) resultCount);
+        for (int i = 0; i < symptomCount; i++) {
+            buffer.putInt(data[symptomOffset + i]);
+        }
+        for (int i = 0; i < resultCount; i++) {
+            buffer.putInt(data[resultOffset + i]);
+        }
+        endRecord(start);
+    }
+
+    private int undefinedBytes(int[] data, int offset, int count, String[] symptomNames) {
+        int bytes = 0;
+        for (int i = 0; i < count; i++) {
+            int id = data[offset + i];
+            if (id != UNRECORDED_SYMPTOM && !defined.get(id)) {
+                bytes += DEFINE_FIXED_BYTES + 3 * symptomNames[id].length();
+            }
+        }
+        return bytes;
+    }
+
+    private boolean fits(int bytes) {
+        // Keep room for the zero length that marks the end
+        return buffer.remaining() >= bytes + 4;
+    }
+
+    private int beginRecord() {
+        int start = buffer.position();
+        buffer.position(start + 4);
+        return start;
+    }
+
+    private void endRecord(int start) {
+        buffer.putInt(start, buffer.position() - start - 4);
+        dirty = true;
+    }
+
+    /**
+     * Flush written records from the page cache to the device.
+     */
+    void force() {
+        if (buffer != null && dirty) {
+            buffer.force();
+            dirty = false;
+        }
+    }
+
+    /**
+     * Stop using the current segment, for example after a write to it failed; the next append
+     * starts a new one.
+     */
+    void abandonSegment() {
+        buffer = null;
+        closeChannel();
+    }
+
+    long getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    long getSegmentsCreated() {
+        return segmentsCreated;
+    }
+
+    private void roll() throws IOException {
+        if (buffer != null) {
+            force();
+            abandonSegment();
+        }
+        while (true) {
+            Path file = directory.resolve(String.format("%s%016d%s", PREFIX, nextSegmentNumber, SUFFIX));
+            try {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+                break;
+            } catch (FileAlreadyExistsException ex) {
+                nextSegmentNumber++;
+            }
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(nextSegmentNumber).putLong(System.currentTimeMillis());
+        dirty = true;
+        defined.clear();
+        nextSegmentNumber++;
+        segmentsCreated++;
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            System.err.println("Failed to close audit segment.");
+            System.err.println(ex.getMessage());
+        }
+        channel = null;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (buffer != null) {
+                force();
+            }
+        } finally {
+            abandonSegment();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.symptomchecker.cluster;
+
+import com.symptomchecker.model.SymptomResult;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Merged results of one scatter-gather query, with which workers contributed to them.
+ */
+public final class ClusterResult {
+    private final List<SymptomResult> results;
+    private final int shardCount;
+    private final List<String> failedShards;
+
+    ClusterResult(List<SymptomResult> results, int shardCount, List<String> failedShards) {
+        this.results = results;
+        this.shardCount = shardCount;
+        this.failedShards = Collections.unmodifiableList(failedShards);
+    }
+
+    /**
+     * @return ranked results, best first
+     */
+    public List<SymptomResult> getResults() {
+        return results;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int getShardsAnswered() {
+        return shardCount - failedShards.size();
+    }
+
+    /**
+     * @return one {@code "host:port: reason"} entry per worker that did not answer in time
+     */
+    public List<String> getFailedShards() {
+        return failedShards;
+    }
+
+    /**
+     * @return {@code true} when some workers did not answer, so conditions in their partitions
+     * may be missing from the results
+     */
+    public boolean isPartial() {
+        return !failedShards.isEmpty();
+    }
+}
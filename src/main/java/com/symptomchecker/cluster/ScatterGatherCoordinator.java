@@ -0,0 +1,336 @@
+package com.symptomchecker.cluster;
+
+import com.symptomchecker.config.ClusterConfig;
+import com.symptomchecker.metrics.LatencyHistogram;
+import com.symptomchecker.model.SymptomResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scores a selection against a catalog partitioned across {@link ShardWorker} processes.
+ *
+ * <p>
+ * Every query is sent to all workers in parallel. Each returns its local top-K and whether they
+ * are strong matches or only fallback results; the coordinator keeps the strong tier if any
+ * worker has one, merges that tier's lists and cuts the result to {@code topK}. With the
+ * ordering of the single-process check, and a catalog partitioned by condition id, the merged
+ * results equal those of {@code checkSymptoms} over the whole catalog.
+ * </p>
+ *
+ * <p>
+ * All workers share one deadline per query. Workers that fail or miss it are reported in
+ * {@link ClusterResult#getFailedShards()} and the remaining results are returned as a partial
+ * result, unless the coordinator was created to require every worker. Connections are reused
+ * across queries; one that failed or timed out is closed rather than returned, so a late
+ * response can never be read as the answer to a later query. A worker's error reply leaves its
+ * connection in step, so that connection is kept and the query is not retried.
+ * </p>
+ */
+public final class ScatterGatherCoordinator implements AutoCloseable {
+    private final List<Shard> shards;
+    private final long timeoutNanos;
+    private final boolean requireAll;
+    private final ExecutorService executor;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder partialResults = new LongAdder();
+    private final LongAdder shardFailures = new LongAdder();
+    private final LongAdder shardTimeouts = new LongAdder();
+
+    /**
+     * @param shards worker addresses, one per partition
+     * @param timeoutMillis time every worker has to answer a query
+     * @param connectionsPerShard idle connections kept open to each worker
+     * @param requireAll whether a query fails when any worker does not answer
+     */
+    public ScatterGatherCoordinator(List<InetSocketAddress> shards, long timeoutMillis, int connectionsPerShard,
+                                    boolean requireAll) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required.");
+        }
+        this.shards = new ArrayList<>(shards.size());
+        for (InetSocketAddress address : shards) {
+            this.shards.add(new Shard(address, connectionsPerShard));
+        }
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.requireAll = requireAll;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "scatter-gather-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Create a coordinator from {@link ClusterConfig}.
+     */
+    public static ScatterGatherCoordinator fromConfig() {
+        return new ScatterGatherCoordinator(parseShards(ClusterConfig.CLUSTER_SHARDS), ClusterConfig.CLUSTER_TIMEOUT_MS,
+            ClusterConfig.CLUSTER_CONNECTIONS_PER_SHARD, ClusterConfig.CLUSTER_REQUIRE_ALL);
+    }
+
+    /**
+     * Parse a comma-separated {@code host:port} list.
+     */
+    public static List<InetSocketAddress> parseShards(String shards) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String shard : shards.split(",")) {
+            String trimmed = shard.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int colon = trimmed.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Expected host:port, got " + trimmed);
+            }
+            addresses.add(InetSocketAddress.createUnresolved(trimmed.substring(0, colon),
+                Integer.parseInt(trimmed.substring(colon + 1))));
+        }
+        return addresses;
+    }
+
+    /**
+     * Check symptoms across every partition and return up to {@code topK} merged results.
+     *
+     * @param selectedSymptoms List of selected symptoms
+     * @param topK maximum number of results to return
+     * @param minMatches matches a condition needs to be reported as a strong match
+     * @return merged results and the workers that did not contribute
+     * @throws IllegalStateException if no worker answered, or any did not while every worker
+     *                               is required
+     */
+    public ClusterResult check(List<String> selectedSymptoms, int topK, int minMatches) {
+        if (topK < 0) {
+            throw new IllegalArgumentException("topK must not be negative: " + topK);
+        }
+        if (minMatches < 1) {
+            throw new IllegalArgumentException("minMatches must be at least 1: " + minMatches);
+        }
+        if (selectedSymptoms == null || selectedSymptoms.isEmpty()) {
+            return new ClusterResult(new ArrayList<>(), shards.size(), List.of());
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + timeoutNanos;
+        List<Future<ShardResponse>> pending = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            pending.add(executor.submit(() -> shard.query(selectedSymptoms, topK, minMatches, deadline)));
+        }
+
+        List<ShardResponse> responses = new ArrayList<>(shards.size());
+        List<String> failed = new ArrayList<>();
+        for (int i = 0; i < pending.size(); i++) {
+            Future<ShardResponse> future = pending.get(i);
+            try {
+                responses.add(future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException ex) {
+                // The query's socket times out on the same deadline and closes its connection
+                future.cancel(true);
+                shardTimeouts.increment();
+                failed.add(shards.get(i).name() + ": timed out");
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof SocketTimeoutException) {
+                    shardTimeouts.increment();
+                    failed.add(shards.get(i).name() + ": timed out");
+                } else {
+                    shardFailures.increment();
+                    failed.add(shards.get(i).name() + ": "
+                        + (cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName()));
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for shards.", ex);
+            }
+        }
+
+        if (responses.isEmpty() || (requireAll && !failed.isEmpty())) {
+            throw new IllegalStateException("Shards did not answer: " + failed);
+        }
+        if (!failed.isEmpty()) {
+            partialResults.increment();
+        }
+        List<SymptomResult> merged = merge(responses, topK);
+        latency.recordSince(start);
+        return new ClusterResult(merged, shards.size(), failed);
+    }
+
+    /**
+     * Keep the strong tier if any worker has one, then merge that tier's lists. Responses are
+     * in shard order and the sort is stable, so entries that tie on every key keep the order
+     * their worker ranked them in.
+     */
+    static List<SymptomResult> merge(List<ShardResponse> responses, int topK) {
+        boolean strong = false;
+        for (ShardResponse response : responses) {
+            strong |= response.tier == ShardProtocol.TIER_STRONG;
+        }
+        byte tier = strong ? ShardProtocol.TIER_STRONG : ShardProtocol.TIER_FALLBACK;
+        List<ShardResponse.Entry> entries = new ArrayList<>();
+        for (ShardResponse response : responses) {
+            if (response.tier == tier) {
+                entries.addAll(response.entries);
+            }
+        }
+        entries.sort(ShardResponse.RANKING);
+
+        List<SymptomResult> results = new ArrayList<>(Math.min(topK, entries.size()));
+        for (int i = 0; i < entries.size() && i < topK; i++) {
+            results.add(entries.get(i).result);
+        }
+        return results;
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * @return end-to-end latency of queries that returned results
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getPartialResults() {
+        return partialResults.sum();
+    }
+
+    public long getShardFailures() {
+        return shardFailures.sum();
+    }
+
+    public long getShardTimeouts() {
+        return shardTimeouts.sum();
+    }
+
+    /**
+     * Close idle connections and stop the fan-out threads.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        for (Shard shard : shards) {
+            shard.close();
+        }
+    }
+
+    /**
+     * One worker and its idle connections.
+     */
+    private static final class Shard {
+        final InetSocketAddress address;
+        private final BlockingQueue<Connection> idle;
+
+        Shard(InetSocketAddress address, int connections) {
+            this.address = address;
+            this.idle = new ArrayBlockingQueue<>(Math.max(1, connections));
+        }
+
+        ShardResponse query(List<String> symptoms, int topK, int minMatches, long deadline) throws IOException {
+            Connection pooled = idle.poll();
+            if (pooled != null) {
+                try {
+                    return query(pooled, symptoms, topK, minMatches, deadline);
+                } catch (SocketTimeoutException | ShardProtocol.ShardErrorException ex) {
+                    throw ex;
+                } catch (IOException ex) {
+                    // The worker may have dropped an idle connection, for example across a
+                    // restart; try once more on a fresh one
+                }
+            }
+            return query(new Connection(address, remainingMillis(deadline)), symptoms, topK, minMatches, deadline);
+        }
+
+        private ShardResponse query(Connection connection, List<String> symptoms, int topK, int minMatches,
+                                    long deadline) throws IOException {
+            boolean reusable = false;
+            try {
+                connection.socket.setSoTimeout(remainingMillis(deadline));
+                ShardProtocol.writeRequest(connection.out, symptoms, topK, minMatches);
+                ShardResponse response = ShardProtocol.readResponse(connection.in);
+                reusable = true;
+                return response;
+            } catch (ShardProtocol.ShardErrorException ex) {
+                reusable = true;
+                throw ex;
+            } finally {
+                if (!reusable || Thread.currentThread().isInterrupted() || !idle.offer(connection)) {
+                    connection.close();
+                }
+            }
+        }
+
+        String name() {
+            return address.getHostString() + ":" + address.getPort();
+        }
+
+        void close() {
+            Connection connection;
+            while ((connection = idle.poll()) != null) {
+                connection.close();
+            }
+        }
+
+        /**
+         * @return milliseconds left before the deadline, at least one so a socket timeout of
+         * zero never means "wait forever"
+         */
+        private static int remainingMillis(long deadline) throws SocketTimeoutException {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                throw new SocketTimeoutException("Deadline passed before the request was sent");
+            }
+            return (int) Math.min(Integer.MAX_VALUE, remaining);
+        }
+    }
+
+    private static final class Connection {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Connection(InetSocketAddress address, int connectTimeoutMillis) throws IOException {
+            socket = new Socket();
+            try {
+                // Resolve on connect so a restarted worker behind the same name is found again
+                InetSocketAddress resolved = new InetSocketAddress(address.getHostString(), address.getPort());
+                socket.connect(resolved, connectTimeoutMillis);
+                socket.setTcpNoDelay(true);
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            } catch (IOException ex) {
+                socket.close();
+                throw ex;
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // already closing
+            }
+        }
+    }
+}
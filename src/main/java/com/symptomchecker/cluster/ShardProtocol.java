@@ -0,0 +1,162 @@
+package com.symptomchecker.cluster;
+
+import com.symptomchecker.model.SymptomResult;
+import com.symptomchecker.service.QueryResultBuffer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary request/response framing between a {@link ScatterGatherCoordinator} and its
+ * {@link ShardWorker}s. A connection carries one request at a time, answered in order.
+ *
+ * <p>
+ * Layout (big-endian, strings in modified UTF-8 as written by {@link DataOutputStream#writeUTF}):
+ * </p>
+ * <pre>
+ * request   magic "SCQ1" | topK | minMatches | symptom count | symptoms
+ * response  status (0 ok, 1 error), then
+ *           ok:    tier | result count | per result: id | matched | total | percent | name | has advice | advice?
+ *           error: message
+ * </pre>
+ *
+ * <p>
+ * The tier tells the coordinator whether a worker's results are strong matches or only its
+ * fallback, so it can merge the same tier the single-process check would have returned.
+ * </p>
+ */
+final class ShardProtocol {
+    static final int MAGIC = 0x53435131; // "SCQ1"
+
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_ERROR = 1;
+
+    static final byte TIER_NONE = 0;
+    static final byte TIER_STRONG = 1;
+    static final byte TIER_FALLBACK = 2;
+
+    /**
+     * Largest selection or result list accepted from the wire.
+     */
+    static final int MAX_ENTRIES = 65_536;
+
+    private ShardProtocol() {
+        // utility class
+    }
+
+    static void writeRequest(DataOutputStream out, List<String> symptoms, int topK, int minMatches) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(topK);
+        out.writeInt(minMatches);
+        out.writeInt(symptoms.size());
+        for (String symptom : symptoms) {
+            out.writeUTF(symptom);
+        }
+        out.flush();
+    }
+
+    /**
+     * Read one request body after its magic has been consumed.
+     */
+    static Request readRequest(DataInputStream in) throws IOException {
+        int topK = in.readInt();
+        int minMatches = in.readInt();
+        int count = checkedCount(in.readInt());
+        if (topK < 0 || topK > MAX_ENTRIES) {
+            throw new IOException("Invalid topK " + topK);
+        }
+        List<String> symptoms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            symptoms.add(in.readUTF());
+        }
+        return new Request(symptoms, topK, minMatches);
+    }
+
+    static ShardResponse readResponse(DataInputStream in) throws IOException {
+        byte status = in.readByte();
+        if (status == STATUS_ERROR) {
+            throw new ShardErrorException("Shard failed: " + in.readUTF());
+        }
+        if (status != STATUS_OK) {
+            throw new IOException("Unexpected shard response status " + status);
+        }
+        byte tier = in.readByte();
+        int count = checkedCount(in.readInt());
+        ShardResponse response = new ShardResponse(tier, count);
+        for (int i = 0; i < count; i++) {
+            int id = in.readInt();
+            int matched = in.readInt();
+            int total = in.readInt();
+            int percent = in.readInt();
+            String name = in.readUTF();
+            String advice = in.readBoolean() ? in.readUTF() : null;
+            response.add(id, matched, total, percent, name, advice);
+        }
+        return response;
+    }
+
+    /**
+     * Write a worker's ranked results. Strong matches and fallback results never mix in one
+     * check, so the first result tells which tier the worker answered from.
+     */
+    static void writeResults(DataOutputStream out, QueryResultBuffer results, int minMatches) throws IOException {
+        out.writeByte(STATUS_OK);
+        if (results.size() == 0) {
+            out.writeByte(TIER_NONE);
+        } else {
+            out.writeByte(results.matchedCount(0) >= minMatches ? TIER_STRONG : TIER_FALLBACK);
+        }
+        out.writeInt(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            SymptomResult result = results.toResult(i);
+            out.writeInt(results.conditionId(i));
+            out.writeInt(result.getMatchedCount());
+            out.writeInt(result.getTotalSymptoms());
+            out.writeInt(result.getPercentMatch());
+            out.writeUTF(result.getConditionName() != null ? result.getConditionName() : "");
+            out.writeBoolean(result.getAdvice() != null);
+            if (result.getAdvice() != null) {
+                out.writeUTF(result.getAdvice());
+            }
+        }
+        out.flush();
+    }
+
+    static void writeError(DataOutputStream out, String message) throws IOException {
+        out.writeByte(STATUS_ERROR);
+        out.writeUTF(message != null ? message : "unknown error");
+        out.flush();
+    }
+
+    private static int checkedCount(int count) throws IOException {
+        if (count < 0 || count > MAX_ENTRIES) {
+            throw new IOException("Invalid entry count " + count);
+        }
+        return count;
+    }
+
+    /**
+     * A worker's error reply. Unlike other failures it arrives in protocol, so the connection is
+     * still in step, and the worker already ran the query.
+     */
+    static final class ShardErrorException extends IOException {
+        ShardErrorException(String message) {
+            super(message);
+        }
+    }
+
+    static final class Request {
+        final List<String> symptoms;
+        final int topK;
+        final int minMatches;
+
+        Request(List<String> symptoms, int topK, int minMatches) {
+            this.symptoms = symptoms;
+            this.topK = topK;
+            this.minMatches = minMatches;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.symptomchecker.cluster;
+
+import com.symptomchecker.model.SymptomResult;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One worker's ranked results for a query, with the tier they came from and the condition ids
+ * the coordinator needs for the final tie-break.
+ */
+final class ShardResponse {
+    /**
+     * Same order as the single-process check: matched count (desc), percent (desc), name (asc),
+     * then catalog position, which is condition id order for a catalog loaded from the database.
+     */
+    static final Comparator<Entry> RANKING = Comparator
+        .comparingInt((Entry entry) -> entry.result.getMatchedCount()).reversed()
+        .thenComparing(Comparator.comparingInt((Entry entry) -> entry.result.getPercentMatch()).reversed())
+        .thenComparing(entry -> entry.result.getConditionName())
+        .thenComparingInt(entry -> entry.conditionId);
+
+    final byte tier;
+    final List<Entry> entries;
+
+    ShardResponse(byte tier, int expectedSize) {
+        this.tier = tier;
+        this.entries = new ArrayList<>(expectedSize);
+    }
+
+    void add(int conditionId, int matched, int total, int percent, String name, String advice) {
+        entries.add(new Entry(conditionId, new SymptomResult(conditionId, name, matched, total, percent, advice)));
+    }
+
+    static final class Entry {
+        final int conditionId;
+        final SymptomResult result;
+
+        Entry(int conditionId, SymptomResult result) {
+            this.conditionId = conditionId;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.symptomchecker.cluster;
+
+import com.symptomchecker.config.ClusterConfig;
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.repository.ConditionRepository;
+import com.symptomchecker.service.QueryResultBuffer;
+import com.symptomchecker.service.SymptomCheckerService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves one partition of the catalog to a {@link ScatterGatherCoordinator} over
+ * {@link ShardProtocol}.
+ *
+ * <p>
+ * Each worker answers with its local top-K from an ordinary {@link SymptomCheckerService} over
+ * its partition, so a query costs the same per worker as a single-process check over a catalog
+ * of that size. Every coordinator connection gets its own thread and is served until the
+ * coordinator closes it.
+ * </p>
+ */
+public final class ShardWorker implements AutoCloseable {
+    private final SymptomCheckerService service;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * Bind a worker for the given service. Nothing is served until {@link #start()}.
+     *
+     * @param service service over this worker's partition
+     * @param address address and port to listen on; port {@code 0} picks a free port
+     */
+    public ShardWorker(SymptomCheckerService service, InetSocketAddress address) throws IOException {
+        this.service = service;
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(address);
+    }
+
+    public InetSocketAddress getAddress() {
+        return (InetSocketAddress) serverSocket.getLocalSocketAddress();
+    }
+
+    public SymptomCheckerService getService() {
+        return service;
+    }
+
+    public void start() {
+        // Not a daemon: like the HTTP server's dispatcher, it keeps the process alive until closed
+        Thread acceptor = new Thread(this::acceptConnections, "shard-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * Stop accepting connections and close the open ones.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException ex) {
+            System.err.println("Failed to close the shard listener.");
+            System.err.println(ex.getMessage());
+        }
+        for (Socket socket : connections) {
+            closeQuietly(socket);
+        }
+    }
+
+    private void acceptConnections() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                Thread connection = new Thread(() -> serve(socket),
+                    "shard-connection-" + connectionCount.incrementAndGet());
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException ex) {
+                if (!closed) {
+                    System.err.println("Failed to accept a coordinator connection.");
+                    System.err.println(ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                int magic;
+                try {
+                    magic = in.readInt();
+                } catch (EOFException ex) {
+                    return;
+                }
+                if (magic != ShardProtocol.MAGIC) {
+                    ShardProtocol.writeError(out, "Not a shard request");
+                    return;
+                }
+                ShardProtocol.Request request = ShardProtocol.readRequest(in);
+                QueryResultBuffer results;
+                try {
+                    results = service.checkSymptomsBuffered(request.symptoms, request.topK, request.minMatches);
+                } catch (RuntimeException ex) {
+                    ShardProtocol.writeError(out, ex.getMessage());
+                    continue;
+                }
+                ShardProtocol.writeResults(out, results, request.minMatches);
+            }
+        } catch (IOException ex) {
+            if (!closed) {
+                System.err.println("Dropped coordinator connection " + socket.getRemoteSocketAddress() + ".");
+                System.err.println(ex.getMessage());
+            }
+        } finally {
+            connections.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // already closing
+        }
+    }
+
+    /**
+     * Load this worker's partition, preferring the database and falling back to the matching
+     * built-in conditions.
+     */
+    static List<Condition> loadPartition(int shard, int shardCount) {
+        try {
+            List<Condition> loaded = new ConditionRepository().loadPartition(shard, shardCount);
+            if (!loaded.isEmpty()) {
+                return loaded;
+            }
+            System.err.println("No conditions found in partition " + shard + ". Falling back to defaults.");
+        } catch (IllegalStateException ex) {
+            System.err.println("Failed to load partition " + shard + " from the database. Falling back to defaults.");
+            System.err.println(ex.getMessage());
+        }
+        List<Condition> partition = new ArrayList<>();
+        for (Condition condition : SymptomCheckerService.defaultConditions()) {
+            if (Math.floorMod(condition.getId(), shardCount) == shard) {
+                partition.add(condition);
+            }
+        }
+        return partition;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int shard = args.length > 0 ? Integer.parseInt(args[0]) : ClusterConfig.SHARD_INDEX;
+        int shardCount = args.length > 1 ? Integer.parseInt(args[1]) : ClusterConfig.SHARD_COUNT;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : ClusterConfig.SHARD_PORT;
+        if (shardCount <= 0 || shard < 0 || shard >= shardCount) {
+            throw new IllegalArgumentException("Invalid shard " + shard + " of " + shardCount);
+        }
+
+        SymptomCheckerService service = new SymptomCheckerService(loadPartition(shard, shardCount));
+        ShardWorker worker = new ShardWorker(service, new InetSocketAddress(ClusterConfig.SHARD_HOST, port));
+        Runtime.getRuntime().addShutdownHook(new Thread(worker::close, "shard-shutdown"));
+        worker.start();
+        System.out.println("Shard " + shard + " of " + shardCount + " (" + service.getConditions().size()
+            + " conditions) listening on " + worker.getAddress());
+    }
+}
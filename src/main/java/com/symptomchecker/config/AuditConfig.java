@@ -0,0 +1,72 @@
+package com.symptomchecker.config;
+
+/**
+ * Settings for the symptom check audit log.
+ *
+ * <p>
+ * Every value can be supplied as a system property of the same name, for example
+ * {@code -DSYMPTOM_AUDIT_DIR=/var/log/symptom-audit}.
+ * </p>
+ */
+public final class AuditConfig {
+
+    private AuditConfig() {
+        // utility class
+    }
+
+    /**
+     * Directory the audit segments are written to; empty turns auditing off.
+     * Supply via system property SYMPTOM_AUDIT_DIR.
+     */
+    public static final String AUDIT_DIR =
+        System.getProperty("SYMPTOM_AUDIT_DIR", "");
+
+    /**
+     * Records the in-memory ring holds before the backpressure policy applies; rounded up to a
+     * power of two. Supply via system property SYMPTOM_AUDIT_RING_SIZE.
+     */
+    public static final int AUDIT_RING_SIZE =
+        Integer.getInteger("SYMPTOM_AUDIT_RING_SIZE", 16_384);
+
+    /**
+     * What a check does when the ring is full: {@code BLOCK} waits for the writer to catch up,
+     * {@code DROP} skips the record and counts it. Supply via system property
+     * SYMPTOM_AUDIT_POLICY.
+     */
+    public static final String AUDIT_POLICY =
+        System.getProperty("SYMPTOM_AUDIT_POLICY", "BLOCK");
+
+    /**
+     * Size of each segment file in bytes; a full segment is closed and a new one started.
+     * Supply via system property SYMPTOM_AUDIT_SEGMENT_BYTES.
+     */
+    public static final long AUDIT_SEGMENT_BYTES =
+        Long.getLong("SYMPTOM_AUDIT_SEGMENT_BYTES", 64L << 20);
+
+    /**
+     * Selected symptoms and returned conditions kept per record; longer lists are truncated and
+     * the record is flagged. Supply via system properties SYMPTOM_AUDIT_MAX_SYMPTOMS and
+     * SYMPTOM_AUDIT_MAX_RESULTS.
+     */
+    public static final int AUDIT_MAX_SYMPTOMS =
+        Integer.getInteger("SYMPTOM_AUDIT_MAX_SYMPTOMS", 32);
+
+    public static final int AUDIT_MAX_RESULTS =
+        Integer.getInteger("SYMPTOM_AUDIT_MAX_RESULTS", 32);
+
+    /**
+     * Heap the log may spend remembering distinct symptom names, in bytes. Once it is spent,
+     * names the log has not seen yet are recorded as unrecorded. Supply via system property
+     * SYMPTOM_AUDIT_DICTIONARY_BYTES.
+     */
+    public static final long AUDIT_DICTIONARY_BYTES =
+        Long.getLong("SYMPTOM_AUDIT_DICTIONARY_BYTES", 16L << 20);
+
+    /**
+     * How often written records are forced to disk, in milliseconds. Records already reach the
+     * page cache as they are written, so only an operating system crash can lose the last
+     * interval. Supply via system property SYMPTOM_AUDIT_FORCE_INTERVAL_MS.
+     */
+    public static final long AUDIT_FORCE_INTERVAL_MS =
+        Long.getLong("SYMPTOM_AUDIT_FORCE_INTERVAL_MS", 1_000L);
+}
@@ -0,0 +1,71 @@
+package com.symptomchecker.config;
+
+/**
+ * Settings for scatter-gather scoring across catalog-partitioned worker processes.
+ *
+ * <p>
+ * Every value can be supplied as a system property of the same name, for example
+ * {@code -DSYMPTOM_SHARD_INDEX=1}.
+ * </p>
+ */
+public final class ClusterConfig {
+
+    private ClusterConfig() {
+        // utility class
+    }
+
+    /**
+     * Partition of the catalog this worker serves: conditions with {@code id mod SHARD_COUNT}
+     * equal to it. Supply via system property SYMPTOM_SHARD_INDEX.
+     */
+    public static final int SHARD_INDEX =
+        Integer.getInteger("SYMPTOM_SHARD_INDEX", 0);
+
+    /**
+     * Number of partitions the catalog is split into. Supply via system property
+     * SYMPTOM_SHARD_COUNT.
+     */
+    public static final int SHARD_COUNT =
+        Integer.getInteger("SYMPTOM_SHARD_COUNT", 1);
+
+    /**
+     * Address a worker binds to. Supply via system property SYMPTOM_SHARD_HOST.
+     */
+    public static final String SHARD_HOST =
+        System.getProperty("SYMPTOM_SHARD_HOST", "0.0.0.0");
+
+    /**
+     * TCP port a worker listens on. Supply via system property SYMPTOM_SHARD_PORT.
+     */
+    public static final int SHARD_PORT =
+        Integer.getInteger("SYMPTOM_SHARD_PORT", 9400);
+
+    /**
+     * Comma-separated {@code host:port} list of the workers a coordinator queries, one per
+     * partition. Supply via system property SYMPTOM_CLUSTER_SHARDS.
+     */
+    public static final String CLUSTER_SHARDS =
+        System.getProperty("SYMPTOM_CLUSTER_SHARDS", "");
+
+    /**
+     * Time a coordinator waits for every worker to answer one query, in milliseconds; workers
+     * that miss it are left out of the result. Supply via system property
+     * SYMPTOM_CLUSTER_TIMEOUT_MS.
+     */
+    public static final long CLUSTER_TIMEOUT_MS =
+        Long.getLong("SYMPTOM_CLUSTER_TIMEOUT_MS", 250L);
+
+    /**
+     * Idle connections a coordinator keeps open to each worker.
+     * Supply via system property SYMPTOM_CLUSTER_CONNECTIONS_PER_SHARD.
+     */
+    public static final int CLUSTER_CONNECTIONS_PER_SHARD =
+        Integer.getInteger("SYMPTOM_CLUSTER_CONNECTIONS_PER_SHARD", 8);
+
+    /**
+     * Whether a query fails when any worker does not answer, instead of returning the merged
+     * results of the workers that did. Supply via system property SYMPTOM_CLUSTER_REQUIRE_ALL.
+     */
+    public static final boolean CLUSTER_REQUIRE_ALL =
+        Boolean.getBoolean("SYMPTOM_CLUSTER_REQUIRE_ALL");
+}
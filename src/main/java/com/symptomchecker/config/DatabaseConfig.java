@@ -5,8 +5,9 @@ package com.symptomchecker.config;
  *
  * <p>
  * Update the {@code DB_URL}, {@code DB_USER}, and {@code DB_PASSWORD} constants to match
- * your local MySQL setup. For production code, consider loading these values from
- * environment variables or a configuration file instead of hard-coding them.
+ * your local MySQL setup. The {@code POOL_*} values size the shared connection pool.
+ * For production code, consider loading these values from environment variables or a
+ * configuration file instead of hard-coding them.
  * </p>
  */
 public final class DatabaseConfig {
@@ -34,6 +35,95 @@ public final class DatabaseConfig {
     public static final String DB_PASSWORD =
         System.getProperty("SYMPTOM_DB_PASSWORD", "password");
 
+    /**
+     * Connections the pool keeps open even when idle. Supply via system property SYMPTOM_DB_POOL_MIN_SIZE.
+     */
+    public static final int POOL_MIN_SIZE =
+        Integer.getInteger("SYMPTOM_DB_POOL_MIN_SIZE", 1);
+
+    /**
+     * Upper bound on open connections. Streaming loads hold two at once when allowed; with a
+     * single connection they buffer the condition rows instead.
+     * Supply via system property SYMPTOM_DB_POOL_MAX_SIZE.
+     */
+    public static final int POOL_MAX_SIZE =
+        Integer.getInteger("SYMPTOM_DB_POOL_MAX_SIZE", 8);
+
+    /**
+     * Idle time after which connections above the minimum are closed, in milliseconds.
+     * Supply via system property SYMPTOM_DB_POOL_IDLE_TIMEOUT_MS.
+     */
+    public static final long POOL_IDLE_TIMEOUT_MS =
+        Long.getLong("SYMPTOM_DB_POOL_IDLE_TIMEOUT_MS", 300_000L);
+
+    /**
+     * How long a caller waits for a free connection before failing, in milliseconds.
+     * Supply via system property SYMPTOM_DB_POOL_ACQUIRE_TIMEOUT_MS.
+     */
+    public static final long POOL_ACQUIRE_TIMEOUT_MS =
+        Long.getLong("SYMPTOM_DB_POOL_ACQUIRE_TIMEOUT_MS", 10_000L);
+
+    /**
+     * Timeout for the validation check run on every borrowed connection, in seconds.
+     * Supply via system property SYMPTOM_DB_POOL_VALIDATION_TIMEOUT_SECONDS.
+     */
+    public static final int POOL_VALIDATION_TIMEOUT_SECONDS =
+        Integer.getInteger("SYMPTOM_DB_POOL_VALIDATION_TIMEOUT_SECONDS", 2);
+
+    /**
+     * How {@code ConditionRepository} reads the catalog: {@code STREAMING} (two narrow ordered
+     * queries merged while streaming) or {@code JOINED} (one buffered LEFT JOIN), in any case.
+     * Supply via system property SYMPTOM_DB_LOAD_MODE.
+     */
+    public static final String LOAD_MODE =
+        System.getProperty("SYMPTOM_DB_LOAD_MODE", "STREAMING");
+
+    /**
+     * JDBC fetch size for streaming loads. The default {@link Integer#MIN_VALUE} makes
+     * Connector/J stream row by row; a positive size fetches in batches but only takes effect
+     * with {@code useCursorFetch=true} on the URL. Supply via system property
+     * SYMPTOM_DB_LOAD_FETCH_SIZE.
+     */
+    public static final int LOAD_FETCH_SIZE =
+        Integer.getInteger("SYMPTOM_DB_LOAD_FETCH_SIZE", Integer.MIN_VALUE);
+
+    /**
+     * Interval between incremental catalog refreshes in milliseconds; {@code 0} disables them.
+     * Refreshing needs an {@code updated_at} column on {@code conditions}; without one the
+     * catalog is loaded once and refreshing is disabled.
+     * Supply via system property SYMPTOM_DB_REFRESH_INTERVAL_MS.
+     */
+    public static final long REFRESH_INTERVAL_MS =
+        Long.getLong("SYMPTOM_DB_REFRESH_INTERVAL_MS", 0L);
+
+    /**
+     * How far before the previous watermark each refresh re-reads, in milliseconds. A
+     * transaction stamps {@code updated_at} when it writes but becomes visible when it commits,
+     * so this must exceed the longest write transaction. Supply via system property
+     * SYMPTOM_DB_REFRESH_OVERLAP_MS.
+     */
+    public static final long REFRESH_OVERLAP_MS =
+        Long.getLong("SYMPTOM_DB_REFRESH_OVERLAP_MS", 60_000L);
+
+    /**
+     * File holding a binary snapshot of the last catalog loaded from the database, used for fast
+     * startup. An empty value disables snapshots.
+     * Supply via system property SYMPTOM_CATALOG_SNAPSHOT.
+     */
+    public static final String SNAPSHOT_PATH =
+        System.getProperty("SYMPTOM_CATALOG_SNAPSHOT",
+            System.getProperty("user.home") + "/.symptom-checker/catalog.snapshot");
+
+    /**
+     * How the loaded catalog is held in memory: {@code HEAP} keeps one {@code Condition} object
+     * per condition, {@code PACKED} keeps conditions in off-heap buffers and decodes them only for
+     * returned results. Packed catalogs start by mapping the snapshot in place, are packed while
+     * they stream from the database, and are refreshed into new packed stores.
+     * Supply via system property SYMPTOM_CATALOG_STORAGE.
+     */
+    public static final String CATALOG_STORAGE =
+        System.getProperty("SYMPTOM_CATALOG_STORAGE", "HEAP");
+
     static {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
@@ -0,0 +1,27 @@
+package com.symptomchecker.config;
+
+/**
+ * Settings for resolving free-text symptom terms to catalog symptoms.
+ */
+public final class ResolverConfig {
+
+    private ResolverConfig() {
+        // utility class
+    }
+
+    /**
+     * Properties file of extra synonyms, one {@code synonym=Canonical Symptom} entry per line,
+     * added to the built-in ones. An empty value uses only the built-in synonyms.
+     * Supply via system property SYMPTOM_SYNONYMS_FILE.
+     */
+    public static final String SYNONYMS_FILE =
+        System.getProperty("SYMPTOM_SYNONYMS_FILE", "");
+
+    /**
+     * Largest number of typos (insertions, deletions, substitutions or swaps of adjacent
+     * letters) tolerated in a term; shorter terms tolerate fewer. {@code 0} turns fuzzy matching
+     * off. Supply via system property SYMPTOM_RESOLVER_MAX_EDITS.
+     */
+    public static final int MAX_EDITS =
+        Integer.getInteger("SYMPTOM_RESOLVER_MAX_EDITS", 2);
+}
@@ -0,0 +1,74 @@
+package com.symptomchecker.config;
+
+/**
+ * Settings for the headless HTTP query server.
+ *
+ * <p>
+ * Every value can be supplied as a system property of the same name, for example
+ * {@code -DSYMPTOM_SERVER_PORT=9090}.
+ * </p>
+ */
+public final class ServerConfig {
+
+    private ServerConfig() {
+        // utility class
+    }
+
+    /**
+     * Address the server binds to. Supply via system property SYMPTOM_SERVER_HOST.
+     */
+    public static final String SERVER_HOST =
+        System.getProperty("SYMPTOM_SERVER_HOST", "0.0.0.0");
+
+    /**
+     * TCP port the server listens on. Supply via system property SYMPTOM_SERVER_PORT.
+     */
+    public static final int SERVER_PORT =
+        Integer.getInteger("SYMPTOM_SERVER_PORT", 8080);
+
+    /**
+     * Pending connections the listening socket queues before refusing new ones.
+     * Supply via system property SYMPTOM_SERVER_BACKLOG.
+     */
+    public static final int SERVER_BACKLOG =
+        Integer.getInteger("SYMPTOM_SERVER_BACKLOG", 4096);
+
+    /**
+     * Request handler threads when virtual threads are unavailable (Java 17-20); {@code 0} sizes
+     * the pool from the processor count. Supply via system property SYMPTOM_SERVER_THREADS.
+     */
+    public static final int SERVER_THREADS =
+        Integer.getInteger("SYMPTOM_SERVER_THREADS", 0);
+
+    /**
+     * Largest request body accepted, in bytes. Supply via system property SYMPTOM_SERVER_MAX_BODY_BYTES.
+     */
+    public static final int SERVER_MAX_BODY_BYTES =
+        Integer.getInteger("SYMPTOM_SERVER_MAX_BODY_BYTES", 1 << 20);
+
+    /**
+     * Most profiles accepted by one batch request. Supply via system property SYMPTOM_SERVER_MAX_BATCH.
+     */
+    public static final int SERVER_MAX_BATCH =
+        Integer.getInteger("SYMPTOM_SERVER_MAX_BATCH", 1000);
+
+    /**
+     * Largest {@code topK} a request may ask for. Supply via system property SYMPTOM_SERVER_MAX_TOP_K.
+     */
+    public static final int SERVER_MAX_TOP_K =
+        Integer.getInteger("SYMPTOM_SERVER_MAX_TOP_K", 100);
+
+    /**
+     * Whether concurrent identical queries share one ranking pass.
+     * Supply via system property SYMPTOM_SERVER_COALESCE_QUERIES.
+     */
+    public static final boolean SERVER_COALESCE_QUERIES =
+        Boolean.parseBoolean(System.getProperty("SYMPTOM_SERVER_COALESCE_QUERIES", "true"));
+
+    /**
+     * Whether to precompute the results of every selection of the core symptoms, for the default
+     * {@code topK} and {@code minMatches}. Supply via system property SYMPTOM_SERVER_CORE_TABLE.
+     */
+    public static final boolean SERVER_CORE_TABLE =
+        Boolean.getBoolean("SYMPTOM_SERVER_CORE_TABLE");
+}
@@ -0,0 +1,345 @@
+package com.symptomchecker.importer;
+
+import com.symptomchecker.importer.CatalogImporter.Format;
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.util.Json;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams conditions out of a catalog file one record at a time, so files far larger than the
+ * heap can be imported.
+ *
+ * <p>
+ * CSV files need a header row naming the {@code id}, {@code name}, {@code advice} and
+ * {@code symptoms} columns in any order; symptoms are separated by {@code ;} and fields may be
+ * quoted as in RFC 4180, including across lines. JSON files hold objects with the same keys,
+ * either as one top-level array or one object per line, with {@code symptoms} as an array or a
+ * {@code ;}-separated string.
+ * </p>
+ *
+ * <p>
+ * Symptoms are trimmed and deduplicated per condition ignoring case, keeping the first
+ * spelling; identical symptom strings across conditions share one instance.
+ * </p>
+ */
+final class CatalogFileReader implements Closeable {
+    /** Distinct symptom strings kept for sharing; a vocabulary larger than this is unusual. */
+    private static final int MAX_SHARED_SYMPTOMS = 1 << 20;
+
+    private final Path file;
+    private final Format format;
+    private final Reader reader;
+    private final Map<String, String> symptomStrings = new HashMap<>();
+    private final Set<String> seenSymptoms = new HashSet<>();
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> row = new ArrayList<>();
+    private int idColumn = -1;
+    private int nameColumn = -1;
+    private int adviceColumn = -1;
+    private int symptomsColumn = -1;
+    private long records;
+    private long line = 1;
+    private long duplicateSymptoms;
+    private int pushedBack = -1;
+
+    CatalogFileReader(Path file, Format format) throws IOException {
+        this.file = file;
+        this.format = format;
+        this.reader = new BufferedReader(Files.newBufferedReader(file, StandardCharsets.UTF_8), 1 << 16);
+        if (format == Format.CSV) {
+            readHeader();
+        }
+    }
+
+    /**
+     * @return the next condition, or {@code null} at the end of the file
+     * @throws IllegalArgumentException if the record is malformed
+     */
+    Condition next() throws IOException {
+        seenSymptoms.clear();
+        Condition condition = format == Format.CSV ? nextCsv() : nextJson();
+        if (condition != null) {
+            records++;
+        }
+        return condition;
+    }
+
+    /**
+     * @return records returned so far
+     */
+    long getRecords() {
+        return records;
+    }
+
+    /**
+     * @return repeated symptoms dropped from the records returned so far
+     */
+    long getDuplicateSymptoms() {
+        return duplicateSymptoms;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readHeader() throws IOException {
+        if (!readCsvRow()) {
+            throw new IllegalArgumentException(file + " is empty; expected a CSV header row");
+        }
+        for (int i = 0; i < row.size(); i++) {
+            switch (row.get(i).trim().toLowerCase(Locale.ROOT)) {
+                case "id":
+                    idColumn = i;
+                    break;
+                case "name":
+                    nameColumn = i;
+                    break;
+                case "advice":
+                    adviceColumn = i;
+                    break;
+                case "symptoms":
+                    symptomsColumn = i;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (idColumn < 0 || nameColumn < 0 || symptomsColumn < 0) {
+            throw new IllegalArgumentException(file + " needs id, name and symptoms columns; found " + row);
+        }
+    }
+
+    private Condition nextCsv() throws IOException {
+        while (readCsvRow()) {
+            if (row.size() == 1 && row.get(0).isBlank()) {
+                continue;
+            }
+            long recordLine = line - 1;
+            String id = column(idColumn);
+            String name = column(nameColumn);
+            String advice = adviceColumn < 0 ? null : column(adviceColumn);
+            List<String> symptoms = new ArrayList<>();
+            addSplitSymptoms(column(symptomsColumn), symptoms);
+            return condition(parseId(id, recordLine), name, symptoms, advice, recordLine);
+        }
+        return null;
+    }
+
+    private String column(int index) {
+        return index < row.size() ? row.get(index) : "";
+    }
+
+    /**
+     * Read one CSV row into {@link #row}.
+     *
+     * @return {@code false} at the end of the file
+     */
+    private boolean readCsvRow() throws IOException {
+        row.clear();
+        field.setLength(0);
+        int c = read();
+        if (c < 0) {
+            return false;
+        }
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IllegalArgumentException(file + ":" + line + ": unterminated quoted field");
+                }
+                if (c == '"') {
+                    int after = read();
+                    if (after == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = after;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                row.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c < 0) {
+                line++;
+                row.add(field.toString());
+                return true;
+            } else if (c == '\r') {
+                int after = read();
+                if (after != '\n') {
+                    pushedBack = after;
+                }
+                line++;
+                row.add(field.toString());
+                return true;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack >= 0) {
+            int c = pushedBack;
+            pushedBack = -1;
+            return c;
+        }
+        return reader.read();
+    }
+
+    /**
+     * Collect the next top-level JSON object, skipping array brackets, commas and whitespace
+     * around it, and parse just that object.
+     */
+    private Condition nextJson() throws IOException {
+        int c;
+        do {
+            c = read();
+            if (c == '\n') {
+                line++;
+            }
+        } while (c >= 0 && (Character.isWhitespace(c) || c == '[' || c == ']' || c == ','));
+        if (c < 0) {
+            return null;
+        }
+        if (c != '{') {
+            throw new IllegalArgumentException(file + ":" + line + ": expected a JSON object but found '" + (char) c + "'");
+        }
+
+        long recordLine = line;
+        field.setLength(0);
+        field.append('{');
+        int depth = 1;
+        boolean inString = false;
+        while (depth > 0) {
+            c = read();
+            if (c < 0) {
+                throw new IllegalArgumentException(file + ":" + recordLine + ": unterminated JSON object");
+            }
+            field.append((char) c);
+            if (inString) {
+                if (c == '\\') {
+                    int escaped = read();
+                    if (escaped < 0) {
+                        throw new IllegalArgumentException(file + ":" + recordLine + ": unterminated JSON string");
+                    }
+                    field.append((char) escaped);
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            } else if (c == '\n') {
+                line++;
+            }
+        }
+
+        Object parsed;
+        try {
+            parsed = Json.parse(field.toString());
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException(file + ":" + recordLine + ": " + ex.getMessage(), ex);
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> object = (Map<String, Object>) parsed;
+
+        Object id = object.get("id");
+        Object name = object.get("name");
+        Object advice = object.get("advice");
+        Object symptomValue = object.get("symptoms");
+        List<String> symptoms = new ArrayList<>();
+        if (symptomValue instanceof List) {
+            for (Object symptom : (List<?>) symptomValue) {
+                if (symptom != null) {
+                    addSymptom(symptom.toString(), symptoms);
+                }
+            }
+        } else if (symptomValue != null) {
+            addSplitSymptoms(symptomValue.toString(), symptoms);
+        }
+        return condition(
+            parseId(id == null ? "" : id.toString(), recordLine),
+            name == null ? "" : name.toString(),
+            symptoms,
+            advice == null ? null : advice.toString(),
+            recordLine);
+    }
+
+    private Condition condition(int id, String name, List<String> symptoms, String advice, long recordLine) {
+        String trimmedName = name.trim();
+        if (trimmedName.isEmpty()) {
+            throw new IllegalArgumentException(file + ":" + recordLine + ": condition " + id + " has no name");
+        }
+        String trimmedAdvice = advice == null || advice.isBlank() ? null : advice.trim();
+        return new Condition(id, trimmedName, symptoms, trimmedAdvice);
+    }
+
+    private int parseId(String value, long recordLine) {
+        try {
+            int id = Integer.parseInt(value.trim());
+            if (id > 0) {
+                return id;
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException(file + ":" + recordLine + ": invalid condition id '" + value + "'");
+    }
+
+    private void addSplitSymptoms(String value, List<String> symptoms) {
+        int start = 0;
+        while (start <= value.length()) {
+            int end = value.indexOf(';', start);
+            if (end < 0) {
+                end = value.length();
+            }
+            addSymptom(value.substring(start, end), symptoms);
+            start = end + 1;
+        }
+    }
+
+    private void addSymptom(String value, List<String> symptoms) {
+        String symptom = value.trim();
+        if (symptom.isEmpty()) {
+            return;
+        }
+        if (!seenSymptoms.add(symptom.toLowerCase(Locale.ROOT))) {
+            duplicateSymptoms++;
+            return;
+        }
+        if (symptomStrings.size() < MAX_SHARED_SYMPTOMS) {
+            symptom = symptomStrings.computeIfAbsent(symptom, s -> s);
+        } else {
+            String shared = symptomStrings.get(symptom);
+            symptom = shared == null ? symptom : shared;
+        }
+        symptoms.add(symptom);
+    }
+}
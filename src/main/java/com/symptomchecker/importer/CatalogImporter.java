@@ -0,0 +1,441 @@
+package com.symptomchecker.importer;
+
+import com.symptomchecker.config.DatabaseConfig;
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.repository.CatalogWriter;
+import com.symptomchecker.repository.ConnectionPool;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bulk-loads a catalog file into the database read by
+ * {@link com.symptomchecker.repository.ConditionRepository}.
+ *
+ * <p>
+ * The calling thread streams records out of the file into batches; each writer thread holds
+ * one connection and commits every batch it takes as one transaction of multi-row inserts
+ * through a {@link CatalogWriter}. Conditions are upserted by id, so importing into a populated
+ * catalog updates it in place. Records are routed to writer {@code id mod writers}, so every
+ * record of one id is written by the same writer in file order and the last one wins, as it
+ * would in a sequential import.
+ * </p>
+ *
+ * <p>
+ * Whenever one writer's batch fills up, the batches of all writers are handed out together as a
+ * group covering a contiguous run of records. Groups commit out of order across writers, so the
+ * checkpoint records only the run of leading records whose groups have fully committed. A
+ * restart with resume skips exactly those; groups past that point may be written a second time,
+ * which the upserts make harmless.
+ * </p>
+ *
+ * <p>
+ * Usage, against the database configured in {@link DatabaseConfig}:
+ * </p>
+ * <pre>
+ * java -cp target/classes:mysql-connector-j.jar com.symptomchecker.importer.CatalogImporter --file FILE [options]
+ *
+ *   --file FILE               catalog to import (.csv, .json, .jsonl or .ndjson)
+ *   --format csv|json         override the format implied by the extension
+ *   --writers N               parallel writer connections (default 4)
+ *   --batch N                 conditions per transaction (default 500)
+ *   --rows-per-statement N    rows per multi-row insert (default 1000)
+ *   --checkpoint FILE         checkpoint location (default: FILE.checkpoint)
+ *   --resume true|false       skip records an interrupted run committed (default false)
+ *   --create-schema true|false create the tables if missing (default false)
+ * </pre>
+ */
+public final class CatalogImporter {
+
+    /**
+     * Catalog file formats; see {@link CatalogFileReader} for the expected layout.
+     */
+    public enum Format {
+        CSV,
+        JSON;
+
+        /**
+         * @throws IllegalArgumentException if the extension is not a known catalog format
+         */
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+                return JSON;
+            }
+            throw new IllegalArgumentException("Cannot tell the format of " + file + " from its name");
+        }
+    }
+
+    /** Deadlocked batches are rolled back and retried this many times before the import fails. */
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+
+    private static final long CHECKPOINT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final Batch END = new Batch(null, Collections.emptyList());
+
+    private final ConnectionPool pool;
+    private final int writers;
+    private final int batchSize;
+    private final int rowsPerStatement;
+
+    /**
+     * @param pool source of writer connections; it should allow at least {@code writers}
+     * @param writers parallel writer connections
+     * @param batchSize conditions per transaction
+     * @param rowsPerStatement rows per multi-row insert
+     */
+    public CatalogImporter(ConnectionPool pool, int writers, int batchSize, int rowsPerStatement) {
+        if (writers < 1 || batchSize < 1 || rowsPerStatement < 1) {
+            throw new IllegalArgumentException("writers, batch size and rows per statement must be positive.");
+        }
+        this.pool = pool;
+        this.writers = writers;
+        this.batchSize = batchSize;
+        this.rowsPerStatement = rowsPerStatement;
+    }
+
+    /**
+     * Create the catalog tables if they do not exist.
+     */
+    public void createSchema() {
+        try (Connection connection = pool.getConnection()) {
+            CatalogWriter.createSchema(connection);
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to create the catalog schema.", ex);
+        }
+    }
+
+    /**
+     * Import every record of the file.
+     *
+     * <p>
+     * The checkpoint is kept up to date while the import runs and deleted once it succeeds.
+     * </p>
+     *
+     * @param checkpointFile where to record committed progress
+     * @param resume {@code true} to skip the records an earlier run's checkpoint shows committed
+     * @throws IllegalArgumentException if a record is malformed
+     * @throws IllegalStateException if a batch could not be written; the checkpoint then lets a
+     * rerun with resume continue from the last committed records
+     */
+    public ImportResult importFile(Path file, Format format, Path checkpointFile, boolean resume) throws IOException {
+        ImportCheckpoint checkpoint = new ImportCheckpoint(checkpointFile, file);
+        long skip = resume ? checkpoint.load() : 0;
+        Progress progress = new Progress(checkpoint, skip);
+        List<BlockingQueue<Batch>> queues = new ArrayList<>(writers);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(2);
+            queues.add(queue);
+            Thread thread = new Thread(() -> writeBatches(queue, progress, failure), "catalog-import-writer-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+
+        long duplicateSymptoms;
+        try (CatalogFileReader reader = new CatalogFileReader(file, format)) {
+            // Records before the checkpoint were committed by an earlier run
+            while (reader.getRecords() < skip && reader.next() != null) {
+                continue;
+            }
+            if (reader.getRecords() < skip) {
+                throw new IllegalStateException("Checkpoint " + checkpointFile + " covers " + skip
+                    + " records but " + file + " has only " + reader.getRecords());
+            }
+
+            long sequence = 0;
+            List<List<Condition>> batches = new ArrayList<>(writers);
+            for (int i = 0; i < writers; i++) {
+                batches.add(new ArrayList<>());
+            }
+            Condition condition;
+            while (failure.get() == null && (condition = reader.next()) != null) {
+                List<Condition> batch = batches.get(Math.floorMod(condition.getId(), writers));
+                batch.add(condition);
+                if (batch.size() == batchSize) {
+                    enqueueGroup(queues, batches, sequence++, failure);
+                }
+            }
+            if (failure.get() == null) {
+                enqueueGroup(queues, batches, sequence, failure);
+            }
+            duplicateSymptoms = reader.getDuplicateSymptoms();
+        } finally {
+            for (BlockingQueue<Batch> queue : queues) {
+                enqueue(queue, END, failure);
+            }
+            for (Thread thread : threads) {
+                joinUninterruptibly(thread);
+            }
+            progress.saveCheckpoint();
+        }
+
+        Throwable cause = failure.get();
+        if (cause != null) {
+            throw new IllegalStateException("Catalog import failed after " + progress.getCommittedRecords()
+                + " committed records; rerun with resume to continue from checkpoint " + checkpointFile, cause);
+        }
+        checkpoint.delete();
+        return progress.result(duplicateSymptoms);
+    }
+
+    private void writeBatches(BlockingQueue<Batch> queue, Progress progress, AtomicReference<Throwable> failure) {
+        Batch batch = null;
+        try (Connection connection = pool.getConnection();
+             CatalogWriter writer = new CatalogWriter(connection, rowsPerStatement)) {
+            connection.setAutoCommit(false);
+            while ((batch = queue.take()) != END) {
+                if (failure.get() != null) {
+                    continue;
+                }
+                progress.committed(batch, writeBatch(connection, writer, batch));
+            }
+        } catch (Throwable ex) {
+            failure.compareAndSet(null, ex);
+            if (batch == END) {
+                // Closing the writer failed; nothing more is coming
+                return;
+            }
+            // Keep draining so the reader is never stuck on a full queue
+            try {
+                while (queue.take() != END) {
+                    // discard
+                }
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Hand every writer its pending batch, if it has one, as one group, and start new batches.
+     */
+    private static void enqueueGroup(List<BlockingQueue<Batch>> queues, List<List<Condition>> batches, long sequence,
+                                     AtomicReference<Throwable> failure) {
+        int records = 0;
+        int batchCount = 0;
+        for (List<Condition> batch : batches) {
+            if (!batch.isEmpty()) {
+                records += batch.size();
+                batchCount++;
+            }
+        }
+        if (batchCount == 0) {
+            return;
+        }
+        Group group = new Group(sequence, records, batchCount);
+        for (int i = 0; i < queues.size(); i++) {
+            List<Condition> batch = batches.get(i);
+            if (!batch.isEmpty()) {
+                enqueue(queues.get(i), new Batch(group, batch), failure);
+                batches.set(i, new ArrayList<>(batch.size()));
+            }
+        }
+    }
+
+    /**
+     * @return symptom rows written
+     */
+    private static int writeBatch(Connection connection, CatalogWriter writer, Batch batch) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                int symptomRows = writer.write(batch.conditions);
+                connection.commit();
+                return symptomRows;
+            } catch (SQLException ex) {
+                connection.rollback();
+                // Writers deleting and inserting neighbouring symptom rows can deadlock on
+                // InnoDB gap locks; the database picks a victim and the batch can simply rerun
+                if (!(ex instanceof SQLTransactionRollbackException) || attempt == MAX_BATCH_ATTEMPTS) {
+                    throw ex;
+                }
+                System.err.println("Retrying a catalog import batch of group " + batch.group.sequence + " after: "
+                    + ex.getMessage());
+            }
+        }
+    }
+
+    private static void enqueue(BlockingQueue<Batch> queue, Batch batch, AtomicReference<Throwable> failure) {
+        try {
+            queue.put(batch);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, ex);
+        }
+    }
+
+    private static void joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Batches handed out together, covering a contiguous run of records.
+     */
+    private static final class Group {
+        final long sequence;
+        final int records;
+        /** Guarded by the {@link Progress} lock. */
+        int pendingBatches;
+
+        Group(long sequence, int records, int pendingBatches) {
+            this.sequence = sequence;
+            this.records = records;
+            this.pendingBatches = pendingBatches;
+        }
+    }
+
+    private static final class Batch {
+        final Group group;
+        final List<Condition> conditions;
+
+        Batch(Group group, List<Condition> conditions) {
+            this.group = group;
+            this.conditions = conditions;
+        }
+    }
+
+    /**
+     * Tracks committed batches, advancing the checkpoint over the leading run of fully committed
+     * groups and reporting throughput as it goes.
+     */
+    private static final class Progress {
+        private final ImportCheckpoint checkpoint;
+        private final long skipped;
+        private final long startNanos = System.nanoTime();
+        private final TreeMap<Long, Integer> committedAhead = new TreeMap<>();
+        private long nextSequence;
+        private long committedRecords;
+        private long savedRecords;
+        private long conditions;
+        private long symptomRows;
+        private long transactions;
+        private long lastSaveNanos = startNanos;
+        private long lastReportNanos = startNanos;
+
+        Progress(ImportCheckpoint checkpoint, long skipped) {
+            this.checkpoint = checkpoint;
+            this.skipped = skipped;
+            this.committedRecords = skipped;
+            this.savedRecords = skipped;
+        }
+
+        synchronized void committed(Batch batch, int batchSymptomRows) throws IOException {
+            conditions += batch.conditions.size();
+            symptomRows += batchSymptomRows;
+            transactions++;
+            Group group = batch.group;
+            if (--group.pendingBatches == 0) {
+                committedAhead.put(group.sequence, group.records);
+            }
+            Integer records;
+            while ((records = committedAhead.remove(nextSequence)) != null) {
+                committedRecords += records;
+                nextSequence++;
+            }
+
+            long now = System.nanoTime();
+            if (now - lastSaveNanos >= CHECKPOINT_INTERVAL_NANOS) {
+                saveCheckpoint();
+                lastSaveNanos = now;
+            }
+            if (now - lastReportNanos >= PROGRESS_INTERVAL_NANOS) {
+                System.out.printf("Imported %d conditions, %d symptom rows (%.0f rows/s)%n",
+                    conditions, symptomRows, ImportResult.rate(conditions + symptomRows, now - startNanos));
+                lastReportNanos = now;
+            }
+        }
+
+        synchronized void saveCheckpoint() throws IOException {
+            if (committedRecords != savedRecords) {
+                checkpoint.save(committedRecords);
+                savedRecords = committedRecords;
+            }
+        }
+
+        synchronized long getCommittedRecords() {
+            return committedRecords;
+        }
+
+        synchronized ImportResult result(long duplicateSymptoms) {
+            return new ImportResult(skipped, conditions, symptomRows, duplicateSymptoms, transactions,
+                System.nanoTime() - startNanos);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        String fileOption = options.get("file");
+        if (fileOption == null) {
+            throw new IllegalArgumentException("Missing --file");
+        }
+        Path file = Paths.get(fileOption);
+        Format format = options.containsKey("format")
+            ? Format.valueOf(options.get("format").toUpperCase(Locale.ROOT))
+            : Format.of(file);
+        int writers = Integer.parseInt(options.getOrDefault("writers", "4"));
+        int batchSize = Integer.parseInt(options.getOrDefault("batch", "500"));
+        int rowsPerStatement = Integer.parseInt(options.getOrDefault("rows-per-statement", "1000"));
+        Path checkpointFile = Paths.get(options.getOrDefault("checkpoint", fileOption + ".checkpoint"));
+        boolean resume = Boolean.parseBoolean(options.getOrDefault("resume", "false"));
+        boolean createSchema = Boolean.parseBoolean(options.getOrDefault("create-schema", "false"));
+
+        try (ConnectionPool pool = new ConnectionPool(
+            () -> DriverManager.getConnection(DatabaseConfig.DB_URL, DatabaseConfig.DB_USER, DatabaseConfig.DB_PASSWORD),
+            0,
+            writers,
+            DatabaseConfig.POOL_IDLE_TIMEOUT_MS,
+            DatabaseConfig.POOL_ACQUIRE_TIMEOUT_MS,
+            DatabaseConfig.POOL_VALIDATION_TIMEOUT_SECONDS)) {
+            CatalogImporter importer = new CatalogImporter(pool, writers, batchSize, rowsPerStatement);
+            if (createSchema) {
+                importer.createSchema();
+            }
+            System.out.println(importer.importFile(file, format, checkpointFile, resume));
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
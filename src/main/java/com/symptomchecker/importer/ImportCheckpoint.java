@@ -0,0 +1,81 @@
+package com.symptomchecker.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Records how many leading records of a source file are committed, so an interrupted import can
+ * resume after them.
+ *
+ * <p>
+ * The file also stores the source's path, size and modification time; resuming against a file
+ * that changed since is refused rather than silently skipping the wrong records. Each save
+ * writes a temporary file and moves it into place, so a crash mid-save leaves the previous
+ * checkpoint intact.
+ * </p>
+ */
+final class ImportCheckpoint {
+    private final Path path;
+    private final String source;
+    private final long sourceSize;
+    private final long sourceModified;
+
+    ImportCheckpoint(Path path, Path source) throws IOException {
+        this.path = path;
+        this.source = source.toAbsolutePath().normalize().toString();
+        this.sourceSize = Files.size(source);
+        this.sourceModified = Files.getLastModifiedTime(source).toMillis();
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return committed records recorded for this source, or {@code 0} when there is no checkpoint
+     * @throws IllegalStateException if the checkpoint was written for a different or changed file
+     */
+    long load() throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        }
+        if (!source.equals(properties.getProperty("source"))
+            || !String.valueOf(sourceSize).equals(properties.getProperty("size"))
+            || !String.valueOf(sourceModified).equals(properties.getProperty("modified"))) {
+            throw new IllegalStateException("Checkpoint " + path + " was written for "
+                + properties.getProperty("source") + " as it was then; delete it to import " + source + " from the start");
+        }
+        try {
+            return Long.parseLong(properties.getProperty("records", "0"));
+        } catch (NumberFormatException ex) {
+            throw new IllegalStateException("Checkpoint " + path + " is corrupt", ex);
+        }
+    }
+
+    void save(long committedRecords) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("source", source);
+        properties.setProperty("size", String.valueOf(sourceSize));
+        properties.setProperty("modified", String.valueOf(sourceModified));
+        properties.setProperty("records", String.valueOf(committedRecords));
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, "Catalog import checkpoint");
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
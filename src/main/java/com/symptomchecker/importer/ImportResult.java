@@ -0,0 +1,74 @@
+package com.symptomchecker.importer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totals for one run of the {@link CatalogImporter}.
+ */
+public final class ImportResult {
+    private final long recordsSkipped;
+    private final long conditionsWritten;
+    private final long symptomRowsWritten;
+    private final long duplicateSymptoms;
+    private final long transactions;
+    private final long elapsedNanos;
+
+    ImportResult(long recordsSkipped, long conditionsWritten, long symptomRowsWritten, long duplicateSymptoms,
+                 long transactions, long elapsedNanos) {
+        this.recordsSkipped = recordsSkipped;
+        this.conditionsWritten = conditionsWritten;
+        this.symptomRowsWritten = symptomRowsWritten;
+        this.duplicateSymptoms = duplicateSymptoms;
+        this.transactions = transactions;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return leading records skipped because a checkpoint showed them committed by an earlier run
+     */
+    public long getRecordsSkipped() {
+        return recordsSkipped;
+    }
+
+    public long getConditionsWritten() {
+        return conditionsWritten;
+    }
+
+    public long getSymptomRowsWritten() {
+        return symptomRowsWritten;
+    }
+
+    /**
+     * @return repeated symptoms dropped before writing
+     */
+    public long getDuplicateSymptoms() {
+        return duplicateSymptoms;
+    }
+
+    public long getTransactions() {
+        return transactions;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * @return condition and symptom rows written per second of wall-clock time
+     */
+    public double getRowsPerSecond() {
+        return rate(conditionsWritten + symptomRowsWritten, elapsedNanos);
+    }
+
+    static double rate(long rows, long nanos) {
+        return nanos <= 0 ? 0 : rows * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Imported %d conditions and %d symptom rows in %d transactions over %.1f s"
+                + " (%.0f rows/s); dropped %d duplicate symptoms, skipped %d already imported records",
+            conditionsWritten, symptomRowsWritten, transactions, elapsedNanos / 1e9, getRowsPerSecond(),
+            duplicateSymptoms, recordsSkipped);
+    }
+}
@@ -0,0 +1,189 @@
+package com.symptomchecker.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Named group of read-only metrics, published both as one JMX MBean and as Prometheus text.
+ *
+ * <p>
+ * Counters and gauges are read through suppliers when scraped, so a set only describes where
+ * the values live; it adds nothing to the recording path. Latency histograms are exported as
+ * summaries with p50, p99 and p999 quantiles in seconds, and as JMX attributes in microseconds.
+ * </p>
+ */
+public final class MetricSet implements DynamicMBean {
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+    private static final String[] QUANTILE_NAMES = {"p50", "p99", "p999"};
+
+    private final String prefix;
+    private final String description;
+    private final List<Metric> metrics = new ArrayList<>();
+
+    /**
+     * @param prefix prefix of every exported metric name, for example {@code symptom_query}
+     * @param description MBean description
+     */
+    public MetricSet(String prefix, String description) {
+        this.prefix = prefix;
+        this.description = description;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Add a monotonically increasing count.
+     */
+    public MetricSet counter(String name, String help, LongSupplier value) {
+        metrics.add(new Metric(name, help, "counter", value::getAsLong, null));
+        return this;
+    }
+
+    /**
+     * Add a value that can go up and down.
+     */
+    public MetricSet gauge(String name, String help, DoubleSupplier value) {
+        metrics.add(new Metric(name, help, "gauge", value, null));
+        return this;
+    }
+
+    /**
+     * Add a latency histogram recorded in nanoseconds.
+     */
+    public MetricSet latency(String name, String help, LatencyHistogram histogram) {
+        metrics.add(new Metric(name, help, "summary", null, histogram));
+        return this;
+    }
+
+    /**
+     * Append every metric in Prometheus text exposition format.
+     */
+    public void writeText(StringBuilder out) {
+        for (Metric metric : metrics) {
+            String name = prefix + "_" + metric.name;
+            out.append("# HELP ").append(name).append(' ').append(metric.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(metric.type).append('\n');
+            if (metric.histogram == null) {
+                out.append(name).append(' ').append(format(metric.value.getAsDouble())).append('\n');
+                continue;
+            }
+            LatencyHistogram histogram = metric.histogram;
+            for (double quantile : QUANTILES) {
+                out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(format(histogram.getPercentile(quantile) / 1e9)).append('\n');
+            }
+            out.append(name).append("_sum ").append(format(histogram.getSum() / 1e9)).append('\n');
+            out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        for (Metric metric : metrics) {
+            if (metric.histogram == null) {
+                if (metric.name.equals(attribute)) {
+                    return metric.value.getAsDouble();
+                }
+                continue;
+            }
+            LatencyHistogram histogram = metric.histogram;
+            if (attribute.equals(metric.name + "_count")) {
+                return (double) histogram.getCount();
+            }
+            if (attribute.equals(metric.name + "_max_micros")) {
+                return histogram.getMax() / 1e3;
+            }
+            for (int q = 0; q < QUANTILES.length; q++) {
+                if (attribute.equals(metric.name + "_" + QUANTILE_NAMES[q] + "_micros")) {
+                    return histogram.getPercentile(QUANTILES[q]) / 1e3;
+                }
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        AttributeList list = new AttributeList();
+        for (String name : names) {
+            try {
+                list.add(new Attribute(name, getAttribute(name)));
+            } catch (AttributeNotFoundException e) {
+                // unknown attributes are left out, as the DynamicMBean contract allows
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> infos = new ArrayList<>();
+        for (Metric metric : metrics) {
+            if (metric.histogram == null) {
+                infos.add(attribute(metric.name, metric.help));
+                continue;
+            }
+            infos.add(attribute(metric.name + "_count", metric.help + " (count)"));
+            for (String quantileName : QUANTILE_NAMES) {
+                infos.add(attribute(metric.name + "_" + quantileName + "_micros",
+                    metric.help + " (" + quantileName + ", microseconds)"));
+            }
+            infos.add(attribute(metric.name + "_max_micros", metric.help + " (max, microseconds)"));
+        }
+        return new MBeanInfo(MetricSet.class.getName(), description,
+            infos.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[0], null);
+    }
+
+    private static MBeanAttributeInfo attribute(String name, String help) {
+        return new MBeanAttributeInfo(name, "double", help, true, false, false);
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static final class Metric {
+        final String name;
+        final String help;
+        final String type;
+        final DoubleSupplier value;
+        final LatencyHistogram histogram;
+
+        Metric(String name, String help, String type, DoubleSupplier value, LatencyHistogram histogram) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.value = value;
+            this.histogram = histogram;
+        }
+    }
+}
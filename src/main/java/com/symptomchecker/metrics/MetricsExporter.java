@@ -0,0 +1,203 @@
+package com.symptomchecker.metrics;
+
+import com.symptomchecker.audit.AuditLog;
+import com.symptomchecker.cluster.ScatterGatherCoordinator;
+import com.symptomchecker.repository.ConnectionPool;
+import com.symptomchecker.service.CatalogRefresher;
+import com.symptomchecker.service.CoreResultTable;
+import com.symptomchecker.service.QueryCoalescer;
+import com.symptomchecker.service.ResultCache;
+import com.symptomchecker.service.SymptomCheckerService;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Publishes the metrics of a {@link SymptomCheckerService} and of the shared connection pool,
+ * its catalog refresher, result cache, query coalescer, core result table and audit log, and of
+ * the scatter-gather coordinator when checks go to shard workers, through JMX and as Prometheus
+ * text.
+ *
+ * <p>
+ * Components that are switched off or not created yet report zeros, so the exported names stay
+ * the same for the life of the process.
+ * </p>
+ */
+public final class MetricsExporter {
+    private static final String DOMAIN = "com.symptomchecker";
+
+    private final List<MetricSet> sets = new ArrayList<>();
+
+    public MetricsExporter(SymptomCheckerService service) {
+        this(service, null);
+    }
+
+    /**
+     * @param service service whose components are exported
+     * @param coordinator coordinator the checks go through, or {@code null} when they are
+     *                    scored locally
+     */
+    public MetricsExporter(SymptomCheckerService service, ScatterGatherCoordinator coordinator) {
+        ServiceMetrics metrics = service.getMetrics();
+        sets.add(new MetricSet("symptom_service", "Symptom checker queries and catalog")
+            .latency("query_latency_seconds", "Single-selection query latency", metrics.getQueryLatency())
+            .latency("batch_latency_seconds", "Batch query latency", metrics.getBatchLatency())
+            .counter("batch_profiles_total", "Profiles checked in batches", metrics::getBatchProfileCount)
+            .counter("results_total", "Results returned by single-selection queries", metrics::getResultCount)
+            .counter("empty_results_total", "Single-selection queries without results", metrics::getEmptyResultCount)
+            .latency("catalog_load_seconds", "Database catalog load latency", metrics.getCatalogLoadLatency())
+            .counter("catalog_load_failures_total", "Failed database catalog loads", metrics::getCatalogLoadFailures)
+            .counter("fallback_to_defaults_total", "Times the built-in catalog replaced the database catalog",
+                metrics::getFallbackToDefaultsCount)
+            .latency("index_build_seconds", "Catalog index build latency", metrics.getIndexBuildLatency())
+            .gauge("catalog_conditions", "Conditions in the current catalog", metrics::getCatalogConditions)
+            .gauge("catalog_symptoms", "Distinct symptoms in the current catalog", metrics::getCatalogSymptoms));
+
+        sets.add(new MetricSet("symptom_result_cache", "Query result cache")
+            .counter("hits_total", "Cache hits", cache(service, ResultCache::getHitCount))
+            .counter("misses_total", "Cache misses", cache(service, ResultCache::getMissCount))
+            .counter("evictions_total", "Entries evicted to stay within limits", cache(service, ResultCache::getEvictionCount))
+            .counter("invalidations_total", "Whole-cache invalidations", cache(service, ResultCache::getInvalidationCount))
+            .gauge("entries", "Cached queries", cache(service, ResultCache::size)::getAsLong)
+            .gauge("weight", "Total weight of cached queries", cache(service, ResultCache::weight)::getAsLong));
+
+        sets.add(new MetricSet("symptom_query_coalescing", "Sharing of identical concurrent queries")
+            .counter("executed_total", "Queries that ran their own ranking pass",
+                coalescer(service, QueryCoalescer::getExecutedCount))
+            .counter("coalesced_total", "Queries answered by an identical query already running",
+                coalescer(service, QueryCoalescer::getCoalescedCount))
+            .gauge("in_flight", "Distinct queries being ranked", coalescer(service, QueryCoalescer::getInFlightCount)::getAsLong));
+
+        sets.add(new MetricSet("symptom_core_table", "Precomputed results for core-vocabulary selections")
+            .counter("hits_total", "Queries answered from the table", coreTable(service, CoreResultTable::getHitCount))
+            .counter("misses_total", "Queries that needed a symptom outside the core",
+                coreTable(service, CoreResultTable::getMissCount))
+            .gauge("build_seconds", "Duration of the last table build",
+                () -> coreTable(service, CoreResultTable::getBuildMillis).getAsLong() / 1e3)
+            .gauge("memory_bytes", "Bytes held by the table", coreTable(service, CoreResultTable::getMemoryBytes)::getAsLong)
+            .gauge("representatives", "Conditions the table was ranked from",
+                coreTable(service, CoreResultTable::getRepresentativeCount)::getAsLong));
+
+        sets.add(new MetricSet("symptom_audit", "Audit log of symptom checks")
+            .counter("recorded_total", "Checks accepted into the audit ring", audit(service, AuditLog::getRecordedCount))
+            .counter("dropped_total", "Checks not recorded because the ring was full",
+                audit(service, AuditLog::getDroppedCount))
+            .counter("blocked_total", "Checks that waited for room in the ring", audit(service, AuditLog::getBlockedCount))
+            .counter("written_total", "Records taken off the ring by the writer", audit(service, AuditLog::getWrittenCount))
+            .counter("write_failures_total", "Records that failed to write", audit(service, AuditLog::getWriteFailureCount))
+            .counter("segments_total", "Segment files started", audit(service, AuditLog::getSegmentsCreated))
+            .gauge("pending", "Records waiting in the ring", audit(service, AuditLog::getPendingCount)::getAsLong));
+
+        CatalogRefresher refresher = service.getRefresher();
+        if (refresher != null) {
+            sets.add(new MetricSet("symptom_catalog_refresh", "Incremental catalog refresher")
+                .counter("runs_total", "Completed refresh runs", refresher::getRefreshCount)
+                .counter("failures_total", "Refresh runs that failed to read the database", refresher::getFailureCount)
+                .counter("publishes_total", "Refresh runs that published a new catalog", refresher::getPublishCount)
+                .gauge("last_duration_seconds", "Duration of the last refresh", () -> refresher.getLastRefreshMillis() / 1e3)
+                .gauge("max_duration_seconds", "Slowest refresh", () -> refresher.getMaxRefreshMillis() / 1e3)
+                .counter("changed_conditions_total", "Conditions changed or deleted across refreshes",
+                    refresher::getTotalDeltaSize));
+        }
+
+        if (coordinator != null) {
+            sets.add(new MetricSet("symptom_cluster", "Scatter-gather checks across shard workers")
+                .latency("query_latency_seconds", "Latency of checks merged from the workers", coordinator.getLatency())
+                .gauge("shards", "Shard workers every check is sent to", coordinator::getShardCount)
+                .counter("partial_results_total", "Checks answered without some workers",
+                    coordinator::getPartialResults)
+                .counter("shard_failures_total", "Worker requests that failed", coordinator::getShardFailures)
+                .counter("shard_timeouts_total", "Worker requests that missed the deadline",
+                    coordinator::getShardTimeouts));
+        }
+
+        LongSupplier meanAcquireNanos = pool(ConnectionPool::getMeanAcquireNanos);
+        LongSupplier maxAcquireNanos = pool(ConnectionPool::getMaxAcquireNanos);
+        sets.add(new MetricSet("symptom_db_pool", "Shared database connection pool")
+            .gauge("open_connections", "Open connections", pool(ConnectionPool::getOpenConnections)::getAsLong)
+            .gauge("idle_connections", "Idle connections", pool(ConnectionPool::getIdleConnections)::getAsLong)
+            .counter("acquires_total", "Successful acquisitions", pool(ConnectionPool::getAcquireCount))
+            .counter("acquire_timeouts_total", "Acquisitions that timed out", pool(ConnectionPool::getAcquireTimeouts))
+            .gauge("acquire_mean_seconds", "Mean acquisition latency", () -> meanAcquireNanos.getAsLong() / 1e9)
+            .gauge("acquire_max_seconds", "Slowest acquisition", () -> maxAcquireNanos.getAsLong() / 1e9)
+            .counter("created_total", "Physical connections opened", pool(ConnectionPool::getCreatedCount))
+            .counter("evicted_total", "Idle connections closed by eviction", pool(ConnectionPool::getEvictedCount))
+            .counter("validation_failures_total", "Borrowed connections that failed validation",
+                pool(ConnectionPool::getValidationFailures)));
+    }
+
+    public List<MetricSet> getMetricSets() {
+        return sets;
+    }
+
+    /**
+     * Register one MBean per metric set with the platform MBean server, under
+     * {@code com.symptomchecker:type=<prefix>}. Sets already registered are replaced.
+     */
+    public void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (MetricSet set : sets) {
+            try {
+                ObjectName name = new ObjectName(DOMAIN + ":type=" + set.getPrefix());
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+                server.registerMBean(set, name);
+            } catch (JMException e) {
+                throw new IllegalStateException("Failed to register MBean for " + set.getPrefix(), e);
+            }
+        }
+    }
+
+    /**
+     * @return every metric in Prometheus text exposition format
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (MetricSet set : sets) {
+            set.writeText(out);
+        }
+        return out.toString();
+    }
+
+    private static LongSupplier cache(SymptomCheckerService service, ToLongFunction<ResultCache> value) {
+        return () -> {
+            ResultCache cache = service.getResultCache();
+            return cache == null ? 0 : value.applyAsLong(cache);
+        };
+    }
+
+    private static LongSupplier coalescer(SymptomCheckerService service, ToLongFunction<QueryCoalescer> value) {
+        return () -> {
+            QueryCoalescer coalescer = service.getQueryCoalescer();
+            return coalescer == null ? 0 : value.applyAsLong(coalescer);
+        };
+    }
+
+    private static LongSupplier coreTable(SymptomCheckerService service, ToLongFunction<CoreResultTable> value) {
+        return () -> {
+            CoreResultTable table = service.getCoreResultTable();
+            return table == null ? 0 : value.applyAsLong(table);
+        };
+    }
+
+    private static LongSupplier audit(SymptomCheckerService service, ToLongFunction<AuditLog> value) {
+        return () -> {
+            AuditLog audit = service.getAuditLog();
+            return audit == null ? 0 : value.applyAsLong(audit);
+        };
+    }
+
+    private static LongSupplier pool(ToLongFunction<ConnectionPool> value) {
+        return () -> {
+            ConnectionPool pool = ConnectionPool.sharedIfCreated();
+            return pool == null ? 0 : value.applyAsLong(pool);
+        };
+    }
+}
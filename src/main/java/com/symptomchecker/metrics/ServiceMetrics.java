@@ -0,0 +1,135 @@
+package com.symptomchecker.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of one {@code SymptomCheckerService}.
+ *
+ * <p>
+ * Every recording method is lock-free and allocation-free, so they are called inline on the
+ * query path. Counters are {@link LongAdder}s to keep concurrent queries from contending on a
+ * single cache line.
+ * </p>
+ */
+public final class ServiceMetrics {
+    private final LatencyHistogram queryLatency = new LatencyHistogram();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+    private final LatencyHistogram catalogLoadLatency = new LatencyHistogram();
+    private final LatencyHistogram indexBuildLatency = new LatencyHistogram();
+    private final LongAdder batchProfiles = new LongAdder();
+    private final LongAdder results = new LongAdder();
+    private final LongAdder emptyResults = new LongAdder();
+    private final LongAdder catalogLoadFailures = new LongAdder();
+    private final LongAdder fallbacksToDefaults = new LongAdder();
+    private volatile long catalogConditions;
+    private volatile long catalogSymptoms;
+
+    /**
+     * Record one single-selection query that started at {@code startNanos} and returned
+     * {@code resultCount} results.
+     */
+    public void recordQuery(long startNanos, int resultCount) {
+        queryLatency.recordSince(startNanos);
+        results.add(resultCount);
+        if (resultCount == 0) {
+            emptyResults.increment();
+        }
+    }
+
+    /**
+     * Record one batch of {@code profileCount} profiles that started at {@code startNanos}.
+     */
+    public void recordBatch(long startNanos, int profileCount) {
+        batchLatency.recordSince(startNanos);
+        batchProfiles.add(profileCount);
+    }
+
+    /**
+     * Record a database catalog load that started at {@code startNanos}.
+     */
+    public void recordCatalogLoad(long startNanos, boolean succeeded) {
+        catalogLoadLatency.recordSince(startNanos);
+        if (!succeeded) {
+            catalogLoadFailures.increment();
+        }
+    }
+
+    public void recordFallbackToDefaults() {
+        fallbacksToDefaults.increment();
+    }
+
+    /**
+     * Record an index build that started at {@code startNanos} and the size of the new catalog.
+     */
+    public void recordIndexBuild(long startNanos, int conditions, int symptoms) {
+        indexBuildLatency.recordSince(startNanos);
+        catalogConditions = conditions;
+        catalogSymptoms = symptoms;
+    }
+
+    public LatencyHistogram getQueryLatency() {
+        return queryLatency;
+    }
+
+    public LatencyHistogram getBatchLatency() {
+        return batchLatency;
+    }
+
+    public LatencyHistogram getCatalogLoadLatency() {
+        return catalogLoadLatency;
+    }
+
+    public LatencyHistogram getIndexBuildLatency() {
+        return indexBuildLatency;
+    }
+
+    /** @return profiles checked through batch calls */
+    public long getBatchProfileCount() {
+        return batchProfiles.sum();
+    }
+
+    /** @return results returned by single-selection queries */
+    public long getResultCount() {
+        return results.sum();
+    }
+
+    /** @return single-selection queries that returned no result */
+    public long getEmptyResultCount() {
+        return emptyResults.sum();
+    }
+
+    /** @return database catalog loads that failed */
+    public long getCatalogLoadFailures() {
+        return catalogLoadFailures.sum();
+    }
+
+    /** @return times the built-in catalog was used because the database load failed or was empty */
+    public long getFallbackToDefaultsCount() {
+        return fallbacksToDefaults.sum();
+    }
+
+    /** @return conditions in the catalog built last */
+    public long getCatalogConditions() {
+        return catalogConditions;
+    }
+
+    /** @return distinct symptoms in the catalog built last */
+    public long getCatalogSymptoms() {
+        return catalogSymptoms;
+    }
+
+    /**
+     * Clear every histogram and counter except the catalog size.
+     */
+    public void reset() {
+        queryLatency.reset();
+        batchLatency.reset();
+        catalogLoadLatency.reset();
+        indexBuildLatency.reset();
+        batchProfiles.reset();
+        results.reset();
+        emptyResults.reset();
+        catalogLoadFailures.reset();
+        fallbacksToDefaults.reset();
+    }
+}
@@ -6,16 +6,29 @@ import java.util.List;
  * Represents a medical condition with its associated symptoms
  */
 public class Condition {
+    private int id;
     private String name;
     private List<String> symptoms;
     private String advice;
 
     public Condition(String name, List<String> symptoms, String advice) {
+        this(0, name, symptoms, advice);
+    }
+
+    /**
+     * @param id database id of the condition, or {@code 0} when it was not loaded from the database
+     */
+    public Condition(int id, String name, List<String> symptoms, String advice) {
+        this.id = id;
         this.name = name;
         this.symptoms = symptoms;
         this.advice = advice;
     }
 
+    public int getId() {
+        return id;
+    }
+
     public String getName() {
         return name;
     }
@@ -28,4 +41,3 @@ public class Condition {
         return advice;
     }
 }
-
@@ -4,6 +4,7 @@ package com.symptomchecker.model;
  * Represents the result of symptom matching for a condition
  */
 public class SymptomResult {
+    private int conditionId;
     private String conditionName;
     private int matchedCount;
     private int totalSymptoms;
@@ -11,6 +12,15 @@ public class SymptomResult {
     private String advice;
 
     public SymptomResult(String conditionName, int matchedCount, int totalSymptoms, int percentMatch, String advice) {
+        this(0, conditionName, matchedCount, totalSymptoms, percentMatch, advice);
+    }
+
+    /**
+     * @param conditionId catalog id of the condition, or {@code 0} when it has none
+     */
+    public SymptomResult(int conditionId, String conditionName, int matchedCount, int totalSymptoms, int percentMatch,
+                         String advice) {
+        this.conditionId = conditionId;
         this.conditionName = conditionName;
         this.matchedCount = matchedCount;
         this.totalSymptoms = totalSymptoms;
@@ -18,6 +28,10 @@ public class SymptomResult {
         this.advice = advice;
     }
 
+    public int getConditionId() {
+        return conditionId;
+    }
+
     public String getConditionName() {
         return conditionName;
     }
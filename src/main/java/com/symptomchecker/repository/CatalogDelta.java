@@ -0,0 +1,43 @@
+package com.symptomchecker.repository;
+
+import com.symptomchecker.model.Condition;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Changes to the condition catalog since a given watermark, as read by
+ * {@link ConditionRepository#loadChanges(Timestamp)}.
+ */
+public class CatalogDelta {
+    private final List<Condition> changed;
+    private final int[] liveIds;
+    private final Timestamp watermark;
+
+    public CatalogDelta(List<Condition> changed, int[] liveIds, Timestamp watermark) {
+        this.changed = changed;
+        this.liveIds = liveIds;
+        this.watermark = watermark;
+    }
+
+    /**
+     * @return conditions added or modified since the previous watermark, ordered by id
+     */
+    public List<Condition> getChanged() {
+        return changed;
+    }
+
+    /**
+     * @return ids of every condition currently in the database, ascending
+     */
+    public int[] getLiveIds() {
+        return liveIds;
+    }
+
+    /**
+     * @return watermark to pass to the next {@code loadChanges} call
+     */
+    public Timestamp getWatermark() {
+        return watermark;
+    }
+}
@@ -0,0 +1,279 @@
+package com.symptomchecker.repository;
+
+import com.symptomchecker.model.Condition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compact, checksummed binary copy of a condition catalog, used to start without waiting for
+ * the database.
+ *
+ * <p>
+ * Layout (little-endian):
+ * </p>
+ * <pre>
+ * header   magic "SCKS" | format version | payload length (long) | payload CRC32 (long) | written at (epoch ms, long)
+ * payload  symptom dictionary   count, then (byte length, UTF-8 bytes) per symptom
+ *          advice string table  count, then (byte length or -1 for null, UTF-8 bytes) per distinct advice
+ *          conditions           count, then per condition:
+ *                               id | name (byte length, UTF-8 bytes) | advice table index | symptom count | symptom IDs
+ * </pre>
+ *
+ * <p>
+ * Symptoms are stored as dictionary IDs in list order, so the decoded catalog shares one
+ * {@code String} per distinct symptom and advice text. Snapshots are written to a temporary
+ * file and moved into place, so readers never see a partial file; they are read through a
+ * memory mapping and rejected when the magic, version, length or checksum does not match.
+ * {@link #readPacked()} serves the payload straight from the mapping instead of decoding it.
+ * </p>
+ */
+public final class CatalogSnapshotFile {
+    private static final int MAGIC = 0x534B4353; // "SCKS" in little-endian byte order
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8;
+
+    private final Path path;
+
+    public CatalogSnapshotFile(Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public boolean exists() {
+        return Files.isRegularFile(path);
+    }
+
+    /**
+     * Write the catalog, replacing any existing snapshot atomically.
+     */
+    public void write(List<Condition> conditions) throws IOException {
+        Map<String, Integer> symptomIds = new HashMap<>();
+        List<String> symptoms = new ArrayList<>();
+        Map<String, Integer> adviceIds = new HashMap<>();
+        List<String> advice = new ArrayList<>();
+        int nullAdvice = -1;
+        for (Condition condition : conditions) {
+            if (condition.getSymptoms() != null) {
+                for (String symptom : condition.getSymptoms()) {
+                    if (symptomIds.putIfAbsent(symptom, symptoms.size()) == null) {
+                        symptoms.add(symptom);
+                    }
+                }
+            }
+            String text = condition.getAdvice();
+            if (text == null) {
+                if (nullAdvice < 0) {
+                    nullAdvice = advice.size();
+                    advice.add(null);
+                }
+            } else if (adviceIds.putIfAbsent(text, advice.size()) == null) {
+                advice.add(text);
+            }
+        }
+
+        ByteSink payload = new ByteSink();
+        payload.putInt(symptoms.size());
+        for (String symptom : symptoms) {
+            payload.putString(symptom);
+        }
+        payload.putInt(advice.size());
+        for (String text : advice) {
+            payload.putString(text);
+        }
+        payload.putInt(conditions.size());
+        for (Condition condition : conditions) {
+            List<String> conditionSymptoms = condition.getSymptoms() != null ? condition.getSymptoms() : List.of();
+            payload.putInt(condition.getId());
+            payload.putString(condition.getName());
+            payload.putInt(condition.getAdvice() == null ? nullAdvice : adviceIds.get(condition.getAdvice()));
+            payload.putInt(conditionSymptoms.size());
+            for (String symptom : conditionSymptoms) {
+                payload.putInt(symptomIds.get(symptom));
+            }
+        }
+
+        ByteBuffer body = payload.toBuffer();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(body.remaining()).putLong(crc.getValue())
+            .putLong(System.currentTimeMillis()).flip();
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                while (body.hasRemaining()) {
+                    channel.write(body);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Memory-map and decode the snapshot.
+     *
+     * @throws IOException if the file cannot be read or fails validation
+     */
+    public List<Condition> read() throws IOException {
+        ByteBuffer payload = mapPayload();
+        try {
+            return decode(payload);
+        } catch (RuntimeException e) {
+            // Buffer underflows or bad indexes in a file that passed the checksum
+            throw new IOException("Catalog snapshot " + path + " is corrupt.", e);
+        }
+    }
+
+    /**
+     * Memory-map the snapshot and serve it in place. Only the symptom dictionary and a table of
+     * record offsets are built; conditions are decoded from the mapping when requested.
+     *
+     * @throws IOException if the file cannot be read or fails validation
+     */
+    public PackedConditionStore readPacked() throws IOException {
+        ByteBuffer payload = mapPayload();
+        try {
+            return PackedConditionStore.open(payload);
+        } catch (RuntimeException e) {
+            throw new IOException("Catalog snapshot " + path + " is corrupt.", e);
+        }
+    }
+
+    /**
+     * Map the file and validate its header and checksum.
+     *
+     * @return the payload, positioned at its start
+     */
+    private ByteBuffer mapPayload() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Catalog snapshot " + path + " is truncated.");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (mapped.getInt() != MAGIC) {
+                throw new IOException("File " + path + " is not a catalog snapshot.");
+            }
+            int version = mapped.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported catalog snapshot version " + version + " in " + path + ".");
+            }
+            long length = mapped.getLong();
+            long checksum = mapped.getLong();
+            mapped.getLong(); // written at
+            if (length != size - HEADER_BYTES) {
+                throw new IOException("Catalog snapshot " + path + " is truncated.");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(mapped.duplicate());
+            if (crc.getValue() != checksum) {
+                throw new IOException("Catalog snapshot " + path + " failed its checksum.");
+            }
+            return mapped;
+        }
+    }
+
+    private static List<Condition> decode(ByteBuffer in) {
+        String[] symptoms = new String[in.getInt()];
+        for (int i = 0; i < symptoms.length; i++) {
+            symptoms[i] = getString(in);
+        }
+        String[] advice = new String[in.getInt()];
+        for (int i = 0; i < advice.length; i++) {
+            advice[i] = getString(in);
+        }
+        int conditionCount = in.getInt();
+        List<Condition> conditions = new ArrayList<>(conditionCount);
+        for (int c = 0; c < conditionCount; c++) {
+            int id = in.getInt();
+            String name = getString(in);
+            int adviceIndex = in.getInt();
+            String[] conditionSymptoms = new String[in.getInt()];
+            for (int s = 0; s < conditionSymptoms.length; s++) {
+                conditionSymptoms[s] = symptoms[in.getInt()];
+            }
+            conditions.add(new Condition(id, name, Arrays.asList(conditionSymptoms),
+                adviceIndex < 0 ? null : advice[adviceIndex]));
+        }
+        return conditions;
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Growable little-endian byte buffer for assembling the payload.
+     */
+    private static final class ByteSink {
+        private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+        void putInt(int value) {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        ByteBuffer toBuffer() {
+            ByteBuffer result = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            result.flip();
+            return result;
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+                ByteBuffer grown = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.symptomchecker.repository;
+
+import com.symptomchecker.model.Condition;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes conditions into the {@code conditions} and {@code condition_symptoms} tables read by
+ * {@link ConditionRepository}, using multi-row prepared inserts.
+ *
+ * <p>
+ * Writing a condition replaces it: its row is upserted by id and its symptom rows are deleted
+ * and re-inserted, so writing the same conditions twice leaves the tables unchanged. When
+ * {@code conditions} has an {@code updated_at} column, upserts also bump it so incremental
+ * refreshes pick the change up. Full-size statements are prepared once and reused; the
+ * writer belongs to one connection and is not thread-safe.
+ * </p>
+ */
+public final class CatalogWriter implements AutoCloseable {
+    /** MySQL rejects statements with more placeholders than this. */
+    private static final int MAX_PLACEHOLDERS = 65_535;
+
+    private static final String CREATE_CONDITIONS_SQL =
+        "CREATE TABLE IF NOT EXISTS conditions (" +
+            "id INT PRIMARY KEY, " +
+            "name VARCHAR(255) NOT NULL, " +
+            "advice TEXT, " +
+            "updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3))";
+
+    private static final String CREATE_SYMPTOMS_SQL =
+        "CREATE TABLE IF NOT EXISTS condition_symptoms (" +
+            "condition_id INT NOT NULL, " +
+            "symptom VARCHAR(255) NOT NULL, " +
+            "INDEX idx_condition_symptoms_condition (condition_id))";
+
+    private final Connection connection;
+    private final int rowsPerStatement;
+    private final boolean touchUpdatedAt;
+    private PreparedStatement fullConditionInsert;
+    private PreparedStatement fullSymptomDelete;
+    private PreparedStatement fullSymptomInsert;
+
+    /**
+     * @param connection connection to write through; transactions are left to the caller
+     * @param rowsPerStatement rows per multi-row insert
+     */
+    public CatalogWriter(Connection connection, int rowsPerStatement) throws SQLException {
+        if (rowsPerStatement < 1 || rowsPerStatement * 3 > MAX_PLACEHOLDERS) {
+            throw new IllegalArgumentException("Rows per statement must be between 1 and " + MAX_PLACEHOLDERS / 3
+                + ": " + rowsPerStatement);
+        }
+        this.connection = connection;
+        this.rowsPerStatement = rowsPerStatement;
+        this.touchUpdatedAt = hasColumn(connection, "conditions", "updated_at");
+    }
+
+    /**
+     * Create both tables if they do not exist, with the {@code updated_at} column incremental
+     * refreshes need.
+     */
+    public static void createSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_CONDITIONS_SQL);
+            statement.execute(CREATE_SYMPTOMS_SQL);
+        }
+    }
+
+    /**
+     * Upsert the conditions and replace their symptom rows.
+     *
+     * @param conditions conditions with ids; symptoms are written as given, and of several
+     *                   conditions with the same id only the last is written
+     * @return number of symptom rows inserted
+     */
+    public int write(List<Condition> conditions) throws SQLException {
+        conditions = lastPerId(conditions);
+        int symptomRows = 0;
+        for (int from = 0; from < conditions.size(); from += rowsPerStatement) {
+            List<Condition> chunk = conditions.subList(from, Math.min(conditions.size(), from + rowsPerStatement));
+            upsertConditions(chunk);
+            deleteSymptoms(chunk);
+        }
+
+        int[] conditionIds = new int[rowsPerStatement];
+        String[] symptoms = new String[rowsPerStatement];
+        int pending = 0;
+        for (Condition condition : conditions) {
+            for (String symptom : condition.getSymptoms()) {
+                conditionIds[pending] = condition.getId();
+                symptoms[pending] = symptom;
+                if (++pending == rowsPerStatement) {
+                    symptomRows += insertSymptoms(conditionIds, symptoms, pending);
+                    pending = 0;
+                }
+            }
+        }
+        if (pending > 0) {
+            symptomRows += insertSymptoms(conditionIds, symptoms, pending);
+        }
+        return symptomRows;
+    }
+
+    /**
+     * Without this, the symptoms of every copy of an id would be inserted after the one delete.
+     */
+    private static List<Condition> lastPerId(List<Condition> conditions) {
+        Map<Integer, Integer> lastIndex = new HashMap<>(conditions.size() * 2);
+        for (int i = 0; i < conditions.size(); i++) {
+            lastIndex.put(conditions.get(i).getId(), i);
+        }
+        if (lastIndex.size() == conditions.size()) {
+            return conditions;
+        }
+        List<Condition> distinct = new ArrayList<>(lastIndex.size());
+        for (int i = 0; i < conditions.size(); i++) {
+            if (lastIndex.get(conditions.get(i).getId()) == i) {
+                distinct.add(conditions.get(i));
+            }
+        }
+        return distinct;
+    }
+
+    private void upsertConditions(List<Condition> chunk) throws SQLException {
+        boolean full = chunk.size() == rowsPerStatement;
+        if (full && fullConditionInsert == null) {
+            fullConditionInsert = connection.prepareStatement(conditionInsertSql(rowsPerStatement));
+        }
+        PreparedStatement statement = full ? fullConditionInsert : connection.prepareStatement(conditionInsertSql(chunk.size()));
+        try {
+            int parameter = 1;
+            for (Condition condition : chunk) {
+                statement.setInt(parameter++, condition.getId());
+                statement.setString(parameter++, condition.getName());
+                if (condition.getAdvice() == null) {
+                    statement.setNull(parameter++, Types.VARCHAR);
+                } else {
+                    statement.setString(parameter++, condition.getAdvice());
+                }
+            }
+            statement.executeUpdate();
+        } finally {
+            if (!full) {
+                statement.close();
+            }
+        }
+    }
+
+    private void deleteSymptoms(List<Condition> chunk) throws SQLException {
+        boolean full = chunk.size() == rowsPerStatement;
+        if (full && fullSymptomDelete == null) {
+            fullSymptomDelete = connection.prepareStatement(symptomDeleteSql(rowsPerStatement));
+        }
+        PreparedStatement statement = full ? fullSymptomDelete : connection.prepareStatement(symptomDeleteSql(chunk.size()));
+        try {
+            for (int i = 0; i < chunk.size(); i++) {
+                statement.setInt(i + 1, chunk.get(i).getId());
+            }
+            statement.executeUpdate();
+        } finally {
+            if (!full) {
+                statement.close();
+            }
+        }
+    }
+
+    private int insertSymptoms(int[] conditionIds, String[] symptoms, int rows) throws SQLException {
+        boolean full = rows == rowsPerStatement;
+        if (full && fullSymptomInsert == null) {
+            fullSymptomInsert = connection.prepareStatement(symptomInsertSql(rowsPerStatement));
+        }
+        PreparedStatement statement = full ? fullSymptomInsert : connection.prepareStatement(symptomInsertSql(rows));
+        try {
+            int parameter = 1;
+            for (int i = 0; i < rows; i++) {
+                statement.setInt(parameter++, conditionIds[i]);
+                statement.setString(parameter++, symptoms[i]);
+            }
+            return statement.executeUpdate();
+        } finally {
+            if (!full) {
+                statement.close();
+            }
+        }
+    }
+
+    private String conditionInsertSql(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO conditions (id, name, advice) VALUES ");
+        appendRows(sql, rows, "(?, ?, ?)");
+        sql.append(" ON DUPLICATE KEY UPDATE name = VALUES(name), advice = VALUES(advice)");
+        if (touchUpdatedAt) {
+            // Symptom-only changes leave the row as it was, so bump the timestamp explicitly
+            sql.append(", updated_at = CURRENT_TIMESTAMP(3)");
+        }
+        return sql.toString();
+    }
+
+    private static String symptomDeleteSql(int rows) {
+        StringBuilder sql = new StringBuilder("DELETE FROM condition_symptoms WHERE condition_id IN (");
+        appendRows(sql, rows, "?");
+        return sql.append(')').toString();
+    }
+
+    private static String symptomInsertSql(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO condition_symptoms (condition_id, symptom) VALUES ");
+        appendRows(sql, rows, "(?, ?)");
+        return sql.toString();
+    }
+
+    private static void appendRows(StringBuilder sql, int rows, String row) {
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(row);
+        }
+    }
+
+    private static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, table, column)) {
+            return columns.next();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        SQLException failure = null;
+        for (PreparedStatement statement : new PreparedStatement[]{fullConditionInsert, fullSymptomDelete, fullSymptomInsert}) {
+            if (statement == null) {
+                continue;
+            }
+            try {
+                statement.close();
+            } catch (SQLException ex) {
+                failure = ex;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -4,14 +4,18 @@ import com.symptomchecker.config.DatabaseConfig;
 import com.symptomchecker.model.Condition;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Repository responsible for retrieving condition data from MySQL.
@@ -24,18 +28,295 @@ public class ConditionRepository {
             "LEFT JOIN condition_symptoms cs ON c.id = cs.condition_id " +
             "ORDER BY c.id";
 
+    private static final String STREAM_CONDITIONS_SQL =
+        "SELECT id, name, advice FROM conditions ORDER BY id";
+
+    private static final String STREAM_SYMPTOMS_SQL =
+        "SELECT condition_id, symptom FROM condition_symptoms ORDER BY condition_id";
+
+    private static final String STREAM_PARTITION_CONDITIONS_SQL =
+        "SELECT id, name, advice FROM conditions WHERE MOD(id, ?) = ? ORDER BY id";
+
+    private static final String STREAM_PARTITION_SYMPTOMS_SQL =
+        "SELECT condition_id, symptom FROM condition_symptoms WHERE MOD(condition_id, ?) = ? ORDER BY condition_id";
+
+    private static final String CHANGED_CONDITIONS_SQL =
+        "SELECT id, name, advice, updated_at FROM conditions WHERE updated_at >= ? ORDER BY id";
+
+    private static final String CHANGED_SYMPTOMS_SQL =
+        "SELECT cs.condition_id, cs.symptom " +
+            "FROM condition_symptoms cs " +
+            "JOIN conditions c ON c.id = cs.condition_id " +
+            "WHERE c.updated_at >= ? " +
+            "ORDER BY cs.condition_id";
+
+    private static final String VOCABULARY_SQL =
+        "SELECT symptom FROM condition_symptoms GROUP BY symptom ORDER BY MIN(condition_id), symptom";
+
+    private static final String WATERMARK_SQL =
+        "SELECT MAX(updated_at) FROM conditions";
+
+    private static final String LIVE_IDS_SQL =
+        "SELECT id FROM conditions ORDER BY id";
+
     /**
-     * Load all conditions defined in the database along with their associated symptoms.
+     * Strategy used to read the catalog.
+     */
+    public enum LoadMode {
+        /** One LEFT JOIN, buffered by the driver; name and advice repeat on every symptom row. */
+        JOINED,
+        /**
+         * Conditions and symptoms read as two narrow queries ordered by condition id, streamed
+         * on separate connections and merged in one pass.
+         */
+        STREAMING;
+
+        /**
+         * @param value mode name in any case, surrounding spaces ignored
+         * @throws IllegalStateException if the name is not a load mode, so a misconfigured load
+         * falls back like any other failed load
+         */
+        public static LoadMode parse(String value) {
+            String name = value == null ? "" : value.trim().toUpperCase(Locale.ROOT);
+            for (LoadMode mode : values()) {
+                if (mode.name().equals(name)) {
+                    return mode;
+                }
+            }
+            throw new IllegalStateException("Unknown catalog load mode '" + value + "'; expected one of "
+                + Arrays.toString(values()));
+        }
+    }
+
+    private final ConnectionPool pool;
+
+    /**
+     * Create a repository backed by the shared pool for the configured MySQL database.
+     */
+    public ConditionRepository() {
+        this(ConnectionPool.shared());
+    }
+
+    /**
+     * Create a repository that borrows its connections from the given pool.
+     */
+    public ConditionRepository(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Load all conditions defined in the database along with their associated symptoms, using
+     * the load mode configured in {@link DatabaseConfig#LOAD_MODE}.
      *
      * @return list of conditions; never {@code null}
+     * @throws IllegalStateException if the load mode is unknown or the database cannot be read
      */
     public List<Condition> loadConditions() {
+        return loadConditions(LoadMode.parse(DatabaseConfig.LOAD_MODE));
+    }
+
+    /**
+     * Load all conditions defined in the database along with their associated symptoms.
+     *
+     * @param mode how to read the catalog
+     * @return list of conditions; never {@code null}
+     */
+    public List<Condition> loadConditions(LoadMode mode) {
+        return mode == LoadMode.STREAMING ? loadStreaming() : loadJoined();
+    }
+
+    /**
+     * Load the catalog like {@link #loadConditions()} into an off-heap store. In
+     * {@link LoadMode#STREAMING} mode each condition is packed as soon as it is read, so the
+     * catalog never exists as a list of {@link Condition} objects.
+     *
+     * @return the packed catalog, in id order; never {@code null}
+     * @throws IllegalStateException if the load mode is unknown or the database cannot be read
+     */
+    public PackedConditionStore loadPacked() {
+        return loadPacked(LoadMode.parse(DatabaseConfig.LOAD_MODE));
+    }
+
+    /**
+     * @param mode how to read the catalog; the joined query is buffered by the driver anyway,
+     *             so that mode still reads the whole catalog before packing it
+     * @see #loadPacked()
+     */
+    public PackedConditionStore loadPacked(LoadMode mode) {
+        if (mode != LoadMode.STREAMING) {
+            return PackedConditionStore.pack(loadJoined());
+        }
+        PackedConditionStore.Builder builder = new PackedConditionStore.Builder();
+        loadStreaming(builder::add);
+        return builder.build();
+    }
+
+    /**
+     * Load the conditions whose id falls in one partition of the catalog, {@code id mod
+     * partitionCount == partition}, streamed like {@link LoadMode#STREAMING}. Conditions keep
+     * their id order.
+     *
+     * @param partition partition to load, from {@code 0} to {@code partitionCount - 1}
+     * @param partitionCount number of partitions the catalog is split into
+     * @return list of conditions; never {@code null}
+     */
+    public List<Condition> loadPartition(int partition, int partitionCount) {
+        if (partitionCount <= 0 || partition < 0 || partition >= partitionCount) {
+            throw new IllegalArgumentException("Invalid partition " + partition + " of " + partitionCount);
+        }
+        List<Condition> conditions = new ArrayList<>();
+        Map<String, String> strings = new HashMap<>();
+
+        try (Connection conditionConnection = pool.getConnection();
+             Connection symptomConnection = symptomConnection(conditionConnection);
+             PreparedStatement conditionStatement =
+                 prepareConditions(conditionConnection, symptomConnection, STREAM_PARTITION_CONDITIONS_SQL);
+             PreparedStatement symptomStatement = prepareStreaming(symptomConnection, STREAM_PARTITION_SYMPTOMS_SQL)) {
+            conditionStatement.setInt(1, partitionCount);
+            conditionStatement.setInt(2, partition);
+            symptomStatement.setInt(1, partitionCount);
+            symptomStatement.setInt(2, partition);
+            try (ResultSet conditionRows = conditionStatement.executeQuery();
+                 ResultSet symptomRows = symptomStatement.executeQuery()) {
+                mergeConditions(conditionRows, symptomRows, strings, conditions::add);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load catalog partition " + partition + " from the database.", e);
+        }
+        return conditions;
+    }
+
+    /**
+     * Load the conditions changed since {@code since}, re-reading the last
+     * {@link DatabaseConfig#REFRESH_OVERLAP_MS} before it, plus the ids of every condition that
+     * still exists so deletions can be detected.
+     *
+     * @param since watermark of the previous delta or of the initial load, or {@code null} to
+     *              load every condition
+     * @return the delta; never {@code null}
+     * @see #loadChanges(Timestamp, long)
+     */
+    public CatalogDelta loadChanges(Timestamp since) {
+        return loadChanges(since, DatabaseConfig.REFRESH_OVERLAP_MS);
+    }
+
+    /**
+     * Load the conditions changed since {@code since}, plus the ids of every condition that
+     * still exists so deletions can be detected.
+     *
+     * <p>
+     * Requires an {@code updated_at} column on {@code conditions} that is bumped whenever the
+     * condition or any of its {@code condition_symptoms} rows change, for example:
+     * {@code updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)}.
+     * A row's {@code updated_at} is taken when it is written, but the row only becomes visible
+     * when its transaction commits, possibly after a refresh already moved past it. Each read
+     * therefore starts {@code overlapMillis} before the watermark, and callers must tolerate
+     * seeing unchanged conditions again. All reads run in one repeatable-read transaction so
+     * they describe the same state.
+     * </p>
+     *
+     * @param since watermark of the previous delta or of the initial load, or {@code null} to
+     *              load every condition
+     * @param overlapMillis how far before {@code since} to re-read
+     * @return the delta; never {@code null}
+     */
+    public CatalogDelta loadChanges(Timestamp since, long overlapMillis) {
+        Timestamp from = new Timestamp(since != null ? since.getTime() - overlapMillis : 0L);
+        List<Condition> changed = new ArrayList<>();
+        Timestamp watermark = since;
+        int[] liveIds;
+
+        try (Connection connection = pool.getConnection()) {
+            int isolation = connection.getTransactionIsolation();
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                try (PreparedStatement conditionStatement = connection.prepareStatement(CHANGED_CONDITIONS_SQL);
+                     PreparedStatement symptomStatement = connection.prepareStatement(CHANGED_SYMPTOMS_SQL)) {
+                    conditionStatement.setTimestamp(1, from);
+                    symptomStatement.setTimestamp(1, from);
+                    try (ResultSet conditionRows = conditionStatement.executeQuery();
+                         ResultSet symptomRows = symptomStatement.executeQuery()) {
+                        mergeConditions(conditionRows, symptomRows, new HashMap<>(), changed::add);
+                    }
+                }
+
+                // The merge consumed the condition rows, so take the new watermark in a separate read
+                Timestamp latest = readWatermark(connection);
+                if (latest != null && (watermark == null || latest.after(watermark))) {
+                    watermark = latest;
+                }
+
+                try (PreparedStatement statement = connection.prepareStatement(LIVE_IDS_SQL);
+                     ResultSet resultSet = statement.executeQuery()) {
+                    int[] ids = new int[256];
+                    int count = 0;
+                    while (resultSet.next()) {
+                        if (count == ids.length) {
+                            ids = Arrays.copyOf(ids, count * 2);
+                        }
+                        ids[count++] = resultSet.getInt(1);
+                    }
+                    liveIds = Arrays.copyOf(ids, count);
+                }
+                connection.commit();
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+                connection.setTransactionIsolation(isolation);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load catalog changes from the database.", e);
+        }
+
+        return new CatalogDelta(changed, liveIds, watermark);
+    }
+
+    /**
+     * Load only the distinct symptom names of the catalog, ordered by the first condition listing
+     * them and then by name, without reading any condition.
+     *
+     * @return list of symptom names; never {@code null}
+     */
+    public List<String> loadVocabulary() {
+        List<String> symptoms = new ArrayList<>();
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(VOCABULARY_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                symptoms.add(resultSet.getString(1));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load the symptom vocabulary from the database.", e);
+        }
+        return symptoms;
+    }
+
+    /**
+     * Read the watermark to seed incremental refreshes with. Taken before a full load, it lets
+     * the first {@link #loadChanges(Timestamp)} pick up only what changed during and after it.
+     *
+     * @return latest {@code updated_at}, or {@code null} when the catalog is empty
+     */
+    public Timestamp loadWatermark() {
+        try (Connection connection = pool.getConnection()) {
+            return readWatermark(connection);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read the catalog watermark from the database.", e);
+        }
+    }
+
+    private static Timestamp readWatermark(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(WATERMARK_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getTimestamp(1) : null;
+        }
+    }
+
+    private List<Condition> loadJoined() {
         Map<Integer, ConditionBuilder> builders = new LinkedHashMap<>();
 
-        try (Connection connection = DriverManager.getConnection(
-            DatabaseConfig.DB_URL,
-            DatabaseConfig.DB_USER,
-            DatabaseConfig.DB_PASSWORD);
+        try (Connection connection = pool.getConnection();
              PreparedStatement statement = connection.prepareStatement(LOAD_CONDITIONS_SQL);
              ResultSet resultSet = statement.executeQuery()) {
 
@@ -45,7 +326,7 @@ public class ConditionRepository {
                 String advice = resultSet.getString("advice");
                 String symptom = resultSet.getString("symptom");
 
-                ConditionBuilder builder = builders.computeIfAbsent(id, key -> new ConditionBuilder(name, advice));
+                ConditionBuilder builder = builders.computeIfAbsent(id, key -> new ConditionBuilder(id, name, advice));
                 if (symptom != null) {
                     builder.addSymptom(symptom);
                 }
@@ -61,12 +342,113 @@ public class ConditionRepository {
         return conditions;
     }
 
+    /**
+     * Merge-join the two ordered streams. Each needs its own connection because a streaming
+     * result set occupies its connection until it is fully read; a pool of one connection gets a
+     * buffered condition query instead, see {@link #symptomConnection}. Symptom and advice
+     * strings are deduplicated while reading, so the loaded catalog holds each distinct text
+     * once.
+     */
+    private List<Condition> loadStreaming() {
+        List<Condition> conditions = new ArrayList<>();
+        loadStreaming(conditions::add);
+        return conditions;
+    }
+
+    private void loadStreaming(Consumer<Condition> out) {
+        Map<String, String> strings = new HashMap<>();
+
+        try (Connection conditionConnection = pool.getConnection();
+             Connection symptomConnection = symptomConnection(conditionConnection);
+             PreparedStatement conditionStatement =
+                 prepareConditions(conditionConnection, symptomConnection, STREAM_CONDITIONS_SQL);
+             PreparedStatement symptomStatement = prepareStreaming(symptomConnection, STREAM_SYMPTOMS_SQL);
+             ResultSet conditionRows = conditionStatement.executeQuery();
+             ResultSet symptomRows = symptomStatement.executeQuery()) {
+
+            mergeConditions(conditionRows, symptomRows, strings, out);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load conditions from the database.", e);
+        }
+    }
+
+    /**
+     * Merge condition rows {@code (id, name, advice, ...)} with symptom rows
+     * {@code (condition_id, symptom)}, both ordered by condition id, passing each condition to
+     * {@code out} in id order.
+     */
+    private static void mergeConditions(ResultSet conditionRows, ResultSet symptomRows, Map<String, String> strings,
+                                        Consumer<Condition> out) throws SQLException {
+        boolean symptomAvailable = symptomRows.next();
+        while (conditionRows.next()) {
+            int id = conditionRows.getInt(1);
+            String name = conditionRows.getString(2);
+            String advice = intern(strings, conditionRows.getString(3));
+
+            // Skip symptoms whose condition no longer exists
+            while (symptomAvailable && symptomRows.getInt(1) < id) {
+                symptomAvailable = symptomRows.next();
+            }
+            ArrayList<String> symptoms = new ArrayList<>();
+            while (symptomAvailable && symptomRows.getInt(1) == id) {
+                String symptom = symptomRows.getString(2);
+                if (symptom != null) {
+                    symptoms.add(intern(strings, symptom));
+                }
+                symptomAvailable = symptomRows.next();
+            }
+            symptoms.trimToSize();
+            out.accept(new Condition(id, name, symptoms, advice));
+        }
+    }
+
+    /**
+     * @return a second connection for the symptom stream, or {@code conditionConnection} itself
+     * when the pool allows only one, which would otherwise make the load wait for itself until
+     * the acquire timeout
+     */
+    private Connection symptomConnection(Connection conditionConnection) throws SQLException {
+        if (pool.getMaxSize() > 1) {
+            return pool.getConnection();
+        }
+        // Closing the shared connection twice is harmless: the pooled proxy returns it once
+        return conditionConnection;
+    }
+
+    /**
+     * Prepare the condition query: streamed on its own connection, or buffered by the driver
+     * when it shares the symptom stream's connection.
+     */
+    private static PreparedStatement prepareConditions(Connection conditionConnection, Connection symptomConnection,
+                                                       String sql) throws SQLException {
+        if (conditionConnection == symptomConnection) {
+            return conditionConnection.prepareStatement(sql);
+        }
+        return prepareStreaming(conditionConnection, sql);
+    }
+
+    private static PreparedStatement prepareStreaming(Connection connection, String sql) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(DatabaseConfig.LOAD_FETCH_SIZE);
+        return statement;
+    }
+
+    private static String intern(Map<String, String> strings, String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = strings.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
     private static class ConditionBuilder {
+        private final int id;
         private final String name;
         private final String advice;
         private final List<String> symptoms = new ArrayList<>();
 
-        ConditionBuilder(String name, String advice) {
+        ConditionBuilder(int id, String name, String advice) {
+            this.id = id;
             this.name = name;
             this.advice = advice;
         }
@@ -76,7 +458,7 @@ public class ConditionRepository {
         }
 
         Condition build() {
-            return new Condition(name, symptoms, advice);
+            return new Condition(id, name, symptoms, advice);
         }
     }
 }
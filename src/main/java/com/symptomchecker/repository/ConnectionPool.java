@@ -0,0 +1,461 @@
+package com.symptomchecker.repository;
+
+import com.symptomchecker.config.DatabaseConfig;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lightweight JDBC connection pool.
+ *
+ * <p>
+ * Borrowed connections are validated with {@link Connection#isValid(int)} and handed out as
+ * proxies whose {@code close()} returns the physical connection to the pool. A background
+ * thread closes connections that stayed idle longer than the idle timeout, down to the
+ * minimum size, and re-opens connections up to that minimum. Acquire latency, timeouts and
+ * connection churn are tracked for monitoring.
+ * </p>
+ *
+ * <p>
+ * The pool only needs a {@link ConnectionFactory}, so it can be pointed at any JDBC source,
+ * including an embedded database, for testing.
+ * </p>
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens new physical connections for the pool.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private static ConnectionPool shared;
+
+    private final ConnectionFactory factory;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutNanos;
+    private final long acquireTimeoutNanos;
+    private final int validationTimeoutSeconds;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<IdleConnection> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger open = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private final LongAdder acquireNanosTotal = new LongAdder();
+    private final AtomicLong acquireNanosMax = new AtomicLong();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+
+    /**
+     * @param factory source of physical connections
+     * @param minSize connections kept open while idle
+     * @param maxSize maximum connections open or borrowed at once
+     * @param idleTimeoutMillis idle time after which connections above {@code minSize} are closed
+     * @param acquireTimeoutMillis how long {@link #getConnection()} waits for a free connection
+     * @param validationTimeoutSeconds timeout for the validation check on borrow
+     */
+    public ConnectionPool(ConnectionFactory factory, int minSize, int maxSize, long idleTimeoutMillis,
+                          long acquireTimeoutMillis, int validationTimeoutSeconds) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.factory = factory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1_000L, idleTimeoutMillis / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return process-wide pool for the MySQL database configured in {@link DatabaseConfig}
+     */
+    public static synchronized ConnectionPool shared() {
+        if (shared == null) {
+            shared = new ConnectionPool(
+                () -> DriverManager.getConnection(DatabaseConfig.DB_URL, DatabaseConfig.DB_USER, DatabaseConfig.DB_PASSWORD),
+                DatabaseConfig.POOL_MIN_SIZE,
+                DatabaseConfig.POOL_MAX_SIZE,
+                DatabaseConfig.POOL_IDLE_TIMEOUT_MS,
+                DatabaseConfig.POOL_ACQUIRE_TIMEOUT_MS,
+                DatabaseConfig.POOL_VALIDATION_TIMEOUT_SECONDS);
+        }
+        return shared;
+    }
+
+    /**
+     * @return the shared pool if something has already created it, otherwise {@code null}
+     */
+    public static synchronized ConnectionPool sharedIfCreated() {
+        return shared;
+    }
+
+    /**
+     * Borrow a connection, waiting up to the acquire timeout for one to become free.
+     * Closing the returned connection gives it back to the pool.
+     *
+     * @throws SQLTransientConnectionException if no connection became free in time
+     * @throws SQLException if a new connection could not be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                acquireTimeouts.increment();
+                throw new SQLTransientConnectionException(
+                    "Timed out after " + TimeUnit.NANOSECONDS.toMillis(acquireTimeoutNanos) + " ms waiting for a connection.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection.", e);
+        }
+
+        try {
+            Connection physical = takeValidIdle();
+            if (physical == null) {
+                physical = openPhysical();
+            }
+            recordAcquire(System.nanoTime() - start);
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Connection takeValidIdle() {
+        IdleConnection candidate;
+        // Most recently returned first: those are the least likely to have been dropped by the server
+        while ((candidate = idle.pollFirst()) != null) {
+            if (isValid(candidate.connection)) {
+                return candidate.connection;
+            }
+            validationFailures.increment();
+            closePhysical(candidate.connection);
+        }
+        return null;
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection connection = factory.create();
+        open.incrementAndGet();
+        createdCount.increment();
+        return connection;
+    }
+
+    private void closePhysical(Connection connection) {
+        open.decrementAndGet();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // The connection is discarded either way
+        }
+    }
+
+    private void recordAcquire(long nanos) {
+        acquireCount.increment();
+        acquireNanosTotal.add(nanos);
+        acquireNanosMax.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void release(Connection physical, boolean broken) {
+        try {
+            if (closed || broken) {
+                closePhysical(physical);
+                return;
+            }
+            idle.offerFirst(new IdleConnection(physical, System.nanoTime()));
+        } finally {
+            permits.release();
+        }
+        if (closed) {
+            drainIdle();
+        }
+    }
+
+    /**
+     * A scheduled task that throws is never run again, so one failure must not end eviction.
+     */
+    private void housekeep() {
+        try {
+            evictAndFill();
+        } catch (RuntimeException e) {
+            System.err.println("Connection pool housekeeping failed; retrying on the next run.");
+            System.err.println(e);
+        }
+    }
+
+    /**
+     * Close connections idle for longer than the idle timeout while more than the minimum are
+     * open, then open connections until the minimum is reached again.
+     */
+    private void evictAndFill() {
+        if (closed) {
+            return;
+        }
+        long now = System.nanoTime();
+        // Oldest connections sit at the tail of the deque
+        Iterator<IdleConnection> oldestFirst = idle.descendingIterator();
+        while (oldestFirst.hasNext() && open.get() > minSize) {
+            IdleConnection candidate = oldestFirst.next();
+            if (now - candidate.idleSince < idleTimeoutNanos) {
+                break;
+            }
+            if (idle.removeLastOccurrence(candidate)) {
+                evictedCount.increment();
+                closePhysical(candidate.connection);
+            }
+        }
+
+        while (!closed && open.get() < minSize && permits.tryAcquire()) {
+            try {
+                idle.offerLast(new IdleConnection(openPhysical(), System.nanoTime()));
+            } catch (SQLException e) {
+                // Database unavailable; the next run tries again
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private void drainIdle() {
+        IdleConnection candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            closePhysical(candidate.connection);
+        }
+    }
+
+    /**
+     * Close all idle connections and stop the housekeeping thread. Borrowed connections are
+     * closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        drainIdle();
+    }
+
+    /** @return maximum connections open or borrowed at once */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** @return connections currently open, borrowed or idle */
+    public int getOpenConnections() {
+        return open.get();
+    }
+
+    /** @return connections currently waiting in the pool */
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    /** @return successful acquisitions since the pool was created */
+    public long getAcquireCount() {
+        return acquireCount.sum();
+    }
+
+    /** @return acquisitions that failed because no connection became free in time */
+    public long getAcquireTimeouts() {
+        return acquireTimeouts.sum();
+    }
+
+    /** @return mean latency of successful acquisitions in nanoseconds */
+    public long getMeanAcquireNanos() {
+        long count = acquireCount.sum();
+        return count == 0 ? 0 : acquireNanosTotal.sum() / count;
+    }
+
+    /** @return slowest successful acquisition in nanoseconds */
+    public long getMaxAcquireNanos() {
+        return acquireNanosMax.get();
+    }
+
+    /** @return physical connections opened since the pool was created */
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    /** @return idle connections closed by eviction */
+    public long getEvictedCount() {
+        return evictedCount.sum();
+    }
+
+    /** @return borrowed idle connections discarded because validation failed */
+    public long getValidationFailures() {
+        return validationFailures.sum();
+    }
+
+    private Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(
+            ConnectionPool.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            new PooledConnectionHandler(physical));
+    }
+
+    private static final class IdleConnection {
+        final Connection connection;
+        final long idleSince;
+
+        IdleConnection(Connection connection, long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+    }
+
+    /**
+     * Delegates to the physical connection until {@code close()}, which rolls back any open
+     * transaction, restores auto-commit and the isolation level, read-only flag, catalog and
+     * schema the borrower changed, and hands the connection back instead of closing it.
+     */
+    private final class PooledConnectionHandler implements InvocationHandler {
+        private final Connection physical;
+        private boolean returned;
+        // Session settings as they were before the borrower first changed them
+        private Integer originalIsolation;
+        private Boolean originalReadOnly;
+        private String originalCatalog;
+        private String originalSchema;
+        private boolean catalogChanged;
+        private boolean schemaChanged;
+
+        PooledConnectionHandler(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(physical, !resetForReuse());
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + physical + "]";
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool.");
+            }
+            rememberOriginalSetting(method.getName());
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void rememberOriginalSetting(String methodName) throws SQLException {
+            switch (methodName) {
+                case "setTransactionIsolation":
+                    if (originalIsolation == null) {
+                        originalIsolation = physical.getTransactionIsolation();
+                    }
+                    break;
+                case "setReadOnly":
+                    if (originalReadOnly == null) {
+                        originalReadOnly = physical.isReadOnly();
+                    }
+                    break;
+                case "setCatalog":
+                    if (!catalogChanged) {
+                        originalCatalog = physical.getCatalog();
+                        catalogChanged = true;
+                    }
+                    break;
+                case "setSchema":
+                    if (!schemaChanged) {
+                        originalSchema = physical.getSchema();
+                        schemaChanged = true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * @return {@code false} when the connection is not fit to be handed out again
+         */
+        private boolean resetForReuse() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                if (originalIsolation != null) {
+                    physical.setTransactionIsolation(originalIsolation);
+                }
+                if (originalReadOnly != null) {
+                    physical.setReadOnly(originalReadOnly);
+                }
+                if (catalogChanged && originalCatalog != null) {
+                    physical.setCatalog(originalCatalog);
+                }
+                if (schemaChanged && originalSchema != null) {
+                    physical.setSchema(originalSchema);
+                }
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.symptomchecker.repository;
+
+import com.symptomchecker.model.Condition;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Read-only condition catalog kept outside the Java heap.
+ *
+ * <p>
+ * Conditions are packed in the payload layout of {@link CatalogSnapshotFile}: a symptom
+ * dictionary, a table of distinct advice texts, then one record per condition holding its id,
+ * UTF-8 name, advice table index and symptom dictionary IDs. The records live in a direct or
+ * memory-mapped buffer, together with an off-heap table of record offsets; only the symptom
+ * dictionary is decoded onto the heap. A {@link Condition} object is created only when
+ * {@link #get(int)} is called, so a catalog of millions of conditions adds no per-condition
+ * objects for the garbage collector to trace.
+ * </p>
+ *
+ * <p>
+ * A store is limited to 2 GiB of packed records, the size of one {@link ByteBuffer}. It is
+ * immutable and safe to share between threads.
+ * </p>
+ */
+public final class PackedConditionStore extends AbstractList<Condition> implements RandomAccess {
+    private final ByteBuffer records;
+    private final String[] symptoms;
+    private final int[] adviceOffsets;
+    private final IntBuffer conditionOffsets;
+
+    private PackedConditionStore(ByteBuffer records, String[] symptoms, int[] adviceOffsets, IntBuffer conditionOffsets) {
+        this.records = records;
+        this.symptoms = symptoms;
+        this.adviceOffsets = adviceOffsets;
+        this.conditionOffsets = conditionOffsets;
+    }
+
+    /**
+     * Pack a catalog into a direct buffer.
+     *
+     * @param conditions catalog to pack; it is not retained
+     * @return store holding the same conditions in the same order
+     */
+    public static PackedConditionStore pack(List<Condition> conditions) {
+        Builder builder = new Builder();
+        for (Condition condition : conditions) {
+            builder.add(condition);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Packs conditions one at a time, so a catalog read from a stream never has to exist as a
+     * list of {@link Condition} objects. Records are appended to a growing direct buffer as they
+     * arrive; {@link #build()} writes the symptom dictionary and advice table in front of them.
+     * Not thread-safe.
+     */
+    public static final class Builder {
+        private static final int INITIAL_CAPACITY = 1 << 16;
+
+        private final Map<String, Integer> symptomIds = new HashMap<>();
+        private final List<byte[]> symptomBytes = new ArrayList<>();
+        private final Map<String, Integer> adviceIds = new HashMap<>();
+        private final List<byte[]> adviceBytes = new ArrayList<>();
+        private int nullAdvice = -1;
+        private long tableBytes = 4 + 4 + 4;
+        private ByteBuffer records = ByteBuffer.allocateDirect(INITIAL_CAPACITY).order(ByteOrder.LITTLE_ENDIAN);
+        private int count;
+
+        /**
+         * Append a condition after the ones added so far.
+         *
+         * @throws IllegalArgumentException if the packed catalog would exceed one buffer
+         */
+        public Builder add(Condition condition) {
+            List<String> conditionSymptoms = condition.getSymptoms() != null ? condition.getSymptoms() : List.of();
+            byte[] name = condition.getName() == null ? null : condition.getName().getBytes(StandardCharsets.UTF_8);
+            ensureRemaining(4 + 4 + (name == null ? 0 : name.length) + 4 + 4 + 4L * conditionSymptoms.size());
+
+            records.putInt(condition.getId());
+            if (name == null) {
+                records.putInt(-1);
+            } else {
+                records.putInt(name.length).put(name);
+            }
+            records.putInt(adviceId(condition.getAdvice()));
+            records.putInt(conditionSymptoms.size());
+            for (String symptom : conditionSymptoms) {
+                records.putInt(symptomId(symptom));
+            }
+            count++;
+            return this;
+        }
+
+        /**
+         * @return store holding the added conditions in the order they were added
+         */
+        public PackedConditionStore build() {
+            long size = tableBytes + records.position();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Catalog needs " + size + " packed bytes, more than one buffer holds");
+            }
+            ByteBuffer out = ByteBuffer.allocateDirect((int) size).order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(symptomBytes.size());
+            for (byte[] bytes : symptomBytes) {
+                out.putInt(bytes.length).put(bytes);
+            }
+            out.putInt(adviceBytes.size());
+            for (byte[] bytes : adviceBytes) {
+                if (bytes == null) {
+                    out.putInt(-1);
+                } else {
+                    out.putInt(bytes.length).put(bytes);
+                }
+            }
+            out.putInt(count);
+            out.put(records.duplicate().flip());
+            out.flip();
+            return open(out);
+        }
+
+        private int symptomId(String symptom) {
+            Integer id = symptomIds.get(symptom);
+            if (id == null) {
+                id = symptomBytes.size();
+                byte[] bytes = symptom.getBytes(StandardCharsets.UTF_8);
+                symptomIds.put(symptom, id);
+                symptomBytes.add(bytes);
+                tableBytes += 4 + bytes.length;
+            }
+            return id;
+        }
+
+        private int adviceId(String advice) {
+            if (advice == null) {
+                if (nullAdvice < 0) {
+                    nullAdvice = adviceBytes.size();
+                    adviceBytes.add(null);
+                    tableBytes += 4;
+                }
+                return nullAdvice;
+            }
+            Integer id = adviceIds.get(advice);
+            if (id == null) {
+                id = adviceBytes.size();
+                byte[] bytes = advice.getBytes(StandardCharsets.UTF_8);
+                adviceIds.put(advice, id);
+                adviceBytes.add(bytes);
+                tableBytes += 4 + bytes.length;
+            }
+            return id;
+        }
+
+        private void ensureRemaining(long bytes) {
+            if (records.remaining() >= bytes) {
+                return;
+            }
+            long needed = records.position() + bytes;
+            if (needed > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Catalog needs more packed bytes than one buffer holds");
+            }
+            long capacity = Math.max(needed, Math.min(Integer.MAX_VALUE - 8, 2L * records.capacity()));
+            ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity).order(ByteOrder.LITTLE_ENDIAN);
+            grown.put(records.flip());
+            records = grown;
+        }
+    }
+
+    /**
+     * Open a store over a payload in the {@link CatalogSnapshotFile} layout, such as a memory
+     * mapping of a snapshot. The buffer is retained, not copied.
+     *
+     * @throws RuntimeException if the payload is malformed
+     */
+    static PackedConditionStore open(ByteBuffer payload) {
+        ByteBuffer records = payload.slice().order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer in = records.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        String[] symptoms = new String[in.getInt()];
+        for (int i = 0; i < symptoms.length; i++) {
+            symptoms[i] = getString(in);
+        }
+        int[] adviceOffsets = new int[in.getInt()];
+        for (int i = 0; i < adviceOffsets.length; i++) {
+            adviceOffsets[i] = in.position();
+            int length = in.getInt();
+            if (length > 0) {
+                in.position(in.position() + length);
+            }
+        }
+
+        int conditionCount = in.getInt();
+        IntBuffer offsets = ByteBuffer.allocateDirect(Math.multiplyExact(conditionCount, 4))
+            .order(ByteOrder.nativeOrder()).asIntBuffer();
+        for (int c = 0; c < conditionCount; c++) {
+            offsets.put(c, in.position());
+            in.getInt(); // id
+            int nameLength = in.getInt();
+            in.position(in.position() + Math.max(0, nameLength));
+            int adviceIndex = in.getInt();
+            if (adviceIndex >= adviceOffsets.length) {
+                throw new IndexOutOfBoundsException("Advice index " + adviceIndex + " of condition " + c);
+            }
+            int symptomCount = in.getInt();
+            for (int s = 0; s < symptomCount; s++) {
+                int symptomId = in.getInt();
+                if (symptomId < 0 || symptomId >= symptoms.length) {
+                    throw new IndexOutOfBoundsException("Symptom ID " + symptomId + " of condition " + c);
+                }
+            }
+        }
+        return new PackedConditionStore(records.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN), symptoms,
+            adviceOffsets, offsets);
+    }
+
+    @Override
+    public int size() {
+        return conditionOffsets.limit();
+    }
+
+    /**
+     * Decode one condition. Each call creates a new object; scoring code should use the
+     * accessors below instead.
+     */
+    @Override
+    public Condition get(int index) {
+        String[] conditionSymptoms = new String[symptomCount(index)];
+        int base = symptomBase(index);
+        for (int s = 0; s < conditionSymptoms.length; s++) {
+            conditionSymptoms[s] = symptoms[records.getInt(base + 4 * s)];
+        }
+        return new Condition(id(index), name(index), Arrays.asList(conditionSymptoms), advice(index));
+    }
+
+    public int id(int index) {
+        return records.getInt(offset(index));
+    }
+
+    public String name(int index) {
+        return stringAt(offset(index) + 4);
+    }
+
+    public String advice(int index) {
+        int adviceIndex = records.getInt(nameEnd(index));
+        return adviceIndex < 0 ? null : stringAt(adviceOffsets[adviceIndex]);
+    }
+
+    /**
+     * @return number of symptoms the condition lists, repeats included
+     */
+    public int symptomCount(int index) {
+        return records.getInt(nameEnd(index) + 4);
+    }
+
+    /**
+     * @return dictionary ID of the condition's symptom at {@code position}, in list order
+     */
+    public int symptomId(int index, int position) {
+        return records.getInt(symptomBase(index) + 4 * position);
+    }
+
+    /**
+     * @return number of distinct symptoms in the dictionary; IDs are numbered in order of first
+     * appearance in the catalog
+     */
+    public int dictionarySize() {
+        return symptoms.length;
+    }
+
+    public String dictionarySymptom(int symptomId) {
+        return symptoms[symptomId];
+    }
+
+    private int offset(int index) {
+        return conditionOffsets.get(index);
+    }
+
+    private int nameEnd(int index) {
+        int nameOffset = offset(index) + 4;
+        return nameOffset + 4 + Math.max(0, records.getInt(nameOffset));
+    }
+
+    private int symptomBase(int index) {
+        return nameEnd(index) + 8;
+    }
+
+    private String stringAt(int position) {
+        int length = records.getInt(position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        records.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,462 @@
+package com.symptomchecker.server;
+
+import com.symptomchecker.audit.AuditLog;
+import com.symptomchecker.cluster.ClusterResult;
+import com.symptomchecker.cluster.ScatterGatherCoordinator;
+import com.symptomchecker.config.ClusterConfig;
+import com.symptomchecker.config.ServerConfig;
+import com.symptomchecker.metrics.MetricsExporter;
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.model.SymptomResult;
+import com.symptomchecker.service.SymptomCheckerService;
+import com.symptomchecker.service.SymptomResolver;
+import com.symptomchecker.util.Json;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless JSON front-end for {@link SymptomCheckerService} built on the JDK HTTP server.
+ *
+ * <p>
+ * Endpoints:
+ * </p>
+ * <ul>
+ *     <li>{@code POST /api/check} with {@code {"symptoms": [...], "topK": 3, "minMatches": 3}}
+ *     returns {@code {"results": [...]}}</li>
+ *     <li>{@code POST /api/check/batch} with {@code {"profiles": [[...], ...], "topK": 3, "minMatches": 3}}
+ *     returns {@code {"results": [[...], ...]}}, one list per profile</li>
+ *     <li>{@code GET /api/symptoms} returns {@code {"symptoms": [...]}}</li>
+ *     <li>{@code GET /metrics} returns service, cache, refresher and pool metrics as Prometheus
+ *     text</li>
+ * </ul>
+ *
+ * <p>
+ * {@code topK} and {@code minMatches} are optional. With {@code "resolve": true} the symptoms are
+ * treated as free text and matched to catalog symptoms through {@link SymptomResolver} first. Requests run on virtual threads when the
+ * runtime provides them (Java 21+) and on a fixed pool of platform threads otherwise. Idle
+ * keep-alive connections are parked by the server's selector thread, so they hold no request
+ * thread. All requests share one service instance.
+ * </p>
+ *
+ * <p>
+ * With a {@link ScatterGatherCoordinator}, checks are scored by the shard workers instead of the
+ * local service, which then only serves the vocabulary and resolves free text. A check that
+ * some workers missed carries {@code "partial": true} and the {@code "failedShards"}, and one
+ * that no worker answered fails with 503.
+ * </p>
+ */
+public class SymptomCheckerServer implements AutoCloseable {
+    private static final int DEFAULT_TOP_K = 3;
+    private static final int DEFAULT_MIN_MATCHES = 3;
+
+    private final SymptomCheckerService service;
+    private final ScatterGatherCoordinator coordinator;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final MetricsExporter metricsExporter;
+    private volatile Vocabulary vocabulary;
+
+    /**
+     * Bind a server for the given service. Nothing is served until {@link #start()}.
+     *
+     * @param service shared service every request is answered from
+     * @param address address and port to listen on; port {@code 0} picks a free port
+     * @param backlog pending connections queued by the listening socket
+     */
+    public SymptomCheckerServer(SymptomCheckerService service, InetSocketAddress address, int backlog)
+        throws IOException {
+        this(service, null, address, backlog);
+    }
+
+    /**
+     * Bind a server that scores checks through shard workers. Nothing is served until
+     * {@link #start()}.
+     *
+     * @param service service for the vocabulary and free-text resolution, such as
+     *                {@link SymptomCheckerService#vocabularyOnly()}; also scores checks when
+     *                {@code coordinator} is {@code null}
+     * @param coordinator coordinator of the shard workers, or {@code null} to score locally; not
+     *                    closed by the server
+     * @param address address and port to listen on; port {@code 0} picks a free port
+     * @param backlog pending connections queued by the listening socket
+     */
+    public SymptomCheckerServer(SymptomCheckerService service, ScatterGatherCoordinator coordinator,
+                                InetSocketAddress address, int backlog) throws IOException {
+        this.service = service;
+        this.coordinator = coordinator;
+        this.server = HttpServer.create(address, backlog);
+        this.executor = requestExecutor(ServerConfig.SERVER_THREADS);
+        server.setExecutor(executor);
+        server.createContext("/api/check", handler("POST", this::check));
+        server.createContext("/api/check/batch", handler("POST", this::checkBatch));
+        server.createContext("/api/symptoms", handler("GET", this::symptoms));
+        this.metricsExporter = new MetricsExporter(service, coordinator);
+        server.createContext("/metrics", this::metrics);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return the bound address, including the port actually chosen
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stop accepting connections, give in-flight exchanges up to a second to finish and shut
+     * down the request threads.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Virtual thread per request where available, otherwise a fixed pool of daemon threads.
+     * Virtual threads are looked up reflectively so the build can keep targeting Java 17.
+     */
+    static ExecutorService requestExecutor(int threads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int size = threads > 0 ? threads : Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+            AtomicInteger counter = new AtomicInteger();
+            ThreadFactory factory = runnable -> {
+                Thread thread = new Thread(runnable, "http-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newFixedThreadPool(size, factory);
+        }
+    }
+
+    private Object check(Map<String, Object> request) {
+        List<String> symptoms = stringList(request.get("symptoms"), "symptoms");
+        int topK = intField(request, "topK", DEFAULT_TOP_K, 0, ServerConfig.SERVER_MAX_TOP_K);
+        int minMatches = intField(request, "minMatches", DEFAULT_MIN_MATCHES, 1, Integer.MAX_VALUE);
+        if (booleanField(request, "resolve")) {
+            symptoms = service.getResolver().resolveAll(symptoms);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        if (coordinator == null) {
+            response.put("results", toJson(service.checkSymptoms(symptoms, topK, minMatches)));
+            return response;
+        }
+        ClusterResult result = checkShards(symptoms, topK, minMatches);
+        response.put("results", toJson(result.getResults()));
+        if (result.isPartial()) {
+            response.put("partial", true);
+            response.put("failedShards", result.getFailedShards());
+        }
+        return response;
+    }
+
+    /**
+     * Score one selection on the shard workers and audit it like a local check.
+     */
+    private ClusterResult checkShards(List<String> symptoms, int topK, int minMatches) {
+        ClusterResult result;
+        try {
+            result = coordinator.check(symptoms, topK, minMatches);
+        } catch (IllegalStateException e) {
+            throw new ShardsUnavailableException(e.getMessage());
+        }
+        AuditLog audit = service.getAuditLog();
+        if (audit != null) {
+            audit.record(symptoms, result.getResults());
+        }
+        return result;
+    }
+
+    private Object checkBatch(Map<String, Object> request) {
+        Object rawProfiles = request.get("profiles");
+        if (!(rawProfiles instanceof List)) {
+            throw new IllegalArgumentException("\"profiles\" must be an array of symptom arrays");
+        }
+        List<?> profileValues = (List<?>) rawProfiles;
+        if (profileValues.size() > ServerConfig.SERVER_MAX_BATCH) {
+            throw new IllegalArgumentException("At most " + ServerConfig.SERVER_MAX_BATCH + " profiles per batch");
+        }
+        SymptomResolver resolver = booleanField(request, "resolve") ? service.getResolver() : null;
+        List<List<String>> profiles = new ArrayList<>(profileValues.size());
+        for (Object profile : profileValues) {
+            List<String> symptoms = stringList(profile, "profiles");
+            profiles.add(resolver == null ? symptoms : resolver.resolveAll(symptoms));
+        }
+        int topK = intField(request, "topK", DEFAULT_TOP_K, 0, ServerConfig.SERVER_MAX_TOP_K);
+        int minMatches = intField(request, "minMatches", DEFAULT_MIN_MATCHES, 1, Integer.MAX_VALUE);
+
+        List<Object> results = new ArrayList<>(profiles.size());
+        Map<String, Object> response = new LinkedHashMap<>();
+        if (coordinator == null) {
+            for (List<SymptomResult> profileResults : service.checkSymptomsBatch(profiles, topK, minMatches)) {
+                results.add(toJson(profileResults));
+            }
+            response.put("results", results);
+            return response;
+        }
+        Set<String> failedShards = new LinkedHashSet<>();
+        for (List<String> profile : profiles) {
+            ClusterResult result = checkShards(profile, topK, minMatches);
+            results.add(toJson(result.getResults()));
+            failedShards.addAll(result.getFailedShards());
+        }
+        response.put("results", results);
+        if (!failedShards.isEmpty()) {
+            response.put("partial", true);
+            response.put("failedShards", new ArrayList<>(failedShards));
+        }
+        return response;
+    }
+
+    /**
+     * The vocabulary only changes with the catalog, so its JSON is rendered once per catalog.
+     */
+    private byte[] symptoms(Map<String, Object> request) {
+        List<Condition> catalog = service.getConditions();
+        Vocabulary current = vocabulary;
+        if (current == null || current.catalog != catalog) {
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("symptoms", service.getAllSymptoms());
+            current = new Vocabulary(catalog, Json.write(response).getBytes(StandardCharsets.UTF_8));
+            vocabulary = current;
+        }
+        return current.body;
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Use GET");
+                return;
+            }
+            byte[] body = metricsExporter.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return exporter behind {@code /metrics}, also used to register the JMX MBeans
+     */
+    public MetricsExporter getMetricsExporter() {
+        return metricsExporter;
+    }
+
+    private static List<Object> toJson(List<SymptomResult> results) {
+        List<Object> json = new ArrayList<>(results.size());
+        for (SymptomResult result : results) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("condition", result.getConditionName());
+            entry.put("matchedCount", result.getMatchedCount());
+            entry.put("totalSymptoms", result.getTotalSymptoms());
+            entry.put("percentMatch", result.getPercentMatch());
+            entry.put("advice", result.getAdvice());
+            json.add(entry);
+        }
+        return json;
+    }
+
+    private static List<String> stringList(Object value, String field) {
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("\"" + field + "\" must be an array of strings");
+        }
+        List<?> values = (List<?>) value;
+        List<String> strings = new ArrayList<>(values.size());
+        for (Object element : values) {
+            if (!(element instanceof String)) {
+                throw new IllegalArgumentException("\"" + field + "\" must be an array of strings");
+            }
+            strings.add((String) element);
+        }
+        return strings;
+    }
+
+    private static boolean booleanField(Map<String, Object> request, String field) {
+        Object value = request.get(field);
+        if (value != null && !(value instanceof Boolean)) {
+            throw new IllegalArgumentException("\"" + field + "\" must be true or false");
+        }
+        return Boolean.TRUE.equals(value);
+    }
+
+    private static int intField(Map<String, Object> request, String field, int defaultValue, int min, int max) {
+        Object value = request.get(field);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!(value instanceof Long) || (Long) value < min || (Long) value > max) {
+            throw new IllegalArgumentException("\"" + field + "\" must be an integer between " + min + " and " + max);
+        }
+        return ((Long) value).intValue();
+    }
+
+    /**
+     * Wrap an endpoint with method and path checks, body parsing and JSON error responses.
+     */
+    private static HttpHandler handler(String method, Endpoint endpoint) {
+        return exchange -> {
+            try {
+                if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+                    sendError(exchange, 404, "Not found");
+                    return;
+                }
+                if (!exchange.getRequestMethod().equals(method)) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    sendError(exchange, 405, "Use " + method);
+                    return;
+                }
+                Map<String, Object> request = readRequest(exchange);
+                Object response = endpoint.handle(request);
+                byte[] body = response instanceof byte[]
+                    ? (byte[]) response
+                    : Json.write(response).getBytes(StandardCharsets.UTF_8);
+                send(exchange, 200, body);
+            } catch (RequestTooLargeException e) {
+                sendError(exchange, 413, e.getMessage());
+            } catch (ShardsUnavailableException e) {
+                sendError(exchange, 503, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("Failed to handle " + exchange.getRequestURI() + ".");
+                System.err.println(e);
+                sendError(exchange, 500, "Internal error");
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    /**
+     * Read and parse a JSON object body; a bodiless GET yields an empty request.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> readRequest(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(ServerConfig.SERVER_MAX_BODY_BYTES + 1);
+        }
+        if (body.length > ServerConfig.SERVER_MAX_BODY_BYTES) {
+            throw new RequestTooLargeException("Request body exceeds " + ServerConfig.SERVER_MAX_BODY_BYTES + " bytes");
+        }
+        if (body.length == 0 && exchange.getRequestMethod().equals("GET")) {
+            return new LinkedHashMap<>();
+        }
+        Object request = Json.parse(new String(body, StandardCharsets.UTF_8));
+        if (!(request instanceof Map)) {
+            throw new IllegalArgumentException("Request body must be a JSON object");
+        }
+        return (Map<String, Object>) request;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("error", message);
+        send(exchange, status, Json.write(error).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : ServerConfig.SERVER_PORT;
+        ScatterGatherCoordinator coordinator = ClusterConfig.CLUSTER_SHARDS.isEmpty()
+            ? null : ScatterGatherCoordinator.fromConfig();
+        // The workers hold the catalog; a coordinator only needs its vocabulary
+        SymptomCheckerService service = coordinator == null
+            ? new SymptomCheckerService() : SymptomCheckerService.vocabularyOnly();
+        if (coordinator == null && ServerConfig.SERVER_COALESCE_QUERIES) {
+            service.enableQueryCoalescing();
+        }
+        if (coordinator == null && ServerConfig.SERVER_CORE_TABLE) {
+            service.enableCoreResultTable(SymptomCheckerService.defaultSymptoms(), DEFAULT_TOP_K, DEFAULT_MIN_MATCHES);
+        }
+        AuditLog auditLog = AuditLog.fromConfig();
+        if (auditLog != null) {
+            service.enableAuditLog(auditLog);
+        }
+        SymptomCheckerServer server = new SymptomCheckerServer(service, coordinator,
+            new InetSocketAddress(ServerConfig.SERVER_HOST, port), ServerConfig.SERVER_BACKLOG);
+        server.getMetricsExporter().registerMBeans();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            if (coordinator != null) {
+                coordinator.close();
+            }
+            if (auditLog != null) {
+                auditLog.close();
+            }
+        }, "server-shutdown"));
+        server.start();
+        System.out.println("Symptom checker server listening on " + server.getAddress()
+            + (coordinator == null ? "" : " over " + coordinator.getShardCount() + " shards"));
+    }
+
+    @FunctionalInterface
+    private interface Endpoint {
+        Object handle(Map<String, Object> request);
+    }
+
+    private static final class Vocabulary {
+        final List<Condition> catalog;
+        final byte[] body;
+
+        Vocabulary(List<Condition> catalog, byte[] body) {
+            this.catalog = catalog;
+            this.body = body;
+        }
+    }
+
+    private static final class RequestTooLargeException extends RuntimeException {
+        RequestTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class ShardsUnavailableException extends RuntimeException {
+        ShardsUnavailableException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.symptomchecker.service;
+
+import com.symptomchecker.model.SymptomResult;
+
+import java.util.List;
+
+/**
+ * Scores blocks of symptom profiles against one catalog index in a single tiled pass.
+ *
+ * <p>
+ * A block of up to {@link #PROFILE_BLOCK} profiles is encoded as bitsets, then the conditions are
+ * walked in tiles of {@link #CONDITION_TILE}. Each tile is scored against every profile of the
+ * block while it is still in cache, so the catalog is streamed from memory once per block rather
+ * than once per profile.
+ * </p>
+ *
+ * <p>
+ * The dense scan tests every (condition, symptom) pair of the catalog per profile regardless of
+ * the selection, so {@link #prefersDenseScan} compares it with the posting-list work the block
+ * would need and lets the caller fall back to per-profile queries for sparse selections.
+ * </p>
+ */
+final class BatchScorer {
+    static final int PROFILE_BLOCK = 64;
+    static final int CONDITION_TILE = 2048;
+
+    /**
+     * Rough cost of one posting-list entry relative to one sequential symptom test in the tiled
+     * scan: posting entries are random writes into the count array plus candidate bookkeeping.
+     */
+    private static final int POSTING_COST = 2;
+
+    private final SymptomIndex index;
+    private final int topK;
+    private final int minMatches;
+    private final int words;
+    private final long[] queries;
+    private final boolean[] empty = new boolean[PROFILE_BLOCK];
+    private final TopKSelector[] strong = new TopKSelector[PROFILE_BLOCK];
+    private final TopKSelector[] fallback = new TopKSelector[PROFILE_BLOCK];
+    private final QueryResultBuffer buffer;
+    private int[] symptomIds = new int[0];
+
+    BatchScorer(SymptomIndex index, int topK, int minMatches) {
+        this.index = index;
+        this.topK = topK;
+        this.minMatches = minMatches;
+        this.words = index.queryWords();
+        this.queries = new long[Math.multiplyExact(PROFILE_BLOCK, words)];
+        this.buffer = new QueryResultBuffer(topK);
+        for (int p = 0; p < PROFILE_BLOCK; p++) {
+            strong[p] = new TopKSelector();
+            fallback[p] = new TopKSelector();
+        }
+    }
+
+    /**
+     * @return {@code true} when the tiled bitset scan is expected to beat walking the posting
+     * lists of every profile in the block
+     */
+    boolean prefersDenseScan(List<List<String>> block) {
+        long postingWork = 0;
+        int activeProfiles = 0;
+        for (List<String> profile : block) {
+            if (profile == null || profile.isEmpty()) {
+                continue;
+            }
+            activeProfiles++;
+            if (symptomIds.length < profile.size()) {
+                symptomIds = new int[profile.size()];
+            }
+            int count = index.resolve(profile, symptomIds);
+            for (int i = 0; i < count; i++) {
+                postingWork += index.postings(symptomIds[i]).length;
+            }
+        }
+        long denseWork = activeProfiles * index.postingEntries();
+        return denseWork <= postingWork * POSTING_COST;
+    }
+
+    /**
+     * Score a block of at most {@link #PROFILE_BLOCK} profiles and append one result list per
+     * profile, in order, to {@code out}.
+     */
+    void scoreBlock(List<List<String>> block, List<List<SymptomResult>> out) {
+        int profileCount = block.size();
+        for (int p = 0; p < profileCount; p++) {
+            List<String> profile = block.get(p);
+            empty[p] = profile == null || profile.isEmpty();
+            if (!empty[p]) {
+                index.encode(profile, queries, p * words);
+            }
+            strong[p].reset(index, topK);
+            fallback[p].reset(index, topK);
+        }
+
+        int conditionCount = index.conditionCount();
+        for (int tileStart = 0; tileStart < conditionCount; tileStart += CONDITION_TILE) {
+            int tileEnd = Math.min(conditionCount, tileStart + CONDITION_TILE);
+            for (int p = 0; p < profileCount; p++) {
+                if (empty[p]) {
+                    continue;
+                }
+                scoreTile(tileStart, tileEnd, p * words, strong[p], fallback[p]);
+            }
+        }
+
+        for (int p = 0; p < profileCount; p++) {
+            TopKSelector selected = strong[p].size() > 0 ? strong[p] : fallback[p];
+            selected.sort();
+            buffer.copyFrom(index, selected);
+            out.add(buffer.toResults());
+        }
+    }
+
+    private void scoreTile(int tileStart, int tileEnd, int queryOffset, TopKSelector strong, TopKSelector fallback) {
+        int bar = TopKSelector.admissionBar(strong, fallback, minMatches);
+        for (int i = tileStart; i < tileEnd; i++) {
+            int matchedCount = index.matchedCount(i, queries, queryOffset);
+            if (matchedCount < bar) {
+                continue;
+            }
+            int percentMatch = Math.round((matchedCount * 100.0f) / index.totalSymptoms(i));
+            if (matchedCount >= minMatches) {
+                strong.offer(i, matchedCount, percentMatch);
+            } else {
+                fallback.offer(i, matchedCount, percentMatch);
+            }
+            bar = TopKSelector.admissionBar(strong, fallback, minMatches);
+        }
+    }
+}
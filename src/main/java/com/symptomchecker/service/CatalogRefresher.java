@@ -0,0 +1,315 @@
+package com.symptomchecker.service;
+
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.repository.CatalogDelta;
+import com.symptomchecker.repository.ConditionRepository;
+import com.symptomchecker.repository.PackedConditionStore;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a {@link SymptomCheckerService} catalog in sync with the database in the background.
+ *
+ * <p>
+ * Each run pulls only the conditions changed since the previous watermark and merges them and
+ * any deletions with the last published catalog, which it keeps sorted by condition id, into a
+ * new catalog. The service builds the new index on this thread, swaps it in atomically and
+ * persists it as the startup snapshot. Each delta re-reads a short overlap before the
+ * watermark to catch late commits, so conditions identical to the ones already held are not
+ * counted as changes, and a run without real changes builds nothing. Without a
+ * {@link #seed seeded} catalog the first run reads the whole catalog once.
+ * </p>
+ *
+ * <p>
+ * A catalog held in a {@link PackedConditionStore} is merged into a new packed store, one
+ * condition at a time, so off-heap storage keeps the catalog off the heap between refreshes.
+ * </p>
+ */
+public final class CatalogRefresher implements AutoCloseable {
+    private final ConditionRepository repository;
+    private final SymptomCheckerService service;
+    private final ScheduledExecutorService scheduler;
+
+    /** Last published catalog, sorted by condition id. */
+    private List<Condition> catalog = List.of();
+    private Timestamp watermark;
+
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong publishCount = new AtomicLong();
+    private volatile long lastRefreshMillis;
+    private volatile long maxRefreshMillis;
+    private volatile int lastDeltaSize;
+    private final AtomicLong totalDeltaSize = new AtomicLong();
+
+    public CatalogRefresher(ConditionRepository repository, SymptomCheckerService service) {
+        this.repository = repository;
+        this.service = service;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start from a catalog the caller already loaded, so the first refresh only pulls what
+     * changed since. A catalog in id order, as the repository loads it, is kept as it is and
+     * not copied.
+     *
+     * @param conditions catalog as loaded from the database
+     * @param loadedSince watermark read before {@code conditions} were loaded, or {@code null}
+     *                    to have the first refresh reload everything
+     */
+    public synchronized void seed(List<Condition> conditions, Timestamp loadedSince) {
+        catalog = sortedById(conditions);
+        watermark = loadedSince;
+    }
+
+    /**
+     * Start from a catalog the caller just loaded. The watermark is read after the load and
+     * stepped back by the load's duration, so changes committed while it ran are pulled again.
+     * When the watermark cannot be read, for example because {@code conditions} has no
+     * {@code updated_at} column, the loaded catalog is kept and refreshing stops.
+     *
+     * @param conditions catalog as loaded from the database
+     * @param loadMillis how long loading {@code conditions} took
+     * @return {@code false} when refreshing was stopped
+     */
+    public synchronized boolean seedAfterLoad(List<Condition> conditions, long loadMillis) {
+        Timestamp latest;
+        try {
+            latest = repository.loadWatermark();
+        } catch (IllegalStateException ex) {
+            System.err.println("Failed to read the catalog watermark. Disabling catalog refresh.");
+            System.err.println(ex.getMessage());
+            close();
+            seed(conditions, null);
+            return false;
+        }
+        seed(conditions, latest == null ? null : new Timestamp(latest.getTime() - loadMillis));
+        return true;
+    }
+
+    /**
+     * Refresh every {@code intervalMillis} milliseconds, the first time after
+     * {@code initialDelayMillis}.
+     */
+    public void start(long initialDelayMillis, long intervalMillis) {
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, initialDelayMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void refreshQuietly() {
+        try {
+            refreshNow();
+        } catch (IllegalStateException ex) {
+            failureCount.incrementAndGet();
+            System.err.println("Catalog refresh failed; keeping the current catalog.");
+            System.err.println(ex.getMessage());
+        }
+    }
+
+    /**
+     * Pull and apply one delta on the calling thread.
+     *
+     * @return {@code true} when a new catalog was published
+     * @throws IllegalStateException if the database could not be read
+     */
+    public synchronized boolean refreshNow() {
+        long start = System.nanoTime();
+        boolean fullLoad = watermark == null;
+        int deltaSize;
+        if (fullLoad) {
+            List<Condition> conditions = SymptomCheckerService.loadCatalog(repository);
+            seedAfterLoad(conditions, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            deltaSize = conditions.size();
+        } else {
+            CatalogDelta delta = repository.loadChanges(watermark);
+            deltaSize = countChanges(delta.getChanged(), delta.getLiveIds());
+            if (deltaSize > 0) {
+                catalog = merge(delta.getChanged(), delta.getLiveIds());
+            }
+            watermark = delta.getWatermark();
+        }
+
+        // Never replace a working catalog with an empty one
+        boolean publish = (fullLoad || deltaSize > 0) && !catalog.isEmpty();
+        if (publish) {
+            service.catalogLoaded(catalog);
+            publishCount.incrementAndGet();
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        lastRefreshMillis = millis;
+        maxRefreshMillis = Math.max(maxRefreshMillis, millis);
+        lastDeltaSize = deltaSize;
+        totalDeltaSize.addAndGet(deltaSize);
+        refreshCount.incrementAndGet();
+        return publish;
+    }
+
+    private static boolean sameCondition(Condition previous, Condition condition) {
+        if (previous == null
+            || !previous.getName().equals(condition.getName())
+            || !Objects.equals(previous.getAdvice(), condition.getAdvice())
+            || previous.getSymptoms().size() != condition.getSymptoms().size()) {
+            return false;
+        }
+        // Symptom rows come back in no particular order
+        List<String> previousSymptoms = new ArrayList<>(previous.getSymptoms());
+        List<String> symptoms = new ArrayList<>(condition.getSymptoms());
+        previousSymptoms.sort(null);
+        symptoms.sort(null);
+        return previousSymptoms.equals(symptoms);
+    }
+
+    /**
+     * @return conditions the delta really changes or adds, plus conditions it deletes, read
+     * without building anything
+     */
+    private int countChanges(List<Condition> changed, int[] liveIds) {
+        int count = 0;
+        for (Condition condition : changed) {
+            int position = positionOf(condition.getId());
+            if (!sameCondition(position < 0 ? null : catalog.get(position), condition)) {
+                count++;
+            }
+        }
+        for (int i = 0; i < catalog.size(); i++) {
+            if (Arrays.binarySearch(liveIds, idAt(catalog, i)) < 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param changed changed conditions in id order
+     * @return the catalog with the changes applied and deleted conditions left out, in id order
+     * and in the current catalog's storage
+     */
+    private List<Condition> merge(List<Condition> changed, int[] liveIds) {
+        boolean packed = catalog instanceof PackedConditionStore;
+        PackedConditionStore.Builder builder = packed ? new PackedConditionStore.Builder() : null;
+        List<Condition> merged = packed ? null : new ArrayList<>(catalog.size() + changed.size());
+        Consumer<Condition> out = packed ? builder::add : merged::add;
+        int i = 0;
+        int j = 0;
+        while (i < catalog.size() || j < changed.size()) {
+            long currentId = i < catalog.size() ? idAt(catalog, i) : Long.MAX_VALUE;
+            long changedId = j < changed.size() ? changed.get(j).getId() : Long.MAX_VALUE;
+            Condition next;
+            if (changedId <= currentId) {
+                next = changed.get(j++);
+                if (changedId == currentId) {
+                    i++;
+                }
+            } else {
+                next = catalog.get(i++);
+            }
+            if (Arrays.binarySearch(liveIds, next.getId()) >= 0) {
+                out.accept(next);
+            }
+        }
+        return packed ? builder.build() : Collections.unmodifiableList(merged);
+    }
+
+    private int positionOf(int id) {
+        int low = 0;
+        int high = catalog.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = idAt(catalog, middle);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the condition id at a position, read without decoding a packed condition
+     */
+    private static int idAt(List<Condition> conditions, int position) {
+        return conditions instanceof PackedConditionStore
+            ? ((PackedConditionStore) conditions).id(position)
+            : conditions.get(position).getId();
+    }
+
+    private static List<Condition> sortedById(List<Condition> conditions) {
+        boolean sorted = true;
+        for (int i = 1; i < conditions.size() && sorted; i++) {
+            sorted = idAt(conditions, i - 1) < idAt(conditions, i);
+        }
+        if (sorted) {
+            return conditions;
+        }
+        // Keep the last of any repeated id, as the database would
+        Map<Integer, Condition> byId = new TreeMap<>();
+        for (Condition condition : conditions) {
+            byId.put(condition.getId(), condition);
+        }
+        List<Condition> copy = new ArrayList<>(byId.values());
+        return conditions instanceof PackedConditionStore
+            ? PackedConditionStore.pack(copy) : Collections.unmodifiableList(copy);
+    }
+
+    /** @return completed refresh runs */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /** @return refresh runs that failed to read the database */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /** @return refresh runs that published a new catalog */
+    public long getPublishCount() {
+        return publishCount.get();
+    }
+
+    /** @return duration of the last completed refresh, including the index build, in milliseconds */
+    public long getLastRefreshMillis() {
+        return lastRefreshMillis;
+    }
+
+    /** @return slowest completed refresh in milliseconds */
+    public long getMaxRefreshMillis() {
+        return maxRefreshMillis;
+    }
+
+    /** @return conditions changed or deleted in the last refresh */
+    public int getLastDeltaSize() {
+        return lastDeltaSize;
+    }
+
+    /** @return conditions changed or deleted across all refreshes */
+    public long getTotalDeltaSize() {
+        return totalDeltaSize.get();
+    }
+
+    /**
+     * Stop refreshing. A refresh already running completes.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+    }
+}
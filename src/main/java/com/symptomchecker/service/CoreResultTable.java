@@ -0,0 +1,334 @@
+package com.symptomchecker.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed top-K results for every subset of a small core vocabulary.
+ *
+ * <p>
+ * A selection made only of core symptoms is encoded as a bitmask over the core, and its
+ * results are read from slot {@code mask * topK} of three flat arrays (condition index, matched
+ * count, percent match). Symptoms unknown to the catalog do not change results and are
+ * ignored; any other non-core symptom sends the query back to the posting-list engine.
+ * </p>
+ *
+ * <p>
+ * The build first reduces the catalog to representatives: conditions with the same core
+ * signature and the same total match every subset equally, so only the {@code topK} with the
+ * best name rank of each such group can ever be returned. Representatives are visited by
+ * descending core size, which lets each subset stop as soon as no remaining representative can
+ * clear the admission bar. Subsets are ranked in parallel on the common fork-join pool, and the
+ * tiers and ordering are those of {@code checkSymptoms}, so a lookup returns exactly what the
+ * engine would.
+ * </p>
+ *
+ * <p>
+ * A table belongs to one catalog index and one {@code topK}/{@code minMatches} pair; the
+ * service rebuilds it whenever the catalog is replaced.
+ * </p>
+ */
+public final class CoreResultTable {
+    /** Largest core vocabulary; the table has {@code 2^size} rows. */
+    public static final int MAX_CORE_SIZE = 20;
+
+    private static final int SUBSETS_PER_TASK = 256;
+
+    private final SymptomIndex index;
+    private final List<String> core;
+    private final Map<String, Integer> coreBits;
+    private final int topK;
+    private final int minMatches;
+    private final int[] conditions;
+    private final byte[] matched;
+    private final byte[] percents;
+    private final byte[] sizes;
+    private final int representatives;
+    private final long buildNanos;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    private CoreResultTable(SymptomIndex index, List<String> core, Map<String, Integer> coreBits, int topK,
+                            int minMatches, int[] conditions, byte[] matched, byte[] percents, byte[] sizes,
+                            int representatives, long buildNanos, LongAdder hits, LongAdder misses) {
+        this.index = index;
+        this.core = core;
+        this.coreBits = coreBits;
+        this.topK = topK;
+        this.minMatches = minMatches;
+        this.conditions = conditions;
+        this.matched = matched;
+        this.percents = percents;
+        this.sizes = sizes;
+        this.representatives = representatives;
+        this.buildNanos = buildNanos;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * Build the table for every subset of {@code core}.
+     *
+     * @param index catalog to rank
+     * @param core distinct core symptoms, at most {@link #MAX_CORE_SIZE}
+     * @param topK results kept per subset, at most 127
+     * @param minMatches matches a condition needs to be reported as a strong match
+     */
+    public static CoreResultTable build(SymptomIndex index, List<String> core, int topK, int minMatches) {
+        return build(index, List.copyOf(core), topK, minMatches, new LongAdder(), new LongAdder());
+    }
+
+    /**
+     * Build the same table over another catalog, keeping the lookup counters.
+     */
+    CoreResultTable rebuild(SymptomIndex newIndex) {
+        return build(newIndex, core, topK, minMatches, hits, misses);
+    }
+
+    private static CoreResultTable build(SymptomIndex index, List<String> core, int topK, int minMatches,
+                                         LongAdder hits, LongAdder misses) {
+        if (core.size() > MAX_CORE_SIZE) {
+            throw new IllegalArgumentException("Core vocabulary of " + core.size() + " exceeds " + MAX_CORE_SIZE);
+        }
+        if (topK < 0 || topK > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("topK must be between 0 and " + Byte.MAX_VALUE + ": " + topK);
+        }
+        if (minMatches < 1) {
+            throw new IllegalArgumentException("minMatches must be at least 1: " + minMatches);
+        }
+        long start = System.nanoTime();
+        Map<String, Integer> coreBits = new HashMap<>();
+        int[] coreIds = new int[core.size()];
+        for (int bit = 0; bit < core.size(); bit++) {
+            if (coreBits.putIfAbsent(core.get(bit), bit) != null) {
+                throw new IllegalArgumentException("Duplicate core symptom " + core.get(bit));
+            }
+            coreIds[bit] = index.symptomId(core.get(bit));
+        }
+
+        Representatives reps = Representatives.of(index, coreIds, topK);
+        int subsets = 1 << core.size();
+        int[] conditions = new int[subsets * topK];
+        byte[] matched = new byte[subsets * topK];
+        byte[] percents = new byte[subsets * topK];
+        byte[] sizes = new byte[subsets];
+        int tasks = (subsets + SUBSETS_PER_TASK - 1) / SUBSETS_PER_TASK;
+        IntStream.range(0, tasks).parallel().forEach(task -> {
+            TopKSelector strong = new TopKSelector();
+            TopKSelector fallback = new TopKSelector();
+            int end = Math.min(subsets, (task + 1) * SUBSETS_PER_TASK);
+            for (int mask = task * SUBSETS_PER_TASK; mask < end; mask++) {
+                strong.reset(index, topK);
+                fallback.reset(index, topK);
+                reps.rank(index, mask, minMatches, strong, fallback);
+                TopKSelector selected = strong.size() > 0 ? strong : fallback;
+                selected.sort();
+                int base = mask * topK;
+                for (int i = 0; i < selected.size(); i++) {
+                    conditions[base + i] = selected.conditionAt(i);
+                    matched[base + i] = (byte) selected.matchedAt(i);
+                    percents[base + i] = (byte) selected.percentAt(i);
+                }
+                sizes[mask] = (byte) selected.size();
+            }
+        });
+
+        return new CoreResultTable(index, core, coreBits, topK, minMatches, conditions, matched, percents, sizes,
+            reps.count, System.nanoTime() - start, hits, misses);
+    }
+
+    /**
+     * @return {@code true} when queries with these parameters on this index can use the table
+     */
+    boolean appliesTo(SymptomIndex current, int queryTopK, int queryMinMatches) {
+        return current == index && queryTopK == topK && queryMinMatches == minMatches;
+    }
+
+    /**
+     * Answer the selection from the table if it only uses core symptoms.
+     *
+     * @return {@code true} if {@code out} now holds the results, {@code false} if the engine
+     * has to rank the selection
+     */
+    boolean lookup(Collection<String> selectedSymptoms, QueryResultBuffer out) {
+        int mask = 0;
+        for (String symptom : selectedSymptoms) {
+            Integer bit = coreBits.get(symptom);
+            if (bit != null) {
+                mask |= 1 << bit;
+            } else if (index.symptomId(symptom) >= 0) {
+                misses.increment();
+                return false;
+            }
+        }
+        int size = sizes[mask];
+        int base = mask * topK;
+        out.clear(index, size);
+        for (int i = 0; i < size; i++) {
+            out.set(i, conditions[base + i], matched[base + i], percents[base + i]);
+        }
+        hits.increment();
+        return true;
+    }
+
+    public List<String> getCoreSymptoms() {
+        return core;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public int getMinMatches() {
+        return minMatches;
+    }
+
+    public long getBuildMillis() {
+        return buildNanos / 1_000_000L;
+    }
+
+    /**
+     * @return bytes held by the result arrays
+     */
+    public long getMemoryBytes() {
+        return (long) conditions.length * Integer.BYTES + matched.length + percents.length + sizes.length;
+    }
+
+    /**
+     * @return catalog conditions the table was ranked from, after grouping
+     */
+    public int getRepresentativeCount() {
+        return representatives;
+    }
+
+    /**
+     * @return queries answered from the table
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return queries with the table's parameters that needed a non-core symptom
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Catalog conditions that can appear in some subset's results, with their core signatures,
+     * ordered by descending signature size.
+     */
+    private static final class Representatives {
+        final int count;
+        final int[] conditions;
+        final int[] signatures;
+        final int[] signatureSizes;
+
+        private Representatives(int count, int[] conditions, int[] signatures, int[] signatureSizes) {
+            this.count = count;
+            this.conditions = conditions;
+            this.signatures = signatures;
+            this.signatureSizes = signatureSizes;
+        }
+
+        static Representatives of(SymptomIndex index, int[] coreIds, int topK) {
+            int conditionCount = index.conditionCount();
+            int[] signatureOf = new int[conditionCount];
+            for (int bit = 0; bit < coreIds.length; bit++) {
+                if (coreIds[bit] >= 0) {
+                    for (int i : index.postings(coreIds[bit])) {
+                        signatureOf[i] |= 1 << bit;
+                    }
+                }
+            }
+            int[] byRank = new int[conditionCount];
+            for (int i = 0; i < conditionCount; i++) {
+                byRank[index.nameRank(i)] = i;
+            }
+
+            // Bucket by signature, largest signatures first, then order each bucket by total and
+            // name rank so the first topK of every (signature, total) run are its best
+            int subsets = 1 << coreIds.length;
+            Integer[] order = new Integer[subsets];
+            for (int s = 0; s < subsets; s++) {
+                order[s] = s;
+            }
+            Arrays.sort(order, (a, b) -> Integer.bitCount(b) - Integer.bitCount(a));
+            int[] bucketOf = new int[subsets];
+            for (int position = 0; position < subsets; position++) {
+                bucketOf[order[position]] = position;
+            }
+            int[] bucketStarts = new int[subsets + 1];
+            for (int i = 0; i < conditionCount; i++) {
+                if (signatureOf[i] != 0) {
+                    bucketStarts[bucketOf[signatureOf[i]] + 1]++;
+                }
+            }
+            for (int b = 0; b < subsets; b++) {
+                bucketStarts[b + 1] += bucketStarts[b];
+            }
+            long[] keys = new long[bucketStarts[subsets]];
+            int[] fill = Arrays.copyOf(bucketStarts, subsets);
+            for (int i = 0; i < conditionCount; i++) {
+                if (signatureOf[i] != 0) {
+                    keys[fill[bucketOf[signatureOf[i]]]++] = ((long) index.totalSymptoms(i) << 32) | index.nameRank(i);
+                }
+            }
+
+            int[] conditions = new int[keys.length];
+            int[] signatures = new int[keys.length];
+            int[] signatureSizes = new int[keys.length];
+            int count = 0;
+            for (int b = 0; b < subsets; b++) {
+                Arrays.sort(keys, bucketStarts[b], bucketStarts[b + 1]);
+                int signature = order[b];
+                int runTotal = -1;
+                int runLength = 0;
+                for (int k = bucketStarts[b]; k < bucketStarts[b + 1]; k++) {
+                    int total = (int) (keys[k] >>> 32);
+                    runLength = total == runTotal ? runLength + 1 : 1;
+                    runTotal = total;
+                    if (runLength <= topK) {
+                        conditions[count] = byRank[(int) keys[k]];
+                        signatures[count] = signature;
+                        signatureSizes[count] = Integer.bitCount(signature);
+                        count++;
+                    }
+                }
+            }
+            return new Representatives(count, conditions, signatures, signatureSizes);
+        }
+
+        /**
+         * Offer every representative that can make the subset's results, as
+         * {@link SymptomCheckerService#selectCandidates} does for the engine.
+         */
+        void rank(SymptomIndex index, int mask, int minMatches, TopKSelector strong, TopKSelector fallback) {
+            int bar = TopKSelector.admissionBar(strong, fallback, minMatches);
+            for (int r = 0; r < count; r++) {
+                if (signatureSizes[r] < bar) {
+                    // Later representatives have no more core symptoms than this one
+                    return;
+                }
+                int matchedCount = Integer.bitCount(signatures[r] & mask);
+                if (matchedCount < bar) {
+                    continue;
+                }
+                int condition = conditions[r];
+                int percentMatch = Math.round((matchedCount * 100.0f) / index.totalSymptoms(condition));
+                if (matchedCount >= minMatches) {
+                    strong.offer(condition, matchedCount, percentMatch);
+                } else {
+                    fallback.offer(condition, matchedCount, percentMatch);
+                }
+                bar = TopKSelector.admissionBar(strong, fallback, minMatches);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.symptomchecker.service;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scores one query by splitting the catalog into contiguous condition shards on a
+ * {@link ForkJoinPool}.
+ *
+ * <p>
+ * Each shard merges the posting lists restricted to its condition range and keeps its own
+ * strong/fallback top-K. Shard selectors are merged pairwise as the tasks join; since the
+ * ranking order is total, the merged result is exactly what the sequential path returns.
+ * </p>
+ */
+final class ParallelScorer {
+    /** Smallest shard worth a task of its own. */
+    private static final int MIN_SHARD_SIZE = 4096;
+    /** Shards per pool thread, so uneven shards still balance through work stealing. */
+    private static final int SHARDS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final int minConditions;
+
+    ParallelScorer(ForkJoinPool pool, int minConditions) {
+        this.pool = pool;
+        this.minConditions = minConditions;
+    }
+
+    /**
+     * @return {@code true} when the catalog is large enough to be worth sharding
+     */
+    boolean appliesTo(SymptomIndex index) {
+        return index.conditionCount() >= minConditions;
+    }
+
+    /**
+     * Rank the resolved selection into the given selectors of the calling thread.
+     */
+    void rank(SymptomIndex index, int[] symptomIds, int length, int minMatches,
+              TopKSelector strong, TopKSelector fallback, ScratchPool scratch) {
+        int conditionCount = index.conditionCount();
+        int shards = Math.max(1, pool.getParallelism() * SHARDS_PER_THREAD);
+        int shardSize = Math.max(MIN_SHARD_SIZE, (conditionCount + shards - 1) / shards);
+        ShardTask task = new ShardTask(index, symptomIds, length, minMatches, strong.capacity(), shardSize,
+            scratch, 0, conditionCount);
+        ShardTask.Selection selection = pool.invoke(task);
+        strong.offerAll(selection.strong);
+        fallback.offerAll(selection.fallback);
+    }
+
+    private static final class ShardTask extends RecursiveTask<ShardTask.Selection> {
+        private final SymptomIndex index;
+        private final int[] symptomIds;
+        private final int length;
+        private final int minMatches;
+        private final int topK;
+        private final int shardSize;
+        private final ScratchPool scratch;
+        private final int from;
+        private final int to;
+
+        ShardTask(SymptomIndex index, int[] symptomIds, int length, int minMatches, int topK, int shardSize,
+                  ScratchPool scratch, int from, int to) {
+            this.index = index;
+            this.symptomIds = symptomIds;
+            this.length = length;
+            this.minMatches = minMatches;
+            this.topK = topK;
+            this.shardSize = shardSize;
+            this.scratch = scratch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Selection compute() {
+            if (to - from <= shardSize) {
+                return scoreShard();
+            }
+            int mid = (from + to) >>> 1;
+            ShardTask left = new ShardTask(index, symptomIds, length, minMatches, topK, shardSize, scratch, from, mid);
+            ShardTask right = new ShardTask(index, symptomIds, length, minMatches, topK, shardSize, scratch, mid, to);
+            left.fork();
+            Selection merged = right.compute();
+            Selection other = left.join();
+            merged.strong.offerAll(other.strong);
+            merged.fallback.offerAll(other.fallback);
+            return merged;
+        }
+
+        private Selection scoreShard() {
+            QueryScratch work = scratch.acquire();
+            work.ensureCapacity(index, 0);
+            int candidateCount = index.accumulate(symptomIds, length, work.counts, work.candidates, from, to);
+            Selection selection = new Selection(index, topK);
+            SymptomCheckerService.selectCandidates(index, work.counts, work.candidates, candidateCount,
+                minMatches, selection.strong, selection.fallback);
+            scratch.release(work);
+            return selection;
+        }
+
+        private static final class Selection {
+            final TopKSelector strong = new TopKSelector();
+            final TopKSelector fallback = new TopKSelector();
+
+            Selection(SymptomIndex index, int topK) {
+                strong.reset(index, topK);
+                fallback.reset(index, topK);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.symptomchecker.service;
+
+import com.symptomchecker.model.SymptomResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight gate that lets concurrent identical queries share one computation.
+ *
+ * <p>
+ * The first query for a {@link SymptomSetKey} computes the results; queries for the same key
+ * that arrive while it is running wait for it and receive copies of its results instead of
+ * ranking the catalog again. The entry is removed as soon as the computation finishes, so
+ * nothing is retained between bursts; keeping results longer is the job of
+ * {@link ResultCache}.
+ * </p>
+ *
+ * <p>
+ * A computation is only shared with queries on the same catalog index. If it fails, every query
+ * waiting on it fails with the same exception.
+ * </p>
+ */
+public final class QueryCoalescer {
+    private final ConcurrentHashMap<SymptomSetKey, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Run {@code compute} for the key, or wait for the identical computation already running.
+     *
+     * @return results owned by the caller
+     */
+    List<SymptomResult> execute(SymptomIndex index, SymptomSetKey key, Supplier<List<SymptomResult>> compute) {
+        InFlight mine = new InFlight(index);
+        InFlight running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            if (running.index == index) {
+                coalesced.increment();
+                return new ArrayList<>(running.await());
+            }
+            // Still running on the previous catalog; this query must not see those results
+            executed.increment();
+            return compute.get();
+        }
+
+        executed.increment();
+        try {
+            List<SymptomResult> results = compute.get();
+            mine.result.complete(List.copyOf(results));
+            return results;
+        } catch (RuntimeException | Error ex) {
+            mine.result.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * @return queries that ran their own computation
+     */
+    public long getExecutedCount() {
+        return executed.sum();
+    }
+
+    /**
+     * @return queries answered by another query's computation
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return distinct computations running right now
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private static final class InFlight {
+        final SymptomIndex index;
+        final CompletableFuture<List<SymptomResult>> result = new CompletableFuture<>();
+
+        InFlight(SymptomIndex index) {
+            this.index = index;
+        }
+
+        List<SymptomResult> await() {
+            try {
+                return result.join();
+            } catch (CompletionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw ex;
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.symptomchecker.service;
+
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.model.SymptomResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reusable, primitive holder for the ranked results of one query.
+ *
+ * <p>
+ * Results are kept best first in parallel int arrays (condition index, matched count, percent
+ * match) together with the catalog index they refer to, so a buffer can be filled repeatedly
+ * without allocating. {@link SymptomResult} objects are only created on demand through
+ * {@link #toResult(int)} or {@link #toResults()}.
+ * </p>
+ *
+ * <p>
+ * A buffer is not thread-safe; give each thread its own.
+ * </p>
+ */
+public final class QueryResultBuffer {
+    private int[] conditionIndexes;
+    private int[] matchedCounts;
+    private int[] percentMatches;
+    private int size;
+    private SymptomIndex index;
+
+    public QueryResultBuffer() {
+        this(3);
+    }
+
+    /**
+     * @param initialCapacity number of results the buffer can hold before it has to grow
+     */
+    public QueryResultBuffer(int initialCapacity) {
+        conditionIndexes = new int[initialCapacity];
+        matchedCounts = new int[initialCapacity];
+        percentMatches = new int[initialCapacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return catalog position of the condition ranked at {@code position}
+     */
+    public int conditionIndex(int position) {
+        return conditionIndexes[position];
+    }
+
+    public int matchedCount(int position) {
+        return matchedCounts[position];
+    }
+
+    public int percentMatch(int position) {
+        return percentMatches[position];
+    }
+
+    public int totalSymptoms(int position) {
+        return index.totalSymptoms(conditionIndexes[position]);
+    }
+
+    /**
+     * @return catalog id of the condition ranked at {@code position}
+     */
+    public int conditionId(int position) {
+        return index.conditionId(conditionIndexes[position]);
+    }
+
+    public String conditionName(int position) {
+        return index.conditionName(conditionIndexes[position]);
+    }
+
+    /**
+     * Materialize the result ranked at {@code position}.
+     */
+    public SymptomResult toResult(int position) {
+        int conditionIndex = conditionIndexes[position];
+        Condition condition = index.getConditions().get(conditionIndex);
+        return new SymptomResult(
+            condition.getId(),
+            condition.getName(),
+            matchedCounts[position],
+            index.totalSymptoms(conditionIndex),
+            percentMatches[position],
+            condition.getAdvice()
+        );
+    }
+
+    /**
+     * Materialize every result in the buffer, best first.
+     */
+    public List<SymptomResult> toResults() {
+        List<SymptomResult> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(toResult(i));
+        }
+        return results;
+    }
+
+    void clear(SymptomIndex index) {
+        this.index = index;
+        this.size = 0;
+    }
+
+    /**
+     * Empty the buffer and make room for {@code capacity} entries written with {@link #set}.
+     */
+    void clear(SymptomIndex index, int capacity) {
+        if (conditionIndexes.length < capacity) {
+            conditionIndexes = new int[capacity];
+            matchedCounts = new int[capacity];
+            percentMatches = new int[capacity];
+        }
+        this.index = index;
+        this.size = 0;
+    }
+
+    /**
+     * Write the entry ranked at {@code position}, growing the size to include it.
+     */
+    void set(int position, int conditionIndex, int matchedCount, int percentMatch) {
+        conditionIndexes[position] = conditionIndex;
+        matchedCounts[position] = matchedCount;
+        percentMatches[position] = percentMatch;
+        size = Math.max(size, position + 1);
+    }
+
+    /**
+     * Replace the buffer contents with the entries of a sorted selector.
+     */
+    void copyFrom(SymptomIndex index, TopKSelector selector) {
+        int count = selector.size();
+        if (conditionIndexes.length < count) {
+            conditionIndexes = new int[count];
+            matchedCounts = new int[count];
+            percentMatches = new int[count];
+        }
+        for (int i = 0; i < count; i++) {
+            conditionIndexes[i] = selector.conditionAt(i);
+            matchedCounts[i] = selector.matchedAt(i);
+            percentMatches[i] = selector.percentAt(i);
+        }
+        this.index = index;
+        this.size = count;
+    }
+}
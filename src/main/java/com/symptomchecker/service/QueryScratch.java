@@ -0,0 +1,39 @@
+package com.symptomchecker.service;
+
+/**
+ * Working arrays reused across queries so posting-list merging does not allocate. Instances are
+ * borrowed from a {@link ScratchPool} for the duration of one query.
+ */
+final class QueryScratch {
+    int[] symptomIds = new int[0];
+    int[] counts = new int[0];
+    int[] candidates = new int[0];
+    private float[] queryVector = new float[0];
+    final TopKSelector strong = new TopKSelector();
+    final TopKSelector fallback = new TopKSelector();
+
+    /**
+     * Grow the arrays to fit the given index and selection size. {@code counts} stays all zeros
+     * between queries, so resizing never has to clear it.
+     */
+    void ensureCapacity(SymptomIndex index, int selectionSize) {
+        if (symptomIds.length < selectionSize) {
+            symptomIds = new int[selectionSize];
+        }
+        if (counts.length < index.conditionCount()) {
+            counts = new int[index.conditionCount()];
+            candidates = new int[index.conditionCount()];
+        }
+    }
+
+    /**
+     * @return an all-zero dense vector over at least {@code symptomCount} symptoms; callers
+     * reset the entries they set before returning the scratch
+     */
+    float[] queryVector(int symptomCount) {
+        if (queryVector.length < symptomCount) {
+            queryVector = new float[symptomCount];
+        }
+        return queryVector;
+    }
+}
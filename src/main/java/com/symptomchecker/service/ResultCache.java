@@ -0,0 +1,206 @@
+package com.symptomchecker.service;
+
+import com.symptomchecker.model.SymptomResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, concurrent cache of ranked results keyed by {@link SymptomSetKey}.
+ *
+ * <p>
+ * The cache is split into lock-striped segments, each an access-ordered LRU map, so concurrent
+ * queries on different keys rarely contend. Each segment evicts its least recently used
+ * entries while it holds more than its share of the entry limit or of the weight limit; the
+ * shares never add up to more than the limits. Small limits get fewer segments, down to one,
+ * so every segment can hold a few typical entries. An entry weighs one unit per selected
+ * symptom plus one per returned result, and one heavier than its segment's share is not
+ * cached.
+ * </p>
+ *
+ * <p>
+ * Entries remember the catalog index they were computed on and are never served for another
+ * one, and the service clears the cache whenever it swaps in a new catalog.
+ * </p>
+ */
+public final class ResultCache {
+    private static final int MAX_SEGMENTS = 16;
+    /** Weight limit below which a segment would turn away too many ordinary entries. */
+    private static final long MIN_SEGMENT_WEIGHT = 256;
+
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @param maxEntries maximum number of cached queries
+     * @param maxWeight maximum total weight of cached queries
+     */
+    public ResultCache(int maxEntries, long maxWeight) {
+        if (maxEntries < 1 || maxWeight < 1) {
+            throw new IllegalArgumentException("Cache limits must be positive: entries=" + maxEntries + ", weight=" + maxWeight);
+        }
+        long byWeight = Math.max(1, maxWeight / MIN_SEGMENT_WEIGHT);
+        int segmentCount = Integer.highestOneBit((int) Math.min(MAX_SEGMENTS, Math.min(maxEntries, byWeight)));
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maxEntries / segmentCount, maxWeight / segmentCount);
+        }
+    }
+
+    /**
+     * @return cached results for the key on this index, or {@code null}
+     */
+    List<SymptomResult> get(SymptomIndex index, SymptomSetKey key) {
+        List<SymptomResult> results = segmentFor(key).get(index, key);
+        if (results == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return results;
+    }
+
+    void put(SymptomIndex index, SymptomSetKey key, List<SymptomResult> results) {
+        List<SymptomResult> copy = Collections.unmodifiableList(new ArrayList<>(results));
+        segmentFor(key).put(new Entry(index, copy, key.length() + copy.size()), key);
+    }
+
+    /**
+     * Drop every entry, for example because the catalog changed.
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+        invalidations.increment();
+    }
+
+    private Segment segmentFor(SymptomSetKey key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /** @return lookups answered from the cache */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /** @return lookups that had to be computed */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /** @return entries evicted to respect the entry or weight limit */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /** @return times the whole cache was cleared */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /** @return cached queries */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /** @return total weight of cached queries */
+    public long weight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    private static final class Entry {
+        final SymptomIndex index;
+        final List<SymptomResult> results;
+        final int weight;
+
+        Entry(SymptomIndex index, List<SymptomResult> results, int weight) {
+            this.index = index;
+            this.results = results;
+            this.weight = weight;
+        }
+    }
+
+    private final class Segment {
+        private final int maxEntries;
+        private final long maxWeight;
+        private final LinkedHashMap<SymptomSetKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long weight;
+
+        Segment(int maxEntries, long maxWeight) {
+            this.maxEntries = maxEntries;
+            this.maxWeight = maxWeight;
+        }
+
+        synchronized List<SymptomResult> get(SymptomIndex index, SymptomSetKey key) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.index != index) {
+                entries.remove(key);
+                weight -= entry.weight;
+                return null;
+            }
+            return entry.results;
+        }
+
+        synchronized void put(Entry entry, SymptomSetKey key) {
+            if (entry.weight > maxWeight) {
+                // Caching it would mean evicting everything else and still breaking the limit
+                Entry stale = entries.remove(key);
+                if (stale != null) {
+                    weight -= stale.weight;
+                }
+                return;
+            }
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+            weight += entry.weight;
+
+            Iterator<Map.Entry<SymptomSetKey, Entry>> eldestFirst = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || weight > maxWeight) && eldestFirst.hasNext()) {
+                Entry eldest = eldestFirst.next().getValue();
+                if (eldest == entry) {
+                    break;
+                }
+                eldestFirst.remove();
+                weight -= eldest.weight;
+                evictions.increment();
+            }
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            weight = 0;
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized long weight() {
+            return weight;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.symptomchecker.service;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Small lock-free pool of {@link QueryScratch} instances.
+ *
+ * <p>
+ * A thread-local scratch would be created afresh for every request when each request runs on
+ * its own short-lived (virtual) thread, so the per-condition arrays are instead borrowed from a
+ * fixed set of slots. Each thread starts probing at a slot derived from its identity, which keeps
+ * long-lived platform threads on the same scratch. When every slot is taken a new scratch is
+ * created and dropped again on release if the pool is still full.
+ * </p>
+ */
+final class ScratchPool {
+    private final AtomicReferenceArray<QueryScratch> slots;
+
+    ScratchPool(int size) {
+        slots = new AtomicReferenceArray<>(Math.max(1, size));
+    }
+
+    /**
+     * @return a pool sized for the number of threads that can run queries at the same time
+     */
+    static ScratchPool forAvailableProcessors() {
+        return new ScratchPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+    }
+
+    /**
+     * Borrow a scratch; hand it back with {@link #release} once its {@code counts} are clear.
+     */
+    QueryScratch acquire() {
+        int size = slots.length();
+        int start = homeSlot(size);
+        for (int i = 0; i < size; i++) {
+            int slot = (start + i) % size;
+            QueryScratch scratch = slots.get(slot);
+            if (scratch != null && slots.compareAndSet(slot, scratch, null)) {
+                return scratch;
+            }
+        }
+        return new QueryScratch();
+    }
+
+    void release(QueryScratch scratch) {
+        int size = slots.length();
+        int start = homeSlot(size);
+        for (int i = 0; i < size; i++) {
+            int slot = (start + i) % size;
+            if (slots.get(slot) == null && slots.compareAndSet(slot, null, scratch)) {
+                return;
+            }
+        }
+    }
+
+    private static int homeSlot(int size) {
+        return (System.identityHashCode(Thread.currentThread()) & Integer.MAX_VALUE) % size;
+    }
+}
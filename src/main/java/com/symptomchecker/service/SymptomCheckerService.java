@@ -1,14 +1,27 @@
 package com.symptomchecker.service;
 
+import com.symptomchecker.audit.AuditLog;
+import com.symptomchecker.config.DatabaseConfig;
+import com.symptomchecker.config.ResolverConfig;
+import com.symptomchecker.metrics.ServiceMetrics;
 import com.symptomchecker.model.Condition;
 import com.symptomchecker.model.SymptomResult;
+import com.symptomchecker.repository.CatalogSnapshotFile;
 import com.symptomchecker.repository.ConditionRepository;
+import com.symptomchecker.repository.PackedConditionStore;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service class that handles symptom checking logic
@@ -20,21 +33,134 @@ public class SymptomCheckerService {
         "Dizziness", "Chest Pain", "Shortness of Breath", "Loss of Appetite", "Chills"
     );
 
-    private List<Condition> conditions;
+    private static final int DEFAULT_TOP_K = 3;
+    private static final int DEFAULT_MIN_MATCHES = 3;
+    private static final boolean PACKED_STORAGE = "PACKED".equalsIgnoreCase(DatabaseConfig.CATALOG_STORAGE);
+
+    private final ServiceMetrics metrics = new ServiceMetrics();
+    /** Orders catalog and weight changes, so the published scorer is compiled for the published index. */
+    private final Object catalogLock = new Object();
+    private volatile SymptomIndex index;
+    private CatalogRefresher refresher;
+    private CatalogSnapshotFile snapshotFile;
+    private final ScratchPool scratch = ScratchPool.forAvailableProcessors();
+    private final ThreadLocal<QueryResultBuffer> resultBuffer = ThreadLocal.withInitial(QueryResultBuffer::new);
+    private volatile ParallelScorer parallelScorer;
+    private volatile ResultCache resultCache;
+    private volatile QueryCoalescer coalescer;
+    private volatile CoreResultTable coreTable;
+    private volatile Map<String, String> synonyms = configuredSynonyms();
+    private volatile ResolverHolder resolver;
+    private volatile WeightedScorer weightedScorer;
+    private volatile AuditLog auditLog;
+    /** Symptoms offered on top of the catalog's, for a service that holds no catalog itself. */
+    private final List<String> servedSymptoms;
 
     public SymptomCheckerService() {
+        servedSymptoms = List.of();
+        if (!DatabaseConfig.SNAPSHOT_PATH.isEmpty()) {
+            snapshotFile = new CatalogSnapshotFile(Paths.get(DatabaseConfig.SNAPSHOT_PATH));
+        }
+        if (DatabaseConfig.REFRESH_INTERVAL_MS > 0) {
+            refresher = new CatalogRefresher(new ConditionRepository(), this);
+        }
+
+        if (initializeFromSnapshot()) {
+            // Serve the snapshot right away; the database load replaces it in the background
+            if (refresher != null) {
+                refresher.start(0, DatabaseConfig.REFRESH_INTERVAL_MS);
+            } else {
+                Thread loader = new Thread(this::reloadFromDatabase, "catalog-loader");
+                loader.setDaemon(true);
+                loader.start();
+            }
+            return;
+        }
+
         initializeConditions();
+        if (refresher != null) {
+            refresher.start(DatabaseConfig.REFRESH_INTERVAL_MS, DatabaseConfig.REFRESH_INTERVAL_MS);
+        }
+    }
+
+    /**
+     * Create a service over an already loaded catalog, bypassing the database.
+     *
+     * @param conditions catalog to check symptoms against
+     */
+    public SymptomCheckerService(List<Condition> conditions) {
+        this(conditions, List.of());
+    }
+
+    private SymptomCheckerService(List<Condition> conditions, List<String> servedSymptoms) {
+        this.servedSymptoms = servedSymptoms;
+        this.index = buildIndex(conditions);
+    }
+
+    /**
+     * Create a service for a coordinator whose catalog is scored by shard workers. Only the
+     * symptom vocabulary is read from the database, falling back to that of the built-in
+     * conditions, so the service serves the vocabulary and free-text resolution without loading
+     * or indexing a single condition.
+     */
+    public static SymptomCheckerService vocabularyOnly() {
+        List<String> symptoms;
+        try {
+            symptoms = new ConditionRepository().loadVocabulary();
+        } catch (IllegalStateException ex) {
+            System.err.println("Failed to load the symptom vocabulary from the database. Falling back to defaults.");
+            System.err.println(ex.getMessage());
+            symptoms = List.of();
+        }
+        if (symptoms.isEmpty()) {
+            Set<String> defaults = new LinkedHashSet<>();
+            for (Condition condition : defaultConditions()) {
+                defaults.addAll(condition.getSymptoms());
+            }
+            symptoms = new ArrayList<>(defaults);
+        }
+        return vocabularyOnly(symptoms);
+    }
+
+    /**
+     * Create a service with an empty catalog that offers {@code symptoms}, plus the core
+     * symptoms, for selection and free-text resolution.
+     *
+     * @param symptoms vocabulary of the catalog held elsewhere
+     */
+    public static SymptomCheckerService vocabularyOnly(List<String> symptoms) {
+        return new SymptomCheckerService(List.of(), List.copyOf(symptoms));
+    }
+
+    /**
+     * Initialize the condition data from the last persisted snapshot, if there is a valid one.
+     */
+    private boolean initializeFromSnapshot() {
+        if (snapshotFile == null || !snapshotFile.exists()) {
+            return false;
+        }
+        try {
+            List<Condition> snapshot = PACKED_STORAGE ? snapshotFile.readPacked() : snapshotFile.read();
+            if (snapshot.isEmpty()) {
+                return false;
+            }
+            index = buildIndex(snapshot);
+            return true;
+        } catch (IOException ex) {
+            System.err.println("Ignoring unusable catalog snapshot.");
+            System.err.println(ex.getMessage());
+            return false;
+        }
     }
 
     /**
      * Initialize the condition data with symptoms and advice, preferring database values.
      */
     private void initializeConditions() {
-        ConditionRepository repository = new ConditionRepository();
         try {
-            List<Condition> loadedConditions = repository.loadConditions();
+            List<Condition> loadedConditions = loadFromDatabase();
             if (loadedConditions != null && !loadedConditions.isEmpty()) {
-                conditions = loadedConditions;
+                catalogLoaded(loadedConditions);
                 return;
             } else {
                 System.err.println("No conditions found in the database. Falling back to defaults.");
@@ -44,32 +170,110 @@ public class SymptomCheckerService {
             System.err.println(ex.getMessage());
         }
 
-        conditions = createDefaultConditions();
+        metrics.recordFallbackToDefaults();
+        index = buildIndex(defaultConditions());
+    }
+
+    /**
+     * Load the catalog from the database, recording the load time and outcome, and seed the
+     * refresher with it so its first run only pulls later changes. A database the refresher
+     * cannot track still serves the load, with refreshing disabled.
+     */
+    private List<Condition> loadFromDatabase() {
+        long start = System.nanoTime();
+        try {
+            List<Condition> loadedConditions = loadCatalog(new ConditionRepository());
+            metrics.recordCatalogLoad(start, true);
+            if (refresher != null && !loadedConditions.isEmpty()
+                && !refresher.seedAfterLoad(loadedConditions, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))) {
+                refresher = null;
+            }
+            return loadedConditions;
+        } catch (IllegalStateException ex) {
+            metrics.recordCatalogLoad(start, false);
+            throw ex;
+        }
+    }
+
+    /**
+     * Load the whole catalog in the configured storage, packing it while it is read when
+     * {@link DatabaseConfig#CATALOG_STORAGE} is {@code PACKED}.
+     */
+    static List<Condition> loadCatalog(ConditionRepository repository) {
+        return PACKED_STORAGE ? repository.loadPacked() : repository.loadConditions();
+    }
+
+    private SymptomIndex buildIndex(List<Condition> conditions) {
+        long start = System.nanoTime();
+        if (PACKED_STORAGE && !(conditions instanceof PackedConditionStore)) {
+            conditions = PackedConditionStore.pack(conditions);
+        }
+        SymptomIndex built = SymptomIndex.build(conditions);
+        metrics.recordIndexBuild(start, built.conditionCount(), built.symptomCount());
+        return built;
+    }
+
+    /**
+     * Replace the snapshot-backed catalog with a fresh database load, keeping the snapshot
+     * catalog if the database is unavailable.
+     */
+    private void reloadFromDatabase() {
+        try {
+            List<Condition> loadedConditions = loadFromDatabase();
+            if (loadedConditions != null && !loadedConditions.isEmpty()) {
+                catalogLoaded(loadedConditions);
+            } else {
+                System.err.println("No conditions found in the database. Keeping the snapshot catalog.");
+            }
+        } catch (IllegalStateException ex) {
+            System.err.println("Failed to load conditions from the database. Keeping the snapshot catalog.");
+            System.err.println(ex.getMessage());
+        }
+    }
+
+    /**
+     * Publish a catalog freshly read from the database and persist it as the startup snapshot.
+     */
+    void catalogLoaded(List<Condition> conditions) {
+        replaceCatalog(conditions);
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            snapshotFile.write(conditions);
+        } catch (IOException ex) {
+            System.err.println("Failed to write the catalog snapshot.");
+            System.err.println(ex.getMessage());
+        }
     }
 
-    private List<Condition> createDefaultConditions() {
+    /**
+     * @return the built-in catalog used when the database is unavailable, with fixed ids so
+     * results and audit records can name its conditions
+     */
+    public static List<Condition> defaultConditions() {
         List<Condition> defaults = new ArrayList<>();
-        defaults.add(new Condition("Common Cold",
+        defaults.add(new Condition(1, "Common Cold",
             List.of("Cough", "Runny Nose", "Sore Throat", "Sneezing"),
             "Rest, drink fluids, and consider warm soups."));
 
-        defaults.add(new Condition("Flu",
+        defaults.add(new Condition(2, "Flu",
             List.of("Fever", "Body Aches", "Fatigue", "Headache", "Chills"),
             "Rest well, stay hydrated, and monitor fever."));
 
-        defaults.add(new Condition("Food Poisoning",
+        defaults.add(new Condition(3, "Food Poisoning",
             List.of("Nausea", "Stomach Pain", "Dizziness"),
             "Hydrate with small sips; avoid heavy foods."));
 
-        defaults.add(new Condition("Seasonal Allergies",
+        defaults.add(new Condition(4, "Seasonal Allergies",
             List.of("Sneezing", "Runny Nose", "Cough"),
             "Stay indoors during high pollen; consider over-the-counter meds."));
 
-        defaults.add(new Condition("Migraine",
+        defaults.add(new Condition(5, "Migraine",
             List.of("Headache", "Nausea", "Dizziness"),
             "Rest in a quiet dark room, hydrate, and consider pain relief."));
 
-        defaults.add(new Condition("Respiratory Infection",
+        defaults.add(new Condition(6, "Respiratory Infection",
             List.of("Cough", "Chest Pain", "Shortness of Breath", "Fever"),
             "Rest, fluids, and see a doctor if symptoms worsen."));
 
@@ -77,104 +281,549 @@ public class SymptomCheckerService {
     }
 
     /**
-     * Check symptoms against all conditions and return matching results
+     * Replace the condition catalog. The new index is built on the calling thread and then
+     * published with a single atomic swap; queries already running finish on the previous
+     * catalog.
      *
-     * @param selectedSymptoms List of selected symptoms
-     * @return List of SymptomResult sorted by match quality
+     * @param conditions new catalog
      */
-    public List<SymptomResult> checkSymptoms(List<String> selectedSymptoms) {
-        if (selectedSymptoms == null || selectedSymptoms.isEmpty()) {
-            return new ArrayList<>();
+    public void replaceCatalog(List<Condition> conditions) {
+        synchronized (catalogLock) {
+            SymptomIndex built = buildIndex(conditions);
+            WeightedScorer weighted = weightedScorer;
+            if (weighted != null) {
+                weighted.prepare(built);
+            }
+            index = built;
+            ResultCache cache = resultCache;
+            if (cache != null) {
+                cache.invalidateAll();
+            }
+            // Until the rebuilt table is published, queries fall through to the engine
+            CoreResultTable table = coreTable;
+            if (table != null) {
+                CoreResultTable rebuilt = table.rebuild(built);
+                if (coreTable == table) {
+                    coreTable = rebuilt;
+                }
+            }
         }
+    }
 
-        List<SymptomResult> results = new ArrayList<>();
+    /**
+     * @return conditions of the catalog currently used for queries
+     */
+    public List<Condition> getConditions() {
+        return index.getConditions();
+    }
 
-        // Calculate matches for each condition
-        for (Condition condition : conditions) {
-            List<String> conditionSymptoms = condition.getSymptoms();
-            if (conditionSymptoms == null || conditionSymptoms.isEmpty()) {
-                continue;
-            }
+    /**
+     * @return query, catalog load and index build metrics of this service
+     */
+    public ServiceMetrics getMetrics() {
+        return metrics;
+    }
 
-            int matchedCount = 0;
-            for (String symptom : selectedSymptoms) {
-                if (conditionSymptoms.contains(symptom)) {
-                    matchedCount++;
-                }
+    /**
+     * @return the background catalog refresher, or {@code null} when refreshing is disabled
+     */
+    public CatalogRefresher getRefresher() {
+        return refresher;
+    }
+
+    /**
+     * Cache the results of {@link #checkSymptoms(List, int, int)} per canonical symptom set.
+     * The cache is cleared whenever the catalog is replaced. Buffered and batch queries bypass
+     * it.
+     *
+     * @param maxEntries maximum number of cached queries
+     * @param maxWeight maximum total weight, one unit per selected symptom and per result
+     * @return the new cache, for reading its counters
+     */
+    public ResultCache enableResultCache(int maxEntries, long maxWeight) {
+        ResultCache cache = new ResultCache(maxEntries, maxWeight);
+        resultCache = cache;
+        return cache;
+    }
+
+    public void disableResultCache() {
+        resultCache = null;
+    }
+
+    /**
+     * @return the result cache, or {@code null} when caching is disabled
+     */
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Let concurrent {@link #checkSymptoms(List, int, int)} calls for the same canonical symptom
+     * set share one ranking pass, such as bursts of identical queries during a seasonal spike.
+     * Works with or without the result cache; cache hits never reach the coalescer. Buffered and
+     * batch queries bypass it.
+     *
+     * @return the coalescer, for reading its counters
+     */
+    public QueryCoalescer enableQueryCoalescing() {
+        QueryCoalescer enabled = new QueryCoalescer();
+        coalescer = enabled;
+        return enabled;
+    }
+
+    public void disableQueryCoalescing() {
+        coalescer = null;
+    }
+
+    /**
+     * @return the query coalescer, or {@code null} when coalescing is disabled
+     */
+    public QueryCoalescer getQueryCoalescer() {
+        return coalescer;
+    }
+
+    /**
+     * Precompute the results of every selection made only of {@code coreSymptoms}, so those
+     * queries are answered with one table lookup. The table is built now, in parallel, and
+     * rebuilt on the calling thread of every later {@link #replaceCatalog}. Queries with other
+     * symptoms, other {@code topK}/{@code minMatches} values or scoring weights use the engine.
+     *
+     * @param coreSymptoms core vocabulary, at most {@link CoreResultTable#MAX_CORE_SIZE}
+     *                     symptoms, for example {@link #defaultSymptoms()}
+     * @param topK results kept per selection
+     * @param minMatches matches a condition needs to be reported as a strong match
+     * @return the table, for reading its size, build time and counters
+     */
+    public CoreResultTable enableCoreResultTable(List<String> coreSymptoms, int topK, int minMatches) {
+        CoreResultTable table = CoreResultTable.build(index, coreSymptoms, topK, minMatches);
+        coreTable = table;
+        return table;
+    }
+
+    public void disableCoreResultTable() {
+        coreTable = null;
+    }
+
+    /**
+     * @return the core result table, or {@code null} when it is disabled
+     */
+    public CoreResultTable getCoreResultTable() {
+        return coreTable;
+    }
+
+    /**
+     * Record every check answered by this service, with the conditions it returned, to an audit
+     * log. A check only copies a small record into the log's ring; the log's own thread does the
+     * file I/O. The caller stays responsible for closing the log.
+     */
+    public void enableAuditLog(AuditLog log) {
+        auditLog = log;
+    }
+
+    public void disableAuditLog() {
+        auditLog = null;
+    }
+
+    /**
+     * @return the audit log, or {@code null} when auditing is disabled
+     */
+    public AuditLog getAuditLog() {
+        return auditLog;
+    }
+
+    /**
+     * Rank conditions by the summed weight of their selected symptoms instead of by matched
+     * count. Weights are compiled into float arrays here and again whenever the catalog is
+     * replaced, before the new catalog serves queries. Cached and coalesced results are only
+     * shared between queries ranked with the same weights.
+     * Strong and fallback tiers still follow {@code minMatches}, and the reported percentage
+     * becomes the selected share of each condition's total weight.
+     *
+     * <p>
+     * Weighted queries always run sequentially and one profile at a time, also in batches.
+     * </p>
+     *
+     * @param weights weight per condition and symptom, for example
+     *                {@link SymptomWeights#inverseConditionFrequency()}; {@code null} restores
+     *                the default ranking by matched count
+     * @throws IllegalArgumentException if a weight is negative or not finite
+     */
+    public void setScoringWeights(SymptomWeights weights) {
+        synchronized (catalogLock) {
+            weightedScorer = weights == null ? null : new WeightedScorer(weights, index);
+            ResultCache cache = resultCache;
+            if (cache != null) {
+                cache.invalidateAll();
             }
+        }
+    }
 
-            int percentMatch = Math.round((matchedCount * 100.0f) / conditionSymptoms.size());
-            results.add(new SymptomResult(
-                condition.getName(),
-                matchedCount,
-                conditionSymptoms.size(),
-                percentMatch,
-                condition.getAdvice()
-            ));
+    /**
+     * Replace the synonyms used to resolve free-text terms. The resolver is rebuilt on the next
+     * free-text query.
+     *
+     * @param synonyms synonym to canonical symptom name
+     */
+    public void setSynonyms(Map<String, String> synonyms) {
+        this.synonyms = new LinkedHashMap<>(synonyms);
+    }
+
+    /**
+     * @return resolver for free-text terms over the current vocabulary and synonyms, built on
+     * first use after each catalog or synonym change
+     */
+    public SymptomResolver getResolver() {
+        SymptomIndex current = index;
+        Map<String, String> currentSynonyms = synonyms;
+        ResolverHolder holder = resolver;
+        if (holder == null || holder.index != current || holder.synonyms != currentSynonyms) {
+            holder = new ResolverHolder(current, currentSynonyms,
+                SymptomResolver.build(vocabulary(current, servedSymptoms), currentSynonyms, ResolverConfig.MAX_EDITS));
+            resolver = holder;
         }
+        return holder.resolver;
+    }
 
-        // Filter: only conditions with 3+ matches
-        List<SymptomResult> filtered = new ArrayList<>();
-        for (SymptomResult result : results) {
-            if (result.getMatchedCount() >= 3) {
-                filtered.add(result);
+    /**
+     * Check free-text terms, such as "sore-throat" or "headach", by first resolving them to
+     * catalog symptoms. Terms that match nothing are ignored.
+     *
+     * @see SymptomResolver
+     */
+    public List<SymptomResult> checkFreeText(List<String> terms, int topK, int minMatches) {
+        return checkSymptoms(getResolver().resolveAll(terms), topK, minMatches);
+    }
+
+    /**
+     * Built-in synonyms plus those of {@link ResolverConfig#SYNONYMS_FILE}, if configured.
+     */
+    private static Map<String, String> configuredSynonyms() {
+        Map<String, String> configured = SymptomResolver.defaultSynonyms();
+        if (!ResolverConfig.SYNONYMS_FILE.isEmpty()) {
+            try {
+                configured.putAll(SymptomResolver.readSynonyms(Paths.get(ResolverConfig.SYNONYMS_FILE)));
+            } catch (IOException ex) {
+                System.err.println("Failed to read the synonyms file. Using the built-in synonyms.");
+                System.err.println(ex.getMessage());
             }
         }
+        return configured;
+    }
 
-        // Sort by matched count (desc), then percent (desc), then name (asc)
-        filtered.sort((a, b) -> {
-            if (b.getMatchedCount() != a.getMatchedCount()) {
-                return Integer.compare(b.getMatchedCount(), a.getMatchedCount());
-            }
-            if (b.getPercentMatch() != a.getPercentMatch()) {
-                return Integer.compare(b.getPercentMatch(), a.getPercentMatch());
+    /**
+     * Score single queries on the given pool, sharding the catalog across its threads, whenever
+     * the catalog holds at least {@code minConditions} conditions. Smaller catalogs stay on the
+     * calling thread. Results are identical to sequential scoring.
+     *
+     * <p>
+     * Parallel queries allocate a few small objects per shard, so the buffered query methods
+     * are only allocation-free while a query runs sequentially.
+     * </p>
+     *
+     * @param pool pool to run shards on
+     * @param minConditions catalog size from which queries are sharded
+     */
+    public void enableParallelScoring(ForkJoinPool pool, int minConditions) {
+        parallelScorer = new ParallelScorer(pool, minConditions);
+    }
+
+    /**
+     * Return to scoring every query on the calling thread.
+     */
+    public void disableParallelScoring() {
+        parallelScorer = null;
+    }
+
+    /**
+     * Check symptoms against all conditions and return matching results.
+     * Repeated entries in the selection are counted once.
+     *
+     * @param selectedSymptoms List of selected symptoms
+     * @return List of SymptomResult sorted by match quality
+     */
+    public List<SymptomResult> checkSymptoms(List<String> selectedSymptoms) {
+        return checkSymptoms(selectedSymptoms, DEFAULT_TOP_K, DEFAULT_MIN_MATCHES);
+    }
+
+    /**
+     * Check symptoms against all conditions and return up to {@code topK} results.
+     *
+     * <p>
+     * Conditions matching at least {@code minMatches} selected symptoms are ranked by matched
+     * count (desc), percent (desc) and name (asc). When none qualifies, the best {@code topK}
+     * conditions with at least one match are returned instead. Repeated entries in the selection
+     * are counted once.
+     * </p>
+     *
+     * @param selectedSymptoms List of selected symptoms
+     * @param topK maximum number of results to return
+     * @param minMatches matches a condition needs to be reported as a strong match, at least 1
+     * @return List of SymptomResult sorted by match quality
+     * @throws IllegalArgumentException if {@code topK} is negative or {@code minMatches} below 1
+     */
+    public List<SymptomResult> checkSymptoms(List<String> selectedSymptoms, int topK, int minMatches) {
+        ResultCache cache = resultCache;
+        QueryCoalescer sharing = coalescer;
+        if ((cache == null && sharing == null) || selectedSymptoms == null || selectedSymptoms.isEmpty()) {
+            return checkSymptomsBuffered(selectedSymptoms, topK, minMatches).toResults();
+        }
+        checkArguments(topK, minMatches);
+
+        long start = System.nanoTime();
+        SymptomIndex current = index;
+        WeightedScorer weighted = weightedScorer;
+        SymptomSetKey key = SymptomSetKey.of(current, weighted, selectedSymptoms, topK, minMatches);
+        if (cache != null) {
+            List<SymptomResult> cached = cache.get(current, key);
+            if (cached != null) {
+                metrics.recordQuery(start, cached.size());
+                audit(selectedSymptoms, cached);
+                return new ArrayList<>(cached);
             }
-            return a.getConditionName().compareTo(b.getConditionName());
-        });
+        }
+        List<SymptomResult> results = sharing == null
+            ? rankAndCache(current, weighted, selectedSymptoms, topK, minMatches, key, cache)
+            : sharing.execute(current, key,
+                () -> rankAndCache(current, weighted, selectedSymptoms, topK, minMatches, key, cache));
+        metrics.recordQuery(start, results.size());
+        audit(selectedSymptoms, results);
+        return results;
+    }
 
-        // Take top 3
-        List<SymptomResult> topResults = new ArrayList<>();
-        for (int i = 0; i < Math.min(3, filtered.size()); i++) {
-            topResults.add(filtered.get(i));
+    private List<SymptomResult> rankAndCache(SymptomIndex current, WeightedScorer weighted,
+                                             List<String> selectedSymptoms, int topK, int minMatches,
+                                             SymptomSetKey key, ResultCache cache) {
+        QueryResultBuffer buffer = resultBuffer.get();
+        rank(current, weighted, selectedSymptoms, topK, minMatches, buffer);
+        List<SymptomResult> results = buffer.toResults();
+        if (cache != null) {
+            cache.put(current, key, results);
         }
+        return results;
+    }
 
-        // If no 3+ matches, show top 3 closest (matched >= 1) as fallback
-        if (topResults.isEmpty()) {
-            List<SymptomResult> nonZero = new ArrayList<>();
-            for (SymptomResult result : results) {
-                if (result.getMatchedCount() > 0) {
-                    nonZero.add(result);
+    private void audit(List<String> selectedSymptoms, List<SymptomResult> results) {
+        AuditLog audit = auditLog;
+        if (audit != null) {
+            audit.record(selectedSymptoms, results);
+        }
+    }
+
+    /**
+     * Allocation-free variant of {@link #checkSymptoms(List, int, int)} that ranks into a
+     * buffer owned by the calling thread.
+     *
+     * <p>
+     * The returned buffer is reused by the next buffered call on the same thread, so read or
+     * materialize its contents before querying again.
+     * </p>
+     *
+     * @return the calling thread's result buffer, holding the ranked results
+     */
+    public QueryResultBuffer checkSymptomsBuffered(List<String> selectedSymptoms, int topK, int minMatches) {
+        QueryResultBuffer buffer = resultBuffer.get();
+        checkSymptoms(selectedSymptoms, topK, minMatches, buffer);
+        return buffer;
+    }
+
+    /**
+     * Allocation-free variant of {@link #checkSymptoms(List, int, int)} that ranks into a
+     * caller-supplied buffer. Only the final results are written; no per-condition objects
+     * are created.
+     *
+     * @param selectedSymptoms List of selected symptoms
+     * @param topK maximum number of results to return
+     * @param minMatches matches a condition needs to be reported as a strong match
+     * @param out buffer that receives the ranked results
+     * @return number of results written to {@code out}
+     */
+    public int checkSymptoms(List<String> selectedSymptoms, int topK, int minMatches, QueryResultBuffer out) {
+        checkArguments(topK, minMatches);
+        long start = System.nanoTime();
+        int resultCount = rank(index, weightedScorer, selectedSymptoms, topK, minMatches, out);
+        metrics.recordQuery(start, resultCount);
+        AuditLog audit = auditLog;
+        if (audit != null) {
+            audit.record(selectedSymptoms, out);
+        }
+        return resultCount;
+    }
+
+    /**
+     * Check a block of symptom profiles in one call, returning one result list per profile in
+     * the same order. Each list is identical to what {@link #checkSymptoms(List)} would return.
+     *
+     * @param profiles symptom selections to check
+     * @return ranked results for each profile
+     */
+    public List<List<SymptomResult>> checkSymptomsBatch(List<List<String>> profiles) {
+        return checkSymptomsBatch(profiles, DEFAULT_TOP_K, DEFAULT_MIN_MATCHES);
+    }
+
+    /**
+     * Check a block of symptom profiles in one call, returning one result list per profile in
+     * the same order.
+     *
+     * <p>
+     * Profiles are scored in groups against tiles of conditions so each part of the
+     * catalog is read once per group instead of once per profile. Groups whose selections are
+     * sparse relative to the catalog are answered through the posting lists instead.
+     * </p>
+     *
+     * @param profiles symptom selections to check
+     * @param topK maximum number of results per profile
+     * @param minMatches matches a condition needs to be reported as a strong match
+     * @return ranked results for each profile
+     */
+    public List<List<SymptomResult>> checkSymptomsBatch(List<List<String>> profiles, int topK, int minMatches) {
+        checkArguments(topK, minMatches);
+        long batchStart = System.nanoTime();
+        SymptomIndex current = index;
+        WeightedScorer weighted = weightedScorer;
+        BatchScorer scorer = new BatchScorer(current, topK, minMatches);
+        QueryResultBuffer buffer = new QueryResultBuffer(topK);
+        List<List<SymptomResult>> results = new ArrayList<>(profiles.size());
+        for (int start = 0; start < profiles.size(); start += BatchScorer.PROFILE_BLOCK) {
+            List<List<String>> block = profiles.subList(start, Math.min(profiles.size(), start + BatchScorer.PROFILE_BLOCK));
+            if (weighted == null && scorer.prefersDenseScan(block)) {
+                scorer.scoreBlock(block, results);
+            } else {
+                for (List<String> profile : block) {
+                    rank(current, weighted, profile, topK, minMatches, buffer);
+                    results.add(buffer.toResults());
                 }
             }
+        }
+        metrics.recordBatch(batchStart, profiles.size());
+        AuditLog audit = auditLog;
+        if (audit != null) {
+            for (int i = 0; i < profiles.size(); i++) {
+                audit.record(profiles.get(i), results.get(i));
+            }
+        }
+        return results;
+    }
 
-            nonZero.sort((a, b) -> {
-                if (b.getMatchedCount() != a.getMatchedCount()) {
-                    return Integer.compare(b.getMatchedCount(), a.getMatchedCount());
-                }
-                if (b.getPercentMatch() != a.getPercentMatch()) {
-                    return Integer.compare(b.getPercentMatch(), a.getPercentMatch());
-                }
-                return a.getConditionName().compareTo(b.getConditionName());
-            });
+    /**
+     * Conditions with no selected symptom never reach the posting lists, so a strong tier that
+     * admits zero matches cannot be ranked and is rejected instead.
+     */
+    static void checkArguments(int topK, int minMatches) {
+        if (topK < 0) {
+            throw new IllegalArgumentException("topK must not be negative: " + topK);
+        }
+        if (minMatches < 1) {
+            throw new IllegalArgumentException("minMatches must be at least 1: " + minMatches);
+        }
+    }
+
+    /**
+     * Rank one selection against the given index through its posting lists, by weight when a
+     * scorer is given.
+     */
+    private int rank(SymptomIndex current, WeightedScorer weighted, List<String> selectedSymptoms, int topK,
+                     int minMatches, QueryResultBuffer out) {
+        if (selectedSymptoms == null || selectedSymptoms.isEmpty()) {
+            out.clear(current);
+            return 0;
+        }
+
+        CoreResultTable table = coreTable;
+        if (table != null && weighted == null && table.appliesTo(current, topK, minMatches)
+            && table.lookup(selectedSymptoms, out)) {
+            return out.size();
+        }
+
+        QueryScratch work = scratch.acquire();
+        work.ensureCapacity(current, selectedSymptoms.size());
+        int symptomCount = current.resolve(selectedSymptoms, work.symptomIds);
+        if (weighted != null) {
+            weighted.rank(current, work, symptomCount, topK, minMatches, out);
+            scratch.release(work);
+            return out.size();
+        }
+
+        // Single pass: strong matches and the fallback tier are selected side by side
+        TopKSelector strong = work.strong;
+        TopKSelector fallback = work.fallback;
+        strong.reset(current, topK);
+        fallback.reset(current, topK);
+        ParallelScorer parallel = parallelScorer;
+        if (parallel != null && parallel.appliesTo(current)) {
+            parallel.rank(current, work.symptomIds, symptomCount, minMatches, strong, fallback, scratch);
+        } else {
+            int candidateCount = current.accumulate(work.symptomIds, symptomCount, work.counts, work.candidates);
+            selectCandidates(current, work.counts, work.candidates, candidateCount, minMatches, strong, fallback);
+        }
+
+        // If no strong matches, show the closest conditions (matched >= 1) as fallback
+        TopKSelector selected = strong.size() > 0 ? strong : fallback;
+        selected.sort();
+        out.copyFrom(current, selected);
+        // Only a scratch whose counts were fully cleared goes back to the pool
+        scratch.release(work);
+        return out.size();
+    }
 
-            for (int i = 0; i < Math.min(3, nonZero.size()); i++) {
-                topResults.add(nonZero.get(i));
+    /**
+     * Offer accumulated candidates to a strong/fallback selector pair, clearing their entries in
+     * {@code counts} on the way.
+     */
+    static void selectCandidates(SymptomIndex index, int[] counts, int[] candidates, int candidateCount,
+                                 int minMatches, TopKSelector strong, TopKSelector fallback) {
+        int bar = TopKSelector.admissionBar(strong, fallback, minMatches);
+        for (int c = 0; c < candidateCount; c++) {
+            int i = candidates[c];
+            int matchedCount = counts[i];
+            counts[i] = 0;
+
+            if (matchedCount < bar) {
+                continue;
             }
+            int percentMatch = Math.round((matchedCount * 100.0f) / index.totalSymptoms(i));
+            if (matchedCount >= minMatches) {
+                strong.offer(i, matchedCount, percentMatch);
+            } else {
+                fallback.offer(i, matchedCount, percentMatch);
+            }
+            bar = TopKSelector.admissionBar(strong, fallback, minMatches);
         }
+    }
 
-        return topResults;
+    /**
+     * @return the core symptom vocabulary that is always offered for selection
+     */
+    public static List<String> defaultSymptoms() {
+        return Collections.unmodifiableList(DEFAULT_SYMPTOMS);
     }
 
     /**
      * Get all available symptoms
      */
     public List<String> getAllSymptoms() {
+        return vocabulary(index, servedSymptoms);
+    }
+
+    private static List<String> vocabulary(SymptomIndex current, List<String> served) {
+        // Dictionary IDs follow first appearance in the catalog, so this keeps catalog order
+        // without decoding every condition
         Set<String> symptoms = new LinkedHashSet<>(DEFAULT_SYMPTOMS);
-        for (Condition condition : conditions) {
-            if (condition.getSymptoms() != null) {
-                symptoms.addAll(condition.getSymptoms());
-            }
+        for (int id = 0; id < current.symptomCount(); id++) {
+            symptoms.add(current.symptomName(id));
         }
+        symptoms.addAll(served);
         return new ArrayList<>(symptoms);
     }
+
+    private static final class ResolverHolder {
+        final SymptomIndex index;
+        final Map<String, String> synonyms;
+        final SymptomResolver resolver;
+
+        ResolverHolder(SymptomIndex index, Map<String, String> synonyms, SymptomResolver resolver) {
+            this.index = index;
+            this.synonyms = synonyms;
+            this.resolver = resolver;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,452 @@
+package com.symptomchecker.service;
+
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.repository.PackedConditionStore;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Compiled, read-only view of a condition catalog used by the scoring path.
+ *
+ * <p>
+ * Every distinct symptom string is interned to a dense int ID. The index keeps an inverted
+ * posting list per symptom: the ascending indexes of the conditions that list it. Interactive
+ * queries walk only the postings of the selected symptoms, so their cost tracks the number of
+ * matching conditions rather than the catalog size. Scans that visit every condition, such as
+ * batch scoring, test each condition's distinct symptom IDs against a query encoded as a bitset
+ * over the dictionary.
+ * </p>
+ *
+ * <p>
+ * When built over a {@link PackedConditionStore}, the index reads symptom IDs and names straight
+ * from the packed records and reuses the store's dictionary, so no {@link Condition} is decoded
+ * until a result is returned and the posting lists are the only per-condition data on the heap.
+ * </p>
+ */
+public final class SymptomIndex {
+    /** Largest array the JVM reliably allocates. */
+    private static final int MAX_ROW_ENTRIES = Integer.MAX_VALUE - 8;
+
+    private final List<Condition> conditions;
+    private final PackedConditionStore packed;
+    private final Map<String, Integer> symptomIds;
+    private final String[] symptoms;
+    private final int queryWords;
+    private final int[] rowStarts;
+    private final int[] rowSymptoms;
+    private final int[] totalSymptoms;
+    private final int[][] postings;
+    private final long postingEntries;
+    private final int[] nameRanks;
+
+    private SymptomIndex(List<Condition> conditions, PackedConditionStore packed, Map<String, Integer> symptomIds,
+                         String[] symptoms, int[] rowStarts, int[] rowSymptoms, int[] totalSymptoms,
+                         int[][] postings, int[] nameRanks) {
+        this.conditions = conditions;
+        this.packed = packed;
+        this.symptomIds = symptomIds;
+        this.symptoms = symptoms;
+        this.queryWords = Math.max(1, (symptoms.length + 63) >>> 6);
+        this.rowStarts = rowStarts;
+        this.rowSymptoms = rowSymptoms;
+        this.totalSymptoms = totalSymptoms;
+        this.postings = postings;
+        long entries = 0;
+        for (int[] posting : postings) {
+            entries += posting.length;
+        }
+        this.postingEntries = entries;
+        this.nameRanks = nameRanks;
+    }
+
+    /**
+     * Compile the given conditions into a symptom dictionary, per-condition symptom rows and
+     * per-symptom posting lists.
+     *
+     * @param conditions catalog to index; the list is retained, not copied
+     * @return compiled index
+     * @throws IllegalArgumentException if the catalog lists more symptoms than one array holds
+     */
+    public static SymptomIndex build(List<Condition> conditions) {
+        if (conditions instanceof PackedConditionStore) {
+            return build((PackedConditionStore) conditions);
+        }
+        Map<String, Integer> ids = new HashMap<>();
+        int conditionCount = conditions.size();
+        int[] totals = new int[conditionCount];
+        long listed = 0;
+        for (int i = 0; i < conditionCount; i++) {
+            List<String> conditionSymptoms = conditions.get(i).getSymptoms();
+            if (conditionSymptoms == null) {
+                continue;
+            }
+            // Total keeps the list size (duplicates included) so percentages match the list-based check
+            totals[i] = conditionSymptoms.size();
+            listed += totals[i];
+            for (String symptom : conditionSymptoms) {
+                ids.putIfAbsent(symptom, ids.size());
+            }
+        }
+        if (listed > MAX_ROW_ENTRIES) {
+            throw new IllegalArgumentException("Catalog lists " + listed + " symptoms, more than one index holds");
+        }
+
+        String[] symptoms = new String[ids.size()];
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            symptoms[entry.getValue()] = entry.getKey();
+        }
+
+        // One row of distinct, ascending symptom IDs per condition
+        int[] rowStarts = new int[conditionCount + 1];
+        int[] rowSymptoms = new int[(int) listed];
+        int[] postingSizes = new int[symptoms.length];
+        int[] lastSeen = new int[symptoms.length];
+        Arrays.fill(lastSeen, -1);
+        int next = 0;
+        for (int i = 0; i < conditionCount; i++) {
+            if (totals[i] > 0) {
+                for (String symptom : conditions.get(i).getSymptoms()) {
+                    int id = ids.get(symptom);
+                    if (lastSeen[id] != i) {
+                        lastSeen[id] = i;
+                        rowSymptoms[next++] = id;
+                        postingSizes[id]++;
+                    }
+                }
+                Arrays.sort(rowSymptoms, rowStarts[i], next);
+            }
+            rowStarts[i + 1] = next;
+        }
+        if (next < rowSymptoms.length) {
+            rowSymptoms = Arrays.copyOf(rowSymptoms, next);
+        }
+
+        int[][] postings = allocatePostings(postingSizes);
+        int[] fill = new int[symptoms.length];
+        for (int i = 0; i < conditionCount; i++) {
+            for (int r = rowStarts[i]; r < rowStarts[i + 1]; r++) {
+                int id = rowSymptoms[r];
+                postings[id][fill[id]++] = i;
+            }
+        }
+
+        return new SymptomIndex(conditions, null, ids, symptoms, rowStarts, rowSymptoms, totals,
+            postings, rankByName(conditionCount, i -> conditions.get(i).getName()));
+    }
+
+    /**
+     * Compile a packed catalog. Symptom IDs are the store's dictionary IDs, and only the posting
+     * lists are built; scans read each condition's IDs from the store.
+     *
+     * @param store catalog to index; retained, not copied
+     * @return compiled index
+     */
+    public static SymptomIndex build(PackedConditionStore store) {
+        String[] symptoms = new String[store.dictionarySize()];
+        Map<String, Integer> ids = new HashMap<>(symptoms.length * 2);
+        for (int id = 0; id < symptoms.length; id++) {
+            symptoms[id] = store.dictionarySymptom(id);
+            ids.put(symptoms[id], id);
+        }
+
+        int conditionCount = store.size();
+        int[] totals = new int[conditionCount];
+        int[] postingSizes = new int[symptoms.length];
+        int[] lastSeen = new int[symptoms.length];
+        Arrays.fill(lastSeen, -1);
+        for (int i = 0; i < conditionCount; i++) {
+            int symptomCount = store.symptomCount(i);
+            totals[i] = symptomCount;
+            for (int s = 0; s < symptomCount; s++) {
+                int id = store.symptomId(i, s);
+                if (lastSeen[id] != i) {
+                    lastSeen[id] = i;
+                    postingSizes[id]++;
+                }
+            }
+        }
+
+        int[][] postings = allocatePostings(postingSizes);
+        int[] fill = new int[symptoms.length];
+        Arrays.fill(lastSeen, -1);
+        for (int i = 0; i < conditionCount; i++) {
+            for (int s = 0; s < totals[i]; s++) {
+                int id = store.symptomId(i, s);
+                if (lastSeen[id] != i) {
+                    lastSeen[id] = i;
+                    postings[id][fill[id]++] = i;
+                }
+            }
+        }
+
+        return new SymptomIndex(store, store, ids, symptoms, null, null, totals,
+            postings, rankByName(conditionCount, store::name));
+    }
+
+    private static int[][] allocatePostings(int[] postingSizes) {
+        int[][] postings = new int[postingSizes.length][];
+        for (int id = 0; id < postingSizes.length; id++) {
+            postings[id] = new int[postingSizes[id]];
+        }
+        return postings;
+    }
+
+    /**
+     * Rank every condition by name, then by catalog position, so ranking ties can be broken
+     * with an int comparison instead of a string comparison. Names are read once up front so a
+     * lazily decoding catalog is not decoded again on every comparison.
+     */
+    private static int[] rankByName(int conditionCount, IntFunction<String> nameOf) {
+        String[] names = new String[conditionCount];
+        Integer[] order = new Integer[conditionCount];
+        for (int i = 0; i < order.length; i++) {
+            names[i] = nameOf.apply(i);
+            order[i] = i;
+        }
+        // Arrays.sort on objects is stable, so equal names keep their catalog order
+        Arrays.sort(order, Comparator.comparing(i -> names[i]));
+        int[] ranks = new int[order.length];
+        for (int rank = 0; rank < order.length; rank++) {
+            ranks[order[rank]] = rank;
+        }
+        return ranks;
+    }
+
+    public List<Condition> getConditions() {
+        return conditions;
+    }
+
+    public int conditionCount() {
+        return totalSymptoms.length;
+    }
+
+    public int symptomCount() {
+        return symptoms.length;
+    }
+
+    /**
+     * @return number of {@code long} words in an encoded query
+     */
+    public int queryWords() {
+        return queryWords;
+    }
+
+    /**
+     * @return number of (condition, distinct symptom) pairs, the work of a scan over every
+     * condition
+     */
+    public long postingEntries() {
+        return postingEntries;
+    }
+
+    /**
+     * @return interned ID of the symptom, or {@code -1} when no condition lists it
+     */
+    public int symptomId(String symptom) {
+        Integer id = symptomIds.get(symptom);
+        return id == null ? -1 : id;
+    }
+
+    public String symptomName(int id) {
+        return symptoms[id];
+    }
+
+    public int conditionId(int conditionIndex) {
+        return packed != null ? packed.id(conditionIndex) : conditions.get(conditionIndex).getId();
+    }
+
+    public String conditionName(int conditionIndex) {
+        return packed != null ? packed.name(conditionIndex) : conditions.get(conditionIndex).getName();
+    }
+
+    /**
+     * @return position of the condition when the catalog is ordered by name, then by index
+     */
+    public int nameRank(int conditionIndex) {
+        return nameRanks[conditionIndex];
+    }
+
+    /**
+     * @return number of symptoms listed by the condition, or {@code 0} when it has none
+     */
+    public int totalSymptoms(int conditionIndex) {
+        return totalSymptoms[conditionIndex];
+    }
+
+    /**
+     * Encode a selection as a bitset over the symptom dictionary. Unknown symptoms are ignored,
+     * and repeated entries collapse to a single bit.
+     */
+    public long[] encode(Collection<String> selectedSymptoms) {
+        long[] query = new long[queryWords];
+        encode(selectedSymptoms, query, 0);
+        return query;
+    }
+
+    /**
+     * Encode a selection into {@link #queryWords()} words of {@code out} starting at
+     * {@code offset}, overwriting whatever was there.
+     */
+    public void encode(Collection<String> selectedSymptoms, long[] out, int offset) {
+        Arrays.fill(out, offset, offset + queryWords, 0L);
+        for (String symptom : selectedSymptoms) {
+            Integer id = symptomIds.get(symptom);
+            if (id != null) {
+                out[offset + (id >>> 6)] |= 1L << id;
+            }
+        }
+    }
+
+    /**
+     * @return interned IDs of the symptoms the condition lists, in list order and with
+     * duplicates kept, so they add up to {@link #totalSymptoms(int)}
+     */
+    int[] listedSymptomIds(int conditionIndex) {
+        int[] listed = new int[totalSymptoms[conditionIndex]];
+        if (packed != null) {
+            for (int s = 0; s < listed.length; s++) {
+                listed[s] = packed.symptomId(conditionIndex, s);
+            }
+        } else {
+            List<String> conditionSymptoms = conditions.get(conditionIndex).getSymptoms();
+            for (int s = 0; s < listed.length; s++) {
+                listed[s] = symptomIds.get(conditionSymptoms.get(s));
+            }
+        }
+        return listed;
+    }
+
+    /**
+     * @return ascending indexes of the conditions that list the symptom; must not be modified
+     */
+    public int[] postings(int symptomId) {
+        return postings[symptomId];
+    }
+
+    /**
+     * Resolve a selection to its distinct symptom IDs in ascending order. Unknown symptoms are
+     * skipped.
+     *
+     * @param selectedSymptoms selection to resolve
+     * @param out destination; must hold at least {@code selectedSymptoms.size()} entries
+     * @return number of IDs written to {@code out}
+     */
+    public int resolve(Collection<String> selectedSymptoms, int[] out) {
+        int length = 0;
+        for (String symptom : selectedSymptoms) {
+            Integer id = symptomIds.get(symptom);
+            if (id != null) {
+                out[length++] = id;
+            }
+        }
+        Arrays.sort(out, 0, length);
+        int distinct = 0;
+        for (int i = 0; i < length; i++) {
+            if (distinct == 0 || out[distinct - 1] != out[i]) {
+                out[distinct++] = out[i];
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Merge the posting lists of the given symptoms into per-condition match counts.
+     *
+     * <p>
+     * {@code counts} must be all zeros on entry for every condition; the caller is expected to
+     * clear the entries listed in {@code candidates} once it is done with them.
+     * </p>
+     *
+     * @param symptomIds distinct symptom IDs, as produced by {@link #resolve}
+     * @param length number of valid entries in {@code symptomIds}
+     * @param counts match counts indexed by condition, at least {@link #conditionCount()} long
+     * @param candidates receives each matched condition index once, at least
+     *                   {@link #conditionCount()} long
+     * @return number of candidate conditions written to {@code candidates}
+     */
+    public int accumulate(int[] symptomIds, int length, int[] counts, int[] candidates) {
+        int candidateCount = 0;
+        for (int i = 0; i < length; i++) {
+            for (int conditionIndex : postings[symptomIds[i]]) {
+                if (counts[conditionIndex]++ == 0) {
+                    candidates[candidateCount++] = conditionIndex;
+                }
+            }
+        }
+        return candidateCount;
+    }
+
+    /**
+     * Variant of {@link #accumulate(int[], int, int[], int[])} restricted to the conditions in
+     * {@code [fromCondition, toCondition)}. Each posting list is entered with a binary search,
+     * so disjoint ranges can be merged independently and in parallel.
+     */
+    public int accumulate(int[] symptomIds, int length, int[] counts, int[] candidates,
+                          int fromCondition, int toCondition) {
+        int candidateCount = 0;
+        for (int i = 0; i < length; i++) {
+            int[] posting = postings[symptomIds[i]];
+            int start = Arrays.binarySearch(posting, fromCondition);
+            for (int p = start < 0 ? -start - 1 : start; p < posting.length; p++) {
+                int conditionIndex = posting[p];
+                if (conditionIndex >= toCondition) {
+                    break;
+                }
+                if (counts[conditionIndex]++ == 0) {
+                    candidates[candidateCount++] = conditionIndex;
+                }
+            }
+        }
+        return candidateCount;
+    }
+
+    /**
+     * Count the symptoms of the condition that are set in the encoded query.
+     */
+    public int matchedCount(int conditionIndex, long[] query) {
+        return matchedCount(conditionIndex, query, 0);
+    }
+
+    /**
+     * Count the symptoms of the condition that are set in the query encoded at
+     * {@code queryOffset}.
+     */
+    public int matchedCount(int conditionIndex, long[] query, int queryOffset) {
+        int matched = 0;
+        if (packed == null) {
+            for (int r = rowStarts[conditionIndex]; r < rowStarts[conditionIndex + 1]; r++) {
+                int id = rowSymptoms[r];
+                if ((query[queryOffset + (id >>> 6)] & (1L << id)) != 0) {
+                    matched++;
+                }
+            }
+            return matched;
+        }
+        int symptomCount = packed.symptomCount(conditionIndex);
+        for (int s = 0; s < symptomCount; s++) {
+            int id = packed.symptomId(conditionIndex, s);
+            if ((query[queryOffset + (id >>> 6)] & (1L << id)) != 0 && firstListing(conditionIndex, s, id)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * @return whether a packed condition lists the symptom for the first time at {@code position}
+     */
+    private boolean firstListing(int conditionIndex, int position, int id) {
+        for (int s = 0; s < position; s++) {
+            if (packed.symptomId(conditionIndex, s) == id) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
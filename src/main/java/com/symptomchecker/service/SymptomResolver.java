@@ -0,0 +1,389 @@
+package com.symptomchecker.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Resolves free-text symptom terms, such as "sore-throat" or "headach", to canonical symptom
+ * names.
+ *
+ * <p>
+ * Terms are normalized (lower case, punctuation folded to single spaces) and looked up first as
+ * exact names or synonyms, then with spaces removed, and finally by fuzzy matching within a
+ * small number of edits. Fuzzy candidates come from an index of character trigrams. Edits are
+ * counted as in the bounded edit distance the candidates are checked with, where swapping two
+ * adjacent letters is a single edit that changes up to four trigrams. A term within {@code d}
+ * edits of the query therefore shares all but at most {@code 4d} of its trigrams, so only the
+ * postings of the query's {@code 4d + 1} rarest trigrams need to be visited.
+ * </p>
+ *
+ * <p>
+ * Instances are immutable and safe to share between threads.
+ * </p>
+ */
+public final class SymptomResolver {
+    private static final int GRAM = 3;
+    private static final int[] EMPTY = new int[0];
+
+    private final String[] canonical;
+    private final Map<String, Integer> exact;
+    private final Map<String, Integer> compact;
+    private final String[] terms;
+    private final int[] termTargets;
+    private final int maxEdits;
+    private final long[] gramKeys;
+    private final int[][] gramPostings;
+    private final int gramMask;
+
+    private SymptomResolver(String[] canonical, Map<String, Integer> exact, Map<String, Integer> compact,
+                            String[] terms, int[] termTargets, int maxEdits, long[] gramKeys,
+                            int[][] gramPostings) {
+        this.canonical = canonical;
+        this.exact = exact;
+        this.compact = compact;
+        this.terms = terms;
+        this.termTargets = termTargets;
+        this.maxEdits = maxEdits;
+        this.gramKeys = gramKeys;
+        this.gramPostings = gramPostings;
+        this.gramMask = gramKeys.length - 1;
+    }
+
+    /**
+     * Index a vocabulary and its synonyms.
+     *
+     * @param vocabulary canonical symptom names; the first occurrence of a normalized name wins
+     * @param synonyms synonym to canonical name; entries naming an unknown symptom are ignored
+     * @param maxEdits largest number of edits tolerated by fuzzy matching, {@code 0} to disable it
+     * @return resolver over the vocabulary
+     */
+    public static SymptomResolver build(Collection<String> vocabulary, Map<String, String> synonyms, int maxEdits) {
+        String[] canonical = vocabulary.toArray(new String[0]);
+        Map<String, Integer> exact = new HashMap<>();
+        List<String> termList = new ArrayList<>();
+        List<Integer> targetList = new ArrayList<>();
+        for (int id = 0; id < canonical.length; id++) {
+            addTerm(normalize(canonical[id]), id, exact, termList, targetList);
+        }
+        for (Map.Entry<String, String> synonym : synonyms.entrySet()) {
+            Integer target = exact.get(normalize(synonym.getValue()));
+            if (target != null) {
+                addTerm(normalize(synonym.getKey()), target, exact, termList, targetList);
+            }
+        }
+
+        Map<String, Integer> compact = new HashMap<>();
+        for (int t = 0; t < termList.size(); t++) {
+            compact.putIfAbsent(termList.get(t).replace(" ", ""), targetList.get(t));
+        }
+
+        String[] terms = termList.toArray(new String[0]);
+        int[] targets = new int[terms.length];
+        for (int t = 0; t < targets.length; t++) {
+            targets[t] = targetList.get(t);
+        }
+
+        // Open-addressed table from packed trigram to its posting list of term indexes, kept at
+        // most half full: one pass counts posting sizes, the second fills them
+        Set<Long> distinctGrams = new HashSet<>();
+        for (String term : terms) {
+            String padded = pad(term);
+            for (int i = 0; i + GRAM <= padded.length(); i++) {
+                distinctGrams.add(gram(padded, i));
+            }
+        }
+        int capacity = Integer.highestOneBit(Math.max(1, distinctGrams.size()) * 2 - 1) << 1;
+        long[] gramKeys = new long[capacity];
+        Arrays.fill(gramKeys, -1L);
+        int[] sizes = new int[capacity];
+        scanGrams(terms, gramKeys, sizes, null);
+        int[][] gramPostings = new int[capacity][];
+        for (int slot = 0; slot < capacity; slot++) {
+            if (sizes[slot] > 0) {
+                gramPostings[slot] = new int[sizes[slot]];
+            }
+        }
+        scanGrams(terms, gramKeys, new int[capacity], gramPostings);
+
+        return new SymptomResolver(canonical, exact, compact, terms, targets, Math.max(0, maxEdits),
+            gramKeys, gramPostings);
+    }
+
+    /**
+     * Visit every trigram of every term, claiming table slots as needed and either counting
+     * posting sizes ({@code postings == null}) or appending term indexes.
+     */
+    private static void scanGrams(String[] terms, long[] gramKeys, int[] sizes, int[][] postings) {
+        int mask = gramKeys.length - 1;
+        for (int t = 0; t < terms.length; t++) {
+            String padded = pad(terms[t]);
+            for (int i = 0; i + GRAM <= padded.length(); i++) {
+                long gram = gram(padded, i);
+                int slot = slot(gram, mask);
+                while (gramKeys[slot] != -1L && gramKeys[slot] != gram) {
+                    slot = (slot + 1) & mask;
+                }
+                gramKeys[slot] = gram;
+                // A term repeating a trigram is listed once
+                if (padded.indexOf(padded.substring(i, i + GRAM)) == i) {
+                    if (postings != null) {
+                        postings[slot][sizes[slot]] = t;
+                    }
+                    sizes[slot]++;
+                }
+            }
+        }
+    }
+
+    private static void addTerm(String term, int target, Map<String, Integer> exact, List<String> terms,
+                                List<Integer> targets) {
+        if (term.isEmpty() || exact.putIfAbsent(term, target) != null) {
+            return;
+        }
+        terms.add(term);
+        targets.add(target);
+    }
+
+    /**
+     * @return a few common lay terms for the built-in symptom vocabulary
+     */
+    public static Map<String, String> defaultSynonyms() {
+        Map<String, String> synonyms = new LinkedHashMap<>();
+        synonyms.put("temperature", "Fever");
+        synonyms.put("high temperature", "Fever");
+        synonyms.put("feverish", "Fever");
+        synonyms.put("tired", "Fatigue");
+        synonyms.put("tiredness", "Fatigue");
+        synonyms.put("exhaustion", "Fatigue");
+        synonyms.put("head ache", "Headache");
+        synonyms.put("muscle aches", "Body Aches");
+        synonyms.put("muscle pain", "Body Aches");
+        synonyms.put("stuffy nose", "Runny Nose");
+        synonyms.put("congestion", "Runny Nose");
+        synonyms.put("feeling sick", "Nausea");
+        synonyms.put("queasy", "Nausea");
+        synonyms.put("stomach ache", "Stomach Pain");
+        synonyms.put("tummy ache", "Stomach Pain");
+        synonyms.put("abdominal pain", "Stomach Pain");
+        synonyms.put("lightheaded", "Dizziness");
+        synonyms.put("dizzy", "Dizziness");
+        synonyms.put("breathlessness", "Shortness of Breath");
+        synonyms.put("short of breath", "Shortness of Breath");
+        synonyms.put("no appetite", "Loss of Appetite");
+        synonyms.put("shivering", "Chills");
+        return synonyms;
+    }
+
+    /**
+     * Read synonyms from a properties file of {@code synonym=Canonical Symptom} lines.
+     */
+    public static Map<String, String> readSynonyms(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        Map<String, String> synonyms = new LinkedHashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            synonyms.put(name, properties.getProperty(name));
+        }
+        return synonyms;
+    }
+
+    /**
+     * Lower-case the text and fold every run of non-alphanumeric characters into a single space.
+     */
+    public static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                pendingSpace = false;
+                normalized.append(Character.toLowerCase(c));
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    public int vocabularySize() {
+        return canonical.length;
+    }
+
+    public String canonicalName(int id) {
+        return canonical[id];
+    }
+
+    /**
+     * @return position of the matching symptom in the vocabulary, or {@code -1} when nothing
+     * is close enough
+     */
+    public int resolve(String term) {
+        String normalized = normalize(term);
+        if (normalized.isEmpty()) {
+            return -1;
+        }
+        Integer id = exact.get(normalized);
+        if (id == null) {
+            id = compact.get(normalized.replace(" ", ""));
+        }
+        if (id != null) {
+            return id;
+        }
+        return fuzzy(normalized);
+    }
+
+    /**
+     * @return canonical name of the matching symptom, or {@code null} when nothing is close enough
+     */
+    public String resolveName(String term) {
+        int id = resolve(term);
+        return id < 0 ? null : canonical[id];
+    }
+
+    /**
+     * Resolve every term, dropping the ones that match nothing and repeats of the same symptom.
+     *
+     * @return canonical names in the order their first term appeared
+     */
+    public List<String> resolveAll(Collection<String> freeText) {
+        List<String> resolved = new ArrayList<>(freeText.size());
+        for (String term : freeText) {
+            if (term == null) {
+                continue;
+            }
+            int id = resolve(term);
+            if (id >= 0 && !resolved.contains(canonical[id])) {
+                resolved.add(canonical[id]);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Edits tolerated for a term of the given length: none up to three characters, one up to
+     * six, then {@link #maxEdits}.
+     */
+    private int editBudget(int length) {
+        if (length <= 3) {
+            return 0;
+        }
+        return Math.min(maxEdits, length <= 6 ? 1 : 2 + (length - 7) / 8);
+    }
+
+    private int fuzzy(String query) {
+        int budget = editBudget(query.length());
+        if (budget == 0) {
+            return -1;
+        }
+
+        String padded = pad(query);
+        int gramCount = padded.length() - GRAM + 1;
+        int[][] postings = new int[gramCount][];
+        for (int i = 0; i < gramCount; i++) {
+            postings[i] = lookup(gram(padded, i));
+        }
+        // Any term within budget shares a trigram with the (4 * budget + 1) rarest ones, since
+        // one adjacent swap changes GRAM + 1 of them
+        Arrays.sort(postings, (a, b) -> Integer.compare(a.length, b.length));
+        int scanned = Math.min(gramCount, (GRAM + 1) * budget + 1);
+
+        int bestTarget = -1;
+        int bestDistance = budget + 1;
+        int[][] rows = new int[3][query.length() + 1];
+        for (int g = 0; g < scanned; g++) {
+            for (int t : postings[g]) {
+                String term = terms[t];
+                int limit = Math.min(budget, bestDistance);
+                if (Math.abs(term.length() - query.length()) > limit) {
+                    continue;
+                }
+                int distance = boundedDistance(query, term, limit, rows);
+                int target = termTargets[t];
+                if (distance < bestDistance || (distance == bestDistance && target < bestTarget)) {
+                    bestDistance = distance;
+                    bestTarget = target;
+                }
+            }
+        }
+        return bestTarget;
+    }
+
+    /**
+     * Optimal string alignment distance between {@code a} and {@code b}, or {@code limit + 1}
+     * once it is certain to exceed {@code limit}.
+     */
+    private static int boundedDistance(String a, String b, int limit, int[][] rows) {
+        int[] previous2 = rows[0];
+        int[] previous = rows[1];
+        int[] current = rows[2];
+        for (int i = 0; i <= a.length(); i++) {
+            previous[i] = i;
+        }
+        for (int j = 1; j <= b.length(); j++) {
+            current[0] = j;
+            int rowMin = j;
+            char bj = b.charAt(j - 1);
+            for (int i = 1; i <= a.length(); i++) {
+                char ai = a.charAt(i - 1);
+                int cost = ai == bj ? 0 : 1;
+                int value = Math.min(Math.min(previous[i] + 1, current[i - 1] + 1), previous[i - 1] + cost);
+                if (i > 1 && j > 1 && ai == b.charAt(j - 2) && a.charAt(i - 2) == bj) {
+                    value = Math.min(value, previous2[i - 2] + 1);
+                }
+                current[i] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[a.length()], limit + 1);
+    }
+
+    private int[] lookup(long gram) {
+        int slot = slot(gram, gramMask);
+        while (gramKeys[slot] != -1L) {
+            if (gramKeys[slot] == gram) {
+                return gramPostings[slot];
+            }
+            slot = (slot + 1) & gramMask;
+        }
+        return EMPTY;
+    }
+
+    private static String pad(String term) {
+        return " " + term + " ";
+    }
+
+    private static long gram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+
+    private static int slot(long key, int mask) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed >>> 32) & mask;
+    }
+}
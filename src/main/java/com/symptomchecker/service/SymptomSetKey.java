@@ -0,0 +1,66 @@
+package com.symptomchecker.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Order-independent identity of a query: the distinct symptom IDs of the selection in ascending
+ * order, plus the ranking parameters and the weighted scorer, if any, compared by identity. Symptoms unknown to the catalog cannot affect the result
+ * and are left out, so {@code [Fever, Cough]}, {@code [Cough, Fever, Fever]} and
+ * {@code [Cough, Fever, Unknown]} share one key.
+ *
+ * <p>
+ * Keys are only comparable between queries on the same {@link SymptomIndex}, since symptom IDs
+ * are assigned per index.
+ * </p>
+ */
+final class SymptomSetKey {
+    private final int[] symptomIds;
+    private final int topK;
+    private final int minMatches;
+    private final WeightedScorer scorer;
+    private final int hash;
+
+    private SymptomSetKey(int[] symptomIds, int topK, int minMatches, WeightedScorer scorer) {
+        this.symptomIds = symptomIds;
+        this.topK = topK;
+        this.minMatches = minMatches;
+        this.scorer = scorer;
+        this.hash = 31 * (31 * Arrays.hashCode(symptomIds) + topK) + minMatches;
+    }
+
+    /**
+     * @param scorer scorer the query is ranked with, or {@code null} for ranking by matched count
+     */
+    static SymptomSetKey of(SymptomIndex index, WeightedScorer scorer, List<String> selectedSymptoms, int topK,
+                            int minMatches) {
+        int[] ids = new int[selectedSymptoms.size()];
+        int length = index.resolve(selectedSymptoms, ids);
+        return new SymptomSetKey(Arrays.copyOf(ids, length), topK, minMatches, scorer);
+    }
+
+    /**
+     * @return number of distinct known symptoms in the selection
+     */
+    int length() {
+        return symptomIds.length;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof SymptomSetKey)) {
+            return false;
+        }
+        SymptomSetKey key = (SymptomSetKey) other;
+        return hash == key.hash && topK == key.topK && minMatches == key.minMatches && scorer == key.scorer
+            && Arrays.equals(symptomIds, key.symptomIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
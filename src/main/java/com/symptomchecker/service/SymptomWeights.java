@@ -0,0 +1,40 @@
+package com.symptomchecker.service;
+
+/**
+ * Weight of one symptom within one condition, used by weighted scoring.
+ *
+ * <p>
+ * Weights are read once per catalog, when the service compiles them into dense float arrays,
+ * and must be finite and non-negative. A condition's score for a selection is the sum of the
+ * weights of its selected symptoms.
+ * </p>
+ *
+ * @see SymptomCheckerService#setScoringWeights(SymptomWeights)
+ */
+@FunctionalInterface
+public interface SymptomWeights {
+
+    /**
+     * @param index catalog being compiled
+     * @param conditionIndex catalog position of the condition
+     * @param symptomId interned ID of one of the condition's symptoms
+     * @return weight of the symptom for the condition
+     */
+    float weight(SymptomIndex index, int conditionIndex, int symptomId);
+
+    /**
+     * Every symptom weighs the same, which ranks like match counting.
+     */
+    static SymptomWeights uniform() {
+        return (index, conditionIndex, symptomId) -> 1.0f;
+    }
+
+    /**
+     * Inverse document frequency: symptoms listed by few conditions weigh more than ones that
+     * most conditions share, so a specific symptom outranks a generic one.
+     */
+    static SymptomWeights inverseConditionFrequency() {
+        return (index, conditionIndex, symptomId) ->
+            (float) Math.log(1.0 + (double) index.conditionCount() / index.postings(symptomId).length);
+    }
+}
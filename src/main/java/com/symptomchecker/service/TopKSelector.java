@@ -0,0 +1,190 @@
+package com.symptomchecker.service;
+
+/**
+ * Bounded selector that keeps the best {@code k} scored conditions seen so far.
+ *
+ * <p>
+ * Entries are ordered by matched count (desc), percent match (desc), condition name (asc) and
+ * finally catalog index (asc), which reproduces a stable sort of the catalog. The last two keys
+ * are compared through {@link SymptomIndex#nameRank(int)}. The selector is a
+ * binary min-heap over parallel int arrays with the worst kept entry at the root, so each offer
+ * costs O(log k) and never allocates once the arrays have grown to {@code k}.
+ * </p>
+ *
+ * <p>
+ * {@link WeightedScorer} reuses the matched-count key for the bits of its float score.
+ * </p>
+ */
+final class TopKSelector {
+    private int[] conditions = new int[0];
+    private int[] matched = new int[0];
+    private int[] percents = new int[0];
+    private int capacity;
+    private int size;
+    private SymptomIndex index;
+
+    /**
+     * Empty the selector and prepare it to keep up to {@code k} entries of the given index.
+     */
+    void reset(SymptomIndex index, int k) {
+        if (conditions.length < k) {
+            conditions = new int[k];
+            matched = new int[k];
+            percents = new int[k];
+        }
+        this.index = index;
+        this.capacity = k;
+        this.size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return smallest matched count a new entry needs to have a chance of being kept
+     */
+    int admissionMatched() {
+        if (size < capacity) {
+            return 0;
+        }
+        return capacity == 0 ? Integer.MAX_VALUE : matched[0];
+    }
+
+    /**
+     * Smallest matched count a condition needs before it is worth offering to either tier of a
+     * strong/fallback pair. Callers re-evaluate it after each offer; once the tiers fill up it
+     * rises quickly, so most conditions are rejected with a single comparison.
+     */
+    static int admissionBar(TopKSelector strong, TopKSelector fallback, int minMatches) {
+        if (strong.capacity == 0) {
+            return Integer.MAX_VALUE;
+        }
+        if (strong.size > 0) {
+            return Math.max(Math.max(1, minMatches), strong.admissionMatched());
+        }
+        // Nothing strong yet: any strong match is admissible, weaker ones only if the fallback has room
+        return Math.max(1, Math.min(minMatches, fallback.admissionMatched()));
+    }
+
+    /**
+     * Offer a scored condition; it is kept only if it ranks among the best {@code k} so far.
+     */
+    void offer(int conditionIndex, int matchedCount, int percentMatch) {
+        if (size < capacity) {
+            int slot = size++;
+            set(slot, conditionIndex, matchedCount, percentMatch);
+            siftUp(slot);
+        } else if (capacity > 0 && ranksBefore(conditionIndex, matchedCount, percentMatch, 0)) {
+            set(0, conditionIndex, matchedCount, percentMatch);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Offer every entry kept by another selector over the same index. The ordering is total, so
+     * merging shard selectors gives the same entries whatever order the shards complete in.
+     */
+    void offerAll(TopKSelector other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.conditions[i], other.matched[i], other.percents[i]);
+        }
+    }
+
+    /**
+     * Order the kept entries best first. The selector must be {@link #reset} before it is
+     * offered new entries again.
+     */
+    void sort() {
+        // Heap sort on a min-heap: moving the worst entry to the back leaves the array best first
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    int conditionAt(int position) {
+        return conditions[position];
+    }
+
+    int matchedAt(int position) {
+        return matched[position];
+    }
+
+    int percentAt(int position) {
+        return percents[position];
+    }
+
+    private void set(int slot, int conditionIndex, int matchedCount, int percentMatch) {
+        conditions[slot] = conditionIndex;
+        matched[slot] = matchedCount;
+        percents[slot] = percentMatch;
+    }
+
+    /**
+     * @return {@code true} when the candidate ranks strictly before the entry in {@code slot}
+     */
+    private boolean ranksBefore(int conditionIndex, int matchedCount, int percentMatch, int slot) {
+        if (matchedCount != matched[slot]) {
+            return matchedCount > matched[slot];
+        }
+        if (percentMatch != percents[slot]) {
+            return percentMatch > percents[slot];
+        }
+        return index.nameRank(conditionIndex) < index.nameRank(conditions[slot]);
+    }
+
+    private boolean ranksBefore(int a, int b) {
+        return ranksBefore(conditions[a], matched[a], percents[a], b);
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (!ranksBefore(parent, slot)) {
+                return;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot) {
+        siftDown(slot, size);
+    }
+
+    private void siftDown(int slot, int end) {
+        while (true) {
+            int worst = slot;
+            int left = 2 * slot + 1;
+            int right = left + 1;
+            if (left < end && ranksBefore(worst, left)) {
+                worst = left;
+            }
+            if (right < end && ranksBefore(worst, right)) {
+                worst = right;
+            }
+            if (worst == slot) {
+                return;
+            }
+            swap(slot, worst);
+            slot = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int condition = conditions[a];
+        conditions[a] = conditions[b];
+        conditions[b] = condition;
+        int count = matched[a];
+        matched[a] = matched[b];
+        matched[b] = count;
+        int percent = percents[a];
+        percents[a] = percents[b];
+        percents[b] = percent;
+    }
+}
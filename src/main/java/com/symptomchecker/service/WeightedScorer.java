@@ -0,0 +1,191 @@
+package com.symptomchecker.service;
+
+import java.util.Arrays;
+
+/**
+ * Ranks conditions by the summed weight of their selected symptoms.
+ *
+ * <p>
+ * Weights are compiled per catalog into compressed sparse rows: one run of symptom IDs and
+ * matching float weights per condition, plus each condition's total weight. A query is spread
+ * into a dense 0/1 float vector over the symptom dictionary, and every candidate found through
+ * the posting lists is scored with a gather dot product of its row against that vector.
+ * </p>
+ *
+ * <p>
+ * Entries are ordered by score (desc), percentage (desc), name (asc) and catalog index (asc),
+ * where the percentage is the selected share of the condition's total weight. A symptom listed
+ * twice counts twice towards that total, as it does towards the count-based denominator, so
+ * uniform weights reproduce the count-based ranking and percentages. Conditions matching at least {@code minMatches}
+ * symptoms form the strong tier as in count-based ranking.
+ * </p>
+ */
+final class WeightedScorer {
+    private final SymptomWeights weights;
+    private volatile Model model;
+
+    /**
+     * @param weights weight per condition and symptom
+     * @param index catalog to compile the weights for right away
+     * @throws IllegalArgumentException if a weight is negative or not finite
+     */
+    WeightedScorer(SymptomWeights weights, SymptomIndex index) {
+        this.weights = weights;
+        this.model = Model.build(index, weights);
+    }
+
+    /**
+     * Compile the weights for a catalog about to be published, so no query pays for it.
+     *
+     * @throws IllegalArgumentException if a weight is negative or not finite
+     */
+    void prepare(SymptomIndex index) {
+        if (model.index != index) {
+            model = Model.build(index, weights);
+        }
+    }
+
+    /**
+     * Rank the IDs resolved into {@code work.symptomIds} and write the results to {@code out}.
+     */
+    void rank(SymptomIndex index, QueryScratch work, int symptomCount, int topK, int minMatches,
+              QueryResultBuffer out) {
+        Model current = modelFor(index);
+        int candidateCount = index.accumulate(work.symptomIds, symptomCount, work.counts, work.candidates);
+        float[] query = work.queryVector(index.symptomCount());
+        for (int i = 0; i < symptomCount; i++) {
+            query[work.symptomIds[i]] = 1.0f;
+        }
+
+        TopKSelector strong = work.strong;
+        TopKSelector fallback = work.fallback;
+        strong.reset(index, topK);
+        fallback.reset(index, topK);
+        int[] counts = work.counts;
+        for (int c = 0; c < candidateCount; c++) {
+            int i = work.candidates[c];
+            int matchedCount = counts[i];
+            counts[i] = 0;
+            float score = current.dot(i, query);
+            float total = current.totals[i];
+            int percentMatch = total > 0 ? Math.round(score * 100.0f / total) : 0;
+            // Bits of a non-negative float order like the float, so the selector ranks by score
+            int scoreKey = Float.floatToIntBits(score);
+            if (matchedCount >= minMatches) {
+                strong.offer(i, scoreKey, percentMatch);
+            } else {
+                fallback.offer(i, scoreKey, percentMatch);
+            }
+        }
+
+        TopKSelector selected = strong.size() > 0 ? strong : fallback;
+        selected.sort();
+        out.clear(index, selected.size());
+        for (int position = 0; position < selected.size(); position++) {
+            int i = selected.conditionAt(position);
+            out.set(position, i, current.matchedCount(i, query), selected.percentAt(position));
+        }
+        for (int i = 0; i < symptomCount; i++) {
+            query[work.symptomIds[i]] = 0.0f;
+        }
+    }
+
+    private Model modelFor(SymptomIndex index) {
+        Model current = model;
+        // Only a query still running on the previous catalog gets here; it compiles a throwaway
+        // model rather than evicting the one prepared for the published catalog
+        return current.index == index ? current : Model.build(index, weights);
+    }
+
+    private static final class Model {
+        final SymptomIndex index;
+        final int[] rowStarts;
+        final int[] symptomIds;
+        final float[] weights;
+        final float[] totals;
+
+        private Model(SymptomIndex index, int[] rowStarts, int[] symptomIds, float[] weights, float[] totals) {
+            this.index = index;
+            this.rowStarts = rowStarts;
+            this.symptomIds = symptomIds;
+            this.weights = weights;
+            this.totals = totals;
+        }
+
+        static Model build(SymptomIndex index, SymptomWeights source) {
+            int conditionCount = index.conditionCount();
+            long listedTotal = 0;
+            for (int i = 0; i < conditionCount; i++) {
+                listedTotal += index.totalSymptoms(i);
+            }
+            if (listedTotal > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Too many condition symptoms to weigh: " + listedTotal);
+            }
+
+            int[] rowStarts = new int[conditionCount + 1];
+            int[] symptomIds = new int[(int) listedTotal];
+            float[] weights = new float[symptomIds.length];
+            float[] totals = new float[conditionCount];
+            int next = 0;
+            for (int i = 0; i < conditionCount; i++) {
+                int[] listed = index.listedSymptomIds(i);
+                Arrays.sort(listed);
+                float total = 0.0f;
+                for (int s = 0; s < listed.length; s++) {
+                    int id = listed[s];
+                    if (s > 0 && listed[s - 1] == id) {
+                        // Repeated in the list: counts towards the total only
+                        total += weights[next - 1];
+                        continue;
+                    }
+                    float weight = source.weight(index, i, id);
+                    if (!(weight >= 0.0f) || Float.isInfinite(weight)) {
+                        throw new IllegalArgumentException("Weight of symptom '" + index.symptomName(id)
+                            + "' for condition '" + index.conditionName(i) + "' must be finite and non-negative: "
+                            + weight);
+                    }
+                    symptomIds[next] = id;
+                    weights[next] = weight;
+                    total += weight;
+                    next++;
+                }
+                totals[i] = total;
+                rowStarts[i + 1] = next;
+            }
+            return new Model(index, rowStarts, Arrays.copyOf(symptomIds, next), Arrays.copyOf(weights, next), totals);
+        }
+
+        /**
+         * Dot product of the condition's weight row with a dense query vector, accumulated in two
+         * lanes to shorten the dependency chain.
+         */
+        float dot(int conditionIndex, float[] query) {
+            int from = rowStarts[conditionIndex];
+            int to = rowStarts[conditionIndex + 1];
+            float even = 0.0f;
+            float odd = 0.0f;
+            int j = from;
+            for (; j + 1 < to; j += 2) {
+                even += weights[j] * query[symptomIds[j]];
+                odd += weights[j + 1] * query[symptomIds[j + 1]];
+            }
+            if (j < to) {
+                even += weights[j] * query[symptomIds[j]];
+            }
+            return even + odd;
+        }
+
+        /**
+         * Number of the condition's symptoms set in the dense query vector.
+         */
+        int matchedCount(int conditionIndex, float[] query) {
+            int matched = 0;
+            for (int j = rowStarts[conditionIndex]; j < rowStarts[conditionIndex + 1]; j++) {
+                if (query[symptomIds[j]] != 0.0f) {
+                    matched++;
+                }
+            }
+            return matched;
+        }
+    }
+}
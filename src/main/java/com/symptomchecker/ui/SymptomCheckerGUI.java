@@ -1,5 +1,6 @@
 package com.symptomchecker.ui;
 
+import com.symptomchecker.audit.AuditLog;
 import com.symptomchecker.model.SymptomResult;
 import com.symptomchecker.service.SymptomCheckerService;
 
@@ -9,22 +10,48 @@ import javax.swing.border.TitledBorder;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.ArrayList;
+import java.io.IOException;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
- * Main GUI class for the Symptom Checker application
+ * Main GUI class for the Symptom Checker application.
+ *
+ * <p>
+ * The catalog is loaded and every check is scored on background workers; the event thread only
+ * renders. Results refresh on their own shortly after the selection stops changing, and a check
+ * still running for an older selection is cancelled and its result discarded.
+ * </p>
  */
 public class SymptomCheckerGUI extends JFrame {
+    private static final int LIVE_UPDATE_DELAY_MS = 250;
+    private static final String INITIAL_RESULTS_TEXT = "Select symptoms to see matching conditions.";
+
     private SymptomCheckerService service;
-    private List<JCheckBox> symptomCheckboxes;
+    private SymptomTableModel symptomTableModel;
+    private JTextField filterField;
     private JPanel resultsPanel;
     private JScrollPane resultsScrollPane;
+    private JLabel symptomsTitleLabel;
+    private JScrollPane symptomsScrollPane;
+    private JLabel resultsTitleLabel;
+    private JButton checkButton;
+    private JButton clearButton;
+    private Timer liveUpdateTimer;
+    private ScoringWorker scoringWorker;
 
     public SymptomCheckerGUI() {
-        service = new SymptomCheckerService();
-        symptomCheckboxes = new ArrayList<>();
+        liveUpdateTimer = new Timer(LIVE_UPDATE_DELAY_MS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                scoreSelection(false);
+            }
+        });
+        liveUpdateTimer.setRepeats(false);
         initializeGUI();
+        loadCatalog();
     }
 
     private void initializeGUI() {
@@ -70,7 +97,7 @@ public class SymptomCheckerGUI extends JFrame {
         panel.add(titleLabel, BorderLayout.NORTH);
 
         JLabel subtitleLabel = new JLabel(
-            "<html>Select your symptoms below and click the button to see possible matching conditions. " +
+            "<html>Select your symptoms below; possible matching conditions update as you choose. " +
             ".</html>");
         subtitleLabel.setFont(new Font("Arial", Font.PLAIN, 14));
         subtitleLabel.setBorder(new EmptyBorder(10, 0, 10, 0));
@@ -105,33 +132,47 @@ public class SymptomCheckerGUI extends JFrame {
         ));
         panel.setBackground(new Color(250, 250, 250));
 
-        JLabel titleLabel = new JLabel("Choose Symptoms (15)");
-        titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
-        panel.add(titleLabel, BorderLayout.NORTH);
+        JPanel titlePanel = new JPanel(new BorderLayout(0, 8));
+        titlePanel.setBackground(new Color(250, 250, 250));
+        symptomsTitleLabel = new JLabel("Choose Symptoms");
+        symptomsTitleLabel.setFont(new Font("Arial", Font.BOLD, 18));
+        titlePanel.add(symptomsTitleLabel, BorderLayout.NORTH);
+
+        filterField = new JTextField();
+        filterField.setFont(new Font("Arial", Font.PLAIN, 14));
+        filterField.setToolTipText("Type to filter symptoms");
+        filterField.setEnabled(false);
+        filterField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                applyFilter();
+            }
 
-        // Two columns of checkboxes
-        JPanel columnsPanel = new JPanel(new GridLayout(0, 2, 20, 6));
-        columnsPanel.setBackground(new Color(250, 250, 250));
-
-        List<String> allSymptoms = service.getAllSymptoms();
-        for (String symptom : allSymptoms) {
-            JCheckBox checkbox = new JCheckBox(symptom);
-            checkbox.setFont(new Font("Arial", Font.PLAIN, 14));
-            checkbox.setBackground(new Color(250, 250, 250));
-            symptomCheckboxes.add(checkbox);
-            columnsPanel.add(checkbox);
-        }
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                applyFilter();
+            }
 
-        JScrollPane scrollPane = new JScrollPane(columnsPanel);
-        scrollPane.setBorder(null);
-        scrollPane.setPreferredSize(new Dimension(0, 200));
-        panel.add(scrollPane, BorderLayout.CENTER);
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+        });
+        titlePanel.add(filterField, BorderLayout.SOUTH);
+        panel.add(titlePanel, BorderLayout.NORTH);
+
+        // The symptom table replaces the progress indicator once the catalog is loaded
+        symptomsScrollPane = new JScrollPane(createLoadingPanel());
+        symptomsScrollPane.setBorder(null);
+        symptomsScrollPane.setPreferredSize(new Dimension(0, 200));
+        panel.add(symptomsScrollPane, BorderLayout.CENTER);
 
         // Buttons
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
         buttonPanel.setBackground(new Color(250, 250, 250));
 
-        JButton checkButton = new JButton("Check Symptoms");
+        checkButton = new JButton("Check Symptoms");
+        checkButton.setEnabled(false);
         checkButton.setFont(new Font("Arial", Font.PLAIN, 14));
         checkButton.setPreferredSize(new Dimension(160, 36));
         checkButton.addActionListener(new ActionListener() {
@@ -141,7 +182,8 @@ public class SymptomCheckerGUI extends JFrame {
             }
         });
 
-        JButton clearButton = new JButton("Clear");
+        clearButton = new JButton("Clear");
+        clearButton.setEnabled(false);
         clearButton.setFont(new Font("Arial", Font.PLAIN, 14));
         clearButton.setPreferredSize(new Dimension(120, 36));
         clearButton.addActionListener(new ActionListener() {
@@ -158,6 +200,101 @@ public class SymptomCheckerGUI extends JFrame {
         return panel;
     }
 
+    private JPanel createLoadingPanel() {
+        JPanel panel = new JPanel();
+        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+        panel.setBackground(new Color(250, 250, 250));
+
+        JLabel loadingLabel = new JLabel("Loading symptom catalog...");
+        loadingLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+        panel.add(loadingLabel);
+        panel.add(Box.createVerticalStrut(8));
+
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setAlignmentX(Component.LEFT_ALIGNMENT);
+        panel.add(progressBar);
+
+        return panel;
+    }
+
+    /**
+     * Create the service, read its vocabulary and index it for filtering on a worker, so the
+     * database load does not hold up the window.
+     */
+    private void loadCatalog() {
+        new SwingWorker<List<String>, Void>() {
+            private SymptomCheckerService loadedService;
+            private SymptomPrefixIndex prefixIndex;
+
+            @Override
+            protected List<String> doInBackground() {
+                loadedService = new SymptomCheckerService();
+                enableAuditLog(loadedService);
+                List<String> symptoms = loadedService.getAllSymptoms();
+                prefixIndex = new SymptomPrefixIndex(symptoms);
+                return symptoms;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    List<String> symptoms = get();
+                    service = loadedService;
+                    showSymptoms(symptoms, prefixIndex);
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex instanceof ExecutionException ? ex.getCause() : ex;
+                    System.err.println("Failed to load the symptom catalog.");
+                    System.err.println(cause);
+                    JLabel errorLabel = new JLabel("Could not load the symptom catalog: " + cause.getMessage());
+                    errorLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+                    symptomsScrollPane.setViewportView(errorLabel);
+                }
+            }
+        }.execute();
+    }
+
+    private void showSymptoms(List<String> allSymptoms, SymptomPrefixIndex prefixIndex) {
+        // A table only renders the rows in view, so it stays fast for very large vocabularies
+        symptomTableModel = new SymptomTableModel(allSymptoms, prefixIndex, new Runnable() {
+            @Override
+            public void run() {
+                liveUpdateTimer.restart();
+            }
+        });
+        JTable table = new JTable(symptomTableModel);
+        table.setFont(new Font("Arial", Font.PLAIN, 14));
+        table.setRowHeight(24);
+        table.setTableHeader(null);
+        table.setShowGrid(false);
+        table.setFillsViewportHeight(true);
+        table.setBackground(new Color(250, 250, 250));
+        table.getColumnModel().getColumn(SymptomTableModel.SELECTED_COLUMN).setMaxWidth(32);
+
+        symptomsScrollPane.setViewportView(table);
+        filterField.setText("");
+        filterField.setEnabled(true);
+        updateSymptomsTitle();
+        checkButton.setEnabled(true);
+        clearButton.setEnabled(true);
+    }
+
+    private void applyFilter() {
+        if (symptomTableModel == null) {
+            return;
+        }
+        symptomTableModel.setFilter(filterField.getText());
+        updateSymptomsTitle();
+    }
+
+    private void updateSymptomsTitle() {
+        int total = symptomTableModel.vocabularySize();
+        int shown = symptomTableModel.getRowCount();
+        symptomsTitleLabel.setText(shown == total
+            ? "Choose Symptoms (" + total + ")"
+            : "Choose Symptoms (" + shown + " of " + total + ")");
+    }
+
     private JPanel createResultsPanel() {
         JPanel container = new JPanel(new BorderLayout());
         container.setBorder(BorderFactory.createCompoundBorder(
@@ -166,16 +303,16 @@ public class SymptomCheckerGUI extends JFrame {
         ));
         container.setBackground(Color.WHITE);
 
-        JLabel titleLabel = new JLabel("Results");
-        titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
-        container.add(titleLabel, BorderLayout.NORTH);
+        resultsTitleLabel = new JLabel("Results");
+        resultsTitleLabel.setFont(new Font("Arial", Font.BOLD, 18));
+        container.add(resultsTitleLabel, BorderLayout.NORTH);
 
         resultsPanel = new JPanel();
         resultsPanel.setLayout(new BoxLayout(resultsPanel, BoxLayout.Y_AXIS));
         resultsPanel.setBackground(Color.WHITE);
         resultsPanel.setBorder(new EmptyBorder(10, 0, 0, 0));
 
-        JLabel initialLabel = new JLabel("Select symptoms and click \"Check Symptoms\".");
+        JLabel initialLabel = new JLabel(INITIAL_RESULTS_TEXT);
         initialLabel.setFont(new Font("Arial", Font.PLAIN, 14));
         resultsPanel.add(initialLabel);
 
@@ -202,28 +339,42 @@ public class SymptomCheckerGUI extends JFrame {
     }
 
     private void checkSymptoms() {
-        List<String> selectedSymptoms = getSelectedSymptoms();
+        liveUpdateTimer.stop();
+        scoreSelection(true);
+    }
+
+    /**
+     * Score the current selection on a worker, cancelling the check of any earlier selection.
+     *
+     * @param explicit whether the user asked for the check, rather than a live update
+     */
+    private void scoreSelection(boolean explicit) {
+        if (scoringWorker != null) {
+            scoringWorker.cancel(true);
+            scoringWorker = null;
+        }
 
+        List<String> selectedSymptoms = getSelectedSymptoms();
         if (selectedSymptoms.isEmpty()) {
-            JOptionPane.showMessageDialog(this,
-                "Please select at least one symptom",
-                "No Symptoms Selected",
-                JOptionPane.WARNING_MESSAGE);
+            resultsTitleLabel.setText("Results");
+            if (explicit) {
+                JOptionPane.showMessageDialog(this,
+                    "Please select at least one symptom",
+                    "No Symptoms Selected",
+                    JOptionPane.WARNING_MESSAGE);
+            } else {
+                showInitialResults();
+            }
             return;
         }
 
-        List<SymptomResult> results = service.checkSymptoms(selectedSymptoms);
-        renderResults(results, selectedSymptoms);
+        resultsTitleLabel.setText("Results (updating...)");
+        scoringWorker = new ScoringWorker(selectedSymptoms);
+        scoringWorker.execute();
     }
 
     private List<String> getSelectedSymptoms() {
-        List<String> selected = new ArrayList<>();
-        for (JCheckBox checkbox : symptomCheckboxes) {
-            if (checkbox.isSelected()) {
-                selected.add(checkbox.getText());
-            }
-        }
-        return selected;
+        return symptomTableModel.getSelectedSymptoms();
     }
 
     private void renderResults(List<SymptomResult> results, List<String> selectedSymptoms) {
@@ -291,17 +442,77 @@ public class SymptomCheckerGUI extends JFrame {
     }
 
     private void clearAll() {
-        for (JCheckBox checkbox : symptomCheckboxes) {
-            checkbox.setSelected(false);
+        symptomTableModel.clearSelection();
+        // Drop any pending live update along with a running check
+        liveUpdateTimer.stop();
+        if (scoringWorker != null) {
+            scoringWorker.cancel(true);
+            scoringWorker = null;
         }
+        resultsTitleLabel.setText("Results");
+        showInitialResults();
+    }
+
+    private void showInitialResults() {
         resultsPanel.removeAll();
-        JLabel initialLabel = new JLabel("Select symptoms and click \"Check Symptoms\".");
+        JLabel initialLabel = new JLabel(INITIAL_RESULTS_TEXT);
         initialLabel.setFont(new Font("Arial", Font.PLAIN, 14));
         resultsPanel.add(initialLabel);
         resultsPanel.revalidate();
         resultsPanel.repaint();
     }
 
+    /**
+     * Scores one selection off the event thread. Its result is rendered only if it is still the
+     * latest check when it completes.
+     */
+    private final class ScoringWorker extends SwingWorker<List<SymptomResult>, Void> {
+        private final List<String> selectedSymptoms;
+
+        ScoringWorker(List<String> selectedSymptoms) {
+            this.selectedSymptoms = selectedSymptoms;
+        }
+
+        @Override
+        protected List<SymptomResult> doInBackground() {
+            return service.checkSymptoms(selectedSymptoms);
+        }
+
+        @Override
+        protected void done() {
+            if (scoringWorker != this || isCancelled()) {
+                return;
+            }
+            scoringWorker = null;
+            resultsTitleLabel.setText("Results");
+            try {
+                renderResults(get(), selectedSymptoms);
+            } catch (InterruptedException ex) {
+                // superseded by a newer selection
+            } catch (ExecutionException ex) {
+                System.err.println("Failed to check symptoms.");
+                System.err.println(ex.getCause());
+            }
+        }
+    }
+
+    /**
+     * Audit checks when an audit directory is configured. The log is closed, writing out its
+     * last records, when the JVM exits.
+     */
+    private static void enableAuditLog(SymptomCheckerService service) {
+        try {
+            AuditLog auditLog = AuditLog.fromConfig();
+            if (auditLog != null) {
+                service.enableAuditLog(auditLog);
+                Runtime.getRuntime().addShutdownHook(new Thread(auditLog::close, "audit-shutdown"));
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            System.err.println("Failed to open the audit log. Checks will not be audited.");
+            System.err.println(ex.getMessage());
+        }
+    }
+
     public static void main(String[] args) {
         // Set look and feel to system default
         try {
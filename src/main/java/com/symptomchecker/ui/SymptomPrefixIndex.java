@@ -0,0 +1,137 @@
+package com.symptomchecker.ui;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Sorted index of every word start in a symptom vocabulary, used for type-ahead filtering.
+ *
+ * <p>
+ * Each symptom contributes one key per word: the lower-cased text from the start of that word
+ * to the end of the name, so "Sore Throat" is found by "so", "thr" and "sore th". All keys
+ * starting with a filter form one contiguous run of the sorted array, found with two binary
+ * searches; only that run is visited to collect the matching symptoms.
+ * </p>
+ */
+final class SymptomPrefixIndex {
+    private final int vocabularySize;
+    private final String[] keys;
+    private final int[] symptomOfKey;
+    private final int[] seen;
+    private int generation;
+
+    SymptomPrefixIndex(List<String> vocabulary) {
+        vocabularySize = vocabulary.size();
+        int keyCount = 0;
+        for (String symptom : vocabulary) {
+            keyCount += wordStarts(symptom);
+        }
+
+        Entry[] entries = new Entry[keyCount];
+        int next = 0;
+        for (int id = 0; id < vocabulary.size(); id++) {
+            String folded = vocabulary.get(id).toLowerCase(Locale.ROOT);
+            for (int i = 0; i < folded.length(); i++) {
+                if (isWordStart(folded, i)) {
+                    entries[next++] = new Entry(folded.substring(i), id);
+                }
+            }
+        }
+        Arrays.sort(entries, (a, b) -> a.key.compareTo(b.key));
+
+        keys = new String[keyCount];
+        symptomOfKey = new int[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = entries[i].key;
+            symptomOfKey[i] = entries[i].symptom;
+        }
+        seen = new int[vocabularySize];
+    }
+
+    /**
+     * Collect the symptoms with a word starting with {@code filter}, ignoring case, in ascending
+     * vocabulary order. Must be called from one thread at a time.
+     *
+     * @param filter text typed by the user; leading and trailing blanks are ignored
+     * @param out destination, at least as long as the vocabulary
+     * @return number of symptom positions written to {@code out}
+     */
+    int filter(String filter, int[] out) {
+        String prefix = filter.trim().toLowerCase(Locale.ROOT);
+        if (prefix.isEmpty()) {
+            for (int i = 0; i < vocabularySize; i++) {
+                out[i] = i;
+            }
+            return vocabularySize;
+        }
+
+        int from = lowerBound(prefix);
+        int to = lowerBound(prefix + Character.MAX_VALUE);
+        if (++generation == 0) {
+            Arrays.fill(seen, 0);
+            generation = 1;
+        }
+        int count = 0;
+        if (to - from > vocabularySize >>> 4) {
+            // Wide runs: mark, then sweep the vocabulary once, which is cheaper than sorting
+            for (int k = from; k < to; k++) {
+                seen[symptomOfKey[k]] = generation;
+            }
+            for (int symptom = 0; symptom < vocabularySize; symptom++) {
+                if (seen[symptom] == generation) {
+                    out[count++] = symptom;
+                }
+            }
+            return count;
+        }
+        for (int k = from; k < to; k++) {
+            int symptom = symptomOfKey[k];
+            // A name can start several words with the same prefix; report it once
+            if (seen[symptom] != generation) {
+                seen[symptom] = generation;
+                out[count++] = symptom;
+            }
+        }
+        Arrays.sort(out, 0, count);
+        return count;
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int wordStarts(String symptom) {
+        int starts = 0;
+        for (int i = 0; i < symptom.length(); i++) {
+            if (isWordStart(symptom, i)) {
+                starts++;
+            }
+        }
+        return starts;
+    }
+
+    private static boolean isWordStart(String text, int i) {
+        return Character.isLetterOrDigit(text.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)));
+    }
+
+    private static final class Entry {
+        final String key;
+        final int symptom;
+
+        Entry(String key, int symptom) {
+            this.key = key;
+            this.symptom = symptom;
+        }
+    }
+}
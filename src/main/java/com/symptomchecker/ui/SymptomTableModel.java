@@ -0,0 +1,115 @@
+package com.symptomchecker.ui;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Table model for the symptom picker: a checkbox column and a name column over the rows that
+ * pass the current filter.
+ *
+ * <p>
+ * Selection is kept per vocabulary position, independent of the filter, so narrowing the list
+ * never drops a choice. The table only asks for the rows it paints, so the vocabulary size does
+ * not affect rendering cost.
+ * </p>
+ */
+final class SymptomTableModel extends AbstractTableModel {
+    static final int SELECTED_COLUMN = 0;
+    static final int NAME_COLUMN = 1;
+
+    private final List<String> vocabulary;
+    private final SymptomPrefixIndex prefixIndex;
+    private final BitSet selected;
+    private final int[] rows;
+    private int rowCount;
+    private final Runnable selectionListener;
+
+    /**
+     * @param vocabulary symptoms to offer, in display order
+     * @param prefixIndex index built over {@code vocabulary}, usually off the event thread
+     * @param selectionListener run on the event thread whenever a checkbox is toggled
+     */
+    SymptomTableModel(List<String> vocabulary, SymptomPrefixIndex prefixIndex, Runnable selectionListener) {
+        this.vocabulary = vocabulary;
+        this.prefixIndex = prefixIndex;
+        this.selected = new BitSet(vocabulary.size());
+        this.rows = new int[vocabulary.size()];
+        this.selectionListener = selectionListener;
+        this.rowCount = prefixIndex.filter("", rows);
+    }
+
+    /**
+     * Show only the symptoms with a word starting with {@code text}; an empty text shows all.
+     */
+    void setFilter(String text) {
+        rowCount = prefixIndex.filter(text, rows);
+        fireTableDataChanged();
+    }
+
+    int vocabularySize() {
+        return vocabulary.size();
+    }
+
+    /**
+     * @return selected symptoms in vocabulary order, whether or not they are currently shown
+     */
+    List<String> getSelectedSymptoms() {
+        List<String> symptoms = new ArrayList<>(selected.cardinality());
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+            symptoms.add(vocabulary.get(i));
+        }
+        return symptoms;
+    }
+
+    void clearSelection() {
+        selected.clear();
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return 2;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return column == SELECTED_COLUMN ? "" : "Symptom";
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == SELECTED_COLUMN ? Boolean.class : String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column == SELECTED_COLUMN;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int symptom = rows[row];
+        return column == SELECTED_COLUMN ? selected.get(symptom) : vocabulary.get(symptom);
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        if (column != SELECTED_COLUMN) {
+            return;
+        }
+        int symptom = rows[row];
+        boolean select = Boolean.TRUE.equals(value);
+        if (selected.get(symptom) != select) {
+            selected.set(symptom, select);
+            fireTableCellUpdated(row, column);
+            selectionListener.run();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.symptomchecker.audit;
+
+import com.symptomchecker.model.SymptomResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditLogTest {
+    private static final long SEGMENT_BYTES = 64L << 10;
+    private static final List<SymptomResult> RESULTS = List.of(new SymptomResult(7, "Flu", 1, 2, 50, "Rest"));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writerOutlivesFailingSegmentsSoBlockedChecksNeverHang() throws IOException {
+        AtomicInteger appends = new AtomicInteger();
+        AtomicInteger forces = new AtomicInteger();
+        AtomicInteger appended = new AtomicInteger();
+        AuditSegmentWriter segments = new AuditSegmentWriter(directory, SEGMENT_BYTES) {
+            @Override
+            void appendQuery(long epochMillis, int flags, int[] data, int symptomOffset, int symptomCount,
+                             int resultOffset, int resultCount, String[] symptomNames) throws IOException {
+                if (appends.incrementAndGet() % 3 == 0) {
+                    throw new InternalError("mapped page went away");
+                }
+                super.appendQuery(epochMillis, flags, data, symptomOffset, symptomCount, resultOffset, resultCount,
+                    symptomNames);
+                appended.incrementAndGet();
+            }
+
+            @Override
+            void force() {
+                if (forces.incrementAndGet() % 2 == 0) {
+                    throw new UncheckedIOException(new IOException("device gone"));
+                }
+                super.force();
+            }
+        };
+        // One slot and a writer forcing every iteration: every check waits on the writer
+        AuditLog log = new AuditLog(segments, 1, AuditLog.BackpressurePolicy.BLOCK, 8, 8, 1 << 16, 0);
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            for (int i = 0; i < 300; i++) {
+                assertTrue(log.record(List.of("fever", "cough"), RESULTS));
+            }
+            log.close();
+        });
+
+        assertEquals(300, log.getWrittenCount());
+        assertEquals(0, log.getDroppedCount());
+        assertTrue(log.getWriteFailureCount() >= 100);
+        List<AuditRecord> records = readAll();
+        assertEquals(appended.get(), records.size());
+        for (AuditRecord record : records) {
+            assertEquals(List.of("fever", "cough"), record.getSymptoms());
+            assertEquals(List.of(7), record.getConditionIds());
+        }
+    }
+
+    @Test
+    void skipsSegmentNamesThatAppearedAfterStartup() throws IOException {
+        AuditLog log = new AuditLog(directory, 16, AuditLog.BackpressurePolicy.BLOCK, SEGMENT_BYTES, 8, 8, 1 << 16,
+            1_000);
+        byte[] foreign = "not an audit segment".getBytes(StandardCharsets.UTF_8);
+        Path taken = directory.resolve("audit-0000000000000001.seg");
+        Files.write(taken, foreign);
+
+        assertTrue(log.record(List.of("fever"), RESULTS));
+        log.close();
+
+        assertEquals(0, log.getWriteFailureCount());
+        assertArrayEquals(foreign, Files.readAllBytes(taken));
+        List<AuditRecord> records = new ArrayList<>();
+        AuditLogReader.readSegment(directory.resolve("audit-0000000000000002.seg"), records::add);
+        assertEquals(1, records.size());
+        assertEquals(List.of("fever"), records.get(0).getSymptoms());
+    }
+
+    @Test
+    void unseenSymptomsBeyondTheDictionaryBudgetAreUnrecorded() throws IOException {
+        AuditLog log = new AuditLog(directory, 64, AuditLog.BackpressurePolicy.BLOCK, SEGMENT_BYTES, 8, 8, 1_024,
+            1_000);
+        assertTrue(log.record(List.of("fever"), RESULTS));
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(log.record(List.of("made up symptom " + i), RESULTS));
+        }
+        assertTrue(log.record(List.of("fever", "made up symptom 9999"), RESULTS));
+        log.close();
+
+        assertTrue(log.getDictionarySize() < 10, "dictionary grew to " + log.getDictionarySize());
+        List<AuditRecord> records = readAll();
+        assertEquals(10_002, records.size());
+        assertEquals(List.of("fever"), records.get(0).getSymptoms());
+        assertEquals(List.of("made up symptom 0"), records.get(1).getSymptoms());
+        assertEquals(Arrays.asList("fever", null), records.get(records.size() - 1).getSymptoms());
+    }
+
+    @Test
+    void interruptedChecksDropTheirRecordInsteadOfSpinning() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AuditSegmentWriter segments = new AuditSegmentWriter(directory, SEGMENT_BYTES) {
+            @Override
+            void appendQuery(long epochMillis, int flags, int[] data, int symptomOffset, int symptomCount,
+                             int resultOffset, int resultCount, String[] symptomNames) throws IOException {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                super.appendQuery(epochMillis, flags, data, symptomOffset, symptomCount, resultOffset, resultCount,
+                    symptomNames);
+            }
+        };
+        // One slot, held by the record the writer is stuck on
+        AuditLog log = new AuditLog(segments, 1, AuditLog.BackpressurePolicy.BLOCK, 8, 8, 1 << 16, 60_000);
+        assertTrue(log.record(List.of("fever"), RESULTS));
+        writing.await();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            Thread.currentThread().interrupt();
+            try {
+                assertFalse(log.record(List.of("cough"), RESULTS));
+                assertTrue(Thread.currentThread().isInterrupted());
+            } finally {
+                Thread.interrupted();
+            }
+        });
+        release.countDown();
+        log.close();
+
+        assertEquals(1, log.getDroppedCount());
+        assertEquals(1, log.getWrittenCount());
+        assertEquals(List.of("fever"), readAll().get(0).getSymptoms());
+    }
+
+    @Test
+    void everyRecordAcceptedAroundCloseIsWritten() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            Path roundDirectory = Files.createDirectory(directory.resolve("round-" + round));
+            AuditLog log = new AuditLog(roundDirectory, 4, AuditLog.BackpressurePolicy.BLOCK, SEGMENT_BYTES, 8, 8,
+                1 << 16, 60_000);
+            AtomicInteger attempts = new AtomicInteger();
+            List<Thread> producers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread producer = new Thread(() -> {
+                    do {
+                        attempts.incrementAndGet();
+                    } while (log.record(List.of("fever", "cough"), RESULTS));
+                });
+                producer.start();
+                producers.add(producer);
+            }
+            Thread.sleep(2);
+            assertTimeoutPreemptively(Duration.ofSeconds(10), log::close);
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            assertEquals(attempts.get(), log.getRecordedCount() + log.getDroppedCount());
+            assertEquals(log.getRecordedCount(), log.getWrittenCount(), "round " + round);
+            List<AuditRecord> records = new ArrayList<>();
+            new AuditLogReader(roundDirectory).read(records::add);
+            assertEquals(log.getWrittenCount(), records.size());
+            assertFalse(log.record(List.of("fever"), RESULTS));
+        }
+    }
+
+    private List<AuditRecord> readAll() throws IOException {
+        List<AuditRecord> records = new ArrayList<>();
+        new AuditLogReader(directory).read(records::add);
+        return records;
+    }
+}
@@ -0,0 +1,229 @@
+package com.symptomchecker.cluster;
+
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.model.SymptomResult;
+import com.symptomchecker.service.SymptomCheckerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs shard workers and a coordinator over loopback sockets.
+ */
+class ScatterGatherCoordinatorTest {
+    private final List<ShardWorker> workers = new ArrayList<>();
+    private final List<ServerSocket> fakeWorkers = new ArrayList<>();
+    private ScatterGatherCoordinator coordinator;
+
+    @AfterEach
+    void close() throws IOException {
+        if (coordinator != null) {
+            coordinator.close();
+        }
+        workers.forEach(ShardWorker::close);
+        for (ServerSocket fake : fakeWorkers) {
+            fake.close();
+        }
+    }
+
+    /**
+     * Start one worker per partition of {@code conditions} by {@code id mod shardCount}.
+     */
+    static List<ShardWorker> startWorkers(List<Condition> conditions, int shardCount) throws IOException {
+        List<ShardWorker> started = new ArrayList<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            List<Condition> partition = new ArrayList<>();
+            for (Condition condition : conditions) {
+                if (Math.floorMod(condition.getId(), shardCount) == shard) {
+                    partition.add(condition);
+                }
+            }
+            ShardWorker worker = new ShardWorker(new SymptomCheckerService(partition),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            worker.start();
+            started.add(worker);
+        }
+        return started;
+    }
+
+    static ScatterGatherCoordinator coordinatorFor(List<ShardWorker> workers, boolean requireAll) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (ShardWorker worker : workers) {
+            addresses.add(InetSocketAddress.createUnresolved(worker.getAddress().getHostString(), worker.getAddress().getPort()));
+        }
+        return new ScatterGatherCoordinator(addresses, 5_000, 2, requireAll);
+    }
+
+    private static InetSocketAddress addressOf(ServerSocket socket) {
+        return InetSocketAddress.createUnresolved(socket.getInetAddress().getHostAddress(), socket.getLocalPort());
+    }
+
+    /**
+     * Listen on loopback and answer every request with an error reply, counting connections
+     * and requests.
+     */
+    private ServerSocket failingWorker(AtomicInteger connections, AtomicInteger requests) throws IOException {
+        ServerSocket server = new ServerSocket(0, 16, InetAddress.getLoopbackAddress());
+        fakeWorkers.add(server);
+        Thread acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    connections.incrementAndGet();
+                    Thread serving = new Thread(() -> {
+                        try (socket;
+                             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+                            while (in.readInt() == ShardProtocol.MAGIC) {
+                                ShardProtocol.readRequest(in);
+                                requests.incrementAndGet();
+                                ShardProtocol.writeError(out, "catalog not loaded");
+                            }
+                        } catch (IOException ignored) {
+                            // coordinator went away
+                        }
+                    });
+                    serving.setDaemon(true);
+                    serving.start();
+                } catch (IOException ignored) {
+                    // closed
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return server;
+    }
+
+    private static String describe(List<SymptomResult> results) {
+        StringBuilder out = new StringBuilder();
+        for (SymptomResult result : results) {
+            out.append(result.getConditionId()).append(' ').append(result.getConditionName()).append(' ')
+                .append(result.getMatchedCount()).append(' ').append(result.getPercentMatch()).append("; ");
+        }
+        return out.toString();
+    }
+
+    @Test
+    void mergedResultsEqualTheSingleProcessCheck() throws IOException {
+        // Few names and symptoms, so many results tie on everything but the condition id
+        Random random = new Random(21);
+        List<Condition> conditions = new ArrayList<>();
+        for (int id = 1; id <= 600; id++) {
+            List<String> symptoms = new ArrayList<>();
+            for (int s = 0; s < 1 + random.nextInt(4); s++) {
+                symptoms.add("S" + random.nextInt(12));
+            }
+            conditions.add(new Condition(id, "C" + random.nextInt(5), symptoms, null));
+        }
+        SymptomCheckerService whole = new SymptomCheckerService(conditions);
+        workers.addAll(startWorkers(conditions, 3));
+        coordinator = coordinatorFor(workers, true);
+
+        for (int q = 0; q < 300; q++) {
+            List<String> selected = new ArrayList<>();
+            for (int s = 0; s < 1 + random.nextInt(5); s++) {
+                selected.add("S" + random.nextInt(14));
+            }
+            int topK = random.nextInt(12);
+            int minMatches = 1 + random.nextInt(3);
+            ClusterResult result = coordinator.check(selected, topK, minMatches);
+            assertFalse(result.isPartial());
+            assertEquals(describe(whole.checkSymptoms(selected, topK, minMatches)), describe(result.getResults()),
+                selected + " topK=" + topK + " minMatches=" + minMatches);
+        }
+        assertEquals(300, coordinator.getLatency().getCount());
+    }
+
+    @Test
+    void missingWorkersGivePartialResultsUnlessAllAreRequired() throws IOException {
+        workers.addAll(startWorkers(SymptomCheckerService.defaultConditions(), 2));
+        coordinator = coordinatorFor(workers, false);
+        workers.get(1).close();
+
+        ClusterResult result = coordinator.check(List.of("Headache", "Nausea"), 3, 1);
+        assertTrue(result.isPartial());
+        assertEquals(1, result.getShardsAnswered());
+        for (SymptomResult entry : result.getResults()) {
+            assertEquals(0, entry.getConditionId() % 2);
+        }
+        assertEquals(1, coordinator.getPartialResults());
+        assertEquals(1, coordinator.getShardFailures());
+
+        try (ScatterGatherCoordinator strict = coordinatorFor(workers, true)) {
+            assertThrows(IllegalStateException.class, () -> strict.check(List.of("Headache"), 3, 1));
+        }
+    }
+
+    @Test
+    void workerErrorsAreReportedWithoutRetryingOrDroppingTheConnection() throws IOException {
+        AtomicInteger connections = new AtomicInteger();
+        AtomicInteger requests = new AtomicInteger();
+        ServerSocket failing = failingWorker(connections, requests);
+        workers.addAll(startWorkers(SymptomCheckerService.defaultConditions(), 1));
+        List<InetSocketAddress> addresses = List.of(addressOf(failing),
+            InetSocketAddress.createUnresolved(workers.get(0).getAddress().getHostString(), workers.get(0).getAddress().getPort()));
+        coordinator = new ScatterGatherCoordinator(addresses, 5_000, 2, false);
+
+        for (int i = 1; i <= 3; i++) {
+            ClusterResult result = coordinator.check(List.of("Headache", "Nausea"), 3, 1);
+            assertTrue(result.isPartial());
+            assertEquals(List.of(failing.getInetAddress().getHostAddress() + ":" + failing.getLocalPort()
+                + ": Shard failed: catalog not loaded"), result.getFailedShards());
+            // Each query reached the worker once, over the one pooled connection
+            assertEquals(i, requests.get());
+            assertEquals(1, connections.get());
+        }
+        assertEquals(3, coordinator.getShardFailures());
+        assertEquals(0, coordinator.getShardTimeouts());
+    }
+
+    @Test
+    void stalledWorkersTimeOutWithoutHoldingUpTheOthers() throws IOException {
+        // Connections complete through the listen backlog, but no request is ever read
+        ServerSocket stalled = new ServerSocket(0, 16, InetAddress.getLoopbackAddress());
+        fakeWorkers.add(stalled);
+        workers.addAll(startWorkers(SymptomCheckerService.defaultConditions(), 1));
+        List<InetSocketAddress> addresses = List.of(
+            InetSocketAddress.createUnresolved(workers.get(0).getAddress().getHostString(), workers.get(0).getAddress().getPort()),
+            addressOf(stalled));
+        coordinator = new ScatterGatherCoordinator(addresses, 200, 2, false);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 1; i <= 3; i++) {
+                long start = System.nanoTime();
+                ClusterResult result = coordinator.check(List.of("Headache", "Nausea"), 3, 1);
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                assertTrue(result.isPartial());
+                assertEquals(1, result.getShardsAnswered());
+                assertFalse(result.getResults().isEmpty());
+                assertEquals(List.of(stalled.getInetAddress().getHostAddress() + ":" + stalled.getLocalPort()
+                    + ": timed out"), result.getFailedShards());
+                assertTrue(elapsedMillis < 1_000, elapsedMillis + " ms");
+                assertEquals(i, coordinator.getShardTimeouts());
+            }
+        });
+        assertEquals(0, coordinator.getShardFailures());
+        assertEquals(3, coordinator.getPartialResults());
+    }
+}
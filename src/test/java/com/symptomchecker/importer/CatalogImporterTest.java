@@ -0,0 +1,224 @@
+package com.symptomchecker.importer;
+
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.repository.ConditionRepository;
+import com.symptomchecker.repository.ConditionRepository.LoadMode;
+import com.symptomchecker.repository.ConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Imports into an in-memory H2 database in MySQL mode.
+ */
+class CatalogImporterTest {
+    private final String url = "jdbc:h2:mem:import" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private final AtomicInteger commits = new AtomicInteger();
+    private volatile int failingCommit = -1;
+    private volatile boolean failingStatementClose;
+    private ConnectionPool pool;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void createPool() {
+        pool = new ConnectionPool(this::connect, 0, 8, 60_000, 5_000, 2);
+    }
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    /**
+     * A connection whose {@code failingCommit}-th commit across the pool fails, and whose
+     * prepared statements fail to close while {@code failingStatementClose} is set.
+     */
+    private Connection connect() throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("commit") && commits.incrementAndGet() == failingCommit) {
+                    throw new SQLException("Simulated commit failure");
+                }
+                Object result = invoke(connection, method, args);
+                if (!(result instanceof PreparedStatement)) {
+                    return result;
+                }
+                PreparedStatement statement = (PreparedStatement) result;
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {PreparedStatement.class},
+                    (statementProxy, statementMethod, statementArgs) -> {
+                        Object statementResult = invoke(statement, statementMethod, statementArgs);
+                        if (statementMethod.getName().equals("close") && failingStatementClose) {
+                            throw new SQLException("Simulated close failure");
+                        }
+                        return statementResult;
+                    });
+            });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Path csv(int conditions) throws IOException {
+        StringBuilder csv = new StringBuilder("id,name,advice,symptoms\n");
+        for (int id = 1; id <= conditions; id++) {
+            csv.append(id).append(",Condition ").append(id).append(",Rest ").append(id)
+                .append(",Fever;Cough ").append(id % 10).append('\n');
+        }
+        Path file = directory.resolve("catalog.csv");
+        Files.writeString(file, csv);
+        return file;
+    }
+
+    private List<Condition> load() {
+        return new ConditionRepository(pool).loadConditions(LoadMode.JOINED);
+    }
+
+    @Test
+    void upsertReplacesExistingConditionsAndTheirSymptoms() throws Exception {
+        CatalogImporter importer = new CatalogImporter(pool, 2, 4, 3);
+        importer.createSchema();
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO conditions (id, name, advice) VALUES (5, 'Old', NULL)");
+            statement.execute("INSERT INTO condition_symptoms VALUES (5, 'Stale')");
+        }
+
+        ImportResult result = importer.importFile(csv(20), CatalogImporter.Format.CSV, directory.resolve("cp"), false);
+        assertEquals(20, result.getConditionsWritten());
+        List<Condition> catalog = load();
+        assertEquals(20, catalog.size());
+        Condition replaced = catalog.get(4);
+        assertEquals("Condition 5", replaced.getName());
+        assertEquals("Rest 5", replaced.getAdvice());
+        assertEquals(List.of("Cough 5", "Fever"), replaced.getSymptoms().stream().sorted().toList());
+
+        // Importing again changes nothing
+        importer.importFile(csv(20), CatalogImporter.Format.CSV, directory.resolve("cp"), false);
+        assertEquals(describe(catalog), describe(load()));
+    }
+
+    @Test
+    void failedImportResumesFromTheCheckpoint() throws Exception {
+        CatalogImporter importer = new CatalogImporter(pool, 3, 7, 5);
+        importer.createSchema();
+        Path file = csv(500);
+        Path checkpoint = directory.resolve("catalog.checkpoint");
+
+        failingCommit = 30;
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+            () -> importer.importFile(file, CatalogImporter.Format.CSV, checkpoint, false));
+        assertTrue(failure.getMessage().contains("resume"), failure.getMessage());
+        Properties saved = new Properties();
+        try (InputStream in = Files.newInputStream(checkpoint)) {
+            saved.load(in);
+        }
+        long committed = Long.parseLong(saved.getProperty("records"));
+        assertTrue(committed > 0 && committed < 500, "checkpoint at " + committed);
+        // Everything before the checkpoint really is in the database
+        Set<Integer> written = load().stream().map(Condition::getId).collect(Collectors.toSet());
+        for (int id = 1; id <= committed; id++) {
+            assertTrue(written.contains(id), "missing " + id);
+        }
+
+        failingCommit = -1;
+        ImportResult resumed = importer.importFile(file, CatalogImporter.Format.CSV, checkpoint, true);
+        assertEquals(committed, resumed.getRecordsSkipped());
+        assertEquals(500 - committed, resumed.getConditionsWritten());
+        assertFalse(Files.exists(checkpoint));
+        List<Condition> catalog = load();
+        assertEquals(500, catalog.size());
+        for (Condition condition : catalog) {
+            assertEquals("Condition " + condition.getId(), condition.getName());
+            assertEquals(2, condition.getSymptoms().size());
+        }
+    }
+
+    @Test
+    void writersThatFailToCloseFailTheImportInsteadOfHangingIt() throws Exception {
+        // One row per statement: every statement is kept open until the writer is closed
+        CatalogImporter importer = new CatalogImporter(pool, 3, 7, 1);
+        importer.createSchema();
+        Path file = csv(100);
+        Path checkpoint = directory.resolve("catalog.checkpoint");
+
+        failingStatementClose = true;
+        IllegalStateException failure = assertTimeoutPreemptively(Duration.ofSeconds(10),
+            () -> assertThrows(IllegalStateException.class,
+                () -> importer.importFile(file, CatalogImporter.Format.CSV, checkpoint, false)));
+        failingStatementClose = false;
+        assertEquals("Simulated close failure", failure.getCause().getMessage());
+
+        importer.importFile(file, CatalogImporter.Format.CSV, checkpoint, true);
+        assertEquals(100, load().size());
+        assertFalse(Files.exists(checkpoint));
+    }
+
+    @Test
+    void lastRecordOfAnIdWinsAcrossWriters() throws Exception {
+        // Every id appears in many batches; with shared writers the survivor depended on timing
+        StringBuilder json = new StringBuilder();
+        for (int version = 1; version <= 40; version++) {
+            for (int id = 1; id <= 9; id++) {
+                json.append("{\"id\": ").append(id).append(", \"name\": \"v").append(version)
+                    .append("\", \"symptoms\": [\"S").append(version).append("\"]}\n");
+            }
+        }
+        Path file = directory.resolve("catalog.jsonl");
+        Files.writeString(file, json);
+
+        CatalogImporter importer = new CatalogImporter(pool, 4, 2, 3);
+        importer.createSchema();
+        for (int run = 0; run < 5; run++) {
+            importer.importFile(file, CatalogImporter.Format.JSON, directory.resolve("cp"), false);
+            List<Condition> catalog = load();
+            assertEquals(9, catalog.size());
+            for (Condition condition : catalog) {
+                assertEquals("v40", condition.getName());
+                assertEquals(List.of("S40"), condition.getSymptoms());
+            }
+        }
+    }
+
+    private static String describe(List<Condition> conditions) {
+        StringBuilder out = new StringBuilder();
+        for (Condition condition : conditions) {
+            out.append(condition.getId()).append(' ').append(condition.getName()).append(' ')
+                .append(condition.getSymptoms().stream().sorted().toList()).append(' ')
+                .append(condition.getAdvice()).append("; ");
+        }
+        return out.toString();
+    }
+}
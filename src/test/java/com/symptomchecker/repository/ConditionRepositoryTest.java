@@ -0,0 +1,150 @@
+package com.symptomchecker.repository;
+
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.repository.ConditionRepository.LoadMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the repository against an in-memory H2 database in MySQL mode.
+ */
+class ConditionRepositoryTest {
+    private final String url = "jdbc:h2:mem:repo" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private final List<ConnectionPool> pools = new ArrayList<>();
+
+    @AfterEach
+    void closePools() {
+        pools.forEach(ConnectionPool::close);
+    }
+
+    private ConnectionPool pool(int maxSize) throws SQLException {
+        ConnectionPool pool = new ConnectionPool(() -> DriverManager.getConnection(url), 0, maxSize, 60_000, 1_000, 2);
+        pools.add(pool);
+        return pool;
+    }
+
+    private void insertCatalog() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url)) {
+            CatalogWriter.createSchema(connection);
+            try (CatalogWriter writer = new CatalogWriter(connection, 2)) {
+                writer.write(List.of(
+                    new Condition(1, "Flu", List.of("Fever", "Cough"), "Rest"),
+                    new Condition(2, "Cold", List.of("Cough"), null),
+                    new Condition(3, "Migraine", List.of("Headache", "Nausea", "Dizziness"), "Dark room"),
+                    new Condition(4, "Unknown", List.of(), null)));
+            }
+        }
+    }
+
+    @Test
+    void loadModeParsingIgnoresCaseAndRejectsTyposAsLoadFailures() {
+        assertEquals(LoadMode.STREAMING, LoadMode.parse(" streaming "));
+        assertEquals(LoadMode.JOINED, LoadMode.parse("Joined"));
+        assertThrows(IllegalStateException.class, () -> LoadMode.parse("stream"));
+        assertThrows(IllegalStateException.class, () -> LoadMode.parse(null));
+    }
+
+    @Test
+    void streamingLoadMatchesJoinedLoadWithOneOrTwoConnections() throws SQLException {
+        insertCatalog();
+        String joined = describe(new ConditionRepository(pool(2)).loadConditions(LoadMode.JOINED));
+        assertEquals("1 Flu [Fever, Cough] Rest; 2 Cold [Cough] null; 3 Migraine [Headache, Nausea, Dizziness] Dark room; "
+            + "4 Unknown [] null; ", joined);
+
+        assertEquals(joined, describe(new ConditionRepository(pool(2)).loadConditions(LoadMode.STREAMING)));
+        ConnectionPool single = pool(1);
+        assertEquals(joined, describe(new ConditionRepository(single).loadConditions(LoadMode.STREAMING)));
+        assertEquals(0, single.getAcquireTimeouts());
+    }
+
+    @Test
+    void packedLoadHoldsTheSameCatalogInEitherMode() throws SQLException {
+        insertCatalog();
+        String loaded = describe(new ConditionRepository(pool(2)).loadConditions(LoadMode.JOINED));
+        for (LoadMode mode : LoadMode.values()) {
+            PackedConditionStore packed = new ConditionRepository(pool(2)).loadPacked(mode);
+            assertEquals(loaded, describe(packed), mode.name());
+        }
+    }
+
+    @Test
+    void partitionLoadWorksWithASingleConnection() throws SQLException {
+        insertCatalog();
+        ConnectionPool single = pool(1);
+        ConditionRepository repository = new ConditionRepository(single);
+        assertEquals("1 Flu [Fever, Cough] Rest; 3 Migraine [Headache, Nausea, Dizziness] Dark room; ",
+            describe(repository.loadPartition(1, 2)));
+        assertEquals("2 Cold [Cough] null; 4 Unknown [] null; ", describe(repository.loadPartition(0, 2)));
+        assertEquals(0, single.getAcquireTimeouts());
+    }
+
+    @Test
+    void vocabularyLoadReadsEachSymptomOnceByFirstCondition() throws SQLException {
+        insertCatalog();
+        assertEquals(List.of("Cough", "Fever", "Dizziness", "Headache", "Nausea"),
+            new ConditionRepository(pool(1)).loadVocabulary());
+    }
+
+    @Test
+    void loadChangesRereadsTheOverlapToCatchLateCommits() throws SQLException {
+        insertCatalog();
+        execute("UPDATE conditions SET updated_at = TIMESTAMP '2026-01-01 00:00:10'");
+        ConditionRepository repository = new ConditionRepository(pool(1));
+        Timestamp watermark = repository.loadWatermark();
+        assertEquals(Timestamp.valueOf("2026-01-01 00:00:10"), watermark);
+
+        // Stamped before the watermark but committed after it was read
+        execute("UPDATE conditions SET name = 'Head Cold', updated_at = TIMESTAMP '2026-01-01 00:00:05' WHERE id = 2");
+
+        CatalogDelta exact = repository.loadChanges(watermark, 0);
+        assertEquals("1 Flu [Fever, Cough] Rest; 3 Migraine [Headache, Nausea, Dizziness] Dark room; 4 Unknown [] null; ",
+            describe(exact.getChanged()));
+        CatalogDelta overlapped = repository.loadChanges(watermark, 10_000);
+        assertTrue(describe(overlapped.getChanged()).contains("2 Head Cold [Cough] null; "));
+        assertEquals(watermark, overlapped.getWatermark());
+        assertEquals(4, overlapped.getLiveIds().length);
+    }
+
+    @Test
+    void loadChangesLeavesTheConnectionIsolationAsItFoundIt() throws SQLException {
+        insertCatalog();
+        ConnectionPool single = pool(1);
+        int isolation;
+        try (Connection connection = single.getConnection()) {
+            isolation = connection.getTransactionIsolation();
+        }
+        new ConditionRepository(single).loadChanges(null);
+        try (Connection connection = single.getConnection()) {
+            assertEquals(isolation, connection.getTransactionIsolation());
+            assertTrue(connection.getAutoCommit());
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+        }
+    }
+
+    static String describe(List<Condition> conditions) {
+        StringBuilder out = new StringBuilder();
+        for (Condition condition : conditions) {
+            out.append(condition.getId()).append(' ').append(condition.getName()).append(' ')
+                .append(condition.getSymptoms()).append(' ').append(condition.getAdvice()).append("; ");
+        }
+        return out.toString();
+    }
+}
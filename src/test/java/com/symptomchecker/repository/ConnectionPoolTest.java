@@ -0,0 +1,111 @@
+package com.symptomchecker.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the pool against an in-memory H2 database standing in for MySQL.
+ */
+class ConnectionPoolTest {
+    private final String url = "jdbc:h2:mem:pool" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+    private ConnectionPool pool;
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void returnedConnectionIsReusedWithItsSessionSettingsRestored() throws SQLException {
+        pool = new ConnectionPool(() -> DriverManager.getConnection(url), 0, 1, 60_000, 1_000, 2);
+        int defaultIsolation;
+        try (Connection connection = pool.getConnection()) {
+            defaultIsolation = connection.getTransactionIsolation();
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            connection.setReadOnly(true);
+        }
+
+        try (Connection connection = pool.getConnection()) {
+            assertTrue(connection.getAutoCommit());
+            assertEquals(defaultIsolation, connection.getTransactionIsolation());
+            assertFalse(connection.isReadOnly());
+        }
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(2, pool.getAcquireCount());
+    }
+
+    @Test
+    void uncommittedWorkIsRolledBackOnReturn() throws SQLException {
+        pool = new ConnectionPool(() -> DriverManager.getConnection(url), 0, 1, 60_000, 1_000, 2);
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE t (id INT)");
+        }
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.execute("INSERT INTO t VALUES (1)");
+        }
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT COUNT(*) FROM t")) {
+            rows.next();
+            assertEquals(0, rows.getInt(1));
+        }
+    }
+
+    @Test
+    void borrowingBeyondTheMaximumTimesOut() throws SQLException {
+        pool = new ConnectionPool(() -> DriverManager.getConnection(url), 0, 1, 60_000, 50, 2);
+        try (Connection ignored = pool.getConnection()) {
+            assertThrows(SQLTransientConnectionException.class, pool::getConnection);
+        }
+        assertEquals(1, pool.getAcquireTimeouts());
+        try (Connection connection = pool.getConnection()) {
+            assertTrue(connection.isValid(1));
+        }
+    }
+
+    @Test
+    void closedPhysicalConnectionIsReplaced() throws SQLException {
+        pool = new ConnectionPool(() -> DriverManager.getConnection(url), 0, 1, 60_000, 1_000, 2);
+        try (Connection connection = pool.getConnection()) {
+            connection.unwrap(Connection.class).close();
+        }
+        try (Connection connection = pool.getConnection()) {
+            assertTrue(connection.isValid(1));
+        }
+        assertEquals(2, pool.getCreatedCount());
+    }
+
+    @Test
+    void housekeeperSurvivesAFailingFactory() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        pool = new ConnectionPool(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("driver bug");
+            }
+            return DriverManager.getConnection(url);
+        }, 1, 2, 0, 1_000, 2);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (pool.getOpenConnections() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, pool.getOpenConnections());
+        assertTrue(attempts.get() >= 2);
+    }
+}
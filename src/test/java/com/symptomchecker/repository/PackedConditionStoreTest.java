@@ -0,0 +1,34 @@
+package com.symptomchecker.repository;
+
+import com.symptomchecker.model.Condition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PackedConditionStoreTest {
+
+    @Test
+    void builderGrowsPastItsFirstBufferAndKeepsOrderAndNulls() {
+        List<Condition> conditions = new ArrayList<>();
+        for (int id = 1; id <= 20_000; id++) {
+            List<String> symptoms = new ArrayList<>();
+            for (int s = 0; s < id % 7; s++) {
+                symptoms.add("Symptom " + (id * 31 + s) % 500);
+            }
+            String name = id % 1000 == 0 ? null : "Condition " + id;
+            String advice = id % 3 == 0 ? null : "Advice " + id % 11;
+            conditions.add(new Condition(id, name, symptoms, advice));
+        }
+
+        PackedConditionStore.Builder builder = new PackedConditionStore.Builder();
+        conditions.forEach(builder::add);
+        PackedConditionStore packed = builder.build();
+
+        assertEquals(conditions.size(), packed.size());
+        assertEquals(ConditionRepositoryTest.describe(conditions), ConditionRepositoryTest.describe(packed));
+        assertEquals(500, packed.dictionarySize());
+    }
+}
@@ -0,0 +1,124 @@
+package com.symptomchecker.server;
+
+import com.symptomchecker.cluster.ScatterGatherCoordinator;
+import com.symptomchecker.cluster.ShardWorker;
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.service.SymptomCheckerService;
+import com.symptomchecker.util.Json;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the server over loopback HTTP, locally and in front of shard workers.
+ */
+class SymptomCheckerServerTest {
+    private static final String CHECK = "{\"symptoms\": [\"Headache\", \"Nausea\", \"Fever\"], \"topK\": 4, \"minMatches\": 2}";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final List<ShardWorker> workers = new ArrayList<>();
+    private final List<SymptomCheckerServer> servers = new ArrayList<>();
+    private ScatterGatherCoordinator coordinator;
+
+    @AfterEach
+    void close() {
+        servers.forEach(SymptomCheckerServer::close);
+        if (coordinator != null) {
+            coordinator.close();
+        }
+        workers.forEach(ShardWorker::close);
+    }
+
+    private SymptomCheckerServer start(ScatterGatherCoordinator shards) throws IOException {
+        SymptomCheckerService local = new SymptomCheckerService(SymptomCheckerService.defaultConditions());
+        // Like main, a coordinator holds only the vocabulary
+        SymptomCheckerService service = shards == null
+            ? local : SymptomCheckerService.vocabularyOnly(local.getAllSymptoms());
+        SymptomCheckerServer server = new SymptomCheckerServer(service, shards,
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16);
+        server.start();
+        servers.add(server);
+        return server;
+    }
+
+    private HttpResponse<String> send(SymptomCheckerServer server, String method, String path, String body)
+        throws IOException, InterruptedException {
+        URI uri = URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + path);
+        HttpRequest request = HttpRequest.newBuilder(uri)
+            .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void startShards(int shardCount) throws IOException {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            List<Condition> partition = new ArrayList<>();
+            for (Condition condition : SymptomCheckerService.defaultConditions()) {
+                if (condition.getId() % shardCount == shard) {
+                    partition.add(condition);
+                }
+            }
+            ShardWorker worker = new ShardWorker(new SymptomCheckerService(partition),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            worker.start();
+            workers.add(worker);
+            addresses.add(InetSocketAddress.createUnresolved(worker.getAddress().getHostString(), worker.getAddress().getPort()));
+        }
+        coordinator = new ScatterGatherCoordinator(addresses, 5_000, 2, false);
+    }
+
+    @Test
+    void coordinatorModeAnswersLikeTheLocalServer() throws Exception {
+        SymptomCheckerServer local = start(null);
+        startShards(3);
+        SymptomCheckerServer clustered = start(coordinator);
+
+        HttpResponse<String> expected = send(local, "POST", "/api/check", CHECK);
+        HttpResponse<String> actual = send(clustered, "POST", "/api/check", CHECK);
+        assertEquals(200, actual.statusCode());
+        assertEquals(expected.body(), actual.body());
+        assertEquals(send(local, "GET", "/api/symptoms", null).body(),
+            send(clustered, "GET", "/api/symptoms", null).body());
+        String freeText = "{\"symptoms\": [\"headach\", \"nausia\", \"high temperature\"], \"resolve\": true, \"minMatches\": 1}";
+        assertEquals(send(local, "POST", "/api/check", freeText).body(),
+            send(clustered, "POST", "/api/check", freeText).body());
+
+        String batch = "{\"profiles\": [[\"Cough\", \"Sneezing\"], [\"Dizziness\"], []], \"topK\": 2, \"minMatches\": 2}";
+        assertEquals(send(local, "POST", "/api/check/batch", batch).body(),
+            send(clustered, "POST", "/api/check/batch", batch).body());
+
+        String metrics = send(clustered, "GET", "/metrics", null).body();
+        assertTrue(metrics.contains("symptom_cluster_shards 3"), metrics);
+        assertTrue(metrics.contains("symptom_cluster_query_latency_seconds_count 4"), metrics);
+    }
+
+    @Test
+    void missingWorkersAreReportedOrFailTheCheck() throws Exception {
+        startShards(2);
+        SymptomCheckerServer clustered = start(coordinator);
+
+        workers.get(0).close();
+        HttpResponse<String> partial = send(clustered, "POST", "/api/check", CHECK);
+        assertEquals(200, partial.statusCode());
+        Map<?, ?> body = (Map<?, ?>) Json.parse(partial.body());
+        assertEquals(Boolean.TRUE, body.get("partial"));
+        assertEquals(1, ((List<?>) body.get("failedShards")).size());
+
+        workers.get(1).close();
+        assertEquals(503, send(clustered, "POST", "/api/check", CHECK).statusCode());
+    }
+}
@@ -0,0 +1,148 @@
+package com.symptomchecker.service;
+
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.repository.CatalogWriter;
+import com.symptomchecker.repository.ConditionRepository;
+import com.symptomchecker.repository.ConnectionPool;
+import com.symptomchecker.repository.PackedConditionStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Refreshes a service from an in-memory H2 database in MySQL mode.
+ */
+class CatalogRefresherTest {
+    private final String url = "jdbc:h2:mem:refresh" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private ConnectionPool pool;
+    private ConditionRepository repository;
+    private SymptomCheckerService service;
+    private CatalogRefresher refresher;
+
+    @BeforeEach
+    void createCatalog() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url)) {
+            CatalogWriter.createSchema(connection);
+            try (CatalogWriter writer = new CatalogWriter(connection, 10)) {
+                writer.write(List.of(
+                    new Condition(1, "Flu", List.of("Fever", "Cough", "Chills"), "Rest"),
+                    new Condition(2, "Cold", List.of("Cough", "Sneezing", "Runny Nose"), "Fluids")));
+            }
+        }
+        execute("UPDATE conditions SET updated_at = TIMESTAMP '2026-01-01 00:00:10'");
+        pool = new ConnectionPool(() -> DriverManager.getConnection(url), 0, 2, 60_000, 1_000, 2);
+        repository = new ConditionRepository(pool);
+        service = new SymptomCheckerService(SymptomCheckerService.defaultConditions());
+        refresher = new CatalogRefresher(repository, service);
+    }
+
+    @AfterEach
+    void close() {
+        refresher.close();
+        pool.close();
+    }
+
+    @Test
+    void seededRefresherOnlyPublishesRealChanges() throws SQLException {
+        refresher.seed(repository.loadConditions(), repository.loadWatermark());
+
+        // The overlap re-reads both conditions, but neither changed
+        assertFalse(refresher.refreshNow());
+        assertEquals(0, refresher.getLastDeltaSize());
+
+        // Committed late, stamped before the watermark
+        execute("UPDATE conditions SET advice = 'Sleep', updated_at = TIMESTAMP '2026-01-01 00:00:05' WHERE id = 1");
+        assertTrue(refresher.refreshNow());
+        assertEquals(1, refresher.getLastDeltaSize());
+        assertEquals("Sleep", service.checkSymptoms(List.of("Fever", "Cough", "Chills"), 1, 3).get(0).getAdvice());
+
+        execute("DELETE FROM condition_symptoms WHERE condition_id = 2");
+        execute("DELETE FROM conditions WHERE id = 2");
+        assertTrue(refresher.refreshNow());
+        assertEquals(1, refresher.getLastDeltaSize());
+        assertEquals(2, refresher.getPublishCount());
+    }
+
+    @Test
+    void unseededRefresherLoadsEverythingOnce() {
+        assertTrue(refresher.refreshNow());
+        assertEquals(2, refresher.getLastDeltaSize());
+        assertEquals("Cold", service.checkSymptoms(List.of("Cough", "Sneezing", "Runny Nose"), 1, 3).get(0).getConditionName());
+
+        assertFalse(refresher.refreshNow());
+        assertEquals(0, refresher.getLastDeltaSize());
+    }
+
+    @Test
+    void missingWatermarkColumnKeepsTheLoadAndStopsRefreshing() throws SQLException {
+        execute("ALTER TABLE conditions DROP COLUMN updated_at");
+
+        assertFalse(refresher.seedAfterLoad(repository.loadConditions(), 0));
+        // A full load without a watermark still publishes
+        assertTrue(refresher.refreshNow());
+        assertEquals("Cold", service.checkSymptoms(List.of("Cough", "Sneezing", "Runny Nose"), 1, 3).get(0).getConditionName());
+    }
+
+    @Test
+    void seedingAfterALoadStepsTheWatermarkBackByTheLoadTime() throws SQLException {
+        assertTrue(refresher.seedAfterLoad(repository.loadConditions(), 3_600_000));
+
+        // Stamped well before the watermark minus the overlap, but during the hour-long load
+        execute("UPDATE conditions SET advice = 'Sleep', updated_at = TIMESTAMP '2025-12-31 23:30:00' WHERE id = 1");
+        assertTrue(refresher.refreshNow());
+        assertEquals("Sleep", service.checkSymptoms(List.of("Fever", "Cough", "Chills"), 1, 3).get(0).getAdvice());
+    }
+
+    @Test
+    void packedCatalogIsRefreshedIntoANewPackedStore() throws SQLException {
+        PackedConditionStore loaded = repository.loadPacked();
+        service.replaceCatalog(loaded);
+        refresher.seed(loaded, repository.loadWatermark());
+
+        // Nothing changed, so nothing is packed or published
+        assertFalse(refresher.refreshNow());
+        assertSame(loaded, service.getConditions());
+
+        execute("UPDATE conditions SET advice = 'Sleep', updated_at = TIMESTAMP '2026-01-01 00:00:20' WHERE id = 1");
+        execute("DELETE FROM condition_symptoms WHERE condition_id = 2");
+        execute("DELETE FROM conditions WHERE id = 2");
+        try (Connection connection = DriverManager.getConnection(url);
+             CatalogWriter writer = new CatalogWriter(connection, 10)) {
+            writer.write(List.of(new Condition(3, "Migraine", List.of("Headache", "Nausea"), "Dark room")));
+        }
+        assertTrue(refresher.refreshNow());
+        assertEquals(3, refresher.getLastDeltaSize());
+        List<Condition> refreshed = service.getConditions();
+        assertInstanceOf(PackedConditionStore.class, refreshed);
+        assertEquals("1 Flu [Fever, Cough, Chills] Sleep; 3 Migraine [Headache, Nausea] Dark room; ",
+            describe(refreshed));
+    }
+
+    private static String describe(List<Condition> conditions) {
+        StringBuilder out = new StringBuilder();
+        for (Condition condition : conditions) {
+            out.append(condition.getId()).append(' ').append(condition.getName()).append(' ')
+                .append(condition.getSymptoms()).append(' ').append(condition.getAdvice()).append("; ");
+        }
+        return out.toString();
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.symptomchecker.service;
+
+import com.symptomchecker.model.Condition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static com.symptomchecker.service.SymptomCheckerServiceTest.catalog;
+import static com.symptomchecker.service.SymptomCheckerServiceTest.describe;
+import static com.symptomchecker.service.SymptomCheckerServiceTest.original;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoreResultTableTest {
+    /** Catalog symptoms are S0 to S39; S43 is a core symptom no condition lists. */
+    private static final List<String> CORE = List.of("S0", "S1", "S2", "S3", "S4", "S5", "S6", "S7", "S8", "S9",
+        "S10", "S43");
+
+    /**
+     * Mostly core symptoms, with repeats, symptoms the catalog does not list and now and then
+     * a known symptom outside the core.
+     */
+    private static List<String> query(Random random) {
+        List<String> selected = new ArrayList<>();
+        int count = 1 + random.nextInt(8);
+        for (int s = 0; s < count; s++) {
+            int pick = random.nextInt(20);
+            if (pick < 14) {
+                selected.add(CORE.get(random.nextInt(CORE.size())));
+            } else if (pick < 17 && !selected.isEmpty()) {
+                selected.add(selected.get(random.nextInt(selected.size())));
+            } else if (pick < 19) {
+                selected.add("S" + (40 + random.nextInt(6)));
+            } else {
+                selected.add("S" + (11 + random.nextInt(29)));
+            }
+        }
+        return selected;
+    }
+
+    private static Set<String> symptomsOf(List<Condition> conditions) {
+        Set<String> symptoms = new HashSet<>();
+        for (Condition condition : conditions) {
+            symptoms.addAll(condition.getSymptoms());
+        }
+        return symptoms;
+    }
+
+    /**
+     * @return queries answered from the table: those whose every listed symptom is core
+     */
+    private static int checkAgainstTheOriginalLoop(SymptomCheckerService service, List<Condition> conditions,
+                                                   Random random, int topK, int minMatches) {
+        Set<String> listed = symptomsOf(conditions);
+        int tableQueries = 0;
+        for (int q = 0; q < 400; q++) {
+            List<String> selected = query(random);
+            assertEquals(describe(original(conditions, selected, topK, minMatches)),
+                describe(service.checkSymptoms(selected, topK, minMatches)),
+                selected + " topK=" + topK + " minMatches=" + minMatches);
+            boolean coreOnly = true;
+            for (String symptom : selected) {
+                coreOnly &= CORE.contains(symptom) || !listed.contains(symptom);
+            }
+            if (coreOnly) {
+                tableQueries++;
+            }
+        }
+        return tableQueries;
+    }
+
+    @Test
+    void lookupsRankLikeTheOriginalLoopAndAfterEveryRebuild() {
+        Random random = new Random(23);
+        int[][] settings = {{3, 3}, {5, 1}, {1, 2}, {10, 2}, {0, 1}};
+        for (int[] setting : settings) {
+            int topK = setting[0];
+            int minMatches = setting[1];
+            List<Condition> conditions = catalog(random, 500);
+            SymptomCheckerService service = new SymptomCheckerService(conditions);
+            CoreResultTable table = service.enableCoreResultTable(CORE, topK, minMatches);
+
+            int tableQueries = checkAgainstTheOriginalLoop(service, conditions, random, topK, minMatches);
+            assertTrue(tableQueries > 100, tableQueries + " table queries");
+            assertEquals(tableQueries, table.getHitCount());
+
+            // Other ranking parameters are ranked by the engine
+            List<String> selected = List.of("S1", "S2", "S3");
+            assertEquals(describe(original(conditions, selected, topK + 1, minMatches)),
+                describe(service.checkSymptoms(selected, topK + 1, minMatches)));
+            assertEquals(tableQueries, table.getHitCount());
+
+            for (int rebuild = 0; rebuild < 2; rebuild++) {
+                List<Condition> replaced = catalog(random, 200 + random.nextInt(400));
+                service.replaceCatalog(replaced);
+                CoreResultTable rebuilt = service.getCoreResultTable();
+                assertNotSame(table, rebuilt);
+                long hitsBefore = rebuilt.getHitCount();
+                int rebuiltQueries = checkAgainstTheOriginalLoop(service, replaced, random, topK, minMatches);
+                assertEquals(hitsBefore + rebuiltQueries, rebuilt.getHitCount());
+                table = rebuilt;
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.symptomchecker.service;
+
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.model.SymptomResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.symptomchecker.service.SymptomCheckerServiceTest.describe;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultCacheTest {
+
+    private static SymptomCheckerService service() {
+        return new SymptomCheckerService(SymptomCheckerServiceTest.catalog(new Random(5), 300));
+    }
+
+    private static List<List<String>> distinctQueries(int count) {
+        List<List<String>> queries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            queries.add(List.of("S" + i % 40, "S" + (i / 40 + i % 40 + 1) % 40));
+        }
+        return queries;
+    }
+
+    @Test
+    void neverHoldsMoreEntriesThanTheLimit() {
+        for (int maxEntries : new int[] {1, 4, 15, 17, 100}) {
+            SymptomCheckerService service = service();
+            ResultCache cache = service.enableResultCache(maxEntries, Long.MAX_VALUE);
+            for (List<String> query : distinctQueries(400)) {
+                service.checkSymptoms(query, 3, 1);
+                assertTrue(cache.size() <= maxEntries, cache.size() + " entries, limit " + maxEntries);
+            }
+            assertTrue(cache.size() > 0);
+        }
+    }
+
+    @Test
+    void neverHoldsMoreWeightThanTheLimit() {
+        for (long maxWeight : new long[] {1, 5, 64, 300, 5_000}) {
+            SymptomCheckerService service = service();
+            ResultCache cache = service.enableResultCache(1_000, maxWeight);
+            for (List<String> query : distinctQueries(400)) {
+                service.checkSymptoms(query, 3, 1);
+                assertTrue(cache.weight() <= maxWeight, cache.weight() + " weight, limit " + maxWeight);
+            }
+            // Two symptoms and up to three results weigh at most five
+            assertEquals(maxWeight < 2, cache.size() == 0, "limit " + maxWeight);
+        }
+    }
+
+    @Test
+    void selectionsWithTheSameKnownSymptomsShareAnEntry() {
+        SymptomCheckerService service = new SymptomCheckerService(SymptomCheckerService.defaultConditions());
+        ResultCache cache = service.enableResultCache(100, 10_000);
+        List<SymptomResult> first = service.checkSymptoms(List.of("Fever", "Cough"), 3, 1);
+        List<SymptomResult> second = service.checkSymptoms(List.of("Cough", "Fever", "Fever", "Unknown"), 3, 1);
+
+        assertEquals(describe(first), describe(second));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+        // Other ranking parameters are other queries
+        service.checkSymptoms(List.of("Fever", "Cough"), 2, 1);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void replacingTheCatalogInvalidatesEveryEntry() {
+        SymptomCheckerService service = new SymptomCheckerService(SymptomCheckerService.defaultConditions());
+        ResultCache cache = service.enableResultCache(100, 10_000);
+        service.checkSymptoms(List.of("Fever"), 3, 1);
+
+        service.replaceCatalog(List.of(new Condition(9, "Heat Stroke", List.of("Fever", "Dizziness"), "Cool down")));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getInvalidationCount());
+        assertEquals("9 Heat Stroke 1/2 50% Cool down; ", describe(service.checkSymptoms(List.of("Fever"), 3, 1)));
+        assertEquals(0, cache.getHitCount());
+    }
+}
@@ -0,0 +1,147 @@
+package com.symptomchecker.service;
+
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.model.SymptomResult;
+import com.symptomchecker.repository.PackedConditionStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SymptomCheckerServiceTest {
+
+    /** Random catalog with repeated symptoms, repeated names and an empty condition. */
+    static List<Condition> catalog(Random random, int size) {
+        List<Condition> conditions = new ArrayList<>();
+        for (int id = 1; id <= size; id++) {
+            List<String> symptoms = new ArrayList<>();
+            int count = id == size / 2 ? 0 : 1 + random.nextInt(8);
+            for (int s = 0; s < count; s++) {
+                symptoms.add("S" + random.nextInt(40));
+            }
+            conditions.add(new Condition(id, "C" + random.nextInt(size / 3), symptoms, "Advice " + id));
+        }
+        return conditions;
+    }
+
+    /** Random selection, with repeats and symptoms the catalog does not list. */
+    static List<String> query(Random random) {
+        List<String> selected = new ArrayList<>();
+        int count = 1 + random.nextInt(8);
+        for (int s = 0; s < count; s++) {
+            selected.add("S" + random.nextInt(45));
+        }
+        return selected;
+    }
+
+    static String describe(List<SymptomResult> results) {
+        StringBuilder out = new StringBuilder();
+        for (SymptomResult result : results) {
+            out.append(result.getConditionId()).append(' ').append(result.getConditionName()).append(' ')
+                .append(result.getMatchedCount()).append('/').append(result.getTotalSymptoms()).append(' ')
+                .append(result.getPercentMatch()).append("% ").append(result.getAdvice()).append("; ");
+        }
+        return out.toString();
+    }
+
+    @Test
+    void repeatedSelectionsAreCountedOnce() {
+        SymptomCheckerService service = new SymptomCheckerService(SymptomCheckerService.defaultConditions());
+        // The original loop counted this as three matches of Flu and Respiratory Infection
+        assertEquals("6 Respiratory Infection 1/4 25% Rest, fluids, and see a doctor if symptoms worsen.; "
+                + "2 Flu 1/5 20% Rest well, stay hydrated, and monitor fever.; ",
+            describe(service.checkSymptoms(List.of("Fever", "Fever", "Fever"))));
+        assertEquals(describe(service.checkSymptoms(List.of("Fever", "Cough", "Chest Pain"))),
+            describe(service.checkSymptoms(List.of("Fever", "Cough", "Fever", "Chest Pain", "Cough"))));
+    }
+
+    @Test
+    void everyQueryPathRanksLikeTheOriginalLoop() {
+        Random random = new Random(1);
+        List<Condition> conditions = catalog(random, 600);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SymptomCheckerService heap = new SymptomCheckerService(conditions);
+            SymptomCheckerService packed = new SymptomCheckerService(PackedConditionStore.pack(conditions));
+            SymptomCheckerService parallel = new SymptomCheckerService(conditions);
+            parallel.enableParallelScoring(pool, 1);
+            for (int round = 0; round < 20; round++) {
+                int topK = random.nextInt(12);
+                int minMatches = 1 + random.nextInt(4);
+                List<List<String>> profiles = new ArrayList<>();
+                for (int q = 0; q < 100; q++) {
+                    profiles.add(query(random));
+                }
+                List<List<SymptomResult>> batch = heap.checkSymptomsBatch(profiles, topK, minMatches);
+                for (int q = 0; q < profiles.size(); q++) {
+                    List<String> selected = profiles.get(q);
+                    String expected = describe(original(conditions, selected, topK, minMatches));
+                    String context = selected + " topK=" + topK + " minMatches=" + minMatches;
+                    assertEquals(expected, describe(heap.checkSymptoms(selected, topK, minMatches)), context);
+                    assertEquals(expected, describe(packed.checkSymptoms(selected, topK, minMatches)), context);
+                    assertEquals(expected, describe(parallel.checkSymptoms(selected, topK, minMatches)), context);
+                    assertEquals(expected,
+                        describe(heap.checkSymptomsBuffered(selected, topK, minMatches).toResults()), context);
+                    assertEquals(expected, describe(batch.get(q)), context);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The ranking loop the service started from, with the fixed top 3 and 3-match threshold
+     * turned into parameters, run on the selection with repeats removed.
+     */
+    static List<SymptomResult> original(List<Condition> conditions, List<String> selected, int topK,
+                                        int minMatches) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(selected));
+        List<SymptomResult> results = new ArrayList<>();
+        for (Condition condition : conditions) {
+            List<String> conditionSymptoms = condition.getSymptoms();
+            if (conditionSymptoms == null || conditionSymptoms.isEmpty()) {
+                continue;
+            }
+            int matchedCount = 0;
+            for (String symptom : distinct) {
+                if (conditionSymptoms.contains(symptom)) {
+                    matchedCount++;
+                }
+            }
+            int percentMatch = Math.round((matchedCount * 100.0f) / conditionSymptoms.size());
+            results.add(new SymptomResult(condition.getId(), condition.getName(), matchedCount,
+                conditionSymptoms.size(), percentMatch, condition.getAdvice()));
+        }
+
+        List<SymptomResult> filtered = new ArrayList<>();
+        for (SymptomResult result : results) {
+            if (result.getMatchedCount() >= minMatches) {
+                filtered.add(result);
+            }
+        }
+        if (filtered.isEmpty()) {
+            for (SymptomResult result : results) {
+                if (result.getMatchedCount() > 0) {
+                    filtered.add(result);
+                }
+            }
+        }
+        // List.sort is stable, so ties stay in catalog order
+        filtered.sort((a, b) -> {
+            if (b.getMatchedCount() != a.getMatchedCount()) {
+                return Integer.compare(b.getMatchedCount(), a.getMatchedCount());
+            }
+            if (b.getPercentMatch() != a.getPercentMatch()) {
+                return Integer.compare(b.getPercentMatch(), a.getPercentMatch());
+            }
+            return a.getConditionName().compareTo(b.getConditionName());
+        });
+        return new ArrayList<>(filtered.subList(0, Math.min(topK, filtered.size())));
+    }
+}
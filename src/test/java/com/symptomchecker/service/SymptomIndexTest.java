@@ -0,0 +1,99 @@
+package com.symptomchecker.service;
+
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.model.SymptomResult;
+import com.symptomchecker.repository.PackedConditionStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SymptomIndexTest {
+
+    /** Catalog over a dictionary several query words wide, with repeated symptoms. */
+    private static List<Condition> catalog(Random random, int conditionCount, int dictionary) {
+        List<Condition> conditions = new ArrayList<>();
+        for (int id = 1; id <= conditionCount; id++) {
+            List<String> symptoms = new ArrayList<>();
+            int count = random.nextInt(10);
+            for (int s = 0; s < count; s++) {
+                symptoms.add("S" + random.nextInt(dictionary));
+            }
+            conditions.add(new Condition(id, "C" + random.nextInt(conditionCount / 2), symptoms, null));
+        }
+        return conditions;
+    }
+
+    @Test
+    void heapAndPackedIndexesAgree() {
+        Random random = new Random(19);
+        List<Condition> conditions = catalog(random, 2_000, 300);
+        SymptomIndex heap = SymptomIndex.build(conditions);
+        SymptomIndex packed = SymptomIndex.build(PackedConditionStore.pack(conditions));
+        assertEquals(5, heap.queryWords());
+        assertEquals(heap.postingEntries(), packed.postingEntries());
+
+        for (int q = 0; q < 200; q++) {
+            List<String> selected = new ArrayList<>();
+            for (int s = 0; s < 1 + random.nextInt(12); s++) {
+                selected.add("S" + random.nextInt(320));
+            }
+            long[] heapQuery = heap.encode(selected);
+            long[] packedQuery = packed.encode(selected);
+            for (int i = 0; i < conditions.size(); i++) {
+                int expected = (int) conditions.get(i).getSymptoms().stream().distinct().filter(selected::contains).count();
+                assertEquals(expected, heap.matchedCount(i, heapQuery));
+                assertEquals(expected, packed.matchedCount(i, packedQuery));
+            }
+        }
+        for (int id = 0; id < heap.symptomCount(); id++) {
+            int[] heapPostings = heap.postings(id);
+            assertArrayEquals(heapPostings, packed.postings(packed.symptomId(heap.symptomName(id))));
+            for (int p = 1; p < heapPostings.length; p++) {
+                assertTrue(heapPostings[p - 1] < heapPostings[p]);
+            }
+        }
+    }
+
+    @Test
+    void batchScanMatchesSingleQueries() {
+        Random random = new Random(91);
+        List<Condition> conditions = catalog(random, 3_000, 150);
+        for (List<Condition> catalog : List.of(conditions, PackedConditionStore.pack(conditions))) {
+            SymptomCheckerService service = new SymptomCheckerService(catalog);
+            // Dense selections make the batch take the tiled scan
+            List<List<String>> profiles = new ArrayList<>();
+            for (int p = 0; p < 150; p++) {
+                List<String> profile = new ArrayList<>();
+                for (int s = 0; s < 150 + random.nextInt(100); s++) {
+                    profile.add("S" + random.nextInt(160));
+                }
+                profiles.add(profile);
+            }
+            BatchScorer scorer = new BatchScorer(SymptomIndex.build(catalog), 5, 3);
+            assertTrue(scorer.prefersDenseScan(profiles.subList(0, BatchScorer.PROFILE_BLOCK)));
+            profiles.add(List.of());
+            profiles.add(Arrays.asList("S1", "S1", "unknown"));
+
+            List<List<SymptomResult>> batch = service.checkSymptomsBatch(profiles, 5, 3);
+            for (int p = 0; p < profiles.size(); p++) {
+                assertEquals(describe(service.checkSymptoms(profiles.get(p), 5, 3)), describe(batch.get(p)));
+            }
+        }
+    }
+
+    private static String describe(List<SymptomResult> results) {
+        StringBuilder out = new StringBuilder();
+        for (SymptomResult result : results) {
+            out.append(result.getConditionId()).append(' ').append(result.getMatchedCount()).append(' ')
+                .append(result.getPercentMatch()).append("; ");
+        }
+        return out.toString();
+    }
+}
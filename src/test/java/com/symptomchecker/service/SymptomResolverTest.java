@@ -0,0 +1,57 @@
+package com.symptomchecker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SymptomResolverTest {
+    private final SymptomResolver resolver = SymptomResolver.build(SymptomCheckerService.defaultSymptoms(), Map.of(), 2);
+
+    @Test
+    void resolvesExactSynonymAndCompactTerms() {
+        SymptomResolver withSynonyms = SymptomResolver.build(SymptomCheckerService.defaultSymptoms(),
+            Map.of("pyrexia", "Fever"), 2);
+        assertEquals("Fever", withSynonyms.resolveName(" FEVER "));
+        assertEquals("Fever", withSynonyms.resolveName("Pyrexia"));
+        assertEquals("Sore Throat", withSynonyms.resolveName("sore-throat"));
+        assertEquals("Runny Nose", withSynonyms.resolveName("runnynose"));
+    }
+
+    @Test
+    void resolvesAdjacentSwaps() {
+        assertEquals("Fever", resolver.resolveName("fveer"));
+        assertEquals("Fever", resolver.resolveName("feevr"));
+        assertEquals("Chills", resolver.resolveName("chlils"));
+        assertEquals("Cough", resolver.resolveName("cuogh"));
+        assertEquals("Nausea", resolver.resolveName("nasuea"));
+        assertEquals("Nausea", resolver.resolveName("nuasea"));
+        assertEquals("Dizziness", resolver.resolveName("dizizness"));
+        assertEquals("Headache", resolver.resolveName("haedache"));
+    }
+
+    @Test
+    void resolvesInsertionsDeletionsAndSubstitutions() {
+        assertEquals("Headache", resolver.resolveName("headach"));
+        assertEquals("Headache", resolver.resolveName("headacche"));
+        assertEquals("Fatigue", resolver.resolveName("fatigeu"));
+        assertEquals("Sneezing", resolver.resolveName("sneezng"));
+        assertEquals("Sneezing", resolver.resolveName("sneeezing"));
+        assertEquals("Stomach Pain", resolver.resolveName("stomache pian"));
+        assertEquals("Shortness of Breath", resolver.resolveName("shortnes of braeth"));
+        assertEquals("Chest Pain", resolver.resolveName("chest pane"));
+    }
+
+    @Test
+    void rejectsTermsBeyondTheEditBudget() {
+        assertNull(resolver.resolveName("fvr"));
+        assertNull(resolver.resolveName("fveevr"));
+        assertNull(resolver.resolveName("xyzzy"));
+        assertNull(resolver.resolveName(""));
+        assertEquals(List.of("Fever", "Cough"), resolver.resolveAll(Arrays.asList("fveer", null, "cuogh", "fever", "xyzzy")));
+    }
+}
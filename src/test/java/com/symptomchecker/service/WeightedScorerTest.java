@@ -0,0 +1,205 @@
+package com.symptomchecker.service;
+
+import com.symptomchecker.model.Condition;
+import com.symptomchecker.model.SymptomResult;
+import com.symptomchecker.repository.PackedConditionStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeightedScorerTest {
+
+    /** Random catalog with repeated symptoms and repeated names, so every tie-break is exercised. */
+    private static List<Condition> catalog(Random random) {
+        List<Condition> conditions = new ArrayList<>();
+        for (int id = 1; id <= 300; id++) {
+            List<String> symptoms = new ArrayList<>();
+            int count = 1 + random.nextInt(8);
+            for (int s = 0; s < count; s++) {
+                symptoms.add("S" + random.nextInt(40));
+            }
+            conditions.add(new Condition(id, "C" + random.nextInt(100), symptoms, "Advice " + id));
+        }
+        return conditions;
+    }
+
+    private static List<String> query(Random random) {
+        List<String> selected = new ArrayList<>();
+        int count = 1 + random.nextInt(6);
+        for (int s = 0; s < count; s++) {
+            selected.add("S" + random.nextInt(45));
+        }
+        return selected;
+    }
+
+    private static String describe(List<SymptomResult> results) {
+        StringBuilder out = new StringBuilder();
+        for (SymptomResult result : results) {
+            out.append(result.getConditionId()).append(' ').append(result.getConditionName()).append(' ')
+                .append(result.getMatchedCount()).append('/').append(result.getTotalSymptoms()).append(' ')
+                .append(result.getPercentMatch()).append("%; ");
+        }
+        return out.toString();
+    }
+
+    @Test
+    void uniformWeightsRankLikeMatchCounting() {
+        Random random = new Random(17);
+        List<Condition> conditions = catalog(random);
+        for (List<Condition> catalog : List.of(conditions, PackedConditionStore.pack(conditions))) {
+            SymptomCheckerService counted = new SymptomCheckerService(catalog);
+            SymptomCheckerService weighted = new SymptomCheckerService(catalog);
+            weighted.setScoringWeights(SymptomWeights.uniform());
+            for (int q = 0; q < 500; q++) {
+                List<String> selected = query(random);
+                int topK = 1 + random.nextInt(10);
+                int minMatches = 1 + random.nextInt(3);
+                assertEquals(describe(counted.checkSymptoms(selected, topK, minMatches)),
+                    describe(weighted.checkSymptoms(selected, topK, minMatches)), selected.toString());
+            }
+        }
+    }
+
+    @Test
+    void weightedRankingMatchesAReferenceScorer() {
+        Random random = new Random(42);
+        List<Condition> conditions = catalog(random);
+        SymptomCheckerService service = new SymptomCheckerService(conditions);
+        SymptomWeights weights = (index, conditionIndex, symptomId) ->
+            1.0f + (index.symptomName(symptomId).hashCode() & 7) * 0.25f;
+        service.setScoringWeights(weights);
+        SymptomIndex index = SymptomIndex.build(conditions);
+
+        for (int q = 0; q < 300; q++) {
+            List<String> selected = query(random);
+            assertEquals(describe(reference(index, weights, selected, 5, 2)),
+                describe(service.checkSymptoms(selected, 5, 2)), selected.toString());
+        }
+    }
+
+    @Test
+    void catalogReplacementRecompilesTheWeights() {
+        SymptomCheckerService service = new SymptomCheckerService(SymptomCheckerService.defaultConditions());
+        service.setScoringWeights(SymptomWeights.uniform());
+        service.replaceCatalog(List.of(new Condition(7, "Only", List.of("Fever", "Fever", "Cough"), null)));
+        assertEquals("7 Only 1/3 33%; ", describe(service.checkSymptoms(List.of("Fever"), 3, 1)));
+    }
+
+    @Test
+    void invalidWeightsAreRejectedWhenSet() {
+        SymptomCheckerService service = new SymptomCheckerService(SymptomCheckerService.defaultConditions());
+        assertThrows(IllegalArgumentException.class,
+            () -> service.setScoringWeights((index, conditionIndex, symptomId) -> -1.0f));
+        assertThrows(IllegalArgumentException.class,
+            () -> service.setScoringWeights((index, conditionIndex, symptomId) -> Float.NaN));
+    }
+
+    @Test
+    void resultsRankedWithOtherWeightsAreNeverShared() {
+        SymptomIndex index = SymptomIndex.build(SymptomCheckerService.defaultConditions());
+        WeightedScorer scorer = new WeightedScorer(SymptomWeights.uniform(), index);
+        List<String> selected = List.of("Fever", "Cough");
+        ResultCache cache = new ResultCache(100, 10_000);
+
+        // A count-ranked query that finishes after the weights were set stores its results late
+        cache.put(index, SymptomSetKey.of(index, null, selected, 3, 1), List.of());
+        assertNull(cache.get(index, SymptomSetKey.of(index, scorer, selected, 3, 1)));
+        assertNull(cache.get(index, SymptomSetKey.of(index, new WeightedScorer(SymptomWeights.uniform(), index),
+            selected, 3, 1)));
+        assertNotNull(cache.get(index, SymptomSetKey.of(index, null, List.of("Cough", "Fever"), 3, 1)));
+    }
+
+    @Test
+    void weightsSetDuringACatalogSwapAreCompiledForTheNewCatalog() throws InterruptedException {
+        SymptomCheckerService service = new SymptomCheckerService(SymptomCheckerService.defaultConditions());
+        CountDownLatch compiling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger lookups = new AtomicInteger();
+        SymptomWeights blocking = (index, conditionIndex, symptomId) -> {
+            if (lookups.getAndIncrement() == 0) {
+                compiling.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return 1.0f;
+        };
+
+        Thread weigher = new Thread(() -> service.setScoringWeights(blocking));
+        weigher.start();
+        assertTrue(compiling.await(10, TimeUnit.SECONDS));
+        Thread replacer = new Thread(() -> service.replaceCatalog(
+            List.of(new Condition(9, "Heat Stroke", List.of("Fever", "Dizziness"), "Cool down"))));
+        replacer.start();
+        // Give the swap every chance to overtake the compile
+        replacer.join(200);
+        release.countDown();
+        weigher.join();
+        replacer.join();
+
+        lookups.set(0);
+        assertEquals("9 Heat Stroke 1/2 50%; ", describe(service.checkSymptoms(List.of("Fever"), 3, 1)));
+        // A model compiled for the old catalog would be rebuilt by every query
+        assertEquals(0, lookups.get());
+    }
+
+    /**
+     * Straightforward weighted ranking: the score sums the weights of the distinct selected
+     * symptoms, and the total sums the weight of every listed symptom.
+     */
+    private static List<SymptomResult> reference(SymptomIndex index, SymptomWeights weights, List<String> selected,
+                                                 int topK, int minMatches) {
+        Set<String> distinct = new LinkedHashSet<>(selected);
+        List<Object[]> strong = new ArrayList<>();
+        List<Object[]> fallback = new ArrayList<>();
+        for (int i = 0; i < index.conditionCount(); i++) {
+            Condition condition = index.getConditions().get(i);
+            float score = 0.0f;
+            float total = 0.0f;
+            int matched = 0;
+            for (String symptom : new LinkedHashSet<>(condition.getSymptoms())) {
+                float weight = weights.weight(index, i, index.symptomId(symptom));
+                if (distinct.contains(symptom)) {
+                    score += weight;
+                    matched++;
+                }
+            }
+            for (String symptom : condition.getSymptoms()) {
+                total += weights.weight(index, i, index.symptomId(symptom));
+            }
+            if (matched == 0) {
+                continue;
+            }
+            int percent = Math.round(score * 100.0f / total);
+            (matched >= minMatches ? strong : fallback).add(new Object[] {i, score, percent, matched});
+        }
+        List<Object[]> tier = strong.isEmpty() ? fallback : strong;
+        tier.sort(Comparator.<Object[]>comparingDouble(entry -> -(float) entry[1])
+            .thenComparingInt(entry -> -(int) entry[2])
+            .thenComparing(entry -> index.conditionName((int) entry[0]))
+            .thenComparingInt(entry -> (int) entry[0]));
+        List<SymptomResult> results = new ArrayList<>();
+        for (Object[] entry : tier.subList(0, Math.min(topK, tier.size()))) {
+            Condition condition = index.getConditions().get((int) entry[0]);
+            results.add(new SymptomResult(condition.getId(), condition.getName(), (int) entry[3],
+                condition.getSymptoms().size(), (int) entry[2], condition.getAdvice()));
+        }
+        return results;
+    }
+}
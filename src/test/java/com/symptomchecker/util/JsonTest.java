@@ -0,0 +1,31 @@
+package com.symptomchecker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonTest {
+
+    @Test
+    void readsNestingUpToTheLimit() {
+        String nested = "[".repeat(Json.MAX_DEPTH) + "]".repeat(Json.MAX_DEPTH);
+        assertEquals(nested, Json.write(Json.parse(nested)));
+        assertEquals(Map.of("a", List.of(Map.of("b", 1L))), Json.parse("{\"a\": [{\"b\": 1}]}"));
+    }
+
+    @Test
+    void rejectsDeeperNestingWithoutOverflowingTheStack() {
+        IllegalArgumentException tooDeep = assertThrows(IllegalArgumentException.class,
+            () -> Json.parse("[".repeat(Json.MAX_DEPTH + 1) + "]".repeat(Json.MAX_DEPTH + 1)));
+        assertTrue(tooDeep.getMessage().startsWith("Nesting deeper than"));
+
+        // A body of nothing but open brackets used to overflow the stack
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{\"a\":".repeat(1_000_000)));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("[".repeat(1_000_000)));
+    }
+}